@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.mesh;
+
+import com.edenrump.math.shape.mesh.GeometricConstruct;
+import com.edenrump.math.shape.solids.Icosahedron;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ConstructConverter#convertConstructToMesh(GeometricConstruct)} for icospheres of increasing
+ * subdivision level.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConstructConverterBenchmark {
+
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7"})
+    public int level;
+
+    private GeometricConstruct construct;
+
+    @Setup
+    public void setUp() {
+        construct = new Icosahedron(1f).getMesh();
+        for (int i = 0; i < level; i++) {
+            construct.subdivideMesh();
+        }
+    }
+
+    @Benchmark
+    public CPUMesh convert() {
+        return ConstructConverter.convertConstructToMesh(construct);
+    }
+}
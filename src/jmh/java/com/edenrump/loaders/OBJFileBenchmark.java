@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.loaders;
+
+import com.edenrump.math.shape.textured.WrappedConstruct;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of loading OBJ files of increasing size. Each file is generated before the trial as a triangulated grid
+ * with positions, texture coordinates and normals, and deleted afterwards.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OBJFileBenchmark {
+
+    @Param({"10000", "100000", "1000000", "5000000"})
+    public int faces;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("benchmark-grid-", ".obj");
+        writeGrid(file, faces);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public WrappedConstruct load() {
+        return new OBJFile(file.toString()).getMesh();
+    }
+
+    /**
+     * Write a square grid with at least the given number of triangles
+     */
+    static void writeGrid(Path path, int faces) throws IOException {
+        int quads = (int) Math.ceil(Math.sqrt(faces / 2.0));
+        int side = quads + 1;
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            for (int y = 0; y < side; y++) {
+                for (int x = 0; x < side; x++) {
+                    writer.write("v " + x + " " + y + " 0\n");
+                }
+            }
+            for (int y = 0; y < side; y++) {
+                for (int x = 0; x < side; x++) {
+                    writer.write("vt " + (float) x / quads + " " + (float) y / quads + "\n");
+                }
+            }
+            writer.write("vn 0 0 1\n");
+
+            for (int y = 0; y < quads; y++) {
+                for (int x = 0; x < quads; x++) {
+                    int bottomLeft = y * side + x + 1; //OBJ indices are 1-based
+                    int bottomRight = bottomLeft + 1;
+                    int topLeft = bottomLeft + side;
+                    int topRight = topLeft + 1;
+                    writeFace(writer, bottomLeft, bottomRight, topRight);
+                    writeFace(writer, bottomLeft, topRight, topLeft);
+                }
+            }
+        }
+    }
+
+    private static void writeFace(BufferedWriter writer, int a, int b, int c) throws IOException {
+        writer.write("f " + a + "/" + a + "/1 " + b + "/" + b + "/1 " + c + "/" + c + "/1\n");
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link SquareMatrix#multiply(SquareMatrix)} from the 4x4 kernel up to the blocked, parallel sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SquareMatrixBenchmark {
+
+    @Param({"4", "16", "64", "256"})
+    public int dimensions;
+
+    private SquareMatrix a;
+    private SquareMatrix b;
+
+    @Setup
+    public void setUp() {
+        a = randomMatrix(dimensions, 1);
+        b = randomMatrix(dimensions, 2);
+    }
+
+    @Benchmark
+    public SquareMatrix multiply() {
+        return a.multiply(b);
+    }
+
+    /**
+     * The triple loop the blocked multiply replaced, as a baseline
+     */
+    @Benchmark
+    public float[] naiveMultiply() {
+        float[] left = a.getValues();
+        float[] right = b.getValues();
+        float[] result = new float[dimensions * dimensions];
+        for (int row = 0; row < dimensions; row++) {
+            for (int column = 0; column < dimensions; column++) {
+                for (int k = 0; k < dimensions; k++) {
+                    result[row * dimensions + column] += left[row * dimensions + k] * right[k * dimensions + column];
+                }
+            }
+        }
+        return result;
+    }
+
+    static SquareMatrix randomMatrix(int dimensions, long seed) {
+        Random random = new Random(seed);
+        float[] values = new float[dimensions * dimensions];
+        for (int i = 0; i < values.length; i++) values[i] = random.nextFloat() * 2 - 1;
+        return new SquareMatrix(values);
+    }
+}
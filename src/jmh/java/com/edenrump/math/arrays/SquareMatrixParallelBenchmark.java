@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the blocked {@link SquareMatrix#multiply(SquareMatrix)} with the parallelism of the fork-join pool it runs
+ * in, for matrices large enough to be split into tiles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SquareMatrixParallelBenchmark {
+
+    @Param({"128", "256", "512"})
+    public int dimensions;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private SquareMatrix a;
+    private SquareMatrix b;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        a = SquareMatrixBenchmark.randomMatrix(dimensions, 1);
+        b = SquareMatrixBenchmark.randomMatrix(dimensions, 2);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public SquareMatrix multiply() throws ExecutionException, InterruptedException {
+        //tasks forked from inside the pool stay in it, rather than going to the common pool
+        return pool.submit(() -> a.multiply(b)).get();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.geom;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Transform#getTransformationMatrix()}, both when the transform moves every frame and when the
+ * cached matrix can be reused.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TransformBenchmark {
+
+    private Transform transform;
+
+    @Setup
+    public void setUp() {
+        transform = new Transform();
+        transform.translate(1, 2, 3);
+        transform.scale(2, 2, 2);
+    }
+
+    @Benchmark
+    public FloatBuffer moving() {
+        transform.rotate(0.5f, 1f, 0.25f);
+        return transform.getTransformationMatrix();
+    }
+
+    @Benchmark
+    public FloatBuffer stationary() {
+        return transform.getTransformationMatrix();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import com.edenrump.math.shape.solids.Icosahedron;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of building an icosphere by repeated {@link GeometricConstruct#subdivideMesh()}, from the bare
+ * icosahedron (20 faces) to level 7 (327,680 faces), against the same subdivision on packed arrays through
+ * {@link Subdivision}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubdivisionBenchmark {
+
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7"})
+    public int level;
+
+    @Benchmark
+    public GeometricConstruct subdivide() {
+        GeometricConstruct construct = new Icosahedron(1f).getMesh();
+        for (int i = 0; i < level; i++) {
+            construct.subdivideMesh();
+        }
+        return construct;
+    }
+
+    @Benchmark
+    public float[] subdividePacked() {
+        HalfEdgeMesh icosahedron = HalfEdgeMesh.fromConstruct(new Icosahedron(1f).getMesh());
+        int[] indices = icosahedron.getIndices();
+        float[] positions = icosahedron.getPositions();
+        for (int i = 0; i < level; i++) {
+            Subdivision subdivision = Subdivision.subdivide(indices, positions.length / 3);
+            positions = subdivision.subdivideAttribute(positions, 3);
+            indices = subdivision.getIndices();
+        }
+        return positions;
+    }
+}
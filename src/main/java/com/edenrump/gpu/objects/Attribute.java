@@ -20,6 +20,7 @@
 package com.edenrump.gpu.objects;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.GL_HALF_FLOAT;
 
 /**
  * This class represents an attribute in OpenGL
@@ -34,11 +35,13 @@ public class Attribute {
     public static final String NORMALS_ATTRIB_NAME = "normal";
     public static final String TEXTURE_COORDS_ATTRIB_NAME = "textureCoordinates";
     public static final String COLOURS_ATTRIB_NAME = "colours";
+    public static final String TANGENTS_ATTRIB_NAME = "tangent";
 
     public static final int POSITION_ATTRIB = 0x0;
     public static final int NORMALS_ATTRIB = 0x1;
     public static final int TEXTURE_COORDS_ATTRIB = 0x2;
     public static final int COLOURS_ATTRIB = 0x2;
+    public static final int TANGENTS_ATTRIB = 0x3;
 
     public static final int RAW_COORDINATES = 0x10;
     public static final int UNTEXTURED_MESH = 0x11;
@@ -66,6 +69,14 @@ public class Attribute {
      * Parameter representing the size of the attribute
      */
     private int size;
+    /**
+     * The OpenGL type of each value, GL_FLOAT unless the attribute is stored at reduced precision
+     */
+    private final int type;
+    /**
+     * Whether integer values are mapped to [0, 1] or [-1, 1] when read, rather than converted directly to floats
+     */
+    private final boolean normalized;
     /**
      * The VBO in which this attribute is stored
      */
@@ -74,24 +85,67 @@ public class Attribute {
     /**
      * Constructor allowing full set up of attribute for further use
      *
-     * @param location the OpenGL handle for the attribute
-     * @param name     the name of the attribute used in the Shader Program
-     * @param size     the size of the attribute in bytes
-     * @param stride   the stride between attribute values in GPU memory
-     * @param offset   the gap between the start of the VBO and the start of the attribute in GPU memory
+     * @param location   the OpenGL handle for the attribute
+     * @param name       the name of the attribute used in the Shader Program
+     * @param size       the size of the attribute in bytes
+     * @param stride     the stride between attribute values in GPU memory
+     * @param offset     the gap between the start of the VBO and the start of the attribute in GPU memory
+     * @param type       the OpenGL type of each value, e.g. GL_FLOAT
+     * @param normalized whether integer values are read as normalized fixed-point values
      */
-    private Attribute(int location, String name, int size, int stride, int offset, int vboID) {
+    private Attribute(int location, String name, int size, int stride, int offset, int type, boolean normalized,
+                      int vboID) {
         this.location = location;
         this.name = name;
         this.size = size;
         this.stride = stride;
         this.offset = offset;
+        this.type = type;
+        this.normalized = normalized;
         this.vboID = vboID;
         pointVertexAttribute();
     }
 
     public Attribute(int location, String name, int size, int vboID){
-        this(location, name, size, 0, 0, vboID);
+        this(location, name, size, 0, 0, GL_FLOAT, false, vboID);
+    }
+
+    /**
+     * Method to get an attribute whose values are stored in the VBO at half precision
+     */
+    public static Attribute getHalfFloatAttribute(int location, String name, int size, int vboID) {
+        return getHalfFloatAttribute(location, name, size, 0, vboID);
+    }
+
+    /**
+     * Method to get an attribute whose values are stored in the VBO at half precision, with each vertex padded
+     *
+     * @param stride the number of bytes from the start of one vertex to the start of the next
+     */
+    public static Attribute getHalfFloatAttribute(int location, String name, int size, int stride, int vboID) {
+        return new Attribute(location, name, size, stride, 0, GL_HALF_FLOAT, false, vboID);
+    }
+
+    /**
+     * Method to get an attribute read from a buffer shared with other attributes, one vertex after another
+     *
+     * @param stride the number of bytes from the start of one vertex to the start of the next
+     * @param offset the number of bytes from the start of a vertex to this attribute
+     */
+    public static Attribute getInterleavedAttribute(int location, String name, int size, int type, int stride,
+                                                    int offset, int vboID) {
+        return new Attribute(location, name, size, stride, offset, type, false, vboID);
+    }
+
+    /**
+     * Method to get an attribute read from a buffer shared with other attributes, whose integer values may be read
+     * as normalized fixed-point values
+     *
+     * @param normalized true to map unsigned values to [0, 1] and signed values to [-1, 1] when read
+     */
+    public static Attribute getInterleavedAttribute(int location, String name, int size, int type, boolean normalized,
+                                                    int stride, int offset, int vboID) {
+        return new Attribute(location, name, size, stride, offset, type, normalized, vboID);
     }
 
     /**
@@ -102,7 +156,19 @@ public class Attribute {
         return new Attribute(
                 TEXTURE_COORDS_ATTRIB,
                 TEXTURE_COORDS_ATTRIB_NAME,
-                2, 0, 0,
+                2, 0, 0, GL_FLOAT, false,
+                vboID);
+    }
+
+    /**
+     * Method to get type-safe attribute for referencing a standard location and
+     * name for vertex tangents, each with the sign of its bitangent as a fourth component
+     */
+    public static Attribute getDefaultTangentsAttribute(int vboID) {
+        return new Attribute(
+                TANGENTS_ATTRIB,
+                TANGENTS_ATTRIB_NAME,
+                4, 0, 0, GL_FLOAT, false,
                 vboID);
     }
 
@@ -175,6 +241,24 @@ public class Attribute {
         return location;
     }
 
+    /**
+     * Method to get the OpenGL type of each value of the attribute
+     *
+     * @return the OpenGL type, e.g. GL_FLOAT or GL_HALF_FLOAT
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Method to check whether integer values of the attribute are read as normalized fixed-point values
+     *
+     * @return true if values are mapped to [0, 1] or [-1, 1] when read
+     */
+    public boolean isNormalized() {
+        return normalized;
+    }
+
     public int getVBOId() {
         return vboID;
     }
@@ -214,7 +298,7 @@ public class Attribute {
      */
     public void pointVertexAttribute() {
         glBindBuffer(GL_ARRAY_BUFFER, vboID);
-        glVertexAttribPointer(location, size, GL_FLOAT, false, stride, offset);
+        glVertexAttribPointer(location, size, type, normalized, stride, offset);
         glBindBuffer(GL_ARRAY_BUFFER, 0);
     }
 }
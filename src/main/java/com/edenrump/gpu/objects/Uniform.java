@@ -27,12 +27,43 @@ public class Uniform {
     final int shaderProgramID;
     final CharSequence name;
 
+    /**
+     * The object, and its version, whose value was last uploaded to this uniform
+     */
+    private Object uploadSource;
+    private int uploadVersion;
+
     public Uniform(int shaderProgramID, int location, CharSequence name) {
         this.shaderProgramID = shaderProgramID;
         this.location = location;
         this.name = name;
     }
 
+    /**
+     * Check whether this uniform already holds the value of a versioned source, such as a
+     * {@link com.edenrump.math.geom.Transform}, so that uploading it again can be skipped.
+     * <p>
+     * Only valid when every upload to this uniform is recorded with {@link #markUploaded(Object, int)}.
+     *
+     * @param source  the object the value comes from
+     * @param version the current version of that object
+     * @return true if the uniform was last updated from this source at this version
+     */
+    public boolean isUploaded(Object source, int version) {
+        return uploadSource == source && uploadVersion == version;
+    }
+
+    /**
+     * Record that this uniform has just been updated from a versioned source.
+     *
+     * @param source  the object the value came from
+     * @param version the version of that object
+     */
+    public void markUploaded(Object source, int version) {
+        this.uploadSource = source;
+        this.uploadVersion = version;
+    }
+
     public CharSequence getName() {
         return name;
     }
@@ -19,8 +19,10 @@
 
 package com.edenrump.gpu.objects;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 
 import static org.lwjgl.opengl.GL15.*;
 
@@ -68,6 +70,30 @@ public class VertexBufferObject {
         glBufferData(target, data, usage);
     }
 
+    /**
+     * Upload vertex data to this VertexBufferObject with specified target, data and usage. Used for attributes stored
+     * at half precision.
+     *
+     * @param target Target to upload
+     * @param data   Buffer with the data to upload
+     * @param usage  Usage of the data
+     */
+    public static void uploadData(int target, ShortBuffer data, int usage) {
+        glBufferData(target, data, usage);
+    }
+
+    /**
+     * Upload vertex data to this VertexBufferObject with specified target, data and usage. Used for interleaved
+     * attributes of mixed types.
+     *
+     * @param target Target to upload
+     * @param data   Buffer with the data to upload
+     * @param usage  Usage of the data
+     */
+    public static void uploadData(int target, ByteBuffer data, int usage) {
+        glBufferData(target, data, usage);
+    }
+
     /**
      * Upload null data to this VertexBufferObject with specified target, size and usage. The
      * target in the tutorial should be <code>GL_ARRAY_BUFFER</code> and usage
@@ -59,8 +59,10 @@ public abstract class Component extends Container implements Renderable {
         mesh.enableAttributes();
         if (transformationUniform == null) return;
 
-        if (transformationUniform.getName() != "null") {
+        if (transformationUniform.getName() != "null" &&
+                !transformationUniform.isUploaded(transform, transform.getVersion())) {
             transformationUniform.asUniformMatrix().update_4x4(transform.getTransformationMatrix());
+            transformationUniform.markUploaded(transform, transform.getVersion());
         }
     }
 
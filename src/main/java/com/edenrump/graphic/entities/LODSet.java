@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.entities;
+
+import com.edenrump.graphic.mesh.CPUMesh;
+import com.edenrump.graphic.mesh.ConstructConverter;
+import com.edenrump.graphic.mesh.GPUMesh;
+import com.edenrump.math.shape.lod.LODChain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The levels of detail of one renderable object, from most to least detailed, together with the object-space
+ * bounding sphere used to judge how large the object appears on screen.
+ * <p>
+ * Each level records the geometric error it introduces, in object-space units, so that a selector can project the
+ * error onto the screen and choose the cheapest level that still looks correct.
+ *
+ * @author Ed Eden-Rump
+ */
+public class LODSet {
+
+    private final float[] boundingSphere;
+    private final List<GPUMesh> meshes = new ArrayList<>();
+    private float[] errors = new float[4];
+    private int[] triangleCounts = new int[4];
+
+    /**
+     * @param centreX the x coordinate of the centre of the object-space bounding sphere
+     * @param centreY the y coordinate of the centre of the object-space bounding sphere
+     * @param centreZ the z coordinate of the centre of the object-space bounding sphere
+     * @param radius  the radius of the object-space bounding sphere
+     */
+    public LODSet(float centreX, float centreY, float centreZ, float radius) {
+        if (radius < 0 || Float.isNaN(radius)) {
+            throw new IllegalArgumentException("Bounding sphere radius must not be negative: " + radius);
+        }
+        this.boundingSphere = new float[]{centreX, centreY, centreZ, radius};
+    }
+
+    /**
+     * Upload every level of a chain to the GPU.
+     *
+     * @param chain the chain to upload
+     * @return a set with one level per level of the chain, bounded by the sphere around the most detailed level
+     */
+    public static LODSet fromChain(LODChain chain) {
+        LODSet set = null;
+        for (int level = 0; level < chain.getLevelCount(); level++) {
+            CPUMesh mesh = ConstructConverter.convertConstructToMesh(chain.getLevel(level), true);
+            if (set == null) {
+                float[] sphere = computeBoundingSphere(mesh.getVertexPositions(), 3);
+                set = new LODSet(sphere[0], sphere[1], sphere[2], sphere[3]);
+            }
+            set.addLevel(mesh.commitToGPU(), chain.getError(level), chain.getFaceCount(level));
+        }
+        return set;
+    }
+
+    /**
+     * Find a sphere enclosing every position, centred on their axis-aligned bounding box.
+     *
+     * @param positions packed vertex positions
+     * @param stride    the number of floats per vertex, of which the first three are x, y and z
+     * @return the centre x, y and z followed by the radius
+     */
+    public static float[] computeBoundingSphere(float[] positions, int stride) {
+        if (stride < 3) throw new IllegalArgumentException("Stride must be at least 3: " + stride);
+        if (positions.length < 3) return new float[4];
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i + 2 < positions.length; i += stride) {
+            minX = Math.min(minX, positions[i]);
+            minY = Math.min(minY, positions[i + 1]);
+            minZ = Math.min(minZ, positions[i + 2]);
+            maxX = Math.max(maxX, positions[i]);
+            maxY = Math.max(maxY, positions[i + 1]);
+            maxZ = Math.max(maxZ, positions[i + 2]);
+        }
+
+        float x = (minX + maxX) * 0.5f;
+        float y = (minY + maxY) * 0.5f;
+        float z = (minZ + maxZ) * 0.5f;
+        float radiusSquared = 0;
+        for (int i = 0; i + 2 < positions.length; i += stride) {
+            float dx = positions[i] - x;
+            float dy = positions[i + 1] - y;
+            float dz = positions[i + 2] - z;
+            radiusSquared = Math.max(radiusSquared, dx * dx + dy * dy + dz * dz);
+        }
+        return new float[]{x, y, z, (float) Math.sqrt(radiusSquared)};
+    }
+
+    /**
+     * Add the next, less detailed, level.
+     *
+     * @param mesh          the mesh to draw at this level
+     * @param error         the object-space geometric error of this level, no smaller than that of the previous level
+     * @param triangleCount the number of triangles drawn at this level
+     */
+    public void addLevel(GPUMesh mesh, float error, int triangleCount) {
+        int level = meshes.size();
+        if (!(error >= 0)) {
+            throw new IllegalArgumentException("Level error must not be negative: " + error);
+        }
+        if (level > 0 && error < errors[level - 1]) {
+            throw new IllegalArgumentException("Level error " + error + " is smaller than that of the previous level: "
+                    + errors[level - 1]);
+        }
+        if (triangleCount < 0) {
+            throw new IllegalArgumentException("Triangle count must not be negative: " + triangleCount);
+        }
+        if (level == errors.length) {
+            errors = Arrays.copyOf(errors, level * 2);
+            triangleCounts = Arrays.copyOf(triangleCounts, level * 2);
+        }
+        meshes.add(mesh);
+        errors[level] = error;
+        triangleCounts[level] = triangleCount;
+    }
+
+    public int getLevelCount() {
+        return meshes.size();
+    }
+
+    /**
+     * @return the mesh drawn at the level, where level 0 is the most detailed
+     */
+    public GPUMesh getMesh(int level) {
+        return meshes.get(level);
+    }
+
+    public float getError(int level) {
+        checkLevel(level);
+        return errors[level];
+    }
+
+    public int getTriangleCount(int level) {
+        checkLevel(level);
+        return triangleCounts[level];
+    }
+
+    /**
+     * @return the centre x, y and z of the object-space bounding sphere followed by its radius, owned by this set
+     */
+    public float[] getBoundingSphere() {
+        return boundingSphere;
+    }
+
+    private void checkLevel(int level) {
+        if (level < 0 || level >= meshes.size()) {
+            throw new IndexOutOfBoundsException("Level " + level + " out of range for " + meshes.size() + " levels");
+        }
+    }
+}
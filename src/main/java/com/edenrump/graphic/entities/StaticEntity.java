@@ -21,6 +21,7 @@ package com.edenrump.graphic.entities;
 
 import com.edenrump.math.geom.Transform;
 import com.edenrump.graphic.mesh.GPUMesh;
+import com.edenrump.graphic.mesh.Meshlets;
 import com.edenrump.gpu.objects.Uniform;
 
 public class StaticEntity implements Renderable {
@@ -28,9 +29,27 @@ public class StaticEntity implements Renderable {
     final GPUMesh mesh;
     final Transform transform;
     Uniform transformationMatrix = null;
+    final LODSet lodSet;
+    int lodLevel = 0;
+    Meshlets meshlets = null;
 
     public StaticEntity(GPUMesh mesh) {
         this.mesh = mesh;
+        this.lodSet = null;
+        transform = new Transform();
+    }
+
+    /**
+     * Create an entity drawn at one of several levels of detail, starting with the most detailed.
+     *
+     * @param lodSet the levels of detail, of which there must be at least one
+     */
+    public StaticEntity(LODSet lodSet) {
+        if (lodSet.getLevelCount() == 0) {
+            throw new IllegalArgumentException("Level of detail set must contain at least one level");
+        }
+        this.mesh = lodSet.getMesh(0);
+        this.lodSet = lodSet;
         transform = new Transform();
     }
 
@@ -40,27 +59,68 @@ public class StaticEntity implements Renderable {
 
     @Override
     public void prepare() {
-        mesh.bindVAO();
+        getMesh().bindVAO();
     }
 
     @Override
     public void update() {
-        mesh.enableAttributes();
+        getMesh().enableAttributes();
         if (transformationMatrix == null) return;
 
-        if (transformationMatrix.getName() != "null") {
+        if (transformationMatrix.getName() != "null" &&
+                !transformationMatrix.isUploaded(transform, transform.getVersion())) {
             transformationMatrix.asUniformMatrix().update_4x4(transform.getTransformationMatrix());
+            transformationMatrix.markUploaded(transform, transform.getVersion());
         }
     }
 
     @Override
     public void finish() {
-        mesh.disableAttributes();
+        getMesh().disableAttributes();
     }
 
     @Override
     public GPUMesh getMesh() {
-        return mesh;
+        return lodSet == null ? mesh : lodSet.getMesh(lodLevel);
+    }
+
+    /**
+     * @return the levels of detail of this entity, or null if it is always drawn with one mesh
+     */
+    public LODSet getLODSet() {
+        return lodSet;
+    }
+
+    /**
+     * @return the meshlets of this entity's mesh, or null if it is always drawn whole
+     */
+    public Meshlets getMeshlets() {
+        return meshlets;
+    }
+
+    /**
+     * @param meshlets the meshlets of this entity's mesh, built from the same index buffer, or null to draw it whole
+     */
+    public void setMeshlets(Meshlets meshlets) {
+        if (meshlets != null && lodSet != null) {
+            throw new IllegalStateException("Meshlets cannot be used with levels of detail");
+        }
+        this.meshlets = meshlets;
+    }
+
+    public int getLODLevel() {
+        return lodLevel;
+    }
+
+    /**
+     * @param level the level of detail to draw, where level 0 is the most detailed
+     */
+    public void setLODLevel(int level) {
+        int levels = lodSet == null ? 1 : lodSet.getLevelCount();
+        if (level < 0 || level >= levels) {
+            throw new IllegalArgumentException("Level " + level + " out of range for " + levels + " levels");
+        }
+        this.lodLevel = level;
     }
 
     public void scale(float x, float y, float z) {
@@ -19,16 +19,37 @@
 
 package com.edenrump.graphic.mesh;
 
-import static com.edenrump.gpu.objects.Attribute.NORMALS_ATTRIB;
-import static com.edenrump.gpu.objects.Attribute.NORMALS_ATTRIB_NAME;
+import com.edenrump.math.shape.mesh.VertexTangents;
+import com.edenrump.math.util.Buffers;
+import com.edenrump.math.util.HalfVectorBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.edenrump.gpu.objects.Attribute.*;
 import static org.lwjgl.opengl.GL11C.GL_TRIANGLES;
 
+/**
+ * A mesh held in CPU memory, ready to be committed to the GPU.
+ * <p>
+ * Positions and normals are stored either as floats or, for attributes that tolerate an 11-bit significand, as a
+ * {@link HalfVectorBuffer}, which halves their memory and upload size. Setting one form of an attribute discards the
+ * other.
+ * <p>
+ * A mesh is committed either with one vertex buffer per attribute or, with {@link #commitToGPU(boolean)}, with every
+ * attribute interleaved in a single buffer laid out by {@link #getVertexFormat()}.
+ */
 public class CPUMesh {
 
     private final int floatsPerVertex;
 
     private float[] vertexPositions;
     private float[] vertexNormals;
+    private HalfVectorBuffer halfVertexPositions;
+    private HalfVectorBuffer halfVertexNormals;
+    private float[] textureCoordinates;
+    private float[] tangents;
     private int[] indices;
 
     public CPUMesh(int floatsPerVertex) {
@@ -39,20 +60,109 @@ public class CPUMesh {
         return floatsPerVertex;
     }
 
+    /**
+     * @return the vertex positions, expanded into a new array if they are stored at half precision
+     */
     public float[] getVertexPositions() {
+        if (halfVertexPositions != null) return halfVertexPositions.toFloatArray();
         return vertexPositions;
     }
 
     public void setVertexPositions(float[] vertexPositions) {
         this.vertexPositions = vertexPositions;
+        this.halfVertexPositions = null;
+    }
+
+    /**
+     * @return the vertex positions if they are stored at half precision, otherwise null
+     */
+    public HalfVectorBuffer getHalfVertexPositions() {
+        return halfVertexPositions;
     }
 
+    public void setVertexPositions(HalfVectorBuffer vertexPositions) {
+        this.halfVertexPositions = vertexPositions;
+        this.vertexPositions = null;
+    }
+
+    /**
+     * @return the vertex normals, expanded into a new array if they are stored at half precision
+     */
     public float[] getVertexNormals() {
+        if (halfVertexNormals != null) return halfVertexNormals.toFloatArray();
         return vertexNormals;
     }
 
     public void setVertexNormals(float[] vertexNormals) {
         this.vertexNormals = vertexNormals;
+        this.halfVertexNormals = null;
+    }
+
+    /**
+     * @return the vertex normals if they are stored at half precision, otherwise null
+     */
+    public HalfVectorBuffer getHalfVertexNormals() {
+        return halfVertexNormals;
+    }
+
+    public void setVertexNormals(HalfVectorBuffer vertexNormals) {
+        this.halfVertexNormals = vertexNormals;
+        this.vertexNormals = null;
+    }
+
+    /**
+     * @return the texture coordinates, two per vertex, or null if the mesh is untextured
+     */
+    public float[] getTextureCoordinates() {
+        return textureCoordinates;
+    }
+
+    public void setTextureCoordinates(float[] textureCoordinates) {
+        this.textureCoordinates = textureCoordinates;
+    }
+
+    /**
+     * @return the tangents, four per vertex with the sign of the bitangent last, or null if none have been set
+     */
+    public float[] getTangents() {
+        return tangents;
+    }
+
+    public void setTangents(float[] tangents) {
+        this.tangents = tangents;
+    }
+
+    /**
+     * Generate MikkTSpace tangents from the positions, normals and texture coordinates of this mesh. Vertices shared
+     * by faces with mirrored and unmirrored texture coordinates are split, so the vertices and indices of the mesh
+     * may change.
+     *
+     * @see VertexTangents
+     */
+    public void generateTangents() {
+        if (floatsPerVertex != 3)
+            throw new IllegalStateException("Cannot generate tangents for a mesh with " + floatsPerVertex +
+                    " dimensions per vertex");
+        float[] normals = getVertexNormals();
+        if (normals == null || textureCoordinates == null || indices == null)
+            throw new IllegalStateException("Cannot generate tangents without normals, texture coordinates and indices");
+
+        VertexTangents generated = VertexTangents.generate(getVertexPositions(), normals, textureCoordinates, indices);
+        if (generated.getVertexCount() != getVertexCount()) {
+            if (halfVertexPositions != null) {
+                setVertexPositions(new HalfVectorBuffer(3, generated.remapAttribute(getVertexPositions(), 3)));
+            } else {
+                setVertexPositions(generated.remapAttribute(vertexPositions, 3));
+            }
+            if (halfVertexNormals != null) {
+                setVertexNormals(new HalfVectorBuffer(3, generated.remapAttribute(normals, 3)));
+            } else {
+                setVertexNormals(generated.remapAttribute(normals, 3));
+            }
+            textureCoordinates = generated.remapAttribute(textureCoordinates, 2);
+        }
+        indices = generated.getIndices();
+        tangents = generated.getTangents();
     }
 
     public int[] getIndices() {
@@ -63,11 +173,88 @@ public class CPUMesh {
         this.indices = indices;
     }
 
+    /**
+     * @return the narrowest OpenGL index type able to address every vertex, with which the indices are uploaded
+     */
+    public int getIndexType() {
+        return Buffers.getIndexType(getVertexCount());
+    }
+
+    /**
+     * @return the interleaved layout of this mesh: positions, then normals, texture coordinates and tangents if
+     * present, each at the precision it is stored at
+     */
+    public VertexFormat getVertexFormat() {
+        List<VertexFormat.Element> elements = new ArrayList<>();
+        VertexFormat.Element position = VertexFormat.Element.position(floatsPerVertex);
+        elements.add(halfVertexPositions != null ? position.toHalf() : position);
+        if (vertexNormals != null || halfVertexNormals != null) {
+            VertexFormat.Element normal = VertexFormat.Element.normal(floatsPerVertex);
+            elements.add(halfVertexNormals != null ? normal.toHalf() : normal);
+        }
+        if (textureCoordinates != null) elements.add(VertexFormat.Element.textureCoordinates());
+        if (tangents != null) elements.add(VertexFormat.Element.tangent());
+        return new VertexFormat(elements.toArray(new VertexFormat.Element[0]));
+    }
+
+    /**
+     * @return the attributes of this mesh interleaved as laid out by {@link #getVertexFormat()}
+     */
+    public ByteBuffer interleave() {
+        VertexFormat format = getVertexFormat();
+        List<float[]> values = new ArrayList<>();
+        values.add(getVertexPositions());
+        if (vertexNormals != null || halfVertexNormals != null) values.add(getVertexNormals());
+        if (textureCoordinates != null) values.add(textureCoordinates);
+        if (tangents != null) values.add(tangents);
+        return format.interleave(getVertexCount(), values.toArray(new float[0][]));
+    }
+
+    /**
+     * @return the number of vertices in the mesh
+     */
+    public int getVertexCount() {
+        if (halfVertexPositions != null) return halfVertexPositions.getCount();
+        return vertexPositions == null ? 0 : vertexPositions.length / floatsPerVertex;
+    }
+
+    /**
+     * Commit this mesh to the GPU.
+     *
+     * @param interleaved true to upload every attribute in one interleaved vertex buffer, false to upload one buffer
+     *                    per attribute
+     * @return the mesh on the GPU
+     */
+    public GPUMesh commitToGPU(boolean interleaved) {
+        if (!interleaved) return commitToGPU();
+        GPUMesh gpuMesh = new GPUMesh(floatsPerVertex);
+        gpuMesh.setDrawType(GL_TRIANGLES);
+        gpuMesh.setVertices(getVertexFormat(), interleave(), indices, getIndexType());
+        return gpuMesh;
+    }
+
     public GPUMesh commitToGPU() {
         GPUMesh gpuMesh = new GPUMesh(floatsPerVertex);
         gpuMesh.setDrawType(GL_TRIANGLES);
-        gpuMesh.setPositions(vertexPositions, indices);
-        gpuMesh.addAttribute(NORMALS_ATTRIB, NORMALS_ATTRIB_NAME, vertexNormals);
+        if (halfVertexPositions != null) {
+            gpuMesh.setPositions(halfVertexPositions, indices, getIndexType());
+        } else {
+            gpuMesh.setPositions(vertexPositions, indices, getIndexType());
+        }
+
+        if (halfVertexNormals != null) {
+            gpuMesh.addAttribute(NORMALS_ATTRIB, NORMALS_ATTRIB_NAME, halfVertexNormals);
+        } else {
+            gpuMesh.addAttribute(NORMALS_ATTRIB, NORMALS_ATTRIB_NAME, vertexNormals);
+        }
+
+        if (textureCoordinates != null) {
+            gpuMesh.addAttribute(TEXTURE_COORDS_ATTRIB, TEXTURE_COORDS_ATTRIB_NAME, textureCoordinates, 2);
+        }
+
+        if (tangents != null) {
+            gpuMesh.addAttribute(TANGENTS_ATTRIB, TANGENTS_ATTRIB_NAME, tangents, 4);
+        }
         return gpuMesh;
     }
 }
@@ -20,9 +20,23 @@
 package com.edenrump.graphic.mesh;
 
 import com.edenrump.math.shape.mesh.GeometricConstruct;
+import com.edenrump.math.shape.mesh.HalfEdgeMesh;
+import com.edenrump.math.shape.solids.SolidGeometry;
 
 public class ConstructConverter {
 
+    /**
+     * Convert a construct to a mesh, optionally reordering its triangles and vertices for the GPU vertex cache.
+     *
+     * @param construct           the construct to convert
+     * @param optimiseVertexCache true to reorder with {@link VertexCacheOptimiser#optimise(CPUMesh)}
+     * @return a new mesh
+     */
+    public static CPUMesh convertConstructToMesh(GeometricConstruct construct, boolean optimiseVertexCache) {
+        CPUMesh mesh = convertConstructToMesh(construct);
+        return optimiseVertexCache ? VertexCacheOptimiser.optimise(mesh) : mesh;
+    }
+
     public static CPUMesh convertConstructToMesh(GeometricConstruct construct) {
         float[] vertexPositions = new float[construct.getNumberOfVertices() * 3];
         float[] vertexNormals = new float[construct.getNumberOfVertices() * 3];
@@ -50,4 +64,29 @@ public class ConstructConverter {
         return mesh;
     }
 
+    public static CPUMesh convertHalfEdgeMeshToMesh(HalfEdgeMesh halfEdgeMesh) {
+        CPUMesh mesh = new CPUMesh(3);
+        mesh.setVertexPositions(halfEdgeMesh.getPositions().clone());
+        if (halfEdgeMesh.getNormals() != null) mesh.setVertexNormals(halfEdgeMesh.getNormals().clone());
+        mesh.setIndices(halfEdgeMesh.getIndices());
+
+        return mesh;
+    }
+
+    public static HalfEdgeMesh convertMeshToHalfEdgeMesh(CPUMesh mesh) {
+        if (mesh.getFloatsPerVertex() != 3)
+            throw new IllegalArgumentException("Half-edge mesh does not support non-3D coordinates");
+
+        return new HalfEdgeMesh(mesh.getVertexPositions(), mesh.getVertexNormals(), mesh.getIndices());
+    }
+
+    public static CPUMesh convertGeometryToMesh(SolidGeometry geometry) {
+        CPUMesh mesh = new CPUMesh(3);
+        mesh.setVertexPositions(geometry.getPositions());
+        mesh.setVertexNormals(geometry.getNormals());
+        mesh.setIndices(geometry.getIndices());
+
+        return mesh;
+    }
+
 }
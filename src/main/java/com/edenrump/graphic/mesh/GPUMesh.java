@@ -23,9 +23,13 @@ import com.edenrump.gpu.objects.Attribute;
 import com.edenrump.gpu.objects.VertexArrayObject;
 import com.edenrump.gpu.objects.VertexBufferObject;
 import com.edenrump.math.util.Buffers;
+import com.edenrump.math.util.HalfVectorBuffer;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import static com.edenrump.gpu.objects.Attribute.*;
 import static org.lwjgl.opengl.GL15.*;
@@ -40,6 +44,7 @@ public class GPUMesh {
     private final int dimensionsPerVertex;
     private int numberOfElements;
     private int glDrawType = GL_TRIANGLES;
+    private int indexType = GL_UNSIGNED_INT;
 
     public GPUMesh(int dimensionsPerVertex) {
         this.dimensionsPerVertex = dimensionsPerVertex;
@@ -79,19 +84,62 @@ public class GPUMesh {
         this.glDrawType = glDrawType;
     }
 
+    /**
+     * Upload indices at the narrowest width able to hold them.
+     *
+     * @param indices the indices of each element
+     */
     public void setIndices(int[] indices) {
+        setIndices(indices, Buffers.getIndexType(indices));
+    }
+
+    /**
+     * Upload indices at a given width.
+     *
+     * @param indices   the indices of each element
+     * @param indexType GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT, wide enough for every index
+     */
+    public void setIndices(int[] indices, int indexType) {
+        ByteBuffer buffer = Buffers.storeIndicesInBuffer(indices, indexType);
         vao.bind();
         indexBuffer = new VertexBufferObject();
         indexBuffer.bind(GL_ELEMENT_ARRAY_BUFFER);
-        VertexBufferObject.uploadData(GL_ELEMENT_ARRAY_BUFFER, Buffers.storeDataInBuffer(indices), GL_STATIC_DRAW);
+        VertexBufferObject.uploadData(GL_ELEMENT_ARRAY_BUFFER, buffer, GL_STATIC_DRAW);
+        this.indexType = indexType;
         this.unbind();
     }
 
+    /**
+     * @return the OpenGL type of the indices, to pass to the draw call
+     */
+    public int getIndexType() {
+        return indexType;
+    }
+
+    /**
+     * @return the number of bytes taken by each index
+     */
+    public int getIndexSize() {
+        return Buffers.getIndexSize(indexType);
+    }
+
     public void bindVAO() {
         vao.bind();
     }
 
     public void addAttribute(int location, String name, float[] values) {
+        addAttribute(location, name, values, dimensionsPerVertex);
+    }
+
+    /**
+     * Add an attribute whose number of values per vertex differs from the dimensions of the mesh.
+     *
+     * @param location   the attribute location
+     * @param name       the attribute name
+     * @param values     the packed values
+     * @param components the number of values per vertex
+     */
+    public void addAttribute(int location, String name, float[] values, int components) {
         VertexBufferObject vbo = new VertexBufferObject();
         vao.bind();
         vbo.bind(GL_ARRAY_BUFFER);
@@ -103,16 +151,120 @@ public class GPUMesh {
         Attribute attribute = new Attribute(
                 location,
                 name,
-                dimensionsPerVertex,
+                components,
                 vbo.getID());
         attributes.put(attribute.getName(), attribute);
         this.unbind();
     }
 
+    /**
+     * Add an attribute whose values are uploaded, and read by the shader, at half precision. Each vector is padded
+     * to a 4-byte boundary, as in {@link VertexFormat}, so three-component vectors are read with an 8-byte stride.
+     *
+     * @param location the attribute location
+     * @param name     the attribute name
+     * @param values   the packed half-precision values
+     */
+    public void addAttribute(int location, String name, HalfVectorBuffer values) {
+        VertexBufferObject vbo = new VertexBufferObject();
+        vao.bind();
+        vbo.bind(GL_ARRAY_BUFFER);
+        VertexBufferObject.uploadData(
+                GL_ARRAY_BUFFER,
+                Buffers.storeDataInBuffer(values.getAlignedValues()),
+                GL_STATIC_DRAW
+        );
+        Attribute attribute = Attribute.getHalfFloatAttribute(
+                location,
+                name,
+                values.getComponents(),
+                values.getAlignedStride(),
+                vbo.getID());
+        attributes.put(attribute.getName(), attribute);
+        this.unbind();
+    }
+
+    /**
+     * Add every attribute of a vertex format from one interleaved buffer, uploaded once and shared by the attributes.
+     *
+     * @param format   the layout of each vertex
+     * @param vertices the interleaved vertices, as packed by {@link VertexFormat#interleave(int, float[]...)}
+     */
+    public void addInterleavedAttributes(VertexFormat format, ByteBuffer vertices) {
+        VertexBufferObject vbo = new VertexBufferObject();
+        vao.bind();
+        vbo.bind(GL_ARRAY_BUFFER);
+        VertexBufferObject.uploadData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        for (int i = 0; i < format.getElementCount(); i++) {
+            VertexFormat.Element element = format.getElement(i);
+            Attribute attribute = Attribute.getInterleavedAttribute(
+                    element.getLocation(),
+                    element.getName(),
+                    element.getComponents(),
+                    element.getType(),
+                    element.isNormalized(),
+                    format.getStride(),
+                    format.getOffset(i),
+                    vbo.getID());
+            attributes.put(attribute.getName(), attribute);
+        }
+        this.unbind();
+    }
+
+    /**
+     * Set every attribute from one interleaved buffer, and the indices to draw them with.
+     *
+     * @param format   the layout of each vertex
+     * @param vertices the interleaved vertices
+     * @param indices  the indices of each element
+     */
+    public void setVertices(VertexFormat format, ByteBuffer vertices, int[] indices) {
+        setVertices(format, vertices, indices, Buffers.getIndexType(indices));
+    }
+
+    /**
+     * Set every attribute from one interleaved buffer, and the indices to draw them with at a given width.
+     *
+     * @param format    the layout of each vertex
+     * @param vertices  the interleaved vertices
+     * @param indices   the indices of each element
+     * @param indexType GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT, wide enough for every index
+     */
+    public void setVertices(VertexFormat format, ByteBuffer vertices, int[] indices, int indexType) {
+        numberOfElements = indices.length;
+        addInterleavedAttributes(format, vertices);
+        setIndices(indices, indexType);
+    }
+
+    /**
+     * @return the number of distinct vertex buffers the attributes of this mesh are read from
+     */
+    public int getVertexBufferCount() {
+        Set<Integer> ids = new HashSet<>();
+        for (Attribute attribute : getAttributes()) {
+            ids.add(attribute.getVBOId());
+        }
+        return ids.size();
+    }
+
     public void setPositions(float[] positions, int[] indices) {
+        setPositions(positions, indices, Buffers.getIndexType(indices));
+    }
+
+    public void setPositions(float[] positions, int[] indices, int indexType) {
+        numberOfElements = indices.length;
+        addAttribute(POSITION_ATTRIB, POSITIONS_ATTRIB_NAME, positions);
+        setIndices(indices, indexType);
+    }
+
+    public void setPositions(HalfVectorBuffer positions, int[] indices) {
+        setPositions(positions, indices, Buffers.getIndexType(indices));
+    }
+
+    public void setPositions(HalfVectorBuffer positions, int[] indices, int indexType) {
         numberOfElements = indices.length;
         addAttribute(POSITION_ATTRIB, POSITIONS_ATTRIB_NAME, positions);
-        setIndices(indices);
+        setIndices(indices, indexType);
     }
 
     void unbind() {
@@ -70,6 +70,36 @@ public class GPUTexturedMesh extends GPUMesh {
         this.unbind();
     }
 
+    /**
+     * Set the texture of a mesh whose texture coordinates are already interleaved with its other attributes.
+     *
+     * @param texture the texture
+     */
+    public void setTexture(Texture texture) {
+        this.texture = texture;
+    }
+
+    /**
+     * Upload the tangents used to read the normal map of the texture, four per vertex as produced by
+     * {@link com.edenrump.math.shape.mesh.VertexTangents}.
+     *
+     * @param tangents a unit tangent and the sign of its bitangent for each vertex
+     */
+    public void setTangents(float[] tangents) {
+        if (tangents.length % 4 != 0)
+            throw new IllegalArgumentException("Tangent count must be a multiple of 4: " + tangents.length);
+        bindVAO();
+
+        VertexBufferObject tangentVBO = new VertexBufferObject();
+        tangentVBO.bind(GL_ARRAY_BUFFER);
+        VertexBufferObject.uploadData(GL_ARRAY_BUFFER, Buffers.storeDataInBuffer(tangents), GL_STATIC_DRAW);
+        Attribute tangentAttrib = Attribute.getDefaultTangentsAttribute(tangentVBO.getID());
+        tangentAttrib.enableVertexAttribute();
+        attributes.put(tangentAttrib.getName(), tangentAttrib);
+
+        this.unbind();
+    }
+
     public Texture getTexture() {
         return texture;
     }
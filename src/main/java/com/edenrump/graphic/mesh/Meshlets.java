@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Splits the index buffer of a mesh into small clusters of triangles, called meshlets, each with a bounding sphere
+ * and a cone enclosing its face normals, so that clusters facing away from the camera or lying outside the view
+ * frustum can be skipped on the CPU.
+ * <p>
+ * Triangles are taken in index buffer order and a meshlet is closed as soon as the next triangle would take it past
+ * the vertex or triangle limit. Every meshlet is therefore a contiguous range of the original index buffer, which
+ * can be drawn directly without rebuilding the buffer. Reordering the mesh with
+ * {@link VertexCacheOptimiser#optimise(CPUMesh)} first keeps neighbouring triangles together and so produces
+ * tighter clusters.
+ * <p>
+ * All data is in the object space of the mesh.
+ *
+ * @author Ed Eden-Rump
+ */
+public class Meshlets {
+
+    public static final int DEFAULT_MAX_VERTICES = 64;
+    public static final int DEFAULT_MAX_TRIANGLES = 124;
+
+    /**
+     * Normal cones wider than this, measured by the smallest cosine between the axis and a face normal, cannot be
+     * culled reliably and are stored as never back-facing.
+     */
+    private static final float MINIMUM_CONE_COSINE = 0.1f;
+
+    private final int meshletCount;
+    private final int[] ranges;
+    private final float[] bounds;
+    private final float[] cones;
+
+    private Meshlets(int meshletCount, int[] ranges, float[] bounds, float[] cones) {
+        this.meshletCount = meshletCount;
+        this.ranges = ranges;
+        this.bounds = bounds;
+        this.cones = cones;
+    }
+
+    /**
+     * Split a mesh with the default limits of {@link #DEFAULT_MAX_VERTICES} vertices and
+     * {@link #DEFAULT_MAX_TRIANGLES} triangles per meshlet.
+     *
+     * @param mesh the mesh to split, which is not modified
+     * @return the meshlets of the mesh
+     */
+    public static Meshlets build(CPUMesh mesh) {
+        return build(mesh.getIndices(), mesh.getVertexPositions(), mesh.getFloatsPerVertex(),
+                DEFAULT_MAX_VERTICES, DEFAULT_MAX_TRIANGLES);
+    }
+
+    /**
+     * Split a triangle index buffer into meshlets.
+     *
+     * @param indices      the triangle indices
+     * @param positions    the packed vertex positions
+     * @param stride       the number of floats per vertex in positions, of which the first three are x, y and z
+     * @param maxVertices  the largest number of distinct vertices in one meshlet, at least 3
+     * @param maxTriangles the largest number of triangles in one meshlet, at least 1
+     * @return the meshlets of the index buffer
+     */
+    public static Meshlets build(int[] indices, float[] positions, int stride, int maxVertices, int maxTriangles) {
+        if (indices.length % 3 != 0) {
+            throw new IllegalArgumentException("Index count must be a multiple of 3: " + indices.length);
+        }
+        if (stride < 3) throw new IllegalArgumentException("Stride must be at least 3: " + stride);
+        if (maxVertices < 3) throw new IllegalArgumentException("Meshlets must allow at least 3 vertices: " + maxVertices);
+        if (maxTriangles < 1) {
+            throw new IllegalArgumentException("Meshlets must allow at least 1 triangle: " + maxTriangles);
+        }
+
+        int vertexCount = positions.length / stride;
+        int triangleCount = indices.length / 3;
+        //the stamp of a vertex is one more than the meshlet that last used it, so no clearing is needed between them
+        int[] stamps = new int[vertexCount];
+        int[] ranges = new int[Math.max(1, triangleCount / maxTriangles + 1) * 3];
+        int count = 0;
+
+        int first = 0;
+        int triangles = 0;
+        int vertices = 0;
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            int stamp = count + 1;
+            int added = 0;
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices[triangle * 3 + k];
+                if (vertex < 0 || vertex >= vertexCount) {
+                    throw new IllegalArgumentException("Index " + vertex + " out of range for " + vertexCount + " vertices");
+                }
+                if (stamps[vertex] != stamp && !isRepeated(indices, triangle * 3, k)) added++;
+            }
+
+            if (triangles > 0 && (vertices + added > maxVertices || triangles == maxTriangles)) {
+                if (count * 3 == ranges.length) ranges = Arrays.copyOf(ranges, ranges.length * 2);
+                ranges[count * 3] = first;
+                ranges[count * 3 + 1] = triangles * 3;
+                ranges[count * 3 + 2] = vertices;
+                count++;
+                first = triangle * 3;
+                triangles = 0;
+                vertices = 0;
+                stamp = count + 1;
+            }
+
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices[triangle * 3 + k];
+                if (stamps[vertex] != stamp) {
+                    stamps[vertex] = stamp;
+                    vertices++;
+                }
+            }
+            triangles++;
+        }
+        if (triangles > 0) {
+            if (count * 3 == ranges.length) ranges = Arrays.copyOf(ranges, ranges.length + 3);
+            ranges[count * 3] = first;
+            ranges[count * 3 + 1] = triangles * 3;
+            ranges[count * 3 + 2] = vertices;
+            count++;
+        }
+
+        float[] bounds = new float[count * 4];
+        float[] cones = new float[count * 4];
+        for (int meshlet = 0; meshlet < count; meshlet++) {
+            computeBounds(indices, positions, stride, ranges[meshlet * 3], ranges[meshlet * 3 + 1],
+                    bounds, cones, meshlet * 4);
+        }
+        return new Meshlets(count, Arrays.copyOf(ranges, count * 3), bounds, cones);
+    }
+
+    private static boolean isRepeated(int[] indices, int offset, int k) {
+        for (int j = 0; j < k; j++) {
+            if (indices[offset + j] == indices[offset + k]) return true;
+        }
+        return false;
+    }
+
+    private static void computeBounds(int[] indices, float[] positions, int stride, int first, int count,
+                                      float[] bounds, float[] cones, int out) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = first; i < first + count; i++) {
+            int p = indices[i] * stride;
+            minX = Math.min(minX, positions[p]);
+            minY = Math.min(minY, positions[p + 1]);
+            minZ = Math.min(minZ, positions[p + 2]);
+            maxX = Math.max(maxX, positions[p]);
+            maxY = Math.max(maxY, positions[p + 1]);
+            maxZ = Math.max(maxZ, positions[p + 2]);
+        }
+        float cx = (minX + maxX) * 0.5f;
+        float cy = (minY + maxY) * 0.5f;
+        float cz = (minZ + maxZ) * 0.5f;
+        float radiusSquared = 0;
+        for (int i = first; i < first + count; i++) {
+            int p = indices[i] * stride;
+            float dx = positions[p] - cx;
+            float dy = positions[p + 1] - cy;
+            float dz = positions[p + 2] - cz;
+            radiusSquared = Math.max(radiusSquared, dx * dx + dy * dy + dz * dz);
+        }
+        bounds[out] = cx;
+        bounds[out + 1] = cy;
+        bounds[out + 2] = cz;
+        bounds[out + 3] = (float) Math.sqrt(radiusSquared);
+
+        //the cone axis is the mean unit face normal, and its extent the widest angle between the axis and a normal
+        float[] normals = new float[count];
+        float ax = 0, ay = 0, az = 0;
+        int faces = 0;
+        for (int i = first; i < first + count; i += 3) {
+            int a = indices[i] * stride, b = indices[i + 1] * stride, c = indices[i + 2] * stride;
+            float e1x = positions[b] - positions[a], e1y = positions[b + 1] - positions[a + 1], e1z = positions[b + 2] - positions[a + 2];
+            float e2x = positions[c] - positions[a], e2y = positions[c + 1] - positions[a + 1], e2z = positions[c + 2] - positions[a + 2];
+            float nx = e1y * e2z - e1z * e2y;
+            float ny = e1z * e2x - e1x * e2z;
+            float nz = e1x * e2y - e1y * e2x;
+            float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) continue;
+            normals[faces * 3] = nx / length;
+            normals[faces * 3 + 1] = ny / length;
+            normals[faces * 3 + 2] = nz / length;
+            ax += normals[faces * 3];
+            ay += normals[faces * 3 + 1];
+            az += normals[faces * 3 + 2];
+            faces++;
+        }
+
+        float axisLength = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+        if (faces == 0 || axisLength == 0) {
+            cones[out + 3] = 1;
+            return;
+        }
+        ax /= axisLength;
+        ay /= axisLength;
+        az /= axisLength;
+        float minimumCosine = 1;
+        for (int f = 0; f < faces; f++) {
+            minimumCosine = Math.min(minimumCosine, ax * normals[f * 3] + ay * normals[f * 3 + 1] + az * normals[f * 3 + 2]);
+        }
+        cones[out] = ax;
+        cones[out + 1] = ay;
+        cones[out + 2] = az;
+        //the cutoff is the sine of the widest angle, so a view direction within the complementary angle of the axis
+        //sees only back faces; a cutoff of 1 can never be met
+        cones[out + 3] = minimumCosine <= MINIMUM_CONE_COSINE ? 1 :
+                (float) Math.sqrt(1 - minimumCosine * minimumCosine);
+    }
+
+    /**
+     * Test whether every triangle of a meshlet faces away from a camera.
+     *
+     * @param meshlet the meshlet
+     * @param cameraX the x coordinate of the camera in object space
+     * @param cameraY the y coordinate of the camera in object space
+     * @param cameraZ the z coordinate of the camera in object space
+     * @return true if no triangle of the meshlet can be front-facing from anywhere the camera could be
+     */
+    public boolean isBackFacing(int meshlet, float cameraX, float cameraY, float cameraZ) {
+        int b = meshlet * 4;
+        if (cones[b + 3] >= 1) return false;
+        float dx = bounds[b] - cameraX;
+        float dy = bounds[b + 1] - cameraY;
+        float dz = bounds[b + 2] - cameraZ;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        return dx * cones[b] + dy * cones[b + 1] + dz * cones[b + 2] >= cones[b + 3] * distance + bounds[b + 3];
+    }
+
+    /**
+     * Test whether a meshlet lies wholly outside any of a set of planes.
+     * <p>
+     * Each plane is four floats a, b, c and d, with a point inside when ax + by + cz + d is at least 0. The normal
+     * need not be unit length, which allows world-space planes to be carried into object space by the transpose of
+     * the object's transformation matrix.
+     *
+     * @param meshlet the meshlet
+     * @param planes  the packed planes
+     * @return true if the bounding sphere of the meshlet lies wholly outside one of the planes
+     */
+    public boolean isOutside(int meshlet, float[] planes) {
+        int b = meshlet * 4;
+        for (int p = 0; p + 3 < planes.length; p += 4) {
+            float normalLength = (float) Math.sqrt(planes[p] * planes[p] + planes[p + 1] * planes[p + 1] +
+                    planes[p + 2] * planes[p + 2]);
+            float distance = planes[p] * bounds[b] + planes[p + 1] * bounds[b + 1] + planes[p + 2] * bounds[b + 2] +
+                    planes[p + 3];
+            if (distance < -bounds[b + 3] * normalLength) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Collect the index ranges of the meshlets that may be visible, merging neighbouring ranges.
+     *
+     * @param camera       the object-space camera position, or null to skip back-face culling
+     * @param planes       the object-space planes as described in {@link #isOutside(int, float[])}, or null to skip
+     *                     frustum culling
+     * @param firstIndices receives the first index of each range, with room for {@link #getMeshletCount()} entries
+     * @param indexCounts  receives the number of indices in each range, with room for {@link #getMeshletCount()}
+     *                     entries
+     * @return the number of ranges written
+     */
+    public int collectVisibleRanges(float[] camera, float[] planes, int[] firstIndices, int[] indexCounts) {
+        int count = 0;
+        for (int meshlet = 0; meshlet < meshletCount; meshlet++) {
+            if (camera != null && isBackFacing(meshlet, camera[0], camera[1], camera[2])) continue;
+            if (planes != null && isOutside(meshlet, planes)) continue;
+
+            int first = ranges[meshlet * 3];
+            if (count > 0 && firstIndices[count - 1] + indexCounts[count - 1] == first) {
+                indexCounts[count - 1] += ranges[meshlet * 3 + 1];
+            } else {
+                firstIndices[count] = first;
+                indexCounts[count] = ranges[meshlet * 3 + 1];
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getMeshletCount() {
+        return meshletCount;
+    }
+
+    /**
+     * @return the position in the index buffer of the first index of the meshlet
+     */
+    public int getFirstIndex(int meshlet) {
+        return ranges[meshlet * 3];
+    }
+
+    public int getIndexCount(int meshlet) {
+        return ranges[meshlet * 3 + 1];
+    }
+
+    /**
+     * @return the number of distinct vertices referenced by the meshlet
+     */
+    public int getVertexCount(int meshlet) {
+        return ranges[meshlet * 3 + 2];
+    }
+
+    /**
+     * @return the centre x, y and z of the meshlet's bounding sphere followed by its radius, in a new array
+     */
+    public float[] getBoundingSphere(int meshlet) {
+        return Arrays.copyOfRange(bounds, meshlet * 4, meshlet * 4 + 4);
+    }
+
+    /**
+     * @return the unit axis of the meshlet's normal cone followed by its cutoff, the sine of the widest angle between
+     * the axis and a face normal, or 1 if the meshlet can never be back-face culled, in a new array
+     */
+    public float[] getNormalCone(int meshlet) {
+        return Arrays.copyOfRange(cones, meshlet * 4, meshlet * 4 + 4);
+    }
+}
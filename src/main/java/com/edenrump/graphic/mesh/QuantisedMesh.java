@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.mesh;
+
+import com.edenrump.math.arrays.Mat4;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.edenrump.gpu.objects.Attribute.*;
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * A mesh whose attributes are compressed to small integers, interleaved in one vertex buffer.
+ * <p>
+ * Positions are stored as unsigned normalized 16-bit values across the bounding box of the mesh. The shader maps them
+ * back to object space with the {@link #getDequantisationMatrix() dequantisation matrix}, which is best folded into
+ * the model matrix. Normals are stored as two signed normalized 8 or 16-bit values using the octahedral mapping,
+ * which spreads the available precision evenly over the sphere of directions; the shader decodes them with
+ * {@link #decodeOctahedral(float, float, float[])}. Texture coordinates are stored as unsigned normalized 16-bit
+ * values, across their bounding rectangle if they leave [0, 1], in which case the shader must apply the
+ * {@link #getTextureCoordinateTransform() texture coordinate transform}.
+ * <p>
+ * At 16 bits per normal component a float mesh of position, normal and texture coordinates shrinks from 32 to 16
+ * bytes per vertex. The largest error introduced in each attribute is measured while encoding.
+ *
+ * @author Ed Eden-Rump
+ */
+public class QuantisedMesh {
+
+    private final int dimensions;
+    private final int vertexCount;
+    private final VertexFormat format;
+    private final ByteBuffer vertices;
+    private final int[] indices;
+    private final Mat4 dequantisation;
+    private final float[] textureCoordinateTransform;
+
+    private float maximumPositionError;
+    private float maximumNormalError;
+    private float maximumTextureCoordinateError;
+
+    private QuantisedMesh(int dimensions, int vertexCount, VertexFormat format, ByteBuffer vertices, int[] indices,
+                          Mat4 dequantisation, float[] textureCoordinateTransform) {
+        this.dimensions = dimensions;
+        this.vertexCount = vertexCount;
+        this.format = format;
+        this.vertices = vertices;
+        this.indices = indices;
+        this.dequantisation = dequantisation;
+        this.textureCoordinateTransform = textureCoordinateTransform;
+    }
+
+    /**
+     * Compress a mesh with 16-bit normals.
+     *
+     * @param mesh the mesh to compress, which is not modified
+     * @return the compressed mesh
+     */
+    public static QuantisedMesh encode(CPUMesh mesh) {
+        return encode(mesh, 16);
+    }
+
+    /**
+     * Compress a mesh.
+     *
+     * @param mesh       the mesh to compress, which is not modified
+     * @param normalBits the number of bits for each of the two octahedral components of a normal, 8 or 16
+     * @return the compressed mesh
+     */
+    public static QuantisedMesh encode(CPUMesh mesh, int normalBits) {
+        if (normalBits != 8 && normalBits != 16) {
+            throw new IllegalArgumentException("Normals must be encoded with 8 or 16 bits per component: " + normalBits);
+        }
+        int dimensions = mesh.getFloatsPerVertex();
+        if (dimensions < 1 || dimensions > 3) {
+            throw new IllegalArgumentException("Positions must have 1 to 3 components: " + dimensions);
+        }
+        float[] positions = mesh.getVertexPositions();
+        float[] normals = mesh.getVertexNormals();
+        float[] textureCoordinates = mesh.getTextureCoordinates();
+        int vertexCount = mesh.getVertexCount();
+        if (normals != null && dimensions != 3) {
+            throw new IllegalArgumentException("Octahedral normals need 3 components: " + dimensions);
+        }
+
+        List<VertexFormat.Element> elements = new ArrayList<>();
+        List<float[]> values = new ArrayList<>();
+
+        //positions, as fractions of the bounding box
+        float[] min = new float[3];
+        float[] extent = new float[3];
+        for (int d = 0; d < dimensions; d++) {
+            float low = Float.POSITIVE_INFINITY, high = Float.NEGATIVE_INFINITY;
+            for (int v = 0; v < vertexCount; v++) {
+                low = Math.min(low, positions[v * dimensions + d]);
+                high = Math.max(high, positions[v * dimensions + d]);
+            }
+            min[d] = vertexCount == 0 ? 0 : low;
+            extent[d] = vertexCount == 0 ? 0 : high - low;
+        }
+        float[] positionFractions = new float[vertexCount * dimensions];
+        for (int v = 0; v < vertexCount; v++) {
+            for (int d = 0; d < dimensions; d++) {
+                positionFractions[v * dimensions + d] = extent[d] == 0 ? 0 :
+                        (positions[v * dimensions + d] - min[d]) / extent[d];
+            }
+        }
+        elements.add(VertexFormat.Element.position(dimensions).toNormalized(GL_UNSIGNED_SHORT));
+        values.add(positionFractions);
+        Mat4 dequantisation = new Mat4(
+                extent[0], 0, 0, 0,
+                0, dimensions > 1 ? extent[1] : 1, 0, 0,
+                0, 0, dimensions > 2 ? extent[2] : 1, 0,
+                min[0], min[1], min[2], 1);
+
+        //normals, as octahedral coordinates rounded to the nearest direction
+        if (normals != null) {
+            int type = normalBits == 8 ? GL_BYTE : GL_SHORT;
+            float[] octahedral = new float[vertexCount * 2];
+            float[] encoded = new float[2];
+            for (int v = 0; v < vertexCount; v++) {
+                encodeOctahedral(normals[v * 3], normals[v * 3 + 1], normals[v * 3 + 2], type, encoded);
+                octahedral[v * 2] = encoded[0];
+                octahedral[v * 2 + 1] = encoded[1];
+            }
+            elements.add(new VertexFormat.Element(NORMALS_ATTRIB, NORMALS_ATTRIB_NAME, 2, type, true));
+            values.add(octahedral);
+        }
+
+        //texture coordinates, as fractions of [0, 1] or of their bounding rectangle if they leave it
+        float[] textureCoordinateTransform = {1, 1, 0, 0};
+        if (textureCoordinates != null) {
+            float[] fractions = new float[vertexCount * 2];
+            for (int d = 0; d < 2; d++) {
+                float low = 0, high = 1;
+                for (int v = 0; v < vertexCount; v++) {
+                    low = Math.min(low, textureCoordinates[v * 2 + d]);
+                    high = Math.max(high, textureCoordinates[v * 2 + d]);
+                }
+                textureCoordinateTransform[d] = high - low;
+                textureCoordinateTransform[d + 2] = low;
+                for (int v = 0; v < vertexCount; v++) {
+                    fractions[v * 2 + d] = (textureCoordinates[v * 2 + d] - low) / (high - low);
+                }
+            }
+            elements.add(VertexFormat.Element.textureCoordinates().toNormalized(GL_UNSIGNED_SHORT));
+            values.add(fractions);
+        }
+
+        VertexFormat format = new VertexFormat(elements.toArray(new VertexFormat.Element[0]));
+        ByteBuffer vertices = format.interleave(vertexCount, values.toArray(new float[0][]));
+        QuantisedMesh quantised = new QuantisedMesh(dimensions, vertexCount, format, vertices, mesh.getIndices(),
+                dequantisation, textureCoordinateTransform);
+        quantised.measureErrors(positions, normals, textureCoordinates);
+        return quantised;
+    }
+
+    private void measureErrors(float[] positions, float[] normals, float[] textureCoordinates) {
+        float[] decoded = new float[3];
+        for (int v = 0; v < vertexCount; v++) {
+            getPosition(v, decoded);
+            float squared = 0;
+            for (int d = 0; d < dimensions; d++) {
+                float difference = decoded[d] - positions[v * dimensions + d];
+                squared += difference * difference;
+            }
+            maximumPositionError = Math.max(maximumPositionError, (float) Math.sqrt(squared));
+
+            if (normals != null) {
+                getNormal(v, decoded);
+                double x = normals[v * 3], y = normals[v * 3 + 1], z = normals[v * 3 + 2];
+                //the angle from its sine and cosine stays accurate for the tiny errors of 16-bit normals
+                double cx = decoded[1] * z - decoded[2] * y;
+                double cy = decoded[2] * x - decoded[0] * z;
+                double cz = decoded[0] * y - decoded[1] * x;
+                double sine = Math.sqrt(cx * cx + cy * cy + cz * cz);
+                double cosine = decoded[0] * x + decoded[1] * y + decoded[2] * z;
+                if (sine != 0 || cosine != 0) {
+                    maximumNormalError = Math.max(maximumNormalError, (float) Math.atan2(sine, cosine));
+                }
+            }
+
+            if (textureCoordinates != null) {
+                getTextureCoordinates(v, decoded);
+                float du = decoded[0] - textureCoordinates[v * 2];
+                float dv = decoded[1] - textureCoordinates[v * 2 + 1];
+                maximumTextureCoordinateError = Math.max(maximumTextureCoordinateError,
+                        (float) Math.sqrt(du * du + dv * dv));
+            }
+        }
+    }
+
+    /**
+     * Find the octahedral coordinates of a direction, rounded to whichever of the four neighbouring representable
+     * values decodes closest to the direction.
+     *
+     * @param x    the x component of the direction
+     * @param y    the y component of the direction
+     * @param z    the z component of the direction
+     * @param type GL_BYTE or GL_SHORT, the signed normalized type the coordinates will be stored as
+     * @param dest an array of at least two floats to receive the coordinates, each in [-1, 1]
+     * @return dest
+     */
+    public static float[] encodeOctahedral(float x, float y, float z, int type, float[] dest) {
+        float sum = Math.abs(x) + Math.abs(y) + Math.abs(z);
+        if (sum == 0) {
+            dest[0] = 0;
+            dest[1] = 0;
+            return dest;
+        }
+        float u = x / sum;
+        float v = y / sum;
+        if (z < 0) {
+            float foldedU = (1 - Math.abs(v)) * signNotZero(u);
+            v = (1 - Math.abs(u)) * signNotZero(v);
+            u = foldedU;
+        }
+
+        float steps = type == GL_BYTE ? Byte.MAX_VALUE : Short.MAX_VALUE;
+        double bestCosine = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 4; i++) {
+            float candidateU = (float) ((i & 1) == 0 ? Math.floor(u * steps) : Math.ceil(u * steps)) / steps;
+            float candidateV = (float) ((i & 2) == 0 ? Math.floor(v * steps) : Math.ceil(v * steps)) / steps;
+            //the candidates of 16-bit coordinates differ by less than float precision, so compare them in doubles
+            double cosine = getCosine(candidateU, candidateV, x, y, z);
+            if (cosine > bestCosine) {
+                bestCosine = cosine;
+                dest[0] = candidateU;
+                dest[1] = candidateV;
+            }
+        }
+        return dest;
+    }
+
+    private static double getCosine(double u, double v, double x, double y, double z) {
+        double decodedX = u;
+        double decodedY = v;
+        double decodedZ = 1 - Math.abs(u) - Math.abs(v);
+        if (decodedZ < 0) {
+            decodedX = (1 - Math.abs(v)) * signNotZero((float) u);
+            decodedY = (1 - Math.abs(u)) * signNotZero((float) v);
+        }
+        double dot = decodedX * x + decodedY * y + decodedZ * z;
+        return dot / Math.sqrt((decodedX * decodedX + decodedY * decodedY + decodedZ * decodedZ) * (x * x + y * y + z * z));
+    }
+
+    /**
+     * Find the unit direction of octahedral coordinates.
+     *
+     * @param u    the first coordinate, in [-1, 1]
+     * @param v    the second coordinate, in [-1, 1]
+     * @param dest an array of at least three floats to receive the direction
+     * @return dest
+     */
+    public static float[] decodeOctahedral(float u, float v, float[] dest) {
+        float x = u;
+        float y = v;
+        float z = 1 - Math.abs(u) - Math.abs(v);
+        if (z < 0) {
+            x = (1 - Math.abs(v)) * signNotZero(u);
+            y = (1 - Math.abs(u)) * signNotZero(v);
+        }
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        dest[0] = x / length;
+        dest[1] = y / length;
+        dest[2] = z / length;
+        return dest;
+    }
+
+    private static float signNotZero(float value) {
+        return value < 0 ? -1 : 1;
+    }
+
+    /**
+     * Upload the compressed vertices and indices to the GPU.
+     *
+     * @return the mesh on the GPU, whose shader must dequantise positions and decode normals
+     */
+    public GPUMesh commitToGPU() {
+        GPUMesh gpuMesh = new GPUMesh(dimensions);
+        gpuMesh.setDrawType(GL_TRIANGLES);
+        gpuMesh.setVertices(format, vertices, indices);
+        return gpuMesh;
+    }
+
+    /**
+     * Decode the object-space position of a vertex as the shader would.
+     *
+     * @param vertex the index of the vertex
+     * @param dest   an array of at least three floats to receive the position
+     * @return dest
+     */
+    public float[] getPosition(int vertex, float[] dest) {
+        float x = format.getValue(vertices, vertex, 0, 0);
+        float y = dimensions > 1 ? format.getValue(vertices, vertex, 0, 1) : 0;
+        float z = dimensions > 2 ? format.getValue(vertices, vertex, 0, 2) : 0;
+        for (int row = 0; row < 3; row++) {
+            dest[row] = dequantisation.get(0, row) * x + dequantisation.get(1, row) * y +
+                    dequantisation.get(2, row) * z + dequantisation.get(3, row);
+        }
+        return dest;
+    }
+
+    /**
+     * Decode the unit normal of a vertex as the shader would.
+     *
+     * @param vertex the index of the vertex
+     * @param dest   an array of at least three floats to receive the normal
+     * @return dest
+     */
+    public float[] getNormal(int vertex, float[] dest) {
+        int element = format.indexOf(NORMALS_ATTRIB_NAME);
+        if (element < 0) throw new IllegalStateException("Mesh has no normals");
+        return decodeOctahedral(format.getValue(vertices, vertex, element, 0),
+                format.getValue(vertices, vertex, element, 1), dest);
+    }
+
+    /**
+     * Decode the texture coordinates of a vertex as the shader would.
+     *
+     * @param vertex the index of the vertex
+     * @param dest   an array of at least two floats to receive the coordinates
+     * @return dest
+     */
+    public float[] getTextureCoordinates(int vertex, float[] dest) {
+        int element = format.indexOf(TEXTURE_COORDS_ATTRIB_NAME);
+        if (element < 0) throw new IllegalStateException("Mesh has no texture coordinates");
+        for (int d = 0; d < 2; d++) {
+            dest[d] = format.getValue(vertices, vertex, element, d) * textureCoordinateTransform[d] +
+                    textureCoordinateTransform[d + 2];
+        }
+        return dest;
+    }
+
+    public VertexFormat getVertexFormat() {
+        return format;
+    }
+
+    /**
+     * @return the interleaved, compressed vertices, owned by this mesh
+     */
+    public ByteBuffer getVertices() {
+        return vertices;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @return the matrix taking stored positions, each component in [0, 1], to object space, owned by this mesh
+     */
+    public Mat4 getDequantisationMatrix() {
+        return dequantisation;
+    }
+
+    /**
+     * @return the u and v scale followed by the u and v offset taking stored texture coordinates to the originals,
+     * owned by this mesh
+     */
+    public float[] getTextureCoordinateTransform() {
+        return textureCoordinateTransform;
+    }
+
+    /**
+     * @return the largest distance between an original and a decoded position
+     */
+    public float getMaximumPositionError() {
+        return maximumPositionError;
+    }
+
+    /**
+     * @return the largest angle in radians between an original and a decoded normal
+     */
+    public float getMaximumNormalError() {
+        return maximumNormalError;
+    }
+
+    /**
+     * @return the largest distance between original and decoded texture coordinates
+     */
+    public float getMaximumTextureCoordinateError() {
+        return maximumTextureCoordinateError;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.mesh;
+
+import com.edenrump.math.util.HalfVectorBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Reorders indexed triangle meshes for the GPU's post-transform vertex cache, and measures the result.
+ * <p>
+ * Triangles are reordered with Tom Forsyth's linear-speed algorithm: a simulated LRU cache of
+ * {@link #OPTIMISATION_CACHE_SIZE} vertices scores every vertex by its position in the cache and by how many
+ * triangles still use it, and the highest-scoring triangle touching the cache is emitted next. Vertices are then
+ * renumbered in the order the reordered triangles first use them, so vertex fetches run through memory in order.
+ * <p>
+ * The gain can be checked offline with {@link #calculateACMR(int[], int)}, the average number of vertices
+ * transformed per triangle when drawn through a FIFO cache. It is 3 for no reuse and approaches 0.5 for a large
+ * regular grid.
+ *
+ * @author Ed Eden-Rump
+ */
+public class VertexCacheOptimiser {
+
+    public static final int OPTIMISATION_CACHE_SIZE = 32;
+    public static final int DEFAULT_FIFO_CACHE_SIZE = 16;
+
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+    private static final int MAX_VALENCE_SCORED = 64;
+
+    private static final float[] CACHE_SCORES = new float[OPTIMISATION_CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[MAX_VALENCE_SCORED];
+
+    static {
+        for (int position = 0; position < OPTIMISATION_CACHE_SIZE; position++) {
+            if (position < 3) {
+                //the triangle just drawn is deliberately scored below the next entries, to discourage strips
+                CACHE_SCORES[position] = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaler = 1.0f - (position - 3) / (float) (OPTIMISATION_CACHE_SIZE - 3);
+                CACHE_SCORES[position] = (float) Math.pow(scaler, CACHE_DECAY_POWER);
+            }
+        }
+        for (int valence = 1; valence < MAX_VALENCE_SCORED; valence++) {
+            VALENCE_SCORES[valence] = VALENCE_BOOST_SCALE * (float) Math.pow(valence, -VALENCE_BOOST_POWER);
+        }
+    }
+
+    private VertexCacheOptimiser() {
+    }
+
+    /**
+     * Reorder the triangles and then the vertices of a mesh. The mesh is not modified.
+     *
+     * @param mesh the mesh to optimise
+     * @return a new mesh holding the same triangles, reordered
+     */
+    public static CPUMesh optimise(CPUMesh mesh) {
+        int components = mesh.getFloatsPerVertex();
+        int vertexCount = mesh.getVertexCount();
+
+        int[] indices = optimiseTriangleOrder(mesh.getIndices(), vertexCount);
+        int[] remap = optimiseVertexOrder(indices, vertexCount);
+
+        CPUMesh optimised = new CPUMesh(components);
+        if (mesh.getHalfVertexPositions() != null) {
+            optimised.setVertexPositions(remapAttribute(mesh.getHalfVertexPositions(), remap));
+        } else {
+            optimised.setVertexPositions(remapAttribute(mesh.getVertexPositions(), components, remap));
+        }
+        if (mesh.getHalfVertexNormals() != null) {
+            optimised.setVertexNormals(remapAttribute(mesh.getHalfVertexNormals(), remap));
+        } else if (mesh.getVertexNormals() != null) {
+            optimised.setVertexNormals(remapAttribute(mesh.getVertexNormals(), components, remap));
+        }
+        if (mesh.getTextureCoordinates() != null) {
+            optimised.setTextureCoordinates(remapAttribute(mesh.getTextureCoordinates(), 2, remap));
+        }
+        if (mesh.getTangents() != null) {
+            optimised.setTangents(remapAttribute(mesh.getTangents(), 4, remap));
+        }
+        optimised.setIndices(remapIndices(indices, remap));
+        return optimised;
+    }
+
+    /**
+     * Reorder triangles for post-transform cache reuse. Each triangle keeps its winding.
+     *
+     * @param indices     three vertex indices per triangle
+     * @param vertexCount the number of vertices the indices refer to
+     * @return the same triangles in a new order
+     */
+    public static int[] optimiseTriangleOrder(int[] indices, int vertexCount) {
+        int triangleCount = checkedTriangleCount(indices, vertexCount);
+
+        //triangles using each vertex; the first remaining[v] entries of each run are those not yet emitted
+        int[] offsets = new int[vertexCount + 1];
+        for (int index : indices) offsets[index + 1]++;
+        for (int v = 0; v < vertexCount; v++) offsets[v + 1] += offsets[v];
+        int[] vertexTriangles = new int[indices.length];
+        int[] remaining = new int[vertexCount];
+        for (int i = 0; i < indices.length; i++) {
+            int v = indices[i];
+            vertexTriangles[offsets[v] + remaining[v]++] = i / 3;
+        }
+
+        int[] cachePositions = new int[vertexCount];
+        Arrays.fill(cachePositions, -1);
+        float[] vertexScores = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexScores[v] = vertexScore(-1, remaining[v]);
+        }
+
+        boolean[] emitted = new boolean[triangleCount];
+
+        int[] cache = new int[OPTIMISATION_CACHE_SIZE + 3];
+        int[] nextCache = new int[OPTIMISATION_CACHE_SIZE + 3];
+        int cacheSize = 0;
+
+        int[] result = new int[indices.length];
+        int cursor = 0;
+        int best = -1;
+        for (int output = 0; output < triangleCount; output++) {
+            if (best < 0) {
+                //nothing in the cache is still in use: continue from the next triangle in input order
+                while (emitted[cursor]) cursor++;
+                best = cursor;
+            }
+
+            emitted[best] = true;
+            System.arraycopy(indices, best * 3, result, output * 3, 3);
+
+            //the emitted triangle's vertices move to the front of the cache, followed by the old entries
+            int nextSize = 0;
+            for (int corner = 0; corner < 3; corner++) {
+                int v = indices[best * 3 + corner];
+                removeTriangle(vertexTriangles, offsets[v], remaining, v, best);
+                nextCache[nextSize++] = v;
+            }
+            for (int i = 0; i < cacheSize; i++) {
+                int v = cache[i];
+                if (v != nextCache[0] && v != nextCache[1] && v != nextCache[2]) nextCache[nextSize++] = v;
+            }
+            int[] swap = cache;
+            cache = nextCache;
+            nextCache = swap;
+            cacheSize = nextSize;
+
+            //rescore every vertex whose cache position changed, then the triangles still using them
+            for (int i = 0; i < cacheSize; i++) {
+                int v = cache[i];
+                cachePositions[v] = i < OPTIMISATION_CACHE_SIZE ? i : -1;
+                vertexScores[v] = vertexScore(cachePositions[v], remaining[v]);
+            }
+
+            best = -1;
+            float bestScore = -1;
+            for (int i = 0; i < cacheSize; i++) {
+                int v = cache[i];
+                for (int j = offsets[v]; j < offsets[v] + remaining[v]; j++) {
+                    int t = vertexTriangles[j];
+                    float score = vertexScores[indices[t * 3]] + vertexScores[indices[t * 3 + 1]] +
+                            vertexScores[indices[t * 3 + 2]];
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = t;
+                    }
+                }
+            }
+            cacheSize = Math.min(cacheSize, OPTIMISATION_CACHE_SIZE);
+        }
+        return result;
+    }
+
+    /**
+     * Number vertices in the order the triangles first use them. Vertices used by no triangle follow, in their
+     * original order.
+     *
+     * @param indices     three vertex indices per triangle
+     * @param vertexCount the number of vertices the indices refer to
+     * @return for each original vertex, its new index
+     */
+    public static int[] optimiseVertexOrder(int[] indices, int vertexCount) {
+        checkedTriangleCount(indices, vertexCount);
+
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int next = 0;
+        for (int index : indices) {
+            if (remap[index] < 0) remap[index] = next++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            if (remap[v] < 0) remap[v] = next++;
+        }
+        return remap;
+    }
+
+    public static int[] remapIndices(int[] indices, int[] remap) {
+        int[] remapped = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            remapped[i] = remap[indices[i]];
+        }
+        return remapped;
+    }
+
+    /**
+     * @param values     a packed per-vertex attribute
+     * @param components the number of values per vertex
+     * @param remap      for each original vertex, its new index
+     * @return a new packed attribute in the new vertex order
+     */
+    public static float[] remapAttribute(float[] values, int components, int[] remap) {
+        if (values.length != remap.length * components)
+            throw new IllegalArgumentException("Attribute does not hold " + components +
+                    " values for each of " + remap.length + " vertices");
+
+        float[] remapped = new float[values.length];
+        for (int v = 0; v < remap.length; v++) {
+            System.arraycopy(values, v * components, remapped, remap[v] * components, components);
+        }
+        return remapped;
+    }
+
+    public static HalfVectorBuffer remapAttribute(HalfVectorBuffer values, int[] remap) {
+        if (values.getCount() != remap.length)
+            throw new IllegalArgumentException("Attribute does not hold a value for each of " + remap.length +
+                    " vertices");
+
+        int components = values.getComponents();
+        HalfVectorBuffer remapped = new HalfVectorBuffer(components, remap.length);
+        for (int v = 0; v < remap.length; v++) {
+            System.arraycopy(values.getValues(), v * components, remapped.getValues(), remap[v] * components,
+                    components);
+        }
+        return remapped;
+    }
+
+    /**
+     * Simulate drawing the triangles through a FIFO post-transform cache.
+     *
+     * @param indices   three vertex indices per triangle
+     * @param cacheSize the number of transformed vertices the cache holds
+     * @return the average number of cache misses, and so vertex shader invocations, per triangle
+     */
+    public static float calculateACMR(int[] indices, int cacheSize) {
+        if (cacheSize < 1)
+            throw new IllegalArgumentException("Cache must hold at least one vertex");
+        if (indices.length == 0) return 0;
+
+        int vertexCount = 0;
+        for (int index : indices) vertexCount = Math.max(vertexCount, index + 1);
+
+        //a vertex is cached while fewer than cacheSize misses have followed its own
+        long[] insertedAt = new long[vertexCount];
+        Arrays.fill(insertedAt, Long.MIN_VALUE / 2);
+        long misses = 0;
+        for (int index : indices) {
+            if (misses - insertedAt[index] >= cacheSize) {
+                insertedAt[index] = ++misses;
+            }
+        }
+        return misses / (float) (indices.length / 3);
+    }
+
+    public static float calculateACMR(int[] indices) {
+        return calculateACMR(indices, DEFAULT_FIFO_CACHE_SIZE);
+    }
+
+    private static float vertexScore(int cachePosition, int remainingTriangles) {
+        if (remainingTriangles == 0) return -1;
+
+        float score = cachePosition < 0 ? 0 : CACHE_SCORES[cachePosition];
+        return score + VALENCE_SCORES[Math.min(remainingTriangles, MAX_VALENCE_SCORED - 1)];
+    }
+
+    private static void removeTriangle(int[] vertexTriangles, int offset, int[] remaining, int vertex, int triangle) {
+        int last = offset + remaining[vertex] - 1;
+        for (int i = offset; i <= last; i++) {
+            if (vertexTriangles[i] == triangle) {
+                vertexTriangles[i] = vertexTriangles[last];
+                vertexTriangles[last] = triangle;
+                remaining[vertex]--;
+                return;
+            }
+        }
+    }
+
+    private static int checkedTriangleCount(int[] indices, int vertexCount) {
+        if (indices == null)
+            throw new IllegalArgumentException("Cannot optimise when indices are null");
+        if (indices.length % 3 != 0)
+            throw new IllegalArgumentException("Vertex cache optimisation requires three indices per triangle");
+        for (int index : indices) {
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("Cannot optimise triangle with vertex out of range." +
+                        "\nVertex: number " + index + " | Current number of vertices: " + vertexCount);
+        }
+        return indices.length / 3;
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.mesh;
+
+import com.edenrump.math.util.HalfFloats;
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+
+import static com.edenrump.gpu.objects.Attribute.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.GL_HALF_FLOAT;
+
+/**
+ * Describes how the attributes of a vertex are packed together in a single, interleaved, vertex buffer.
+ * <p>
+ * Elements are laid out in the order given, each starting on a four-byte boundary, so that every attribute of a
+ * vertex is fetched from one contiguous block of memory. The stride is the size of that block.
+ * <p>
+ * Besides full and half precision floats, an element may be stored as 8 or 16-bit integers. A normalized integer
+ * element holds values in [0, 1] when unsigned or [-1, 1] when signed, using the OpenGL fixed-point conversions, so
+ * that the shader reads them back as floats without any decoding.
+ *
+ * @author Ed Eden-Rump
+ */
+public class VertexFormat {
+
+    private static final int ALIGNMENT = 4;
+
+    private final Element[] elements;
+    private final int[] offsets;
+    private final int stride;
+
+    /**
+     * One attribute of a vertex.
+     */
+    public static class Element {
+
+        private final int location;
+        private final String name;
+        private final int components;
+        private final int type;
+        private final boolean normalized;
+
+        /**
+         * @param location   the attribute location
+         * @param name       the attribute name used in the shader program
+         * @param components the number of values per vertex, from 1 to 4
+         * @param type       the OpenGL type each value is stored as, GL_FLOAT or GL_HALF_FLOAT
+         */
+        public Element(int location, String name, int components, int type) {
+            this(location, name, components, type, false);
+        }
+
+        /**
+         * @param location   the attribute location
+         * @param name       the attribute name used in the shader program
+         * @param components the number of values per vertex, from 1 to 4
+         * @param type       the OpenGL type each value is stored as: GL_FLOAT, GL_HALF_FLOAT, GL_BYTE,
+         *                   GL_UNSIGNED_BYTE, GL_SHORT or GL_UNSIGNED_SHORT
+         * @param normalized true to store integer values as fixed-point fractions of their range
+         */
+        public Element(int location, String name, int components, int type, boolean normalized) {
+            if (components < 1 || components > 4) {
+                throw new IllegalArgumentException("Attribute " + name + " must have 1 to 4 components: " + components);
+            }
+            if (getBytesPerValue(type) == 0) {
+                throw new IllegalArgumentException("Unsupported attribute type for " + name + ": " + type);
+            }
+            if (normalized && (type == GL_FLOAT || type == GL_HALF_FLOAT)) {
+                throw new IllegalArgumentException("Only integer attributes can be normalized: " + name);
+            }
+            this.location = location;
+            this.name = name;
+            this.components = components;
+            this.type = type;
+            this.normalized = normalized;
+        }
+
+        public static Element position(int components) {
+            return new Element(POSITION_ATTRIB, POSITIONS_ATTRIB_NAME, components, GL_FLOAT);
+        }
+
+        public static Element normal(int components) {
+            return new Element(NORMALS_ATTRIB, NORMALS_ATTRIB_NAME, components, GL_FLOAT);
+        }
+
+        public static Element textureCoordinates() {
+            return new Element(TEXTURE_COORDS_ATTRIB, TEXTURE_COORDS_ATTRIB_NAME, 2, GL_FLOAT);
+        }
+
+        /**
+         * @return a tangent with the sign of its bitangent as a fourth component
+         */
+        public static Element tangent() {
+            return new Element(TANGENTS_ATTRIB, TANGENTS_ATTRIB_NAME, 4, GL_FLOAT);
+        }
+
+        /**
+         * @return a colour at the default colour location, which is shared with texture coordinates
+         */
+        public static Element colour(int components) {
+            return colour(COLOURS_ATTRIB, components);
+        }
+
+        /**
+         * @param location the attribute location, for a format that also holds texture coordinates
+         * @return a colour at the given location
+         */
+        public static Element colour(int location, int components) {
+            return new Element(location, COLOURS_ATTRIB_NAME, components, GL_FLOAT);
+        }
+
+        /**
+         * @return a copy of this element stored at half precision
+         */
+        public Element toHalf() {
+            return new Element(location, name, components, GL_HALF_FLOAT);
+        }
+
+        /**
+         * @return a copy of this element stored as normalized integers of the type
+         */
+        public Element toNormalized(int type) {
+            return new Element(location, name, components, type, true);
+        }
+
+        public int getLocation() {
+            return location;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getComponents() {
+            return components;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public boolean isNormalized() {
+            return normalized;
+        }
+
+        /**
+         * @return the number of bytes used by one vertex's values, before alignment
+         */
+        public int getSizeInBytes() {
+            return components * getBytesPerValue(type);
+        }
+    }
+
+    private static int getBytesPerValue(int type) {
+        switch (type) {
+            case GL_FLOAT:
+                return Float.BYTES;
+            case GL_HALF_FLOAT:
+            case GL_SHORT:
+            case GL_UNSIGNED_SHORT:
+                return Short.BYTES;
+            case GL_BYTE:
+            case GL_UNSIGNED_BYTE:
+                return Byte.BYTES;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Find the integer an integer element stores for a value, rounding to the nearest representable value and
+     * clamping to the range of the type.
+     *
+     * @param value      the value; for a normalized element a fraction in [0, 1] or [-1, 1]
+     * @param type       the integer type
+     * @param normalized whether the value is stored as a fixed-point fraction
+     * @return the stored integer
+     */
+    public static int quantise(float value, int type, boolean normalized) {
+        int min, max;
+        switch (type) {
+            case GL_BYTE: min = Byte.MIN_VALUE; max = Byte.MAX_VALUE; break;
+            case GL_UNSIGNED_BYTE: min = 0; max = 0xFF; break;
+            case GL_SHORT: min = Short.MIN_VALUE; max = Short.MAX_VALUE; break;
+            case GL_UNSIGNED_SHORT: min = 0; max = 0xFFFF; break;
+            default: throw new IllegalArgumentException("Not an integer attribute type: " + type);
+        }
+        float scaled = normalized ? value * max : value;
+        return (int) Math.max(min, Math.min(max, Math.round(scaled)));
+    }
+
+    /**
+     * Find the value the shader reads for an integer stored by an integer element.
+     *
+     * @param stored     the stored integer
+     * @param type       the integer type
+     * @param normalized whether the value is stored as a fixed-point fraction
+     * @return the value read by the shader
+     */
+    public static float dequantise(int stored, int type, boolean normalized) {
+        if (!normalized) return stored;
+        switch (type) {
+            case GL_BYTE: return Math.max(stored / (float) Byte.MAX_VALUE, -1f);
+            case GL_UNSIGNED_BYTE: return stored / (float) 0xFF;
+            case GL_SHORT: return Math.max(stored / (float) Short.MAX_VALUE, -1f);
+            case GL_UNSIGNED_SHORT: return stored / (float) 0xFFFF;
+            default: throw new IllegalArgumentException("Not an integer attribute type: " + type);
+        }
+    }
+
+    /**
+     * @param elements the attributes of each vertex, in the order they are packed, with distinct locations and names
+     */
+    public VertexFormat(Element... elements) {
+        if (elements.length == 0) throw new IllegalArgumentException("A vertex format needs at least one element");
+        this.elements = elements.clone();
+        this.offsets = new int[elements.length];
+
+        int offset = 0;
+        for (int i = 0; i < elements.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (elements[j].location == elements[i].location || elements[j].name.equals(elements[i].name)) {
+                    throw new IllegalArgumentException("Attributes " + elements[j].name + " and " + elements[i].name +
+                            " share a location or name");
+                }
+            }
+            offsets[i] = offset;
+            offset += align(elements[i].getSizeInBytes());
+        }
+        this.stride = offset;
+    }
+
+    private static int align(int bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Pack separate attribute arrays into one interleaved buffer, converting each value to the type of its element as
+     * described by {@link #quantise(float, int, boolean)} for integer elements.
+     *
+     * @param vertexCount the number of vertices
+     * @param values      one array per element, in the order of the elements, each holding
+     *                    {@code vertexCount * components} values
+     * @return a direct buffer of {@code vertexCount * stride} bytes in native order, ready to upload
+     */
+    public ByteBuffer interleave(int vertexCount, float[]... values) {
+        if (values.length != elements.length) {
+            throw new IllegalArgumentException("Expected " + elements.length + " attribute arrays but found " +
+                    values.length);
+        }
+        for (int i = 0; i < elements.length; i++) {
+            if (values[i].length != vertexCount * elements[i].components) {
+                throw new IllegalArgumentException("Attribute " + elements[i].name + " has " + values[i].length +
+                        " values but " + vertexCount * elements[i].components + " are needed for " + vertexCount +
+                        " vertices");
+            }
+        }
+
+        ByteBuffer buffer = BufferUtils.createByteBuffer(vertexCount * stride);
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            int base = vertex * stride;
+            for (int i = 0; i < elements.length; i++) {
+                Element element = elements[i];
+                int position = base + offsets[i];
+                int bytes = getBytesPerValue(element.type);
+                for (int c = 0; c < element.components; c++) {
+                    put(buffer, position + c * bytes, element, values[i][vertex * element.components + c]);
+                }
+            }
+        }
+        return buffer;
+    }
+
+    private static void put(ByteBuffer buffer, int position, Element element, float value) {
+        switch (element.type) {
+            case GL_FLOAT:
+                buffer.putFloat(position, value);
+                break;
+            case GL_HALF_FLOAT:
+                buffer.putShort(position, HalfFloats.toHalf(value));
+                break;
+            case GL_SHORT:
+            case GL_UNSIGNED_SHORT:
+                buffer.putShort(position, (short) quantise(value, element.type, element.normalized));
+                break;
+            default:
+                buffer.put(position, (byte) quantise(value, element.type, element.normalized));
+        }
+    }
+
+    /**
+     * Read back one value of an interleaved buffer as the shader would see it.
+     *
+     * @param buffer    the interleaved vertices
+     * @param vertex    the index of the vertex
+     * @param element   the index of the element
+     * @param component the index of the value within the element
+     * @return the value
+     */
+    public float getValue(ByteBuffer buffer, int vertex, int element, int component) {
+        Element e = elements[element];
+        int position = vertex * stride + offsets[element] + component * getBytesPerValue(e.type);
+        switch (e.type) {
+            case GL_FLOAT:
+                return buffer.getFloat(position);
+            case GL_HALF_FLOAT:
+                return HalfFloats.toFloat(buffer.getShort(position));
+            case GL_SHORT:
+                return dequantise(buffer.getShort(position), e.type, e.normalized);
+            case GL_UNSIGNED_SHORT:
+                return dequantise(buffer.getShort(position) & 0xFFFF, e.type, e.normalized);
+            case GL_BYTE:
+                return dequantise(buffer.get(position), e.type, e.normalized);
+            default:
+                return dequantise(buffer.get(position) & 0xFF, e.type, e.normalized);
+        }
+    }
+
+    public int getElementCount() {
+        return elements.length;
+    }
+
+    public Element getElement(int index) {
+        return elements[index];
+    }
+
+    /**
+     * @return the byte offset of the element from the start of each vertex
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @return the number of bytes from the start of one vertex to the start of the next
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * @return the index of the element with the name, or -1 if there is none
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i].name.equals(name)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("VertexFormat[stride=").append(stride);
+        for (int i = 0; i < elements.length; i++) {
+            builder.append(", ").append(elements[i].name).append('@').append(offsets[i]);
+        }
+        return builder.append(']').toString();
+    }
+}
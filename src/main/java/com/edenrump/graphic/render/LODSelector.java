@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.render;
+
+import com.edenrump.graphic.entities.LODSet;
+import com.edenrump.graphic.entities.StaticEntity;
+import com.edenrump.math.arrays.Mat4;
+import com.edenrump.math.arrays.Vec3;
+import com.edenrump.math.geom.PerspectiveProjection;
+
+/**
+ * Chooses a level of detail for each entity every frame by projecting the geometric error of each level onto the
+ * screen.
+ * <p>
+ * The error of a level, scaled by the entity's transform, is converted to pixels at the distance of the nearest
+ * point of the entity's bounding sphere. The least detailed level whose error fits within the pixel budget is drawn.
+ * To stop an entity popping back and forth when it sits on the boundary between two levels, a coarser level is only
+ * adopted once its error is below the budget reduced by the hysteresis fraction; a finer level is adopted as soon as
+ * the current one exceeds the budget.
+ *
+ * @author Ed Eden-Rump
+ */
+public class LODSelector {
+
+    public static final float DEFAULT_PIXEL_ERROR = 1f;
+    public static final float DEFAULT_HYSTERESIS = 0.25f;
+
+    private final PerspectiveProjection projection;
+    private float viewportHeight;
+    private float pixelError = DEFAULT_PIXEL_ERROR;
+    private float hysteresis = DEFAULT_HYSTERESIS;
+    private final Vec3 cameraPosition = new Vec3();
+
+    private final Vec3 scratchCentre = new Vec3();
+    private final float[] scratchScale = new float[3];
+    private long trianglesRendered;
+    private long trianglesSaved;
+
+    /**
+     * @param projection     the projection used to draw the entities
+     * @param viewportHeight the height of the viewport in pixels
+     */
+    public LODSelector(PerspectiveProjection projection, float viewportHeight) {
+        this.projection = projection;
+        setViewportHeight(viewportHeight);
+    }
+
+    /**
+     * Choose a level from a set.
+     *
+     * @param set           the levels to choose from
+     * @param currentLevel  the level drawn last frame
+     * @param pixelsPerUnit the size in pixels of one object-space unit of error
+     * @param pixelError    the largest error in pixels that may be drawn
+     * @param hysteresis    the fraction by which the budget is reduced before moving to a coarser level
+     * @return the level to draw
+     */
+    public static int selectLevel(LODSet set, int currentLevel, float pixelsPerUnit, float pixelError,
+                                  float hysteresis) {
+        int levels = set.getLevelCount();
+        if (levels == 0) return 0;
+        int current = Math.max(0, Math.min(currentLevel, levels - 1));
+
+        int coarsest = 0;
+        while (coarsest + 1 < levels && set.getError(coarsest + 1) * pixelsPerUnit <= pixelError) coarsest++;
+        if (coarsest <= current) return coarsest;
+
+        float strictError = pixelError * (1 - hysteresis);
+        int level = current;
+        while (level + 1 < levels && set.getError(level + 1) * pixelsPerUnit <= strictError) level++;
+        return level;
+    }
+
+    /**
+     * @param distance the distance from the camera along the view direction
+     * @return the size in pixels of one world-space unit at the distance
+     */
+    public float getPixelsPerUnit(float distance) {
+        if (distance <= 0) return Float.POSITIVE_INFINITY;
+        double halfAngle = Math.toRadians(projection.getFOV() / 2f);
+        return (float) (viewportHeight / (2 * distance * Math.tan(halfAngle)));
+    }
+
+    /**
+     * Reset the per-frame triangle counts. Call once before selecting levels for a new frame.
+     */
+    public void beginFrame() {
+        trianglesRendered = 0;
+        trianglesSaved = 0;
+    }
+
+    /**
+     * Choose and apply the level of detail of an entity for this frame. Entities without levels are left unchanged.
+     *
+     * @param entity the entity to update
+     * @return the level now drawn
+     */
+    public int select(StaticEntity entity) {
+        LODSet set = entity.getLODSet();
+        if (set == null || set.getLevelCount() == 0) return 0;
+
+        float[] sphere = set.getBoundingSphere();
+        Mat4 matrix = entity.getTransform().getMatrix();
+        matrix.transformPositionInto(scratchCentre.set(sphere[0], sphere[1], sphere[2]), scratchCentre);
+        float scale = getMaximumScale(entity.getTransform().getScaleInto(scratchScale));
+        float distance = scratchCentre.getDistanceToOther(cameraPosition) - sphere[3] * scale;
+
+        int level = selectLevel(set, entity.getLODLevel(), getPixelsPerUnit(distance) * scale, pixelError, hysteresis);
+        entity.setLODLevel(level);
+
+        int rendered = set.getTriangleCount(level);
+        trianglesRendered += rendered;
+        trianglesSaved += set.getTriangleCount(0) - rendered;
+        return level;
+    }
+
+    private static float getMaximumScale(float[] scale) {
+        return Math.max(Math.abs(scale[0]), Math.max(Math.abs(scale[1]), Math.abs(scale[2])));
+    }
+
+    public void setCameraPosition(float x, float y, float z) {
+        cameraPosition.set(x, y, z);
+    }
+
+    public Vec3 getCameraPosition() {
+        return new Vec3(cameraPosition);
+    }
+
+    public float getViewportHeight() {
+        return viewportHeight;
+    }
+
+    public void setViewportHeight(float viewportHeight) {
+        if (!(viewportHeight > 0)) {
+            throw new IllegalArgumentException("Viewport height must be positive: " + viewportHeight);
+        }
+        this.viewportHeight = viewportHeight;
+    }
+
+    public float getPixelError() {
+        return pixelError;
+    }
+
+    /**
+     * @param pixelError the largest geometric error in pixels that may be drawn
+     */
+    public void setPixelError(float pixelError) {
+        if (!(pixelError >= 0)) {
+            throw new IllegalArgumentException("Pixel error must not be negative: " + pixelError);
+        }
+        this.pixelError = pixelError;
+    }
+
+    public float getHysteresis() {
+        return hysteresis;
+    }
+
+    /**
+     * @param hysteresis the fraction, from 0 inclusive to 1 exclusive, by which the pixel budget is reduced before
+     *                   moving to a coarser level
+     */
+    public void setHysteresis(float hysteresis) {
+        if (!(hysteresis >= 0 && hysteresis < 1)) {
+            throw new IllegalArgumentException("Hysteresis must be in the range [0, 1): " + hysteresis);
+        }
+        this.hysteresis = hysteresis;
+    }
+
+    /**
+     * @return the number of triangles drawn for entities with levels of detail since {@link #beginFrame()}
+     */
+    public long getTrianglesRendered() {
+        return trianglesRendered;
+    }
+
+    /**
+     * @return the number of triangles not drawn since {@link #beginFrame()} because a less detailed level was chosen
+     */
+    public long getTrianglesSaved() {
+        return trianglesSaved;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.render;
+
+import com.edenrump.graphic.entities.StaticEntity;
+import com.edenrump.graphic.mesh.Meshlets;
+import com.edenrump.math.arrays.Mat4;
+
+/**
+ * Culls the meshlets of entities against the view frustum and, where the entity is not stretched, against the
+ * camera direction, leaving the index ranges that still need to be drawn.
+ * <p>
+ * The camera and frustum are given in world space and carried into the object space of each entity, so the meshlet
+ * data never needs transforming. Frustum planes are exact under any affine transform. Normal cones are only
+ * meaningful under a uniform scale, so back-face culling is skipped for entities scaled differently along each axis.
+ *
+ * @author Ed Eden-Rump
+ */
+public class MeshletCuller {
+
+    private static final float UNIFORM_SCALE_TOLERANCE = 1e-4f;
+
+    private final float[] cameraPosition = new float[3];
+    private final float[] worldPlanes = new float[24];
+    private boolean frustumCulling = false;
+    private boolean backFaceCulling = true;
+
+    private final Mat4 inverse = new Mat4();
+    private final float[] objectCamera = new float[3];
+    private final float[] scale = new float[3];
+    private final float[] objectPlanes = new float[24];
+    private int[] firstIndices = new int[0];
+    private int[] indexCounts = new int[0];
+
+    private long meshletsTested;
+    private long trianglesCulled;
+
+    /**
+     * Extract the six clipping planes of a view-projection matrix, normalised so that the distance to each is in
+     * world units.
+     *
+     * @param viewProjection the projection matrix multiplied by the view matrix
+     * @param dest           an array of at least 24 floats to receive the planes, four per plane
+     * @return dest
+     */
+    public static float[] extractFrustumPlanes(Mat4 viewProjection, float[] dest) {
+        for (int plane = 0; plane < 6; plane++) {
+            int row = plane / 2;
+            float sign = plane % 2 == 0 ? 1 : -1;
+            float length = 0;
+            for (int column = 0; column < 4; column++) {
+                dest[plane * 4 + column] = viewProjection.get(column, 3) + sign * viewProjection.get(column, row);
+                if (column < 3) length += dest[plane * 4 + column] * dest[plane * 4 + column];
+            }
+            length = (float) Math.sqrt(length);
+            if (length == 0) continue;
+            for (int column = 0; column < 4; column++) {
+                dest[plane * 4 + column] /= length;
+            }
+        }
+        return dest;
+    }
+
+    /**
+     * Reset the per-frame meshlet and triangle counts. Call once before culling entities for a new frame.
+     */
+    public void beginFrame() {
+        meshletsTested = 0;
+        trianglesCulled = 0;
+    }
+
+    /**
+     * Find the index ranges of an entity's meshlets that may be visible. Read them from {@link #getFirstIndices()}
+     * and {@link #getIndexCounts()}.
+     *
+     * @param entity an entity with meshlets
+     * @return the number of ranges to draw
+     */
+    public int cull(StaticEntity entity) {
+        Meshlets meshlets = entity.getMeshlets();
+        int meshletCount = meshlets.getMeshletCount();
+        if (firstIndices.length < meshletCount) {
+            firstIndices = new int[meshletCount];
+            indexCounts = new int[meshletCount];
+        }
+
+        Mat4 matrix = entity.getTransform().getMatrix();
+        float[] camera = null;
+        if (backFaceCulling && isUniform(entity.getTransform().getScaleInto(scale))) {
+            matrix.inverseAffineInto(inverse);
+            float x = cameraPosition[0], y = cameraPosition[1], z = cameraPosition[2];
+            for (int row = 0; row < 3; row++) {
+                objectCamera[row] = inverse.get(0, row) * x + inverse.get(1, row) * y + inverse.get(2, row) * z +
+                        inverse.get(3, row);
+            }
+            camera = objectCamera;
+        }
+
+        float[] planes = null;
+        if (frustumCulling) {
+            //a world-space plane p holds the object-space points x with p.(Mx) = (transpose(M)p).x >= 0
+            for (int plane = 0; plane < 6; plane++) {
+                for (int column = 0; column < 4; column++) {
+                    float value = 0;
+                    for (int row = 0; row < 4; row++) {
+                        value += matrix.get(column, row) * worldPlanes[plane * 4 + row];
+                    }
+                    objectPlanes[plane * 4 + column] = value;
+                }
+            }
+            planes = objectPlanes;
+        }
+
+        int ranges = meshlets.collectVisibleRanges(camera, planes, firstIndices, indexCounts);
+        int visible = 0;
+        for (int range = 0; range < ranges; range++) {
+            visible += indexCounts[range];
+        }
+        int total = meshletCount == 0 ? 0 :
+                meshlets.getFirstIndex(meshletCount - 1) + meshlets.getIndexCount(meshletCount - 1) -
+                        meshlets.getFirstIndex(0);
+        meshletsTested += meshletCount;
+        trianglesCulled += (total - visible) / 3;
+        return ranges;
+    }
+
+    /**
+     * @return true if the scale is the same, and not zero, on every axis, so that the transform can be inverted and
+     * preserves the angles on which normal cones rely
+     */
+    private static boolean isUniform(float[] scale) {
+        float x = Math.abs(scale[0]);
+        if (!(x > 0)) return false;
+        float tolerance = UNIFORM_SCALE_TOLERANCE * x;
+        return Math.abs(Math.abs(scale[1]) - x) <= tolerance && Math.abs(Math.abs(scale[2]) - x) <= tolerance;
+    }
+
+    /**
+     * @return the first index of each range found by the last call to {@link #cull(StaticEntity)}, owned by this
+     * culler
+     */
+    public int[] getFirstIndices() {
+        return firstIndices;
+    }
+
+    /**
+     * @return the number of indices in each range found by the last call to {@link #cull(StaticEntity)}, owned by
+     * this culler
+     */
+    public int[] getIndexCounts() {
+        return indexCounts;
+    }
+
+    public void setCameraPosition(float x, float y, float z) {
+        cameraPosition[0] = x;
+        cameraPosition[1] = y;
+        cameraPosition[2] = z;
+    }
+
+    /**
+     * @param viewProjection the projection matrix multiplied by the view matrix, or null to stop frustum culling
+     */
+    public void setFrustum(Mat4 viewProjection) {
+        frustumCulling = viewProjection != null;
+        if (frustumCulling) extractFrustumPlanes(viewProjection, worldPlanes);
+    }
+
+    public boolean isBackFaceCulling() {
+        return backFaceCulling;
+    }
+
+    public void setBackFaceCulling(boolean backFaceCulling) {
+        this.backFaceCulling = backFaceCulling;
+    }
+
+    public long getMeshletsTested() {
+        return meshletsTested;
+    }
+
+    /**
+     * @return the number of triangles skipped since {@link #beginFrame()}
+     */
+    public long getTrianglesCulled() {
+        return trianglesCulled;
+    }
+}
@@ -20,6 +20,7 @@
 package com.edenrump.graphic.render;
 
 import com.edenrump.graphic.entities.Renderable;
+import com.edenrump.graphic.entities.StaticEntity;
 import com.edenrump.graphic.mesh.GPUMesh;
 import com.edenrump.graphic.shaders.ShaderProgram;
 
@@ -28,7 +29,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
 import static org.lwjgl.opengl.GL11.glDrawElements;
 
 /**
@@ -40,11 +40,20 @@ import static org.lwjgl.opengl.GL11.glDrawElements;
  * rendering requirements
  * <p>
  * It can handle drawing with and without texture coordinates.
+ * <p>
+ * Entities with levels of detail are grouped by the mesh chosen for them each frame. If a {@link LODSelector} is set
+ * it chooses their levels before they are drawn; otherwise they are drawn at whatever level they were last given.
+ * <p>
+ * Entities with meshlets are drawn range by range, skipping culled meshlets, when a {@link MeshletCuller} is set.
  */
 public class StaticRenderer implements GenericRenderer {
 
     private final ShaderProgram shaderProgram;
     private final Map<Integer, List<Renderable>> vaoIDMeshMap = new HashMap<>();
+    private final List<StaticEntity> lodEntities = new ArrayList<>();
+    private final Map<Integer, List<Renderable>> lodFrameMap = new HashMap<>();
+    private LODSelector lodSelector = null;
+    private MeshletCuller meshletCuller = null;
 
     public StaticRenderer(ShaderProgram shaderProgram) {
         this.shaderProgram = shaderProgram;
@@ -53,19 +62,47 @@ public class StaticRenderer implements GenericRenderer {
     @Override
     public void render() {
         prepare();
+        if (meshletCuller != null) meshletCuller.beginFrame();
         for (Integer id : vaoIDMeshMap.keySet()) {
-            List<Renderable> allMeshInstances = vaoIDMeshMap.get(id);
-            allMeshInstances.get(0).prepare();
-            for (Renderable renderable : allMeshInstances) {
-                renderable.update();
+            draw(vaoIDMeshMap.get(id));
+        }
+
+        if (lodEntities.isEmpty()) return;
+        if (lodSelector != null) lodSelector.beginFrame();
+        for (List<Renderable> instances : lodFrameMap.values()) {
+            instances.clear();
+        }
+        for (StaticEntity entity : lodEntities) {
+            if (lodSelector != null) lodSelector.select(entity);
+            lodFrameMap.computeIfAbsent(entity.getMesh().getVAO_ID(), id -> new ArrayList<>()).add(entity);
+        }
+        for (List<Renderable> instances : lodFrameMap.values()) {
+            draw(instances);
+        }
+    }
 
-                GPUMesh mesh = renderable.getMesh();
-                glDrawElements(mesh.getDrawType(), mesh.getNumberOfElements(), GL_UNSIGNED_INT, 0);
+    private void draw(List<Renderable> allMeshInstances) {
+        if (allMeshInstances.isEmpty()) return;
+        allMeshInstances.get(0).prepare();
+        for (Renderable renderable : allMeshInstances) {
+            renderable.update();
 
-                renderable.finish();
+            GPUMesh mesh = renderable.getMesh();
+            if (meshletCuller != null && hasMeshlets(renderable)) {
+                int ranges = meshletCuller.cull((StaticEntity) renderable);
+                int[] firstIndices = meshletCuller.getFirstIndices();
+                int[] indexCounts = meshletCuller.getIndexCounts();
+                for (int range = 0; range < ranges; range++) {
+                    glDrawElements(mesh.getDrawType(), indexCounts[range], mesh.getIndexType(),
+                            (long) firstIndices[range] * mesh.getIndexSize());
+                }
+            } else {
+                glDrawElements(mesh.getDrawType(), mesh.getNumberOfElements(), mesh.getIndexType(), 0);
             }
-            Renderable.unbind();
+
+            renderable.finish();
         }
+        Renderable.unbind();
     }
 
     @Override
@@ -79,6 +116,10 @@ public class StaticRenderer implements GenericRenderer {
     }
 
     public void addMesh(Renderable renderable) {
+        if (hasLevelsOfDetail(renderable)) {
+            lodEntities.add((StaticEntity) renderable);
+            return;
+        }
         GPUMesh mesh = renderable.getMesh();
         if (!vaoIDMeshMap.containsKey(mesh.getVAO_ID())) {
             List<Renderable> newMeshList = new ArrayList<>();
@@ -90,7 +131,43 @@ public class StaticRenderer implements GenericRenderer {
     }
 
     public void removeMesh(Renderable renderable) {
+        if (hasLevelsOfDetail(renderable)) {
+            lodEntities.remove(renderable);
+            return;
+        }
         GPUMesh mesh = renderable.getMesh();
         vaoIDMeshMap.getOrDefault(mesh.getVAO_ID(), new ArrayList<>()).remove(renderable);
     }
+
+    private static boolean hasLevelsOfDetail(Renderable renderable) {
+        return renderable instanceof StaticEntity && ((StaticEntity) renderable).getLODSet() != null;
+    }
+
+    private static boolean hasMeshlets(Renderable renderable) {
+        return renderable instanceof StaticEntity && ((StaticEntity) renderable).getMeshlets() != null;
+    }
+
+    public LODSelector getLODSelector() {
+        return lodSelector;
+    }
+
+    /**
+     * @param lodSelector the selector that chooses the level of detail of each entity every frame, or null to leave
+     *                    their levels unchanged
+     */
+    public void setLODSelector(LODSelector lodSelector) {
+        this.lodSelector = lodSelector;
+    }
+
+    public MeshletCuller getMeshletCuller() {
+        return meshletCuller;
+    }
+
+    /**
+     * @param meshletCuller the culler that skips hidden meshlets of entities that have them, or null to draw every
+     *                      entity whole
+     */
+    public void setMeshletCuller(MeshletCuller meshletCuller) {
+        this.meshletCuller = meshletCuller;
+    }
 }
@@ -21,6 +21,7 @@ package com.edenrump.loaders;
 
 import com.edenrump.math.arrays.ColumnVector;
 import com.edenrump.math.shape.mesh.Face;
+import com.edenrump.math.shape.mesh.VertexNormals;
 import com.edenrump.math.shape.textured.WrappedConstruct;
 import com.edenrump.math.shape.textured.WrappedVertex;
 
@@ -38,6 +39,11 @@ import static com.edenrump.math.shape.mesh.GeometricConstruct.CARTESIAN;
 
 public class OBJFile {
 
+    /**
+     * The largest angle between faces that are smoothed together when a file without vertex normals is loaded
+     */
+    public static final float GENERATED_NORMAL_CREASE_ANGLE = (float) Math.toRadians(60);
+
     private String[] vertexFileLines;
     private String[] textureFileLines;
     private String[] vertNormalsFileLines;
@@ -72,10 +78,21 @@ public class OBJFile {
 
     private WrappedConstruct createMesh() {
         WrappedConstruct construct = new WrappedConstruct(CARTESIAN);
-        construct.setVertexPositions(getVertexPositions());
-        construct.setVertexNormals(getVertexNormals());
+        List<ColumnVector> vertexPositions = getVertexPositions();
+        construct.setVertexPositions(vertexPositions);
+
+        List<ColumnVector> vertexNormals;
+        List<Face> faces;
+        if (vertNormalsFileLines.length == 0) {
+            vertexNormals = new ArrayList<>();
+            faces = getFacesWithGeneratedNormals(vertexPositions, vertexNormals);
+        } else {
+            vertexNormals = getVertexNormals();
+            faces = getFaces();
+        }
+        construct.setVertexNormals(vertexNormals);
 
-        List<WrappedVertex> vertices = getVertices();
+        List<WrappedVertex> vertices = getVertices(faces);
         List<ColumnVector> vertexTextureCoords = getTextureCoords();
 
         for (WrappedVertex v : vertices) {
@@ -85,8 +102,8 @@ public class OBJFile {
             construct.addVertexTextureCoordinate(vertexIndex, vt.getValue(0), vt.getValue(1));
         }
 
-        for (Face face : getFaces()) {
-            if (faceRefersToExistingVertices(face)) {
+        for (Face face : faces) {
+            if (faceRefersToExistingVertices(face, vertexNormals.size())) {
                 int v1 = construct.getVertexIndex(face.getV1());
                 int v2 = construct.getVertexIndex(face.getV2());
                 int v3 = construct.getVertexIndex(face.getV3());
@@ -100,7 +117,7 @@ public class OBJFile {
         return construct;
     }
 
-    private boolean faceRefersToExistingVertices(Face face) {
+    private boolean faceRefersToExistingVertices(Face face, int normalCount) {
         WrappedVertex v1 = (WrappedVertex) face.getV1();
         WrappedVertex v2 = (WrappedVertex) face.getV2();
         WrappedVertex v3 = (WrappedVertex) face.getV3();
@@ -117,7 +134,7 @@ public class OBJFile {
 
         boolean positions = Math.max(Math.max(vp1, vp2), vp3) < vertexFileLines.length &&
                 Math.min(Math.min(vp1, vp2), vp3) >= 0;
-        boolean normals = Math.max(Math.max(vn1, vn2), vn3) < vertNormalsFileLines.length &&
+        boolean normals = Math.max(Math.max(vn1, vn2), vn3) < normalCount &&
                 Math.min(Math.min(vn1, vn2), vn3) >= 0;
         boolean textures = Math.max(Math.max(vt1, vt2), vt3) < textureFileLines.length &&
                 Math.min(Math.min(vt1, vt2), vt3) >= 0;
@@ -148,13 +165,61 @@ public class OBJFile {
         return faces;
     }
 
-    private List<WrappedVertex> getVertices() {
+    /**
+     * Create faces from lines of format "f v1/vt1 v2/vt2 v3/vt3" for a file without vertex normals, generating
+     * angle-weighted normals that are split where faces meet at more than {@link #GENERATED_NORMAL_CREASE_ANGLE}.
+     *
+     * @param vertexPositions the vertex positions of the file
+     * @param vertexNormals   the list to which the generated normals are added
+     * @return the faces, with normal indices into the generated normals
+     */
+    private List<Face> getFacesWithGeneratedNormals(List<ColumnVector> vertexPositions, List<ColumnVector> vertexNormals) {
+        int[] positionIndices = new int[faceLines.length * 3];
+        int[] textureIndices = new int[faceLines.length * 3];
+        for (int f = 0; f < faceLines.length; f++) {
+            String[] segments = segmentVertexNormalIndexLine(faceLines[f]);
+            for (int k = 0; k < 3; k++) {
+                int[] indices = parseVertexIndexSegment(segments[k + 1]); //skip 0, which is line type indicator
+                if (indices[0] < 0 || indices[0] >= vertexPositions.size())
+                    throw new RuntimeException("OBJ File " + fileName +
+                            " is badly constructed: polygon face refers to vertex that does not exist");
+                positionIndices[f * 3 + k] = indices[0];
+                textureIndices[f * 3 + k] = indices[1];
+            }
+        }
+
+        float[] positions = new float[vertexPositions.size() * 3];
+        for (int i = 0; i < vertexPositions.size(); i++) {
+            ColumnVector position = vertexPositions.get(i);
+            positions[i * 3] = position.getValue(0);
+            positions[i * 3 + 1] = position.getValue(1);
+            positions[i * 3 + 2] = position.getValue(2);
+        }
+        VertexNormals generated = VertexNormals.generate(positions, positionIndices,
+                VertexNormals.Weighting.ANGLE, GENERATED_NORMAL_CREASE_ANGLE);
+
+        float[] normals = generated.getNormals();
+        for (int i = 0; i < generated.getVertexCount(); i++) {
+            vertexNormals.add(new ColumnVector(normals[i * 3], normals[i * 3 + 1], normals[i * 3 + 2]));
+        }
+
+        int[] normalIndices = generated.getIndices();
+        List<Face> faces = new ArrayList<>();
+        for (int c = 0; c < positionIndices.length; c += 3) {
+            faces.add(new Face(
+                    new WrappedVertex(positionIndices[c], normalIndices[c], textureIndices[c]),
+                    new WrappedVertex(positionIndices[c + 1], normalIndices[c + 1], textureIndices[c + 1]),
+                    new WrappedVertex(positionIndices[c + 2], normalIndices[c + 2], textureIndices[c + 2])));
+        }
+        return faces;
+    }
+
+    private List<WrappedVertex> getVertices(List<Face> faces) {
         Set<WrappedVertex> vertexSet = new HashSet<>(); //ensures no duplicate vertices added
-        for (String faceLine : faceLines) {
-            String[] segments = segmentVertexNormalIndexLine(faceLine);
-            vertexSet.add(createVertexFromVertexNormalIndexSegment(segments[1])); //skip 0, which is line type indicator
-            vertexSet.add(createVertexFromVertexNormalIndexSegment(segments[2]));
-            vertexSet.add(createVertexFromVertexNormalIndexSegment(segments[3]));
+        for (Face face : faces) {
+            vertexSet.add((WrappedVertex) face.getV1());
+            vertexSet.add((WrappedVertex) face.getV2());
+            vertexSet.add((WrappedVertex) face.getV3());
         }
         return new ArrayList<>(vertexSet);
     }
@@ -211,24 +276,35 @@ public class OBJFile {
      * @return a vertex
      */
     private WrappedVertex createVertexFromVertexNormalIndexSegment(String segment) {
+        int[] indices = parseVertexIndexSegment(segment);
+        return new WrappedVertex(indices[0], indices[2], indices[1]);
+    }
+
+    /**
+     * Take a segment of format "v1/vt1/vn1", or "v1/vt1" if the file has no vertex normals, and convert it to
+     * 0-indexed indices in the same order
+     *
+     * @param segment the segment to parse
+     * @return the indices of the segment
+     */
+    private int[] parseVertexIndexSegment(String segment) {
         String[] vertexInfo = segment.split("/");
+        int expectedIndices = vertNormalsFileLines.length == 0 ? 2 : 3;
 
-        if (vertexInfo.length != 3)
+        if (vertexInfo.length != expectedIndices)
             throw new RuntimeException("OBJ File " + fileName + " has not bee correctly triangulated." +
-                    " Expected 3 indices for each face vertex but found " + (vertexInfo.length));
+                    " Expected " + expectedIndices + " indices for each face vertex but found " + (vertexInfo.length));
 
-        int vertexIndex;
-        int textureIndex;
-        int normalIndex;
+        int[] indices = new int[expectedIndices];
         try {
-            vertexIndex = Integer.parseInt(vertexInfo[0]) - 1; //remove 1 because OBJ face format is 1-indexed not 0-indexed
-            textureIndex = Integer.parseInt(vertexInfo[1]) - 1;
-            normalIndex = Integer.parseInt(vertexInfo[2]) - 1;
+            for (int i = 0; i < expectedIndices; i++) {
+                indices[i] = Integer.parseInt(vertexInfo[i]) - 1; //remove 1 because OBJ face format is 1-indexed not 0-indexed
+            }
         } catch (NumberFormatException nfe) {
             throw new RuntimeException("OBJ File " + fileName + " is badly formatted. Could not create vertex from polygonal face segment:" +
                     "\n>>>   " + segment + "   <<<");
         }
-        return new WrappedVertex(vertexIndex, normalIndex, textureIndex);
+        return indices;
     }
 
     private List<ColumnVector> parseMultipleLinesToFloatVectors(String[] lines, int expectedDimensions) {
@@ -19,10 +19,19 @@
 
 package com.edenrump.math.arrays;
 
+import com.edenrump.math.simd.MathKernels;
+
 import java.nio.FloatBuffer;
 
 public class ColumnVector {
 
+    /**
+     * Vectors with at least this many dimensions calculate dot products and lengths with the active
+     * {@link com.edenrump.math.simd.MathKernel}, which may sum in a different order from the plain loop used for
+     * shorter vectors
+     */
+    public static final int KERNEL_THRESHOLD = 16;
+
     private final int dimensions;
     private final float[] values;
 
@@ -69,6 +78,8 @@ public class ColumnVector {
      * @return Squared length of this vector
      */
     public float lengthSquared() {
+        if (dimensions >= KERNEL_THRESHOLD) return MathKernels.get().dot(values, values, dimensions);
+
         float lengthSquared = 0;
         for (int i = 0; i < dimensions; i++) {
             lengthSquared += (values[i] * values[i]);
@@ -145,6 +156,7 @@ public class ColumnVector {
     public float dot(ColumnVector other) {
         if (other.getDimensions() != dimensions)
             throw new IllegalArgumentException("Cannot calculate dot product for vectors of different length");
+        if (dimensions >= KERNEL_THRESHOLD) return MathKernels.get().dot(values, other.getValues(), dimensions);
 
         float dotProduct = 0;
         for (int i = 0; i < dimensions; i++) {
@@ -240,13 +252,23 @@ public class ColumnVector {
 
     @Override
     public int hashCode() {
+        //hash every bit of each value so that vectors with small components spread across hash tables. Zero and
+        //negative zero are equal, so they must hash the same
         int hash = dimensions * 100003;
         for (int i = 0; i < dimensions; i++) {
-            hash += (int) values[i] * 13;
+            hash = hash(hash, values[i]);
         }
         return hash;
     }
 
+    /**
+     * Fold every bit of a value into a hash, treating zero and negative zero as equal, for the vector and matrix
+     * classes in this package
+     */
+    static int hash(int hash, float value) {
+        return hash * 31 + (value == 0 ? 0 : Float.floatToIntBits(value));
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof ColumnVector) {
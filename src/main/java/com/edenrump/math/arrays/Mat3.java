@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Fixed-size 3x3 matrix backed by nine fields rather than an array.
+ * <p>
+ * Laid out column-major with fields named <code>m[column][row]</code>, in the same way as {@link Mat4}.
+ */
+public class Mat3 {
+
+    float m00, m01, m02;
+    float m10, m11, m12;
+    float m20, m21, m22;
+
+    /**
+     * Creates a new identity matrix.
+     */
+    public Mat3() {
+        identity();
+    }
+
+    public Mat3(Mat3 other) {
+        set(other);
+    }
+
+    /**
+     * Creates a matrix from nine column-major values.
+     *
+     * @param values the values of the matrix, column by column
+     */
+    public Mat3(float... values) {
+        set(values);
+    }
+
+    public Mat3(SquareMatrix matrix) {
+        if (matrix.getDimensions() != 3)
+            throw new IllegalArgumentException("Cannot create Mat3 from matrix of " + matrix.getDimensions() +
+                    " dimensions");
+        set(matrix.getValues());
+    }
+
+    /**
+     * Sets this matrix to the identity matrix.
+     *
+     * @return this matrix
+     */
+    public Mat3 identity() {
+        m00 = 1; m01 = 0; m02 = 0;
+        m10 = 0; m11 = 1; m12 = 0;
+        m20 = 0; m21 = 0; m22 = 1;
+        return this;
+    }
+
+    /**
+     * Copies the values of another matrix into this matrix.
+     *
+     * @param other the matrix to copy
+     * @return this matrix
+     */
+    public Mat3 set(Mat3 other) {
+        m00 = other.m00; m01 = other.m01; m02 = other.m02;
+        m10 = other.m10; m11 = other.m11; m12 = other.m12;
+        m20 = other.m20; m21 = other.m21; m22 = other.m22;
+        return this;
+    }
+
+    /**
+     * Sets this matrix to the upper-left 3x3 block of a 4x4 matrix.
+     *
+     * @param other the matrix to copy from
+     * @return this matrix
+     */
+    public Mat3 set(Mat4 other) {
+        m00 = other.m00; m01 = other.m01; m02 = other.m02;
+        m10 = other.m10; m11 = other.m11; m12 = other.m12;
+        m20 = other.m20; m21 = other.m21; m22 = other.m22;
+        return this;
+    }
+
+    /**
+     * Sets every value of this matrix, column by column.
+     *
+     * @return this matrix
+     */
+    public Mat3 set(float m00, float m01, float m02,
+                    float m10, float m11, float m12,
+                    float m20, float m21, float m22) {
+        this.m00 = m00; this.m01 = m01; this.m02 = m02;
+        this.m10 = m10; this.m11 = m11; this.m12 = m12;
+        this.m20 = m20; this.m21 = m21; this.m22 = m22;
+        return this;
+    }
+
+    /**
+     * Sets this matrix from nine column-major values.
+     *
+     * @param values the values of the matrix, column by column
+     * @return this matrix
+     */
+    public Mat3 set(float[] values) {
+        if (values.length != 9)
+            throw new IllegalArgumentException("Cannot create 3x3 matrix from " + values.length + " values");
+
+        m00 = values[0]; m01 = values[1]; m02 = values[2];
+        m10 = values[3]; m11 = values[4]; m12 = values[5];
+        m20 = values[6]; m21 = values[7]; m22 = values[8];
+        return this;
+    }
+
+    /**
+     * Get a single value from the matrix.
+     *
+     * @param column the column of the value
+     * @param row    the row of the value
+     * @return the value at the given column and row
+     */
+    public float get(int column, int row) {
+        switch (column * 3 + row) {
+            case 0: return m00;
+            case 1: return m01;
+            case 2: return m02;
+            case 3: return m10;
+            case 4: return m11;
+            case 5: return m12;
+            case 6: return m20;
+            case 7: return m21;
+            case 8: return m22;
+            default:
+                throw new IllegalArgumentException("Cannot get value at column " + column + ", row " + row +
+                        " of a 3x3 matrix");
+        }
+    }
+
+    public int getDimensions() {
+        return 3;
+    }
+
+    /**
+     * Copy the values of this matrix into a new column-major array.
+     *
+     * @return the values of this matrix
+     */
+    public float[] getValues() {
+        return getValuesInto(new float[9], 0);
+    }
+
+    /**
+     * Copy the values of this matrix, column-major, into an existing array.
+     *
+     * @param dest   the array to receive the values
+     * @param offset the index in dest of the first value
+     * @return dest
+     */
+    public float[] getValuesInto(float[] dest, int offset) {
+        dest[offset] = m00; dest[offset + 1] = m01; dest[offset + 2] = m02;
+        dest[offset + 3] = m10; dest[offset + 4] = m11; dest[offset + 5] = m12;
+        dest[offset + 6] = m20; dest[offset + 7] = m21; dest[offset + 8] = m22;
+        return dest;
+    }
+
+    /**
+     * Multiplies this matrix with a scalar.
+     *
+     * @param scalar The scalar
+     * @return Scalar product of this * scalar
+     */
+    public Mat3 multiply(float scalar) {
+        return multiplyInto(scalar, new Mat3());
+    }
+
+    /**
+     * Multiplies this matrix with a scalar, storing the result in dest.
+     *
+     * @param scalar The scalar
+     * @param dest   The matrix to receive the result
+     * @return dest
+     */
+    public Mat3 multiplyInto(float scalar, Mat3 dest) {
+        dest.m00 = m00 * scalar; dest.m01 = m01 * scalar; dest.m02 = m02 * scalar;
+        dest.m10 = m10 * scalar; dest.m11 = m11 * scalar; dest.m12 = m12 * scalar;
+        dest.m20 = m20 * scalar; dest.m21 = m21 * scalar; dest.m22 = m22 * scalar;
+        return dest;
+    }
+
+    /**
+     * Multiplies this matrix to another matrix.
+     * <p>
+     * The ordering matches {@link SquareMatrix#multiply(SquareMatrix)}; see {@link Mat4#multiply(Mat4)}.
+     *
+     * @param other The other matrix
+     * @return Matrix product of this * other
+     */
+    public Mat3 multiply(Mat3 other) {
+        return multiplyInto(other, new Mat3());
+    }
+
+    /**
+     * Multiplies this matrix to another matrix, storing the result in dest.
+     *
+     * @param other The other matrix
+     * @param dest  The matrix to receive the result
+     * @return dest
+     * @see #multiply(Mat3)
+     */
+    public Mat3 multiplyInto(Mat3 other, Mat3 dest) {
+        float r00 = m00 * other.m00 + m01 * other.m10 + m02 * other.m20;
+        float r01 = m00 * other.m01 + m01 * other.m11 + m02 * other.m21;
+        float r02 = m00 * other.m02 + m01 * other.m12 + m02 * other.m22;
+        float r10 = m10 * other.m00 + m11 * other.m10 + m12 * other.m20;
+        float r11 = m10 * other.m01 + m11 * other.m11 + m12 * other.m21;
+        float r12 = m10 * other.m02 + m11 * other.m12 + m12 * other.m22;
+        float r20 = m20 * other.m00 + m21 * other.m10 + m22 * other.m20;
+        float r21 = m20 * other.m01 + m21 * other.m11 + m22 * other.m21;
+        float r22 = m20 * other.m02 + m21 * other.m12 + m22 * other.m22;
+
+        dest.m00 = r00; dest.m01 = r01; dest.m02 = r02;
+        dest.m10 = r10; dest.m11 = r11; dest.m12 = r12;
+        dest.m20 = r20; dest.m21 = r21; dest.m22 = r22;
+        return dest;
+    }
+
+    /**
+     * Multiplies this matrix to a vector.
+     *
+     * @param vector The vector
+     * @return Vector product of this * other
+     */
+    public Vec3 multiply(Vec3 vector) {
+        return transformInto(vector, new Vec3());
+    }
+
+    /**
+     * Multiplies this matrix to a vector, storing the result in dest.
+     *
+     * @param vector The vector
+     * @param dest   The vector to receive the result
+     * @return dest
+     */
+    public Vec3 transformInto(Vec3 vector, Vec3 dest) {
+        float x = vector.getX();
+        float y = vector.getY();
+        float z = vector.getZ();
+        return dest.set(
+                m00 * x + m10 * y + m20 * z,
+                m01 * x + m11 * y + m21 * z,
+                m02 * x + m12 * y + m22 * z);
+    }
+
+    /**
+     * Transposes this matrix.
+     *
+     * @return Transposed matrix
+     */
+    public Mat3 transpose() {
+        return transposeInto(new Mat3());
+    }
+
+    /**
+     * Transposes this matrix, storing the result in dest.
+     *
+     * @param dest The matrix to receive the result
+     * @return dest
+     */
+    public Mat3 transposeInto(Mat3 dest) {
+        float t01 = m01, t02 = m02, t12 = m12;
+        dest.m00 = m00; dest.m11 = m11; dest.m22 = m22;
+        dest.m01 = m10; dest.m02 = m20; dest.m12 = m21;
+        dest.m10 = t01; dest.m20 = t02; dest.m21 = t12;
+        return dest;
+    }
+
+    /**
+     * Calculate the determinant of this matrix.
+     *
+     * @return the determinant
+     */
+    public float determinant() {
+        return m00 * (m11 * m22 - m21 * m12)
+                - m10 * (m01 * m22 - m21 * m02)
+                + m20 * (m01 * m12 - m11 * m02);
+    }
+
+    /**
+     * Inverts this matrix.
+     *
+     * @return Inverted matrix
+     * @throws ArithmeticException if the matrix is singular
+     */
+    public Mat3 inverse() {
+        return inverseInto(new Mat3());
+    }
+
+    /**
+     * Inverts this matrix, storing the result in dest.
+     *
+     * @param dest The matrix to receive the result
+     * @return dest
+     * @throws ArithmeticException if the matrix is singular
+     */
+    public Mat3 inverseInto(Mat3 dest) {
+        float c00 = m11 * m22 - m21 * m12;
+        float c01 = m20 * m12 - m10 * m22;
+        float c02 = m10 * m21 - m20 * m11;
+        float determinant = m00 * c00 + m01 * c01 + m02 * c02;
+        if (determinant == 0) throw new ArithmeticException("Cannot invert a singular matrix");
+
+        float s = 1f / determinant;
+        float i01 = (m21 * m02 - m01 * m22) * s;
+        float i11 = (m00 * m22 - m20 * m02) * s;
+        float i21 = (m20 * m01 - m00 * m21) * s;
+        float i02 = (m01 * m12 - m11 * m02) * s;
+        float i12 = (m10 * m02 - m00 * m12) * s;
+        float i22 = (m00 * m11 - m10 * m01) * s;
+        dest.m00 = c00 * s; dest.m10 = c01 * s; dest.m20 = c02 * s;
+        dest.m01 = i01; dest.m11 = i11; dest.m21 = i21;
+        dest.m02 = i02; dest.m12 = i12; dest.m22 = i22;
+        return dest;
+    }
+
+    /**
+     * Inverts and transposes this matrix, storing the result in dest. Applied to the upper-left block of a model
+     * matrix this gives the matrix that transforms normals.
+     *
+     * @param dest The matrix to receive the result
+     * @return dest
+     * @throws ArithmeticException if the matrix is singular
+     */
+    public Mat3 inverseTransposeInto(Mat3 dest) {
+        return inverseInto(dest).transposeInto(dest);
+    }
+
+    /**
+     * Stores the matrix in a given Buffer.
+     *
+     * @param buffer The buffer to store the matrix data
+     */
+    public void storeMatrixInBuffer(FloatBuffer buffer) {
+        if (buffer == null)
+            throw new IllegalArgumentException("Buffer storage not possible when buffer is null. Aborting.");
+        if (buffer.remaining() < 9)
+            throw new IllegalArgumentException("Buffer does not have sufficient space for this operation. Aborted.");
+
+        buffer.put(m00).put(m01).put(m02);
+        buffer.put(m10).put(m11).put(m12);
+        buffer.put(m20).put(m21).put(m22);
+    }
+
+    /**
+     * Copy this matrix into a new array-backed {@link SquareMatrix}.
+     *
+     * @return a SquareMatrix with the same values
+     */
+    public SquareMatrix toSquareMatrix() {
+        return new SquareMatrix(getValues());
+    }
+
+    @Override
+    public String toString() {
+        return toSquareMatrix().toString();
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 3 * 100003;
+        for (float value : getValues()) {
+            hash = ColumnVector.hash(hash, value);
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Mat3) {
+            Mat3 o = (Mat3) obj;
+            return m00 == o.m00 && m01 == o.m01 && m02 == o.m02 &&
+                    m10 == o.m10 && m11 == o.m11 && m12 == o.m12 &&
+                    m20 == o.m20 && m21 == o.m21 && m22 == o.m22;
+        }
+        return super.equals(obj);
+    }
+}
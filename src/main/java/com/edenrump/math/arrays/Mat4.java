@@ -0,0 +1,561 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Fixed-size 4x4 matrix backed by sixteen fields rather than an array.
+ * <p>
+ * Fields are named <code>m[column][row]</code> and the matrix is laid out column-major, exactly as
+ * {@link SquareMatrix} stores its values, so the two convert between each other by a straight copy. Operations either
+ * return a new matrix or, through the <code>*Into(dest)</code> variants, write into a caller-supplied object without
+ * allocating. The destination may be this matrix or one of the arguments.
+ */
+public class Mat4 {
+
+    float m00, m01, m02, m03;
+    float m10, m11, m12, m13;
+    float m20, m21, m22, m23;
+    float m30, m31, m32, m33;
+
+    /**
+     * Creates a new identity matrix.
+     */
+    public Mat4() {
+        identity();
+    }
+
+    public Mat4(Mat4 other) {
+        set(other);
+    }
+
+    /**
+     * Creates a matrix from sixteen column-major values.
+     *
+     * @param values the values of the matrix, column by column
+     */
+    public Mat4(float... values) {
+        set(values);
+    }
+
+    public Mat4(SquareMatrix matrix) {
+        if (matrix.getDimensions() != 4)
+            throw new IllegalArgumentException("Cannot create Mat4 from matrix of " + matrix.getDimensions() +
+                    " dimensions");
+        set(matrix.getValues());
+    }
+
+    /**
+     * Sets this matrix to the identity matrix.
+     *
+     * @return this matrix
+     */
+    public Mat4 identity() {
+        m00 = 1; m01 = 0; m02 = 0; m03 = 0;
+        m10 = 0; m11 = 1; m12 = 0; m13 = 0;
+        m20 = 0; m21 = 0; m22 = 1; m23 = 0;
+        m30 = 0; m31 = 0; m32 = 0; m33 = 1;
+        return this;
+    }
+
+    /**
+     * Copies the values of another matrix into this matrix.
+     *
+     * @param other the matrix to copy
+     * @return this matrix
+     */
+    public Mat4 set(Mat4 other) {
+        m00 = other.m00; m01 = other.m01; m02 = other.m02; m03 = other.m03;
+        m10 = other.m10; m11 = other.m11; m12 = other.m12; m13 = other.m13;
+        m20 = other.m20; m21 = other.m21; m22 = other.m22; m23 = other.m23;
+        m30 = other.m30; m31 = other.m31; m32 = other.m32; m33 = other.m33;
+        return this;
+    }
+
+    /**
+     * Sets every value of this matrix, column by column.
+     *
+     * @return this matrix
+     */
+    public Mat4 set(float m00, float m01, float m02, float m03,
+                    float m10, float m11, float m12, float m13,
+                    float m20, float m21, float m22, float m23,
+                    float m30, float m31, float m32, float m33) {
+        this.m00 = m00; this.m01 = m01; this.m02 = m02; this.m03 = m03;
+        this.m10 = m10; this.m11 = m11; this.m12 = m12; this.m13 = m13;
+        this.m20 = m20; this.m21 = m21; this.m22 = m22; this.m23 = m23;
+        this.m30 = m30; this.m31 = m31; this.m32 = m32; this.m33 = m33;
+        return this;
+    }
+
+    /**
+     * Sets this matrix from sixteen column-major values.
+     *
+     * @param values the values of the matrix, column by column
+     * @return this matrix
+     */
+    public Mat4 set(float[] values) {
+        if (values.length != 16)
+            throw new IllegalArgumentException("Cannot create 4x4 matrix from " + values.length + " values");
+
+        m00 = values[0]; m01 = values[1]; m02 = values[2]; m03 = values[3];
+        m10 = values[4]; m11 = values[5]; m12 = values[6]; m13 = values[7];
+        m20 = values[8]; m21 = values[9]; m22 = values[10]; m23 = values[11];
+        m30 = values[12]; m31 = values[13]; m32 = values[14]; m33 = values[15];
+        return this;
+    }
+
+    /**
+     * Get a single value from the matrix.
+     *
+     * @param column the column of the value
+     * @param row    the row of the value
+     * @return the value at the given column and row
+     */
+    public float get(int column, int row) {
+        switch (column * 4 + row) {
+            case 0: return m00;
+            case 1: return m01;
+            case 2: return m02;
+            case 3: return m03;
+            case 4: return m10;
+            case 5: return m11;
+            case 6: return m12;
+            case 7: return m13;
+            case 8: return m20;
+            case 9: return m21;
+            case 10: return m22;
+            case 11: return m23;
+            case 12: return m30;
+            case 13: return m31;
+            case 14: return m32;
+            case 15: return m33;
+            default:
+                throw new IllegalArgumentException("Cannot get value at column " + column + ", row " + row +
+                        " of a 4x4 matrix");
+        }
+    }
+
+    public int getDimensions() {
+        return 4;
+    }
+
+    /**
+     * Copy the values of this matrix into a new column-major array.
+     *
+     * @return the values of this matrix
+     */
+    public float[] getValues() {
+        return getValuesInto(new float[16], 0);
+    }
+
+    /**
+     * Copy the values of this matrix, column-major, into an existing array.
+     *
+     * @param dest   the array to receive the values
+     * @param offset the index in dest of the first value
+     * @return dest
+     */
+    public float[] getValuesInto(float[] dest, int offset) {
+        dest[offset] = m00; dest[offset + 1] = m01; dest[offset + 2] = m02; dest[offset + 3] = m03;
+        dest[offset + 4] = m10; dest[offset + 5] = m11; dest[offset + 6] = m12; dest[offset + 7] = m13;
+        dest[offset + 8] = m20; dest[offset + 9] = m21; dest[offset + 10] = m22; dest[offset + 11] = m23;
+        dest[offset + 12] = m30; dest[offset + 13] = m31; dest[offset + 14] = m32; dest[offset + 15] = m33;
+        return dest;
+    }
+
+    /**
+     * Multiplies this matrix with a scalar.
+     *
+     * @param scalar The scalar
+     * @return Scalar product of this * scalar
+     */
+    public Mat4 multiply(float scalar) {
+        return multiplyInto(scalar, new Mat4());
+    }
+
+    /**
+     * Multiplies this matrix with a scalar, storing the result in dest.
+     *
+     * @param scalar The scalar
+     * @param dest   The matrix to receive the result
+     * @return dest
+     */
+    public Mat4 multiplyInto(float scalar, Mat4 dest) {
+        dest.m00 = m00 * scalar; dest.m01 = m01 * scalar; dest.m02 = m02 * scalar; dest.m03 = m03 * scalar;
+        dest.m10 = m10 * scalar; dest.m11 = m11 * scalar; dest.m12 = m12 * scalar; dest.m13 = m13 * scalar;
+        dest.m20 = m20 * scalar; dest.m21 = m21 * scalar; dest.m22 = m22 * scalar; dest.m23 = m23 * scalar;
+        dest.m30 = m30 * scalar; dest.m31 = m31 * scalar; dest.m32 = m32 * scalar; dest.m33 = m33 * scalar;
+        return dest;
+    }
+
+    /**
+     * Multiplies this matrix to another matrix.
+     * <p>
+     * The ordering matches {@link SquareMatrix#multiply(SquareMatrix)} so that the two types give identical values:
+     * for column-major transformation matrices the result applies this transformation first and the other second.
+     *
+     * @param other The other matrix
+     * @return Matrix product of this * other
+     */
+    public Mat4 multiply(Mat4 other) {
+        return multiplyInto(other, new Mat4());
+    }
+
+    /**
+     * Multiplies this matrix to another matrix, storing the result in dest.
+     *
+     * @param other The other matrix
+     * @param dest  The matrix to receive the result
+     * @return dest
+     * @see #multiply(Mat4)
+     */
+    public Mat4 multiplyInto(Mat4 other, Mat4 dest) {
+        float r00 = m00 * other.m00 + m01 * other.m10 + m02 * other.m20 + m03 * other.m30;
+        float r01 = m00 * other.m01 + m01 * other.m11 + m02 * other.m21 + m03 * other.m31;
+        float r02 = m00 * other.m02 + m01 * other.m12 + m02 * other.m22 + m03 * other.m32;
+        float r03 = m00 * other.m03 + m01 * other.m13 + m02 * other.m23 + m03 * other.m33;
+        float r10 = m10 * other.m00 + m11 * other.m10 + m12 * other.m20 + m13 * other.m30;
+        float r11 = m10 * other.m01 + m11 * other.m11 + m12 * other.m21 + m13 * other.m31;
+        float r12 = m10 * other.m02 + m11 * other.m12 + m12 * other.m22 + m13 * other.m32;
+        float r13 = m10 * other.m03 + m11 * other.m13 + m12 * other.m23 + m13 * other.m33;
+        float r20 = m20 * other.m00 + m21 * other.m10 + m22 * other.m20 + m23 * other.m30;
+        float r21 = m20 * other.m01 + m21 * other.m11 + m22 * other.m21 + m23 * other.m31;
+        float r22 = m20 * other.m02 + m21 * other.m12 + m22 * other.m22 + m23 * other.m32;
+        float r23 = m20 * other.m03 + m21 * other.m13 + m22 * other.m23 + m23 * other.m33;
+        float r30 = m30 * other.m00 + m31 * other.m10 + m32 * other.m20 + m33 * other.m30;
+        float r31 = m30 * other.m01 + m31 * other.m11 + m32 * other.m21 + m33 * other.m31;
+        float r32 = m30 * other.m02 + m31 * other.m12 + m32 * other.m22 + m33 * other.m32;
+        float r33 = m30 * other.m03 + m31 * other.m13 + m32 * other.m23 + m33 * other.m33;
+
+        dest.m00 = r00; dest.m01 = r01; dest.m02 = r02; dest.m03 = r03;
+        dest.m10 = r10; dest.m11 = r11; dest.m12 = r12; dest.m13 = r13;
+        dest.m20 = r20; dest.m21 = r21; dest.m22 = r22; dest.m23 = r23;
+        dest.m30 = r30; dest.m31 = r31; dest.m32 = r32; dest.m33 = r33;
+        return dest;
+    }
+
+    /**
+     * Multiplies this matrix to a vector.
+     *
+     * @param vector The vector
+     * @return Vector product of this * other
+     */
+    public Vec4 multiply(Vec4 vector) {
+        return transformInto(vector, new Vec4());
+    }
+
+    /**
+     * Multiplies this matrix to a vector, storing the result in dest.
+     *
+     * @param vector The vector
+     * @param dest   The vector to receive the result
+     * @return dest
+     */
+    public Vec4 transformInto(Vec4 vector, Vec4 dest) {
+        float x = vector.getX();
+        float y = vector.getY();
+        float z = vector.getZ();
+        float w = vector.getW();
+        return dest.set(
+                m00 * x + m10 * y + m20 * z + m30 * w,
+                m01 * x + m11 * y + m21 * z + m31 * w,
+                m02 * x + m12 * y + m22 * z + m32 * w,
+                m03 * x + m13 * y + m23 * z + m33 * w);
+    }
+
+    /**
+     * Transforms a position (a vector with an implicit w of 1) by this matrix, storing the result in dest.
+     * <p>
+     * The projective row is ignored, so this is only suitable for affine transformations.
+     *
+     * @param position The position
+     * @param dest     The vector to receive the result
+     * @return dest
+     */
+    public Vec3 transformPositionInto(Vec3 position, Vec3 dest) {
+        float x = position.getX();
+        float y = position.getY();
+        float z = position.getZ();
+        return dest.set(
+                m00 * x + m10 * y + m20 * z + m30,
+                m01 * x + m11 * y + m21 * z + m31,
+                m02 * x + m12 * y + m22 * z + m32);
+    }
+
+    /**
+     * Transforms a direction (a vector with an implicit w of 0) by this matrix, storing the result in dest.
+     *
+     * @param direction The direction
+     * @param dest      The vector to receive the result
+     * @return dest
+     */
+    public Vec3 transformDirectionInto(Vec3 direction, Vec3 dest) {
+        float x = direction.getX();
+        float y = direction.getY();
+        float z = direction.getZ();
+        return dest.set(
+                m00 * x + m10 * y + m20 * z,
+                m01 * x + m11 * y + m21 * z,
+                m02 * x + m12 * y + m22 * z);
+    }
+
+    /**
+     * Transposes this matrix.
+     *
+     * @return Transposed matrix
+     */
+    public Mat4 transpose() {
+        return transposeInto(new Mat4());
+    }
+
+    /**
+     * Transposes this matrix, storing the result in dest.
+     *
+     * @param dest The matrix to receive the result
+     * @return dest
+     */
+    public Mat4 transposeInto(Mat4 dest) {
+        float t01 = m01, t02 = m02, t03 = m03, t12 = m12, t13 = m13, t23 = m23;
+        dest.m00 = m00; dest.m11 = m11; dest.m22 = m22; dest.m33 = m33;
+        dest.m01 = m10; dest.m02 = m20; dest.m03 = m30;
+        dest.m12 = m21; dest.m13 = m31; dest.m23 = m32;
+        dest.m10 = t01; dest.m20 = t02; dest.m30 = t03;
+        dest.m21 = t12; dest.m31 = t13; dest.m32 = t23;
+        return dest;
+    }
+
+    /**
+     * Check whether this matrix is affine, meaning its bottom row is (0, 0, 0, 1).
+     *
+     * @return true if this matrix is affine
+     */
+    public boolean isAffine() {
+        return m03 == 0 && m13 == 0 && m23 == 0 && m33 == 1;
+    }
+
+    /**
+     * Calculate the determinant of this matrix.
+     *
+     * @return the determinant
+     */
+    public float determinant() {
+        if (isAffine()) return determinant3x3();
+
+        float a = m00 * m11 - m01 * m10;
+        float b = m00 * m12 - m02 * m10;
+        float c = m00 * m13 - m03 * m10;
+        float d = m01 * m12 - m02 * m11;
+        float e = m01 * m13 - m03 * m11;
+        float f = m02 * m13 - m03 * m12;
+        float g = m20 * m31 - m21 * m30;
+        float h = m20 * m32 - m22 * m30;
+        float i = m20 * m33 - m23 * m30;
+        float j = m21 * m32 - m22 * m31;
+        float k = m21 * m33 - m23 * m31;
+        float l = m22 * m33 - m23 * m32;
+        return a * l - b * k + c * j + d * i - e * h + f * g;
+    }
+
+    /**
+     * @return the determinant of the upper-left 3x3 block of this matrix
+     */
+    float determinant3x3() {
+        return m00 * (m11 * m22 - m21 * m12)
+                - m10 * (m01 * m22 - m21 * m02)
+                + m20 * (m01 * m12 - m11 * m02);
+    }
+
+    /**
+     * Inverts this matrix.
+     *
+     * @return Inverted matrix
+     * @throws ArithmeticException if the matrix is singular
+     */
+    public Mat4 inverse() {
+        return inverseInto(new Mat4());
+    }
+
+    /**
+     * Inverts this matrix, storing the result in dest. Affine matrices take the cheaper {@link #inverseAffineInto}
+     * path.
+     *
+     * @param dest The matrix to receive the result
+     * @return dest
+     * @throws ArithmeticException if the matrix is singular
+     */
+    public Mat4 inverseInto(Mat4 dest) {
+        if (isAffine()) return inverseAffineInto(dest);
+
+        float a = m00 * m11 - m01 * m10;
+        float b = m00 * m12 - m02 * m10;
+        float c = m00 * m13 - m03 * m10;
+        float d = m01 * m12 - m02 * m11;
+        float e = m01 * m13 - m03 * m11;
+        float f = m02 * m13 - m03 * m12;
+        float g = m20 * m31 - m21 * m30;
+        float h = m20 * m32 - m22 * m30;
+        float i = m20 * m33 - m23 * m30;
+        float j = m21 * m32 - m22 * m31;
+        float k = m21 * m33 - m23 * m31;
+        float l = m22 * m33 - m23 * m32;
+        float determinant = a * l - b * k + c * j + d * i - e * h + f * g;
+        if (determinant == 0) throw new ArithmeticException("Cannot invert a singular matrix");
+
+        float s = 1f / determinant;
+        return dest.set(
+                (m11 * l - m12 * k + m13 * j) * s,
+                (-m01 * l + m02 * k - m03 * j) * s,
+                (m31 * f - m32 * e + m33 * d) * s,
+                (-m21 * f + m22 * e - m23 * d) * s,
+                (-m10 * l + m12 * i - m13 * h) * s,
+                (m00 * l - m02 * i + m03 * h) * s,
+                (-m30 * f + m32 * c - m33 * b) * s,
+                (m20 * f - m22 * c + m23 * b) * s,
+                (m10 * k - m11 * i + m13 * g) * s,
+                (-m00 * k + m01 * i - m03 * g) * s,
+                (m30 * e - m31 * c + m33 * a) * s,
+                (-m20 * e + m21 * c - m23 * a) * s,
+                (-m10 * j + m11 * h - m12 * g) * s,
+                (m00 * j - m01 * h + m02 * g) * s,
+                (-m30 * d + m31 * b - m32 * a) * s,
+                (m20 * d - m21 * b + m22 * a) * s);
+    }
+
+    /**
+     * Inverts this matrix, assuming it is affine, storing the result in dest.
+     * <p>
+     * Only the upper-left 3x3 block is inverted; the translation of the inverse is the negated original translation
+     * transformed by that block. The bottom row is not read.
+     *
+     * @param dest The matrix to receive the result
+     * @return dest
+     * @throws ArithmeticException if the matrix is singular
+     */
+    public Mat4 inverseAffineInto(Mat4 dest) {
+        float c00 = m11 * m22 - m21 * m12;
+        float c01 = m20 * m12 - m10 * m22;
+        float c02 = m10 * m21 - m20 * m11;
+        float determinant = m00 * c00 + m01 * c01 + m02 * c02;
+        if (determinant == 0) throw new ArithmeticException("Cannot invert a singular matrix");
+
+        float s = 1f / determinant;
+        float i00 = c00 * s;
+        float i10 = c01 * s;
+        float i20 = c02 * s;
+        float i01 = (m21 * m02 - m01 * m22) * s;
+        float i11 = (m00 * m22 - m20 * m02) * s;
+        float i21 = (m20 * m01 - m00 * m21) * s;
+        float i02 = (m01 * m12 - m11 * m02) * s;
+        float i12 = (m10 * m02 - m00 * m12) * s;
+        float i22 = (m00 * m11 - m10 * m01) * s;
+
+        float tx = m30, ty = m31, tz = m32;
+        return dest.set(
+                i00, i01, i02, 0,
+                i10, i11, i12, 0,
+                i20, i21, i22, 0,
+                -(i00 * tx + i10 * ty + i20 * tz),
+                -(i01 * tx + i11 * ty + i21 * tz),
+                -(i02 * tx + i12 * ty + i22 * tz),
+                1);
+    }
+
+    /**
+     * Calculate the normal matrix of this matrix: the inverse transpose of its upper-left 3x3 block.
+     *
+     * @param dest The matrix to receive the result
+     * @return dest
+     * @throws ArithmeticException if the upper-left block is singular
+     */
+    public Mat3 normalMatrixInto(Mat3 dest) {
+        //the inverse transpose is the cofactor matrix divided by the determinant
+        float c00 = m11 * m22 - m21 * m12;
+        float c01 = m20 * m12 - m10 * m22;
+        float c02 = m10 * m21 - m20 * m11;
+        float determinant = m00 * c00 + m01 * c01 + m02 * c02;
+        if (determinant == 0) throw new ArithmeticException("Cannot calculate the normal matrix of a singular matrix");
+
+        float s = 1f / determinant;
+        float n10 = (m21 * m02 - m01 * m22) * s;
+        float n11 = (m00 * m22 - m20 * m02) * s;
+        float n12 = (m20 * m01 - m00 * m21) * s;
+        float n20 = (m01 * m12 - m11 * m02) * s;
+        float n21 = (m10 * m02 - m00 * m12) * s;
+        float n22 = (m00 * m11 - m10 * m01) * s;
+        dest.m00 = c00 * s; dest.m01 = c01 * s; dest.m02 = c02 * s;
+        dest.m10 = n10; dest.m11 = n11; dest.m12 = n12;
+        dest.m20 = n20; dest.m21 = n21; dest.m22 = n22;
+        return dest;
+    }
+
+    /**
+     * Stores the matrix in a given Buffer.
+     *
+     * @param buffer The buffer to store the matrix data
+     */
+    public void storeMatrixInBuffer(FloatBuffer buffer) {
+        if (buffer == null)
+            throw new IllegalArgumentException("Buffer storage not possible when buffer is null. Aborting.");
+        if (buffer.remaining() < 16)
+            throw new IllegalArgumentException("Buffer does not have sufficient space for this operation. Aborted.");
+
+        buffer.put(m00).put(m01).put(m02).put(m03);
+        buffer.put(m10).put(m11).put(m12).put(m13);
+        buffer.put(m20).put(m21).put(m22).put(m23);
+        buffer.put(m30).put(m31).put(m32).put(m33);
+    }
+
+    /**
+     * Copy this matrix into a new array-backed {@link SquareMatrix}.
+     *
+     * @return a SquareMatrix with the same values
+     */
+    public SquareMatrix toSquareMatrix() {
+        return new SquareMatrix(getValues());
+    }
+
+    @Override
+    public String toString() {
+        return toSquareMatrix().toString();
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 4 * 100003;
+        for (float value : getValues()) {
+            hash = ColumnVector.hash(hash, value);
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Mat4) {
+            Mat4 o = (Mat4) obj;
+            return m00 == o.m00 && m01 == o.m01 && m02 == o.m02 && m03 == o.m03 &&
+                    m10 == o.m10 && m11 == o.m11 && m12 == o.m12 && m13 == o.m13 &&
+                    m20 == o.m20 && m21 == o.m21 && m22 == o.m22 && m23 == o.m23 &&
+                    m30 == o.m30 && m31 == o.m31 && m32 == o.m32 && m33 == o.m33;
+        }
+        return super.equals(obj);
+    }
+}
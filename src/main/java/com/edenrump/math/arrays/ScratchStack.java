@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import java.util.Arrays;
+
+/**
+ * A per-thread stack of reusable vectors and matrices for temporary values inside a calculation.
+ * <p>
+ * A frame is opened with {@link #push()} and closed with {@link #close()}, ideally with try-with-resources. Every
+ * object handed out inside the frame returns to the stack when it closes, so once the stack has grown to the deepest
+ * use on a thread no further objects are allocated:
+ * <pre>
+ *     try (ScratchStack stack = ScratchStack.push()) {
+ *         Vec3 edge = stack.vec3(b).subtractInto(stack.vec3(a), stack.vec3());
+ *         ...
+ *     }
+ * </pre>
+ * Scratch objects must not be kept after their frame closes. When the system property {@value #DEBUG_PROPERTY} is
+ * true, objects are filled with NaN as their frame closes so that leaked references show up in results, and each
+ * frame remembers where it was opened so that {@link #checkEmpty()} can report frames that were never closed.
+ */
+public final class ScratchStack implements AutoCloseable {
+
+    /**
+     * System property which, when true, enables leak detection
+     */
+    public static final String DEBUG_PROPERTY = "nested.math.scratch.debug";
+
+    private static final boolean DEBUG = Boolean.getBoolean(DEBUG_PROPERTY);
+    private static final ThreadLocal<ScratchStack> LOCAL = ThreadLocal.withInitial(ScratchStack::new);
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int TYPES = 4;
+
+    private Vec3[] vec3s = new Vec3[INITIAL_CAPACITY];
+    private Vec4[] vec4s = new Vec4[INITIAL_CAPACITY];
+    private Mat3[] mat3s = new Mat3[INITIAL_CAPACITY];
+    private Mat4[] mat4s = new Mat4[INITIAL_CAPACITY];
+    private int vec3Count, vec4Count, mat3Count, mat4Count;
+
+    //the counts of each type when each open frame was pushed
+    private int[] frames = new int[INITIAL_CAPACITY * TYPES];
+    private Throwable[] pushSites = DEBUG ? new Throwable[INITIAL_CAPACITY] : null;
+    private int depth;
+
+    private ScratchStack() {
+    }
+
+    /**
+     * Open a new frame on this thread's stack.
+     *
+     * @return this thread's stack, which closes the frame when closed
+     */
+    public static ScratchStack push() {
+        return LOCAL.get().pushFrame();
+    }
+
+    /**
+     * Throws if any frame on this thread's stack is still open, for use at the end of a frame of work.
+     *
+     * @throws IllegalStateException if a frame has not been closed
+     */
+    public static void checkEmpty() {
+        ScratchStack stack = LOCAL.get();
+        if (stack.depth == 0) return;
+
+        IllegalStateException e = new IllegalStateException(stack.depth + " scratch frame(s) were not closed");
+        if (DEBUG) e.initCause(stack.pushSites[stack.depth - 1]);
+        throw e;
+    }
+
+    /**
+     * @return the number of open frames on this thread's stack
+     */
+    public static int getDepth() {
+        return LOCAL.get().depth;
+    }
+
+    private ScratchStack pushFrame() {
+        if ((depth + 1) * TYPES > frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
+            if (DEBUG) pushSites = Arrays.copyOf(pushSites, pushSites.length * 2);
+        }
+
+        int offset = depth * TYPES;
+        frames[offset] = vec3Count;
+        frames[offset + 1] = vec4Count;
+        frames[offset + 2] = mat3Count;
+        frames[offset + 3] = mat4Count;
+        if (DEBUG) pushSites[depth] = new Throwable("Scratch frame opened here");
+        depth++;
+        return this;
+    }
+
+    /**
+     * Close the most recent frame, returning every object handed out since it was opened.
+     *
+     * @throws IllegalStateException if there is no open frame
+     */
+    @Override
+    public void close() {
+        if (depth == 0) throw new IllegalStateException("Cannot close a scratch frame when none are open");
+
+        depth--;
+        int offset = depth * TYPES;
+        if (DEBUG) {
+            poison(offset);
+            pushSites[depth] = null;
+        }
+        vec3Count = frames[offset];
+        vec4Count = frames[offset + 1];
+        mat3Count = frames[offset + 2];
+        mat4Count = frames[offset + 3];
+    }
+
+    private void poison(int offset) {
+        for (int i = frames[offset]; i < vec3Count; i++) vec3s[i].set(Float.NaN, Float.NaN, Float.NaN);
+        for (int i = frames[offset + 1]; i < vec4Count; i++) vec4s[i].set(Float.NaN, Float.NaN, Float.NaN, Float.NaN);
+        for (int i = frames[offset + 2]; i < mat3Count; i++) mat3s[i].multiplyInto(Float.NaN, mat3s[i]);
+        for (int i = frames[offset + 3]; i < mat4Count; i++) mat4s[i].multiplyInto(Float.NaN, mat4s[i]);
+    }
+
+    private void checkOpen() {
+        if (depth == 0) throw new IllegalStateException("Cannot take a scratch object outside of a frame");
+    }
+
+    /**
+     * @return a zero vector owned by the current frame
+     */
+    public Vec3 vec3() {
+        return vec3(0, 0, 0);
+    }
+
+    /**
+     * @return a vector owned by the current frame
+     */
+    public Vec3 vec3(float x, float y, float z) {
+        checkOpen();
+        if (vec3Count == vec3s.length) vec3s = Arrays.copyOf(vec3s, vec3s.length * 2);
+        Vec3 vector = vec3s[vec3Count];
+        if (vector == null) vector = vec3s[vec3Count] = new Vec3();
+        vec3Count++;
+        return vector.set(x, y, z);
+    }
+
+    /**
+     * @param vector a three-dimensional vector to copy
+     * @return a copy of the vector owned by the current frame
+     */
+    public Vec3 vec3(ColumnVector vector) {
+        if (vector.getDimensions() != 3)
+            throw new IllegalArgumentException("Cannot create 3D vector from " + vector.getDimensions() + " values");
+        return vec3(vector.getValue(0), vector.getValue(1), vector.getValue(2));
+    }
+
+    /**
+     * @return a zero vector owned by the current frame
+     */
+    public Vec4 vec4() {
+        return vec4(0, 0, 0, 0);
+    }
+
+    /**
+     * @return a vector owned by the current frame
+     */
+    public Vec4 vec4(float x, float y, float z, float w) {
+        checkOpen();
+        if (vec4Count == vec4s.length) vec4s = Arrays.copyOf(vec4s, vec4s.length * 2);
+        Vec4 vector = vec4s[vec4Count];
+        if (vector == null) vector = vec4s[vec4Count] = new Vec4();
+        vec4Count++;
+        return vector.set(x, y, z, w);
+    }
+
+    /**
+     * @return an identity matrix owned by the current frame
+     */
+    public Mat3 mat3() {
+        checkOpen();
+        if (mat3Count == mat3s.length) mat3s = Arrays.copyOf(mat3s, mat3s.length * 2);
+        Mat3 matrix = mat3s[mat3Count];
+        if (matrix == null) matrix = mat3s[mat3Count] = new Mat3();
+        mat3Count++;
+        return matrix.identity();
+    }
+
+    /**
+     * @return an identity matrix owned by the current frame
+     */
+    public Mat4 mat4() {
+        checkOpen();
+        if (mat4Count == mat4s.length) mat4s = Arrays.copyOf(mat4s, mat4s.length * 2);
+        Mat4 matrix = mat4s[mat4Count];
+        if (matrix == null) matrix = mat4s[mat4Count] = new Mat4();
+        mat4Count++;
+        return matrix.identity();
+    }
+}
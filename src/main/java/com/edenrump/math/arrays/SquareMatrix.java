@@ -19,10 +19,28 @@
 
 package com.edenrump.math.arrays;
 
+import com.edenrump.math.simd.MathKernels;
+import com.edenrump.math.util.ParallelRanges;
+
 import java.nio.FloatBuffer;
 
 public class SquareMatrix{
 
+    /**
+     * Matrices with at least this many dimensions are multiplied in cache-sized tiles
+     */
+    public static final int BLOCKED_THRESHOLD = 32;
+
+    /**
+     * Matrices with at least this many dimensions are multiplied across the fork-join pool
+     */
+    public static final int PARALLEL_THRESHOLD = 128;
+
+    /**
+     * The edge length of a tile, chosen so that a tile from each operand and one of the result fit in L2 cache
+     */
+    static final int BLOCK_SIZE = 64;
+
     private final int dimensions;
     private final float[] values;
 
@@ -154,6 +172,11 @@ public class SquareMatrix{
 
     /**
      * Multiplies this matrix to another matrix.
+     * <p>
+     * Large matrices are multiplied tile by tile so that each tile stays in cache, and above
+     * {@link #PARALLEL_THRESHOLD} dimensions the tiles are shared across the fork-join pool the caller is running in
+     * (or the common pool). Every path sums each element's products in the same order, so the result does not depend
+     * on the size of the matrix or the number of threads.
      *
      * @param other The other matrix
      * @return Matrix product of this * other
@@ -164,6 +187,26 @@ public class SquareMatrix{
 
         float[] result = new float[dimensions * dimensions];
 
+        if (dimensions == 4) {
+            MathKernels.get().multiply4x4(values, other.values, result);
+            return new SquareMatrix(result);
+        }
+
+        if (dimensions >= PARALLEL_THRESHOLD) {
+            //each task covers whole tiles of rows, so no tile of rows is shared between tasks
+            float[] a = values;
+            float[] b = other.values;
+            int tileRows = (dimensions + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            ParallelRanges.forEachRange(tileRows, 1, (from, to) -> multiplyBlocked(a, b, result, dimensions,
+                    from * BLOCK_SIZE, Math.min(to * BLOCK_SIZE, dimensions)));
+            return new SquareMatrix(result);
+        }
+
+        if (dimensions >= BLOCKED_THRESHOLD) {
+            multiplyBlocked(values, other.values, result, dimensions, 0, dimensions);
+            return new SquareMatrix(result);
+        }
+
         for (int row1 = 0; row1 < dimensions; row1++) {
             for (int columnOther = 0; columnOther < dimensions; columnOther++) {
                 for (int column1 = 0; column1 < dimensions; column1++) {
@@ -176,6 +219,32 @@ public class SquareMatrix{
         return new SquareMatrix(result);
     }
 
+    /**
+     * Multiply the rows [from, to) of a into result, tile by tile. Within a tile the innermost loop runs along
+     * contiguous values of b and result, and each element accumulates its products in increasing order of k.
+     */
+    static void multiplyBlocked(float[] a, float[] b, float[] result, int dimensions, int from, int to) {
+        for (int rowBlock = from; rowBlock < to; rowBlock += BLOCK_SIZE) {
+            int rowEnd = Math.min(rowBlock + BLOCK_SIZE, to);
+            for (int kBlock = 0; kBlock < dimensions; kBlock += BLOCK_SIZE) {
+                int kEnd = Math.min(kBlock + BLOCK_SIZE, dimensions);
+                for (int columnBlock = 0; columnBlock < dimensions; columnBlock += BLOCK_SIZE) {
+                    int columnEnd = Math.min(columnBlock + BLOCK_SIZE, dimensions);
+                    for (int row = rowBlock; row < rowEnd; row++) {
+                        int rowOffset = row * dimensions;
+                        for (int k = kBlock; k < kEnd; k++) {
+                            float value = a[rowOffset + k];
+                            int kOffset = k * dimensions;
+                            for (int column = columnBlock; column < columnEnd; column++) {
+                                result[rowOffset + column] += value * b[kOffset + column];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Transposes this matrix.
      *
@@ -191,6 +260,119 @@ public class SquareMatrix{
         return new SquareMatrix(result);
     }
 
+    /**
+     * Calculate the determinant of this matrix. 4x4 matrices use the closed form in {@link Mat4}; other sizes are
+     * reduced by Gaussian elimination with partial pivoting.
+     *
+     * @return the determinant
+     */
+    public float determinant() {
+        if (dimensions == 4) return new Mat4(this).determinant();
+
+        double[] work = toDoubles();
+        double determinant = 1;
+        for (int pivot = 0; pivot < dimensions; pivot++) {
+            int pivotRow = findPivotRow(work, pivot);
+            if (work[pivot * dimensions + pivotRow] == 0) return 0;
+            if (pivotRow != pivot) {
+                swapRows(work, pivot, pivotRow);
+                determinant = -determinant;
+            }
+
+            double pivotValue = work[pivot * dimensions + pivot];
+            determinant *= pivotValue;
+            for (int row = pivot + 1; row < dimensions; row++) {
+                double factor = work[pivot * dimensions + row] / pivotValue;
+                if (factor == 0) continue;
+                for (int column = pivot; column < dimensions; column++) {
+                    work[column * dimensions + row] -= factor * work[column * dimensions + pivot];
+                }
+            }
+        }
+        return (float) determinant;
+    }
+
+    /**
+     * Inverts this matrix. 4x4 matrices use {@link Mat4#inverseInto(Mat4)}, which avoids the general path entirely
+     * for affine transforms; other sizes use Gauss-Jordan elimination with partial pivoting.
+     *
+     * @return Inverted matrix
+     * @throws ArithmeticException if the matrix is singular
+     */
+    public SquareMatrix inverse() {
+        if (dimensions == 4) return new Mat4(this).inverse().toSquareMatrix();
+
+        double[] work = toDoubles();
+        double[] inverse = new double[values.length];
+        for (int i = 0; i < dimensions; i++) inverse[i * dimensions + i] = 1;
+
+        for (int pivot = 0; pivot < dimensions; pivot++) {
+            int pivotRow = findPivotRow(work, pivot);
+            if (work[pivot * dimensions + pivotRow] == 0)
+                throw new ArithmeticException("Cannot invert a singular matrix");
+            if (pivotRow != pivot) {
+                swapRows(work, pivot, pivotRow);
+                swapRows(inverse, pivot, pivotRow);
+            }
+
+            double scale = 1 / work[pivot * dimensions + pivot];
+            for (int column = 0; column < dimensions; column++) {
+                work[column * dimensions + pivot] *= scale;
+                inverse[column * dimensions + pivot] *= scale;
+            }
+
+            for (int row = 0; row < dimensions; row++) {
+                double factor = work[pivot * dimensions + row];
+                if (row == pivot || factor == 0) continue;
+                for (int column = 0; column < dimensions; column++) {
+                    work[column * dimensions + row] -= factor * work[column * dimensions + pivot];
+                    inverse[column * dimensions + row] -= factor * inverse[column * dimensions + pivot];
+                }
+            }
+        }
+
+        float[] result = new float[values.length];
+        for (int i = 0; i < result.length; i++) result[i] = (float) inverse[i];
+        return new SquareMatrix(result);
+    }
+
+    /**
+     * Inverts and transposes this matrix. Applied to a model matrix this gives the matrix that transforms normals.
+     *
+     * @return Inverted, transposed matrix
+     * @throws ArithmeticException if the matrix is singular
+     */
+    public SquareMatrix inverseTranspose() {
+        return inverse().transpose();
+    }
+
+    private double[] toDoubles() {
+        double[] work = new double[values.length];
+        for (int i = 0; i < values.length; i++) work[i] = values[i];
+        return work;
+    }
+
+    private int findPivotRow(double[] work, int pivot) {
+        int pivotRow = pivot;
+        double largest = Math.abs(work[pivot * dimensions + pivot]);
+        for (int row = pivot + 1; row < dimensions; row++) {
+            double candidate = Math.abs(work[pivot * dimensions + row]);
+            if (candidate > largest) {
+                largest = candidate;
+                pivotRow = row;
+            }
+        }
+        return pivotRow;
+    }
+
+    private void swapRows(double[] work, int a, int b) {
+        for (int column = 0; column < dimensions; column++) {
+            double temp = work[column * dimensions + a];
+            work[column * dimensions + a] = work[column * dimensions + b];
+            work[column * dimensions + b] = temp;
+        }
+    }
+
     /**
      * Stores the matrix in a given Buffer.
      *
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Fixed-size three dimensional vector backed by fields rather than an array.
+ * <p>
+ * Every arithmetic operation is available in two forms: one that returns a new vector, matching the behaviour of
+ * {@link ColumnVector}, and an <code>*Into(dest)</code> variant that writes the result into a caller-supplied
+ * vector and allocates nothing. The destination may be this vector or one of the arguments.
+ */
+public class Vec3 {
+
+    private float x;
+    private float y;
+    private float z;
+
+    public Vec3() {
+    }
+
+    public Vec3(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public Vec3(Vec3 other) {
+        this(other.x, other.y, other.z);
+    }
+
+    public Vec3(ColumnVector vector) {
+        if (vector.getDimensions() != 3)
+            throw new IllegalArgumentException("Cannot create Vec3 from vector of " + vector.getDimensions() +
+                    " dimensions");
+
+        float[] values = vector.getValues();
+        this.x = values[0];
+        this.y = values[1];
+        this.z = values[2];
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getZ() {
+        return z;
+    }
+
+    public float getValue(int dimension) {
+        switch (dimension) {
+            case 0:
+                return x;
+            case 1:
+                return y;
+            case 2:
+                return z;
+            default:
+                throw new IllegalArgumentException("Cannot get dimension " + dimension + " for vector of length 3");
+        }
+    }
+
+    /**
+     * Sets the components of this vector.
+     *
+     * @return this vector
+     */
+    public Vec3 set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    /**
+     * Copies the components of another vector into this vector.
+     *
+     * @param other the vector to copy
+     * @return this vector
+     */
+    public Vec3 set(Vec3 other) {
+        return set(other.x, other.y, other.z);
+    }
+
+    /**
+     * Calculate the length of this vector.
+     *
+     * @return Length of this vector
+     */
+    public float length() {
+        return (float) Math.sqrt(lengthSquared());
+    }
+
+    /**
+     * Calculates the squared length of the vector.
+     *
+     * @return Squared length of this vector
+     */
+    public float lengthSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Adds this vector to another vector.
+     *
+     * @param other The other vector
+     * @return Sum of this + other
+     */
+    public Vec3 add(Vec3 other) {
+        if (other == null) return this;
+        return addInto(other, new Vec3());
+    }
+
+    /**
+     * Adds this vector to another vector, storing the result in dest.
+     *
+     * @param other The other vector
+     * @param dest  The vector to receive the result
+     * @return dest
+     */
+    public Vec3 addInto(Vec3 other, Vec3 dest) {
+        return dest.set(x + other.x, y + other.y, z + other.z);
+    }
+
+    /**
+     * Subtracts another vector from this vector.
+     *
+     * @param other The other vector
+     * @return Difference of this - other
+     */
+    public Vec3 subtract(Vec3 other) {
+        if (other == null) return this;
+        return subtractInto(other, new Vec3());
+    }
+
+    /**
+     * Subtracts another vector from this vector, storing the result in dest.
+     *
+     * @param other The other vector
+     * @param dest  The vector to receive the result
+     * @return dest
+     */
+    public Vec3 subtractInto(Vec3 other, Vec3 dest) {
+        return dest.set(x - other.x, y - other.y, z - other.z);
+    }
+
+    /**
+     * Multiplies a vector by a scalar.
+     *
+     * @param scalar Scalar to multiply
+     * @return Scalar product of this * scalar
+     */
+    public Vec3 scale(float scalar) {
+        return scaleInto(scalar, new Vec3());
+    }
+
+    /**
+     * Multiplies a vector by a scalar, storing the result in dest.
+     *
+     * @param scalar Scalar to multiply
+     * @param dest   The vector to receive the result
+     * @return dest
+     */
+    public Vec3 scaleInto(float scalar, Vec3 dest) {
+        if (scalar == Float.POSITIVE_INFINITY || scalar == Float.NEGATIVE_INFINITY) throw new IllegalArgumentException(
+                "Positive and negative infinity values cannot and should not be realistically handled with this program");
+        return dest.set(x * scalar, y * scalar, z * scalar);
+    }
+
+    /**
+     * Negate this vector.
+     *
+     * @return Negated vector
+     */
+    public Vec3 negate() {
+        return negateInto(new Vec3());
+    }
+
+    /**
+     * Negate this vector, storing the result in dest.
+     *
+     * @param dest The vector to receive the result
+     * @return dest
+     */
+    public Vec3 negateInto(Vec3 dest) {
+        return dest.set(-x, -y, -z);
+    }
+
+    /**
+     * Return a normalised vector of length 1.
+     *
+     * @return Normalized vector
+     */
+    public Vec3 normalize() {
+        return normalizeInto(new Vec3());
+    }
+
+    /**
+     * Normalise this vector to length 1, storing the result in dest.
+     *
+     * @param dest The vector to receive the result
+     * @return dest
+     */
+    public Vec3 normalizeInto(Vec3 dest) {
+        float lengthSquared = lengthSquared();
+        if (lengthSquared == 0) throw new ArithmeticException("Cannot properly divide by 0");
+
+        float inverseLength = (float) (1.0 / Math.sqrt(lengthSquared));
+        return dest.set(x * inverseLength, y * inverseLength, z * inverseLength);
+    }
+
+    /**
+     * Calculates the dot product of this vector with another vector.
+     *
+     * @param other The other vector
+     * @return Dot product of this * other
+     */
+    public float dot(Vec3 other) {
+        return x * other.x + y * other.y + z * other.z;
+    }
+
+    /**
+     * Calculates the cross product of this vector with another vector.
+     *
+     * @param other The other vector
+     * @return Cross product of this x other
+     */
+    public Vec3 cross(Vec3 other) {
+        return crossInto(other, new Vec3());
+    }
+
+    /**
+     * Calculates the cross product of this vector with another vector, storing the result in dest.
+     *
+     * @param other The other vector
+     * @param dest  The vector to receive the result
+     * @return dest
+     */
+    public Vec3 crossInto(Vec3 other, Vec3 dest) {
+        float a = y * other.z - z * other.y;
+        float b = z * other.x - x * other.z;
+        float c = x * other.y - y * other.x;
+        return dest.set(a, b, c);
+    }
+
+    /**
+     * Calculates a linear interpolation between this vector with another
+     * vector.
+     *
+     * @param other The other vector
+     * @param alpha The alpha value, must be between 0.0 and 1.0
+     * @return Linear interpolated vector
+     */
+    public Vec3 lerp(Vec3 other, float alpha) {
+        return lerpInto(other, alpha, new Vec3());
+    }
+
+    /**
+     * Calculates a linear interpolation between this vector with another
+     * vector, storing the result in dest.
+     *
+     * @param other The other vector
+     * @param alpha The alpha value, must be between 0.0 and 1.0
+     * @param dest  The vector to receive the result
+     * @return dest
+     */
+    public Vec3 lerpInto(Vec3 other, float alpha, Vec3 dest) {
+        float beta = 1f - alpha;
+        return dest.set(
+                x * beta + other.x * alpha,
+                y * beta + other.y * alpha,
+                z * beta + other.z * alpha);
+    }
+
+    public float getSquareDistanceToOther(Vec3 other) {
+        float dx = x - other.x;
+        float dy = y - other.y;
+        float dz = z - other.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public float getDistanceToOther(Vec3 other) {
+        return (float) Math.sqrt(getSquareDistanceToOther(other));
+    }
+
+    /**
+     * Stores the vector in a given Buffer.
+     *
+     * @param buffer The buffer to store the vector data
+     */
+    public void storeCoordinatesInBuffer(FloatBuffer buffer) {
+        if (buffer == null)
+            throw new IllegalArgumentException("Buffer storage not possible when buffer is null. Aborting.");
+        if (buffer.remaining() < 3)
+            throw new IllegalArgumentException("Buffer does not have sufficient space for this operation. Aborted.");
+
+        buffer.put(x).put(y).put(z);
+    }
+
+    /**
+     * Copy this vector into a new array-backed {@link ColumnVector}.
+     *
+     * @return a ColumnVector with the same components
+     */
+    public ColumnVector toColumnVector() {
+        return new ColumnVector(x, y, z);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 3 * 100003;
+        hash = ColumnVector.hash(hash, x);
+        hash = ColumnVector.hash(hash, y);
+        hash = ColumnVector.hash(hash, z);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Vec3) {
+            Vec3 other = (Vec3) obj;
+            return x == other.x && y == other.y && z == other.z;
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    public String toString() {
+        return "Vec3: (" + x + ", " + y + ", " + z + ")";
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Fixed-size four dimensional vector backed by fields rather than an array.
+ * <p>
+ * Mirrors {@link Vec3}: operations either return a new vector or, through the <code>*Into(dest)</code> variants,
+ * write into a caller-supplied vector without allocating.
+ */
+public class Vec4 {
+
+    private float x;
+    private float y;
+    private float z;
+    private float w;
+
+    public Vec4() {
+    }
+
+    public Vec4(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+    }
+
+    public Vec4(Vec3 xyz, float w) {
+        this(xyz.getX(), xyz.getY(), xyz.getZ(), w);
+    }
+
+    public Vec4(Vec4 other) {
+        this(other.x, other.y, other.z, other.w);
+    }
+
+    public Vec4(ColumnVector vector) {
+        if (vector.getDimensions() != 4)
+            throw new IllegalArgumentException("Cannot create Vec4 from vector of " + vector.getDimensions() +
+                    " dimensions");
+
+        float[] values = vector.getValues();
+        this.x = values[0];
+        this.y = values[1];
+        this.z = values[2];
+        this.w = values[3];
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getZ() {
+        return z;
+    }
+
+    public float getW() {
+        return w;
+    }
+
+    public float getValue(int dimension) {
+        switch (dimension) {
+            case 0:
+                return x;
+            case 1:
+                return y;
+            case 2:
+                return z;
+            case 3:
+                return w;
+            default:
+                throw new IllegalArgumentException("Cannot get dimension " + dimension + " for vector of length 4");
+        }
+    }
+
+    /**
+     * Sets the components of this vector.
+     *
+     * @return this vector
+     */
+    public Vec4 set(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        return this;
+    }
+
+    /**
+     * Copies the components of another vector into this vector.
+     *
+     * @param other the vector to copy
+     * @return this vector
+     */
+    public Vec4 set(Vec4 other) {
+        return set(other.x, other.y, other.z, other.w);
+    }
+
+    /**
+     * Calculate the length of this vector.
+     *
+     * @return Length of this vector
+     */
+    public float length() {
+        return (float) Math.sqrt(lengthSquared());
+    }
+
+    /**
+     * Calculates the squared length of the vector.
+     *
+     * @return Squared length of this vector
+     */
+    public float lengthSquared() {
+        return x * x + y * y + z * z + w * w;
+    }
+
+    /**
+     * Adds this vector to another vector.
+     *
+     * @param other The other vector
+     * @return Sum of this + other
+     */
+    public Vec4 add(Vec4 other) {
+        if (other == null) return this;
+        return addInto(other, new Vec4());
+    }
+
+    /**
+     * Adds this vector to another vector, storing the result in dest.
+     *
+     * @param other The other vector
+     * @param dest  The vector to receive the result
+     * @return dest
+     */
+    public Vec4 addInto(Vec4 other, Vec4 dest) {
+        return dest.set(x + other.x, y + other.y, z + other.z, w + other.w);
+    }
+
+    /**
+     * Subtracts another vector from this vector.
+     *
+     * @param other The other vector
+     * @return Difference of this - other
+     */
+    public Vec4 subtract(Vec4 other) {
+        if (other == null) return this;
+        return subtractInto(other, new Vec4());
+    }
+
+    /**
+     * Subtracts another vector from this vector, storing the result in dest.
+     *
+     * @param other The other vector
+     * @param dest  The vector to receive the result
+     * @return dest
+     */
+    public Vec4 subtractInto(Vec4 other, Vec4 dest) {
+        return dest.set(x - other.x, y - other.y, z - other.z, w - other.w);
+    }
+
+    /**
+     * Multiplies a vector by a scalar.
+     *
+     * @param scalar Scalar to multiply
+     * @return Scalar product of this * scalar
+     */
+    public Vec4 scale(float scalar) {
+        return scaleInto(scalar, new Vec4());
+    }
+
+    /**
+     * Multiplies a vector by a scalar, storing the result in dest.
+     *
+     * @param scalar Scalar to multiply
+     * @param dest   The vector to receive the result
+     * @return dest
+     */
+    public Vec4 scaleInto(float scalar, Vec4 dest) {
+        if (scalar == Float.POSITIVE_INFINITY || scalar == Float.NEGATIVE_INFINITY) throw new IllegalArgumentException(
+                "Positive and negative infinity values cannot and should not be realistically handled with this program");
+        return dest.set(x * scalar, y * scalar, z * scalar, w * scalar);
+    }
+
+    /**
+     * Negate this vector.
+     *
+     * @return Negated vector
+     */
+    public Vec4 negate() {
+        return negateInto(new Vec4());
+    }
+
+    /**
+     * Negate this vector, storing the result in dest.
+     *
+     * @param dest The vector to receive the result
+     * @return dest
+     */
+    public Vec4 negateInto(Vec4 dest) {
+        return dest.set(-x, -y, -z, -w);
+    }
+
+    /**
+     * Return a normalised vector of length 1.
+     *
+     * @return Normalized vector
+     */
+    public Vec4 normalize() {
+        return normalizeInto(new Vec4());
+    }
+
+    /**
+     * Normalise this vector to length 1, storing the result in dest.
+     *
+     * @param dest The vector to receive the result
+     * @return dest
+     */
+    public Vec4 normalizeInto(Vec4 dest) {
+        float lengthSquared = lengthSquared();
+        if (lengthSquared == 0) throw new ArithmeticException("Cannot properly divide by 0");
+
+        float inverseLength = (float) (1.0 / Math.sqrt(lengthSquared));
+        return dest.set(x * inverseLength, y * inverseLength, z * inverseLength, w * inverseLength);
+    }
+
+    /**
+     * Calculates the dot product of this vector with another vector.
+     *
+     * @param other The other vector
+     * @return Dot product of this * other
+     */
+    public float dot(Vec4 other) {
+        return x * other.x + y * other.y + z * other.z + w * other.w;
+    }
+
+    /**
+     * Calculates a linear interpolation between this vector with another
+     * vector.
+     *
+     * @param other The other vector
+     * @param alpha The alpha value, must be between 0.0 and 1.0
+     * @return Linear interpolated vector
+     */
+    public Vec4 lerp(Vec4 other, float alpha) {
+        return lerpInto(other, alpha, new Vec4());
+    }
+
+    /**
+     * Calculates a linear interpolation between this vector with another
+     * vector, storing the result in dest.
+     *
+     * @param other The other vector
+     * @param alpha The alpha value, must be between 0.0 and 1.0
+     * @param dest  The vector to receive the result
+     * @return dest
+     */
+    public Vec4 lerpInto(Vec4 other, float alpha, Vec4 dest) {
+        float beta = 1f - alpha;
+        return dest.set(
+                x * beta + other.x * alpha,
+                y * beta + other.y * alpha,
+                z * beta + other.z * alpha,
+                w * beta + other.w * alpha);
+    }
+
+    /**
+     * Stores the vector in a given Buffer.
+     *
+     * @param buffer The buffer to store the vector data
+     */
+    public void storeCoordinatesInBuffer(FloatBuffer buffer) {
+        if (buffer == null)
+            throw new IllegalArgumentException("Buffer storage not possible when buffer is null. Aborting.");
+        if (buffer.remaining() < 4)
+            throw new IllegalArgumentException("Buffer does not have sufficient space for this operation. Aborted.");
+
+        buffer.put(x).put(y).put(z).put(w);
+    }
+
+    /**
+     * Copy this vector into a new array-backed {@link ColumnVector}.
+     *
+     * @return a ColumnVector with the same components
+     */
+    public ColumnVector toColumnVector() {
+        return new ColumnVector(x, y, z, w);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 4 * 100003;
+        hash = ColumnVector.hash(hash, x);
+        hash = ColumnVector.hash(hash, y);
+        hash = ColumnVector.hash(hash, z);
+        hash = ColumnVector.hash(hash, w);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Vec4) {
+            Vec4 other = (Vec4) obj;
+            return x == other.x && y == other.y && z == other.z && w == other.w;
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    public String toString() {
+        return "Vec4: (" + x + ", " + y + ", " + z + ", " + w + ")";
+    }
+}
@@ -19,7 +19,6 @@
 
 package com.edenrump.math.geom;
 
-import com.edenrump.math.arrays.ColumnVector;
 import com.edenrump.math.arrays.SquareMatrix;
 
 public class OrthographicProjection {
@@ -97,12 +96,11 @@ public class OrthographicProjection {
         float tx = -(right + left) / (right - left);
         float ty = -(top + bottom) / (top - bottom);
         float tz = -(far + near) / (far - near);
-        ColumnVector c0 = new ColumnVector(2f / (right - left), 0, 0, 0);
-        ColumnVector c1 = new ColumnVector(0, 2f / (right - left), 0, 0);
-        ColumnVector c2 = new ColumnVector(0, 0, -2f / (far - near), 0);
-        ColumnVector c3 = new ColumnVector(tx, ty, tz, 1);
-
-        this.cacheProjectionMatrix = new SquareMatrix(c0, c1, c2, c3);
+        this.cacheProjectionMatrix = new SquareMatrix(new float[]{
+                2f / (right - left), 0, 0, 0,
+                0, 2f / (right - left), 0, 0,
+                0, 0, -2f / (far - near), 0,
+                tx, ty, tz, 1});
     }
 
     public SquareMatrix getProjectionMatrix() {
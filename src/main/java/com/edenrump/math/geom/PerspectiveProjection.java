@@ -19,8 +19,8 @@
 
 package com.edenrump.math.geom;
 
-import com.edenrump.math.arrays.ColumnVector;
 import com.edenrump.math.arrays.SquareMatrix;
+import com.edenrump.math.util.Trig;
 
 public class PerspectiveProjection{
 
@@ -54,7 +54,7 @@ public class PerspectiveProjection{
     }
 
     public static PerspectiveProjection defineByFieldOfView(float fov, float aspect, float near, float far){
-        float height = 2f * near * (float) Math.tan(Math.toRadians(fov / 2f));
+        float height = 2f * near * Trig.tan(Math.toRadians(fov / 2f));
         float width = aspect * height;
         return new PerspectiveProjection(width, height, near, far, 0, 0);
     }
@@ -64,11 +64,11 @@ public class PerspectiveProjection{
         float yScale = (2f * near) / height;
         float zScale = -(far + near) / (far - near);
         float zConstant = -(2f * far * near) / (far - near);
-        ColumnVector c0 = new ColumnVector(xScale, 0, 0, 0);
-        ColumnVector c1 = new ColumnVector(0, yScale, 0, 0);
-        ColumnVector c2 = new ColumnVector(horizontalBias, verticalBias, zScale, -1f);
-        ColumnVector c3 = new ColumnVector(0, 0, zConstant, 0);
-        this.cacheProjectionMatrix = new SquareMatrix(c0, c1, c2, c3);
+        this.cacheProjectionMatrix = new SquareMatrix(new float[]{
+                xScale, 0, 0, 0,
+                0, yScale, 0, 0,
+                horizontalBias, verticalBias, zScale, -1f,
+                0, 0, zConstant, 0});
     }
 
     public SquareMatrix getProjectionMatrix() {
@@ -81,7 +81,7 @@ public class PerspectiveProjection{
 
     public void setFOV(float fov){
         float aspect = width/height; //maintain aspect ratio
-        float height = 2f * near * (float) Math.tan(Math.toRadians(fov / 2f));
+        float height = 2f * near * Trig.tan(Math.toRadians(fov / 2f));
         width = height * aspect;
         createProjectionMatrix();
     }
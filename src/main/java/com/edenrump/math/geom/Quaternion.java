@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.geom;
+
+import com.edenrump.math.arrays.Mat4;
+import com.edenrump.math.arrays.SquareMatrix;
+import com.edenrump.math.arrays.Vec3;
+import com.edenrump.math.util.Trig;
+
+/**
+ * A rotation in three dimensions, stored as a quaternion (x, y, z, w).
+ * <p>
+ * Angles are given in degrees and rotations are counter-clockwise about their axis, matching
+ * {@link com.edenrump.math.util.Volume#createRotationMatrix(float, float, float, float)}. The product
+ * <code>a.multiply(b)</code> is the rotation that applies b first and then a.
+ */
+public class Quaternion {
+
+    private float x;
+    private float y;
+    private float z;
+    private float w;
+
+    /**
+     * Creates the identity rotation.
+     */
+    public Quaternion() {
+        identity();
+    }
+
+    public Quaternion(float x, float y, float z, float w) {
+        set(x, y, z, w);
+    }
+
+    public Quaternion(Quaternion other) {
+        set(other);
+    }
+
+    /**
+     * Create a rotation about an axis.
+     *
+     * @param angle angle of rotation in degrees
+     * @param x     x coordinate of the rotation axis
+     * @param y     y coordinate of the rotation axis
+     * @param z     z coordinate of the rotation axis
+     * @return a new quaternion
+     */
+    public static Quaternion fromAxisAngle(float angle, float x, float y, float z) {
+        return new Quaternion().setFromAxisAngle(angle, x, y, z);
+    }
+
+    /**
+     * Create a rotation from Euler angles, applied about x first, then y, then z.
+     *
+     * @param x rotation about the x axis in degrees
+     * @param y rotation about the y axis in degrees
+     * @param z rotation about the z axis in degrees
+     * @return a new quaternion
+     */
+    public static Quaternion fromEulerAngles(float x, float y, float z) {
+        return new Quaternion().setFromEulerAngles(x, y, z);
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getZ() {
+        return z;
+    }
+
+    public float getW() {
+        return w;
+    }
+
+    /**
+     * Sets this quaternion to the identity rotation.
+     *
+     * @return this quaternion
+     */
+    public Quaternion identity() {
+        return set(0, 0, 0, 1);
+    }
+
+    public Quaternion set(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        return this;
+    }
+
+    public Quaternion set(Quaternion other) {
+        return set(other.x, other.y, other.z, other.w);
+    }
+
+    /**
+     * Sets this quaternion to a rotation about an axis.
+     *
+     * @param angle angle of rotation in degrees
+     * @param x     x coordinate of the rotation axis
+     * @param y     y coordinate of the rotation axis
+     * @param z     z coordinate of the rotation axis
+     * @return this quaternion
+     */
+    public Quaternion setFromAxisAngle(float angle, float x, float y, float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0) throw new ArithmeticException("Cannot rotate about an axis of zero length");
+
+        double halfAngle = Math.toRadians(angle) * 0.5;
+        float s = Trig.sin(halfAngle) / length;
+        return set(x * s, y * s, z * s, Trig.cos(halfAngle));
+    }
+
+    /**
+     * Sets this quaternion from Euler angles, applied about x first, then y, then z.
+     *
+     * @param x rotation about the x axis in degrees
+     * @param y rotation about the y axis in degrees
+     * @param z rotation about the z axis in degrees
+     * @return this quaternion
+     */
+    public Quaternion setFromEulerAngles(float x, float y, float z) {
+        double hx = Math.toRadians(x) * 0.5;
+        double hy = Math.toRadians(y) * 0.5;
+        double hz = Math.toRadians(z) * 0.5;
+        float sx = Trig.sin(hx), cx = Trig.cos(hx);
+        float sy = Trig.sin(hy), cy = Trig.cos(hy);
+        float sz = Trig.sin(hz), cz = Trig.cos(hz);
+
+        //closed form of qz * qy * qx
+        return set(
+                cz * cy * sx - sz * sy * cx,
+                cz * sy * cx + sz * cy * sx,
+                sz * cy * cx - cz * sy * sx,
+                cz * cy * cx + sz * sy * sx);
+    }
+
+    public float length() {
+        return (float) Math.sqrt(lengthSquared());
+    }
+
+    public float lengthSquared() {
+        return x * x + y * y + z * z + w * w;
+    }
+
+    public float dot(Quaternion other) {
+        return x * other.x + y * other.y + z * other.z + w * other.w;
+    }
+
+    /**
+     * Return a normalised quaternion of length 1.
+     *
+     * @return Normalized quaternion
+     */
+    public Quaternion normalize() {
+        return normalizeInto(new Quaternion());
+    }
+
+    /**
+     * Normalise this quaternion to length 1, storing the result in dest.
+     *
+     * @param dest The quaternion to receive the result
+     * @return dest
+     */
+    public Quaternion normalizeInto(Quaternion dest) {
+        float lengthSquared = lengthSquared();
+        if (lengthSquared == 0) throw new ArithmeticException("Cannot properly divide by 0");
+
+        float inverseLength = (float) (1.0 / Math.sqrt(lengthSquared));
+        return dest.set(x * inverseLength, y * inverseLength, z * inverseLength, w * inverseLength);
+    }
+
+    /**
+     * The conjugate of a unit quaternion is the inverse rotation.
+     *
+     * @return the conjugate of this quaternion
+     */
+    public Quaternion conjugate() {
+        return conjugateInto(new Quaternion());
+    }
+
+    /**
+     * Stores the conjugate of this quaternion in dest.
+     *
+     * @param dest The quaternion to receive the result
+     * @return dest
+     */
+    public Quaternion conjugateInto(Quaternion dest) {
+        return dest.set(-x, -y, -z, w);
+    }
+
+    /**
+     * Multiplies this quaternion with another (the Hamilton product).
+     *
+     * @param other the other quaternion
+     * @return the rotation that applies other first and then this
+     */
+    public Quaternion multiply(Quaternion other) {
+        return multiplyInto(other, new Quaternion());
+    }
+
+    /**
+     * Multiplies this quaternion with another, storing the result in dest.
+     *
+     * @param other the other quaternion
+     * @param dest  The quaternion to receive the result. May be this or other.
+     * @return dest
+     */
+    public Quaternion multiplyInto(Quaternion other, Quaternion dest) {
+        return dest.set(
+                w * other.x + x * other.w + y * other.z - z * other.y,
+                w * other.y - x * other.z + y * other.w + z * other.x,
+                w * other.z + x * other.y - y * other.x + z * other.w,
+                w * other.w - x * other.x - y * other.y - z * other.z);
+    }
+
+    /**
+     * Spherical linear interpolation between this rotation and another, along the shortest arc.
+     *
+     * @param other The other rotation
+     * @param alpha The alpha value, must be between 0.0 and 1.0
+     * @return Interpolated rotation
+     */
+    public Quaternion slerp(Quaternion other, float alpha) {
+        return slerpInto(other, alpha, new Quaternion());
+    }
+
+    /**
+     * Spherical linear interpolation between this rotation and another, storing the result in dest.
+     *
+     * @param other The other rotation
+     * @param alpha The alpha value, must be between 0.0 and 1.0
+     * @param dest  The quaternion to receive the result
+     * @return dest
+     */
+    public Quaternion slerpInto(Quaternion other, float alpha, Quaternion dest) {
+        float cosTheta = dot(other);
+        float sign = 1f;
+        if (cosTheta < 0) { //take the shortest arc
+            cosTheta = -cosTheta;
+            sign = -1f;
+        }
+
+        float a = 1f - alpha;
+        float b = alpha;
+        if (cosTheta < 0.9995f) {
+            double theta = Math.acos(cosTheta);
+            double inverseSinTheta = 1.0 / Math.sin(theta);
+            a = (float) (Math.sin((1.0 - alpha) * theta) * inverseSinTheta);
+            b = (float) (Math.sin(alpha * theta) * inverseSinTheta);
+        }
+        b *= sign;
+
+        dest.set(
+                a * x + b * other.x,
+                a * y + b * other.y,
+                a * z + b * other.z,
+                a * w + b * other.w);
+        return dest.normalizeInto(dest);
+    }
+
+    /**
+     * Rotate a vector by this (unit) quaternion, storing the result in dest.
+     *
+     * @param vector the vector to rotate
+     * @param dest   the vector to receive the result. May be the same as vector.
+     * @return dest
+     */
+    public Vec3 rotateInto(Vec3 vector, Vec3 dest) {
+        float vx = vector.getX();
+        float vy = vector.getY();
+        float vz = vector.getZ();
+
+        //v' = v + 2w(q x v) + 2q x (q x v)
+        float tx = 2f * (y * vz - z * vy);
+        float ty = 2f * (z * vx - x * vz);
+        float tz = 2f * (x * vy - y * vx);
+        return dest.set(
+                vx + w * tx + (y * tz - z * ty),
+                vy + w * ty + (z * tx - x * tz),
+                vz + w * tz + (x * ty - y * tx));
+    }
+
+    /**
+     * Write the rotation matrix of this (unit) quaternion into dest.
+     *
+     * @param dest the matrix to receive the rotation
+     * @return dest
+     */
+    public Mat4 getRotationMatrixInto(Mat4 dest) {
+        float xx = x * x, yy = y * y, zz = z * z;
+        float xy = x * y, xz = x * z, yz = y * z;
+        float xw = x * w, yw = y * w, zw = z * w;
+        return dest.set(
+                1f - 2f * (yy + zz), 2f * (xy + zw), 2f * (xz - yw), 0,
+                2f * (xy - zw), 1f - 2f * (xx + zz), 2f * (yz + xw), 0,
+                2f * (xz + yw), 2f * (yz - xw), 1f - 2f * (xx + yy), 0,
+                0, 0, 0, 1);
+    }
+
+    /**
+     * @return the rotation matrix of this (unit) quaternion
+     */
+    public SquareMatrix toRotationMatrix() {
+        return getRotationMatrixInto(new Mat4()).toSquareMatrix();
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (x * 13) + (int) (y * 17) + (int) (z * 19) + (int) (w * 23);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Quaternion) {
+            Quaternion other = (Quaternion) obj;
+            return x == other.x && y == other.y && z == other.z && w == other.w;
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    public String toString() {
+        return "Quaternion: (" + x + ", " + y + ", " + z + ", " + w + ")";
+    }
+}
@@ -19,67 +19,276 @@
 
 package com.edenrump.math.geom;
 
-import com.edenrump.math.arrays.ColumnVector;
-import com.edenrump.math.arrays.SquareMatrix;
-import com.edenrump.math.util.Volume;
+import com.edenrump.math.arrays.Mat3;
+import com.edenrump.math.arrays.Mat4;
 import org.lwjgl.BufferUtils;
 
 import java.nio.FloatBuffer;
 
+/**
+ * The translation, rotation and scale of an object, composed as scale first, then rotation, then translation.
+ * <p>
+ * Rotation is held both as accumulated Euler angles in degrees (applied about x, then y, then z) and as an
+ * additional {@link Quaternion} orientation applied after them. The transformation matrix is written directly from
+ * these values in closed form rather than by multiplying separate translation, rotation and scale matrices.
+ * <p>
+ * The composed matrix is cached, and only rebuilt after the transform changes. Each change also increments a
+ * version number, so callers that upload the matrix can skip the upload when nothing has moved. The normal matrix
+ * is cached the same way, and is only recomputed the first time it is requested after a change. The getters return
+ * copies, so every change goes through a method that marks the cached matrices stale.
+ */
 public class Transform {
 
-    private ColumnVector translation;
-    private ColumnVector rotation;
-    private ColumnVector scale;
+    private final float[] translation = new float[]{0, 0, 0};
+    private final float[] rotation = new float[]{0, 0, 0};
+    private final float[] scale = new float[]{1, 1, 1};
+    private final Quaternion orientation = new Quaternion();
 
-    public Transform() {
-        translation = new ColumnVector(4);
-        rotation = new ColumnVector(4);
-        scale = new ColumnVector(1, 1, 1, 0);
-    }
+    private final Quaternion combinedRotation = new Quaternion();
+    private final Mat4 matrix = new Mat4();
+    private final FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+    private final Mat3 normalMatrix = new Mat3();
+    private final FloatBuffer normalMatrixBuffer = BufferUtils.createFloatBuffer(9);
+    private boolean dirty = true;
+    private boolean normalDirty = true;
+    private int version = 0;
 
+    /**
+     * @return a copy of the x, y and z translation
+     */
     public float[] getTranslation() {
-        return translation.getValues();
+        return translation.clone();
     }
 
+    public void setTranslation(float x, float y, float z) {
+        translation[0] = x;
+        translation[1] = y;
+        translation[2] = z;
+        changed();
+    }
+
+    /**
+     * @return a copy of the Euler angles in degrees
+     */
     public float[] getRotation() {
-        return rotation.getValues();
+        return rotation.clone();
+    }
+
+    /**
+     * Replace the Euler angles, leaving the orientation applied after them unchanged.
+     *
+     * @param x rotation about the x axis in degrees
+     * @param y rotation about the y axis in degrees
+     * @param z rotation about the z axis in degrees
+     */
+    public void setRotation(float x, float y, float z) {
+        rotation[0] = x;
+        rotation[1] = y;
+        rotation[2] = z;
+        changed();
     }
 
+    /**
+     * @return a copy of the x, y and z scale
+     */
     public float[] getScale() {
-        return scale.getValues();
+        return getScaleInto(new float[3]);
+    }
+
+    /**
+     * Copy the scale into dest, for callers that read it every frame.
+     *
+     * @param dest an array of at least three floats
+     * @return dest
+     */
+    public float[] getScaleInto(float[] dest) {
+        System.arraycopy(scale, 0, dest, 0, 3);
+        return dest;
+    }
+
+    public void setScale(float x, float y, float z) {
+        scale[0] = x;
+        scale[1] = y;
+        scale[2] = z;
+        changed();
     }
 
+    /**
+     * @return a copy of the additional rotation applied after the Euler angles
+     */
+    public Quaternion getOrientation() {
+        return new Quaternion(orientation);
+    }
+
+    /**
+     * Replace the additional rotation applied after the Euler angles.
+     *
+     * @param orientation the rotation, which is copied and normalised
+     */
+    public void setOrientation(Quaternion orientation) {
+        this.orientation.set(orientation);
+        this.orientation.normalizeInto(this.orientation);
+        changed();
+    }
+
+    /**
+     * Rotate by Euler angles, which accumulate with any previous Euler rotation.
+     *
+     * @param x rotation about the x axis in degrees
+     * @param y rotation about the y axis in degrees
+     * @param z rotation about the z axis in degrees
+     */
     public void rotate(float x, float y, float z) {
-        rotation = rotation.add(new ColumnVector(x, y, z, 0));
+        rotation[0] += x;
+        rotation[1] += y;
+        rotation[2] += z;
+        changed();
+    }
+
+    /**
+     * Rotate by a quaternion, applied after all existing rotation.
+     *
+     * @param quaternion the rotation to apply
+     */
+    public void rotate(Quaternion quaternion) {
+        quaternion.multiplyInto(orientation, orientation);
+        orientation.normalizeInto(orientation);
+        changed();
     }
 
     public void scale(float x, float y, float z) {
-        float[] oldScale = scale.getValues();
-        scale = new ColumnVector(
-                x * oldScale[0],
-                y * oldScale[1],
-                z * oldScale[2],
-                1);
+        scale[0] *= x;
+        scale[1] *= y;
+        scale[2] *= z;
+        changed();
     }
 
     public void translate(float x, float y, float z) {
-        translation = translation.add(new ColumnVector(x, y, z, 0));
+        translation[0] += x;
+        translation[1] += y;
+        translation[2] += z;
+        changed();
+    }
+
+    private void changed() {
+        dirty = true;
+        normalDirty = true;
+        version++;
+    }
+
+    /**
+     * A number which changes every time this transform is translated, rotated or scaled.
+     *
+     * @return the version of the transform
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Calculate the complete rotation of this transform: the Euler angles followed by the orientation.
+     *
+     * @param dest the quaternion to receive the rotation
+     * @return dest
+     */
+    public Quaternion getRotationInto(Quaternion dest) {
+        dest.setFromEulerAngles(rotation[0], rotation[1], rotation[2]);
+        return orientation.multiplyInto(dest, dest);
+    }
+
+    /**
+     * Copy the transformation matrix into dest.
+     *
+     * @param dest the matrix to receive the transformation
+     * @return dest
+     */
+    public Mat4 getTransformationMatrix(Mat4 dest) {
+        return dest.set(getMatrix());
     }
 
+    /**
+     * Get the cached transformation matrix, rebuilding it first if the transform has changed.
+     *
+     * @return the transformation matrix, owned by this transform
+     */
+    public Mat4 getMatrix() {
+        if (dirty) rebuild();
+        return matrix;
+    }
+
+    /**
+     * Get the cached transformation matrix in a buffer ready to upload as a uniform, rebuilding it first if the
+     * transform has changed.
+     *
+     * @return a buffer of 16 floats, owned by this transform
+     */
     public FloatBuffer getTransformationMatrix() {
-        SquareMatrix transformationMatrix = new SquareMatrix(4);
-
-        SquareMatrix txyz = Volume.createTranslationMatrix(translation);
-        SquareMatrix rx = Volume.createRotationMatrix(rotation.getValues()[0], 1, 0, 0);
-        SquareMatrix ry = Volume.createRotationMatrix(rotation.getValues()[1], 0, 1, 0);
-        SquareMatrix rz = Volume.createRotationMatrix(rotation.getValues()[2], 0, 0, 1);
-        SquareMatrix s = Volume.createScaleMatrix(scale.getValues()[0], scale.getValues()[1], scale.getValues()[2]);
-        transformationMatrix = transformationMatrix.multiply(s).multiply(rx).multiply(ry).multiply(rz).multiply(txyz);
-
-        FloatBuffer buffer = BufferUtils.createFloatBuffer(16);
-        transformationMatrix.storeMatrixInBuffer(buffer);
-        buffer.flip();
-        return buffer;
+        if (dirty) rebuild();
+        matrixBuffer.rewind();
+        return matrixBuffer;
+    }
+
+    /**
+     * Get the cached normal matrix, the inverse transpose of the rotation and scale, recomputing it first if the
+     * transform has changed.
+     *
+     * @return the normal matrix, owned by this transform
+     * @throws ArithmeticException if any scale component is zero
+     */
+    public Mat3 getNormalMatrix() {
+        if (normalDirty) rebuildNormalMatrix();
+        return normalMatrix;
+    }
+
+    /**
+     * Get the cached normal matrix in a buffer ready to upload as a uniform, recomputing it first if the transform
+     * has changed.
+     *
+     * @return a buffer of 9 floats, owned by this transform
+     * @throws ArithmeticException if any scale component is zero
+     */
+    public FloatBuffer getNormalMatrixBuffer() {
+        if (normalDirty) rebuildNormalMatrix();
+        normalMatrixBuffer.rewind();
+        return normalMatrixBuffer;
+    }
+
+    private void rebuildNormalMatrix() {
+        if (scale[0] == 0 || scale[1] == 0 || scale[2] == 0)
+            throw new ArithmeticException("Cannot calculate the normal matrix of a transform with zero scale");
+
+        //each column of the upper 3x3 block is a rotation column times its scale, so the inverse transpose of
+        //R * S is R * S^-1: the same columns divided by the square of their scale
+        Mat4 m = getMatrix();
+        float sx = 1f / (scale[0] * scale[0]), sy = 1f / (scale[1] * scale[1]), sz = 1f / (scale[2] * scale[2]);
+        normalMatrix.set(
+                m.get(0, 0) * sx, m.get(0, 1) * sx, m.get(0, 2) * sx,
+                m.get(1, 0) * sy, m.get(1, 1) * sy, m.get(1, 2) * sy,
+                m.get(2, 0) * sz, m.get(2, 1) * sz, m.get(2, 2) * sz);
+
+        normalMatrixBuffer.clear();
+        normalMatrix.storeMatrixInBuffer(normalMatrixBuffer);
+        normalMatrixBuffer.flip();
+        normalDirty = false;
+    }
+
+    private void rebuild() {
+        Quaternion q = getRotationInto(combinedRotation);
+        float x = q.getX(), y = q.getY(), z = q.getZ(), w = q.getW();
+        float xx = x * x, yy = y * y, zz = z * z;
+        float xy = x * y, xz = x * z, yz = y * z;
+        float xw = x * w, yw = y * w, zw = z * w;
+        float sx = scale[0], sy = scale[1], sz = scale[2];
+
+        matrix.set(
+                (1f - 2f * (yy + zz)) * sx, 2f * (xy + zw) * sx, 2f * (xz - yw) * sx, 0,
+                2f * (xy - zw) * sy, (1f - 2f * (xx + zz)) * sy, 2f * (yz + xw) * sy, 0,
+                2f * (xz + yw) * sz, 2f * (yz - xw) * sz, (1f - 2f * (xx + yy)) * sz, 0,
+                translation[0], translation[1], translation[2], 1);
+
+        matrixBuffer.clear();
+        matrix.storeMatrixInBuffer(matrixBuffer);
+        matrixBuffer.flip();
+        dirty = false;
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.lod;
+
+import com.edenrump.math.shape.mesh.GeometricConstruct;
+
+/**
+ * A chain of progressively simplified versions of one construct, from most to least detailed, each with the
+ * geometric error it introduces.
+ *
+ * @author Ed Eden-Rump
+ */
+public class LODChain {
+
+    private final GeometricConstruct[] levels;
+    private final float[] errors;
+
+    private LODChain(GeometricConstruct[] levels, float[] errors) {
+        this.levels = levels;
+        this.errors = errors;
+    }
+
+    /**
+     * Simplify a construct to each of the given fractions of its face count in turn. A level may keep more faces
+     * than asked where no further collapse is allowed, for example on a mesh made mostly of seams.
+     *
+     * @param construct the construct to simplify, which is not modified
+     * @param ratios    the fraction of faces to keep at each level, in decreasing order from at most 1
+     * @return the chain of levels
+     */
+    public static LODChain create(GeometricConstruct construct, float... ratios) {
+        if (ratios == null || ratios.length == 0)
+            throw new IllegalArgumentException("Cannot create a chain of levels of detail with no levels");
+        for (int i = 0; i < ratios.length; i++) {
+            if (ratios[i] <= 0 || ratios[i] > 1 || (i > 0 && ratios[i] > ratios[i - 1]))
+                throw new IllegalArgumentException("Level of detail ratios must decrease from at most 1 and stay " +
+                        "above 0. Found: " + ratios[i]);
+        }
+
+        QuadricSimplifier simplifier = new QuadricSimplifier(construct);
+        GeometricConstruct[] levels = new GeometricConstruct[ratios.length];
+        float[] errors = new float[ratios.length];
+        for (int i = 0; i < ratios.length; i++) {
+            simplifier.simplify(Math.round(simplifier.getOriginalFaceCount() * ratios[i]));
+            levels[i] = simplifier.toConstruct();
+            errors[i] = simplifier.getError();
+        }
+        return new LODChain(levels, errors);
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * @return the construct at the level, where level 0 is the most detailed
+     */
+    public GeometricConstruct getLevel(int level) {
+        return levels[level];
+    }
+
+    /**
+     * @return the largest distance by which the surface at the level departs from the original, as estimated by the
+     * quadric error metric
+     */
+    public float getError(int level) {
+        return errors[level];
+    }
+
+    public int getFaceCount(int level) {
+        return levels[level].getNumberOfFaces();
+    }
+}
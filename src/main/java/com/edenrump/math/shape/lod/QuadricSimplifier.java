@@ -0,0 +1,626 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.lod;
+
+import com.edenrump.math.arrays.ColumnVector;
+import com.edenrump.math.shape.mesh.Face;
+import com.edenrump.math.shape.mesh.GeometricConstruct;
+import com.edenrump.math.shape.mesh.Vertex;
+import com.edenrump.math.shape.textured.WrappedConstruct;
+import com.edenrump.math.shape.textured.WrappedVertex;
+import com.edenrump.math.util.Volume;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Simplifies a construct by repeatedly collapsing the edge whose removal least changes its shape, as measured by
+ * the quadric error metric of Garland and Heckbert.
+ * <p>
+ * Construct vertices which share a position are grouped; each position accumulates the quadric of the planes of
+ * its faces, weighted by area. Collapses move one position onto a neighbour ("half-edge" collapses), so every
+ * surviving vertex keeps its original position, normal and texture coordinate exactly. Where a position carries two
+ * vertices, as along a UV seam or a hard normal crease, it may only collapse along that seam onto another seam
+ * position, with each side of the seam keeping its own attributes. Open borders are held in place the same way, and
+ * additionally weighted with planes perpendicular to the border. Positions where more than two attribute regions
+ * meet never move. Collapses which would flip a face or make the surface non-manifold are rejected.
+ * <p>
+ * Simplification is progressive: each call to {@link #simplify(int)} continues from the last, so a chain of levels
+ * of detail costs one pass over the mesh; see {@link LODChain}.
+ *
+ * @author Ed Eden-Rump
+ */
+public class QuadricSimplifier {
+
+    //relative weight of the planes holding borders and seams in place, against the planes of the faces
+    private static final double BOUNDARY_WEIGHT = 10;
+    //smallest cosine between a face's normal before and after a collapse for the collapse to be allowed
+    private static final double MAX_NORMAL_DEVIATION = 0.25;
+    //weight of the fourth power of edge length added to the priority of a collapse, so that on flat or evenly
+    //curved regions, where many collapses cost nothing, short edges go first and fans stay even
+    private static final double EDGE_LENGTH_WEIGHT = 1e-3;
+    //largest number of neighbours a position may gather through collapses
+    private static final int MAX_VALENCE = 24;
+
+    private static final int SIMPLE = 0;
+    private static final int BORDER = 1;
+    private static final int SEAM = 2;
+    private static final int LOCKED = 3;
+
+    private final boolean textured;
+    private final int originalFaceCount;
+
+    private final double[] positions;
+    private final int[] wedgePositions;
+    private final float[] wedgeNormals;
+    private final float[] wedgeTextureCoordinates;
+
+    private final int[] faceWedges;
+    private final boolean[] faceAlive;
+    private int faceCount;
+
+    private final IntList[] positionFaces;
+    private final double[] quadrics;
+    private final int[] kinds;
+    private final int[] versions;
+    private final boolean[] positionAlive;
+
+    private final PriorityQueue<Collapse> collapses = new PriorityQueue<>();
+    private final IntList neighbours = new IntList();
+    private final IntList otherNeighbours = new IntList();
+    private final IntList touched = new IntList();
+    private float error;
+
+    /**
+     * Prepare a construct for simplification. The construct is not modified.
+     *
+     * @param construct the construct to simplify; texture coordinates are kept if it is a {@link WrappedConstruct}
+     */
+    public QuadricSimplifier(GeometricConstruct construct) {
+        this.textured = construct instanceof WrappedConstruct;
+
+        int wedgeCount = construct.getNumberOfVertices();
+        float[] wedgeCoordinates = new float[wedgeCount * 3];
+        this.wedgeNormals = new float[wedgeCount * 3];
+        this.wedgeTextureCoordinates = textured ? new float[wedgeCount * 2] : null;
+        for (int w = 0; w < wedgeCount; w++) {
+            Vertex vertex = construct.getVertex(w);
+            System.arraycopy(construct.getVertexPosition(vertex.getVertexPositionIndex()).getValues(), 0,
+                    wedgeCoordinates, w * 3, 3);
+            System.arraycopy(construct.getVertexNormal(vertex.getVertexNormalIndex()).getValues(), 0,
+                    wedgeNormals, w * 3, 3);
+            if (textured) {
+                ColumnVector uv = ((WrappedConstruct) construct).getTextureCoordinate(w);
+                if (uv != null) System.arraycopy(uv.getValues(), 0, wedgeTextureCoordinates, w * 2, 2);
+            }
+        }
+        if (construct.getCoordinateType() == GeometricConstruct.POLAR) {
+            Volume.convertPolarCoordinatesToCartesian(wedgeCoordinates, wedgeCoordinates);
+            Volume.convertPolarCoordinatesToCartesian(wedgeNormals, wedgeNormals);
+        }
+
+        //group vertices by the value of their position, so that seams are found however the input indexed them
+        this.wedgePositions = new int[wedgeCount];
+        Map<ColumnVector, Integer> positionIndices = new HashMap<>();
+        for (int w = 0; w < wedgeCount; w++) {
+            ColumnVector position = new ColumnVector(wedgeCoordinates[w * 3], wedgeCoordinates[w * 3 + 1],
+                    wedgeCoordinates[w * 3 + 2]);
+            wedgePositions[w] = positionIndices.computeIfAbsent(position, key -> positionIndices.size());
+        }
+        int positionCount = positionIndices.size();
+        this.positions = new double[positionCount * 3];
+        for (int w = 0; w < wedgeCount; w++) {
+            for (int i = 0; i < 3; i++) positions[wedgePositions[w] * 3 + i] = wedgeCoordinates[w * 3 + i];
+        }
+
+        this.originalFaceCount = construct.getNumberOfFaces();
+        this.faceWedges = new int[originalFaceCount * 3];
+        this.faceAlive = new boolean[originalFaceCount];
+        this.positionFaces = new IntList[positionCount];
+        for (int p = 0; p < positionCount; p++) positionFaces[p] = new IntList();
+        for (int f = 0; f < originalFaceCount; f++) {
+            Face face = construct.getFace(f);
+            faceWedges[f * 3] = construct.getVertexIndex(face.getV1());
+            faceWedges[f * 3 + 1] = construct.getVertexIndex(face.getV2());
+            faceWedges[f * 3 + 2] = construct.getVertexIndex(face.getV3());
+
+            int a = position(f, 0), b = position(f, 1), c = position(f, 2);
+            if (a == b || b == c || c == a) continue; //degenerate in space, so dropped
+            faceAlive[f] = true;
+            faceCount++;
+            positionFaces[a].add(f);
+            positionFaces[b].add(f);
+            positionFaces[c].add(f);
+        }
+
+        this.quadrics = new double[positionCount * Quadric.SIZE];
+        this.kinds = new int[positionCount];
+        this.versions = new int[positionCount];
+        this.positionAlive = new boolean[positionCount];
+        Arrays.fill(positionAlive, true);
+
+        for (int f = 0; f < originalFaceCount; f++) {
+            if (faceAlive[f]) addFaceQuadrics(f);
+        }
+        for (int p = 0; p < positionCount; p++) {
+            kinds[p] = classify(p);
+        }
+        for (int p = 0; p < positionCount; p++) {
+            queueCollapses(p);
+        }
+    }
+
+    /**
+     * Collapse edges, cheapest first, until no more than the target number of faces remain or no allowed collapse
+     * is left.
+     *
+     * @param targetFaceCount the number of faces to reduce the mesh to
+     * @return the number of faces remaining
+     */
+    public int simplify(int targetFaceCount) {
+        return simplify(targetFaceCount, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Collapse edges, cheapest first, until no more than the target number of faces remain, the next collapse
+     * would exceed the error bound, or no allowed collapse is left.
+     *
+     * @param targetFaceCount the number of faces to reduce the mesh to
+     * @param maximumError    the largest error, as a distance, which a collapse may introduce
+     * @return the number of faces remaining
+     */
+    public int simplify(int targetFaceCount, float maximumError) {
+        while (faceCount > targetFaceCount && !collapses.isEmpty()) {
+            Collapse collapse = collapses.poll();
+            if (!positionAlive[collapse.from] || !positionAlive[collapse.to] ||
+                    versions[collapse.from] != collapse.fromVersion || versions[collapse.to] != collapse.toVersion)
+                continue; //superseded by a later collapse nearby
+
+            float collapseError = (float) Math.sqrt(Math.max(0, collapse.cost) /
+                    Math.max(Double.MIN_NORMAL, quadrics[collapse.from * Quadric.SIZE + Quadric.AREA] +
+                            quadrics[collapse.to * Quadric.SIZE + Quadric.AREA]));
+            if (collapseError > maximumError) {
+                collapses.add(collapse);
+                break;
+            }
+
+            apply(collapse.from, collapse.to);
+            error = Math.max(error, collapseError);
+        }
+        return faceCount;
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    public int getOriginalFaceCount() {
+        return originalFaceCount;
+    }
+
+    /**
+     * @return the largest error introduced by any collapse so far: the root mean square distance, weighted by area,
+     * from the moved position to the planes of the faces it has absorbed
+     */
+    public float getError() {
+        return error;
+    }
+
+    /**
+     * @return a new cartesian construct holding the mesh as simplified so far, a {@link WrappedConstruct} with
+     * texture coordinates if the input was one
+     */
+    public GeometricConstruct toConstruct() {
+        GeometricConstruct construct = textured ?
+                new WrappedConstruct(GeometricConstruct.CARTESIAN) :
+                new GeometricConstruct(GeometricConstruct.CARTESIAN);
+
+        int[] vertices = new int[wedgePositions.length];
+        Arrays.fill(vertices, -1);
+        for (int f = 0; f < originalFaceCount; f++) {
+            if (!faceAlive[f]) continue;
+            for (int corner = 0; corner < 3; corner++) {
+                int w = faceWedges[f * 3 + corner];
+                if (vertices[w] < 0) vertices[w] = addVertex(construct, w);
+            }
+            construct.addFace(vertices[faceWedges[f * 3]], vertices[faceWedges[f * 3 + 1]],
+                    vertices[faceWedges[f * 3 + 2]]);
+        }
+        return construct;
+    }
+
+    private int addVertex(GeometricConstruct construct, int wedge) {
+        int p = wedgePositions[wedge];
+        int position = construct.addVertexPosition((float) positions[p * 3], (float) positions[p * 3 + 1],
+                (float) positions[p * 3 + 2]);
+        int normal = construct.addVertexNormal(wedgeNormals[wedge * 3], wedgeNormals[wedge * 3 + 1],
+                wedgeNormals[wedge * 3 + 2]);
+        if (!textured) return construct.addVertex(new Vertex(position, normal));
+
+        //the original vertex index stands in for a texture coordinate index, keeping seam vertices distinct
+        WrappedConstruct wrapped = (WrappedConstruct) construct;
+        int vertex = wrapped.addVertex(new WrappedVertex(position, normal, wedge));
+        wrapped.addVertexTextureCoordinate(vertex, wedgeTextureCoordinates[wedge * 2],
+                wedgeTextureCoordinates[wedge * 2 + 1]);
+        return vertex;
+    }
+
+    private int position(int face, int corner) {
+        return wedgePositions[faceWedges[face * 3 + corner]];
+    }
+
+    private int corner(int face, int position) {
+        for (int corner = 0; corner < 3; corner++) {
+            if (position(face, corner) == position) return corner;
+        }
+        return -1;
+    }
+
+    private void addFaceQuadrics(int f) {
+        int a = position(f, 0), b = position(f, 1), c = position(f, 2);
+        double[] normal = faceNormal(a, b, c, -1, -1);
+        double length = Math.sqrt(dot(normal, normal));
+        if (length == 0) return;
+
+        double area = length / 2;
+        double nx = normal[0] / length, ny = normal[1] / length, nz = normal[2] / length;
+        for (int p : new int[]{a, b, c}) {
+            Quadric.addPlane(quadrics, p, nx, ny, nz, -(nx * positions[a * 3] + ny * positions[a * 3 + 1] +
+                    nz * positions[a * 3 + 2]), area);
+            quadrics[p * Quadric.SIZE + Quadric.AREA] += area;
+        }
+
+        //edges on a border or seam gain a plane through the edge, perpendicular to the face, holding them in place
+        for (int corner = 0; corner < 3; corner++) {
+            int from = position(f, corner), to = position(f, (corner + 1) % 3);
+            if (!isBoundaryEdge(from, to)) continue;
+
+            double ex = positions[to * 3] - positions[from * 3];
+            double ey = positions[to * 3 + 1] - positions[from * 3 + 1];
+            double ez = positions[to * 3 + 2] - positions[from * 3 + 2];
+            double px = ey * nz - ez * ny, py = ez * nx - ex * nz, pz = ex * ny - ey * nx;
+            double planeLength = Math.sqrt(px * px + py * py + pz * pz);
+            if (planeLength == 0) continue;
+
+            px /= planeLength;
+            py /= planeLength;
+            pz /= planeLength;
+            double d = -(px * positions[from * 3] + py * positions[from * 3 + 1] + pz * positions[from * 3 + 2]);
+            double weight = BOUNDARY_WEIGHT * (ex * ex + ey * ey + ez * ez);
+            Quadric.addPlane(quadrics, from, px, py, pz, d, weight);
+            Quadric.addPlane(quadrics, to, px, py, pz, d, weight);
+        }
+    }
+
+    //true if the edge has one face, or two faces which give either end different vertices
+    private boolean isBoundaryEdge(int from, int to) {
+        int count = 0;
+        int fromWedge = -1, toWedge = -1;
+        boolean seam = false;
+        IntList faces = positionFaces[from];
+        for (int i = 0; i < faces.size; i++) {
+            int f = faces.values[i];
+            int toCorner = corner(f, to);
+            if (toCorner < 0) continue;
+
+            int w1 = faceWedges[f * 3 + corner(f, from)], w2 = faceWedges[f * 3 + toCorner];
+            if (count > 0 && (w1 != fromWedge || w2 != toWedge)) seam = true;
+            fromWedge = w1;
+            toWedge = w2;
+            count++;
+        }
+        return count == 1 || seam;
+    }
+
+    private int classify(int p) {
+        IntList faces = positionFaces[p];
+        if (faces.size == 0) return LOCKED;
+
+        int firstWedge = faceWedges[faces.values[0] * 3 + corner(faces.values[0], p)];
+        int secondWedge = -1;
+        for (int i = 1; i < faces.size; i++) {
+            int w = faceWedges[faces.values[i] * 3 + corner(faces.values[i], p)];
+            if (w == firstWedge || w == secondWedge) continue;
+            if (secondWedge >= 0) return LOCKED; //three or more attribute regions meet here
+            secondWedge = w;
+        }
+
+        int borders = 0, seams = 0;
+        collectNeighbours(p, neighbours);
+        for (int i = 0; i < neighbours.size; i++) {
+            int x = neighbours.values[i];
+            int count = 0, wedge = -1;
+            boolean seam = false;
+            for (int j = 0; j < faces.size; j++) {
+                int f = faces.values[j];
+                if (corner(f, x) < 0) continue;
+                int w = faceWedges[f * 3 + corner(f, p)];
+                if (count > 0 && w != wedge) seam = true;
+                wedge = w;
+                count++;
+            }
+            if (count > 2) return LOCKED; //non-manifold edge
+            if (count == 1) borders++;
+            if (seam) seams++;
+        }
+
+        if (secondWedge < 0) {
+            if (borders == 0) return SIMPLE;
+            if (borders == 2) return BORDER;
+        } else if (borders == 0 && seams == 2) {
+            return SEAM;
+        }
+        return LOCKED;
+    }
+
+    private void queueCollapses(int p) {
+        collectNeighbours(p, touched);
+        for (int i = 0; i < touched.size; i++) {
+            queueCollapse(p, touched.values[i]);
+            queueCollapse(touched.values[i], p);
+        }
+    }
+
+    private void queueCollapse(int from, int to) {
+        double cost = evaluate(from, to);
+        if (!Double.isNaN(cost)) {
+            double dx = positions[to * 3] - positions[from * 3];
+            double dy = positions[to * 3 + 1] - positions[from * 3 + 1];
+            double dz = positions[to * 3 + 2] - positions[from * 3 + 2];
+            double lengthSquared = dx * dx + dy * dy + dz * dz;
+            double priority = cost + EDGE_LENGTH_WEIGHT * lengthSquared * lengthSquared;
+            collapses.add(new Collapse(priority, cost, from, to, versions[from], versions[to]));
+        }
+    }
+
+    /**
+     * @return the quadric error of moving the position onto its neighbour, or NaN if the collapse is not allowed
+     */
+    private double evaluate(int from, int to) {
+        int kind = kinds[from];
+        if (kind == LOCKED) return Double.NaN;
+
+        //the faces on the edge, and the vertices either end of it in each
+        int shared = 0;
+        int fromWedgeA = -1, toWedgeA = -1, fromWedgeB = -1, toWedgeB = -1;
+        IntList faces = positionFaces[from];
+        for (int i = 0; i < faces.size; i++) {
+            int f = faces.values[i];
+            int toCorner = corner(f, to);
+            if (toCorner < 0) continue;
+            if (shared == 0) {
+                fromWedgeA = faceWedges[f * 3 + corner(f, from)];
+                toWedgeA = faceWedges[f * 3 + toCorner];
+            } else {
+                fromWedgeB = faceWedges[f * 3 + corner(f, from)];
+                toWedgeB = faceWedges[f * 3 + toCorner];
+            }
+            shared++;
+        }
+
+        if (kind == SIMPLE && (shared != 2 || toWedgeA != toWedgeB)) return Double.NaN;
+        if (kind == BORDER && shared != 1) return Double.NaN;
+        if (kind == SEAM && (shared != 2 || fromWedgeA == fromWedgeB || toWedgeA == toWedgeB)) return Double.NaN;
+
+        //link condition: the ends may only share the neighbours opposite the edge, or the surface would pinch
+        collectNeighbours(from, neighbours);
+        collectNeighbours(to, otherNeighbours);
+        int common = 0;
+        for (int i = 0; i < neighbours.size; i++) {
+            if (otherNeighbours.contains(neighbours.values[i])) common++;
+        }
+        if (common != shared) return Double.NaN;
+        if (shared == 2 && neighbours.size + otherNeighbours.size <= 6) return Double.NaN; //would close to a sliver
+        if (neighbours.size + otherNeighbours.size - common - 2 > MAX_VALENCE) return Double.NaN;
+
+        for (int i = 0; i < faces.size; i++) {
+            int f = faces.values[i];
+            if (corner(f, to) >= 0) continue;
+
+            int a = position(f, 0), b = position(f, 1), c = position(f, 2);
+            double[] before = faceNormal(a, b, c, -1, -1);
+            double[] after = faceNormal(a, b, c, from, to);
+            double afterLength = dot(after, after);
+            double beforeLength = dot(before, before);
+            if (afterLength <= 1e-12 * beforeLength) return Double.NaN;
+            if (dot(before, after) < MAX_NORMAL_DEVIATION * Math.sqrt(afterLength * beforeLength)) return Double.NaN;
+        }
+
+        return Quadric.evaluateSum(quadrics, from, to, positions[to * 3], positions[to * 3 + 1], positions[to * 3 + 2]);
+    }
+
+    private void apply(int from, int to) {
+        //each vertex at the moving position is replaced by the vertex across the edge on the same side
+        int[] replaced = new int[2];
+        int[] replacements = new int[2];
+        int mappings = 0;
+
+        IntList faces = positionFaces[from];
+        for (int i = 0; i < faces.size; i++) {
+            int f = faces.values[i];
+            int toCorner = corner(f, to);
+            if (toCorner < 0) continue;
+
+            int fromWedge = faceWedges[f * 3 + corner(f, from)];
+            if (mappings == 0 || replaced[0] != fromWedge) {
+                replaced[mappings] = fromWedge;
+                replacements[mappings++] = faceWedges[f * 3 + toCorner];
+            }
+
+            faceAlive[f] = false;
+            faceCount--;
+            for (int corner = 0; corner < 3; corner++) {
+                int p = position(f, corner);
+                if (p != from) positionFaces[p].remove(f);
+            }
+        }
+
+        for (int i = 0; i < faces.size; i++) {
+            int f = faces.values[i];
+            if (!faceAlive[f]) continue;
+
+            int corner = f * 3 + corner(f, from);
+            faceWedges[corner] = faceWedges[corner] == replaced[0] || mappings == 1 ? replacements[0] : replacements[1];
+            positionFaces[to].add(f);
+        }
+        faces.clear();
+        positionAlive[from] = false;
+        Quadric.addTo(quadrics, from, to);
+
+        //everything around the surviving position has a changed fan, so is reclassified and requeued
+        collectNeighbours(to, otherNeighbours);
+        int[] changed = Arrays.copyOf(otherNeighbours.values, otherNeighbours.size + 1);
+        changed[otherNeighbours.size] = to;
+        for (int p : changed) {
+            versions[p]++;
+            kinds[p] = classify(p);
+        }
+        for (int p : changed) {
+            queueCollapses(p);
+        }
+    }
+
+    private void collectNeighbours(int p, IntList destination) {
+        destination.clear();
+        IntList faces = positionFaces[p];
+        for (int i = 0; i < faces.size; i++) {
+            int f = faces.values[i];
+            for (int corner = 0; corner < 3; corner++) {
+                int x = position(f, corner);
+                if (x != p && !destination.contains(x)) destination.add(x);
+            }
+        }
+    }
+
+    //the unnormalised normal of a face, optionally with one position replaced by another
+    private double[] faceNormal(int a, int b, int c, int replaced, int replacement) {
+        if (a == replaced) a = replacement;
+        if (b == replaced) b = replacement;
+        if (c == replaced) c = replacement;
+
+        double abx = positions[b * 3] - positions[a * 3];
+        double aby = positions[b * 3 + 1] - positions[a * 3 + 1];
+        double abz = positions[b * 3 + 2] - positions[a * 3 + 2];
+        double acx = positions[c * 3] - positions[a * 3];
+        double acy = positions[c * 3 + 1] - positions[a * 3 + 1];
+        double acz = positions[c * 3 + 2] - positions[a * 3 + 2];
+        return new double[]{aby * acz - abz * acy, abz * acx - abx * acz, abx * acy - aby * acx};
+    }
+
+    private static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    private static class Collapse implements Comparable<Collapse> {
+        final double priority;
+        final double cost;
+        final int from;
+        final int to;
+        final int fromVersion;
+        final int toVersion;
+
+        Collapse(double priority, double cost, int from, int to, int fromVersion, int toVersion) {
+            this.priority = priority;
+            this.cost = cost;
+            this.from = from;
+            this.to = to;
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+        }
+
+        @Override
+        public int compareTo(Collapse other) {
+            return Double.compare(priority, other.priority);
+        }
+    }
+
+    /**
+     * Symmetric 4x4 quadrics packed ten coefficients to a position, followed by the total face area they hold.
+     */
+    private static class Quadric {
+        static final int SIZE = 11;
+        static final int AREA = 10;
+
+        static void addPlane(double[] quadrics, int p, double a, double b, double c, double d, double weight) {
+            int o = p * SIZE;
+            quadrics[o] += weight * a * a;
+            quadrics[o + 1] += weight * a * b;
+            quadrics[o + 2] += weight * a * c;
+            quadrics[o + 3] += weight * a * d;
+            quadrics[o + 4] += weight * b * b;
+            quadrics[o + 5] += weight * b * c;
+            quadrics[o + 6] += weight * b * d;
+            quadrics[o + 7] += weight * c * c;
+            quadrics[o + 8] += weight * c * d;
+            quadrics[o + 9] += weight * d * d;
+        }
+
+        static void addTo(double[] quadrics, int from, int to) {
+            for (int i = 0; i < SIZE; i++) {
+                quadrics[to * SIZE + i] += quadrics[from * SIZE + i];
+            }
+        }
+
+        //v^T (Q1 + Q2) v for v = (x, y, z, 1)
+        static double evaluateSum(double[] quadrics, int p, int q, double x, double y, double z) {
+            int o1 = p * SIZE, o2 = q * SIZE;
+            double[] m = new double[10];
+            for (int i = 0; i < 10; i++) m[i] = quadrics[o1 + i] + quadrics[o2 + i];
+            return m[0] * x * x + 2 * m[1] * x * y + 2 * m[2] * x * z + 2 * m[3] * x +
+                    m[4] * y * y + 2 * m[5] * y * z + 2 * m[6] * y +
+                    m[7] * z * z + 2 * m[8] * z + m[9];
+        }
+    }
+
+    /**
+     * A growable list of ints, for the short per-position lists of faces and neighbours.
+     */
+    private static class IntList {
+        int[] values = new int[8];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+
+        boolean contains(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) return true;
+            }
+            return false;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
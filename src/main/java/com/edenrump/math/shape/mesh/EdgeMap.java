@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A fixed-capacity open-addressing map from undirected edges to int values, with no boxing and no per-entry
+ * objects.
+ * <p>
+ * An edge between vertices a and b is keyed by a single long holding the smaller index in the high word and the
+ * larger in the low word, so both directions of an edge share one entry. Entries live in slots which, once
+ * assigned, never move; callers may hold slot indices for fast repeated access. {@link #insert(long)} and
+ * {@link #putMinimum(int, int)} are safe to call from several threads at once, allowing a map to be filled in
+ * parallel.
+ *
+ * @author Ed Eden-Rump
+ */
+public class EdgeMap {
+
+    public static final int NO_VALUE = -1;
+
+    private static final long EMPTY = -1L;
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+
+    /**
+     * Create a map with room for the given number of edges at a load factor of at most one half.
+     *
+     * @param expectedEdges the largest number of edges which will be inserted
+     */
+    public EdgeMap(int expectedEdges) {
+        if (expectedEdges < 0 || expectedEdges > 1 << 29)
+            throw new IllegalArgumentException("Cannot create an edge map for " + expectedEdges + " edges");
+
+        int capacity = Integer.highestOneBit(Math.max(expectedEdges, 1) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, NO_VALUE);
+    }
+
+    /**
+     * @return the key shared by both directions of the edge between the two vertices
+     */
+    public static long key(int a, int b) {
+        if (a < 0 || b < 0)
+            throw new IllegalArgumentException("Cannot create edge with negative vertex index.");
+        return a < b ? (long) a << 32 | b : (long) b << 32 | a;
+    }
+
+    /**
+     * Find the slot holding the key, claiming an empty slot for it if it is not yet present. Thread-safe.
+     *
+     * @param key an edge key from {@link #key(int, int)}
+     * @return the slot of the key
+     */
+    public int insert(long key) {
+        int slot = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = (long) KEYS.getVolatile(keys, slot);
+            if (current == EMPTY) {
+                if (KEYS.compareAndSet(keys, slot, EMPTY, key)) return slot;
+                current = (long) KEYS.getVolatile(keys, slot);
+            }
+            if (current == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalStateException("Edge map is full. Cannot insert more than " + (mask + 1) / 2 + " edges");
+    }
+
+    /**
+     * @return the slot holding the key, or -1 if it is not present
+     */
+    public int find(long key) {
+        int slot = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = keys[slot];
+            if (current == key) return slot;
+            if (current == EMPTY) return -1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int getValue(int slot) {
+        return values[slot];
+    }
+
+    public void setValue(int slot, int value) {
+        values[slot] = value;
+    }
+
+    /**
+     * Store the value in the slot if the slot has no value or holds a larger one. Thread-safe, so concurrent
+     * callers leave the slot holding the smallest value offered.
+     *
+     * @return true if the value was stored
+     */
+    public boolean putMinimum(int slot, int value) {
+        while (true) {
+            int current = (int) VALUES.getVolatile(values, slot);
+            if (current != NO_VALUE && current <= value) return false;
+            if (VALUES.compareAndSet(values, slot, current, value)) return true;
+        }
+    }
+
+    public void put(int a, int b, int value) {
+        values[insert(key(a, b))] = value;
+    }
+
+    /**
+     * @return the value stored for the edge, or {@link #NO_VALUE} if it is not present
+     */
+    public int get(int a, int b) {
+        int slot = find(key(a, b));
+        return slot < 0 ? NO_VALUE : values[slot];
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    private static int hash(long key) {
+        //64-bit finaliser from MurmurHash3, spreading the packed vertex indices across every bit
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+}
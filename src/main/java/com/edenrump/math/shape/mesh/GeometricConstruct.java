@@ -20,6 +20,8 @@
 package com.edenrump.math.shape.mesh;
 
 import com.edenrump.math.arrays.ColumnVector;
+import com.edenrump.math.arrays.ScratchStack;
+import com.edenrump.math.arrays.Vec3;
 import com.edenrump.math.util.Volume;
 
 import java.util.ArrayList;
@@ -39,6 +41,12 @@ public class GeometricConstruct {
     protected final List<Face> faces = new ArrayList<>();
     protected final List<Vertex> vertices = new ArrayList<>();
 
+    //hash indexes over the lists above, mapping each distinct element to the index of its first occurrence
+    private final Map<ColumnVector, Integer> vertexPositionIndices = new HashMap<>();
+    private final Map<ColumnVector, Integer> vertexNormalIndices = new HashMap<>();
+    private final Map<Face, Integer> faceIndices = new HashMap<>();
+    private final Map<Vertex, Integer> vertexIndices = new HashMap<>();
+
     public GeometricConstruct(int coordinateType) {
         setCoordinateType(coordinateType);
         dimensions = 3;
@@ -64,6 +72,7 @@ public class GeometricConstruct {
 
     public void setVertexPositions(List<ColumnVector> positions) {
         this.vertexPositions.clear();
+        this.vertexPositionIndices.clear();
         for (ColumnVector vp : positions) {
             if (vp.getDimensions() != 3)
                 throw new IllegalArgumentException("MeshGeometry does not support non-3D coordinates");
@@ -76,6 +85,7 @@ public class GeometricConstruct {
 
     public void setVertexNormals(List<ColumnVector> normals) {
         this.vertexNormals.clear();
+        this.vertexNormalIndices.clear();
         for (ColumnVector vn : normals) {
             if (vn.getDimensions() != 3)
                 throw new IllegalArgumentException("MeshGeometry does not support non-3D normals");
@@ -97,12 +107,12 @@ public class GeometricConstruct {
      * @param x the x coordinate, or the radial distance
      * @param y the y cooridnate, or the inclination (angle from z) in radians
      * @param z the z coordinate, or the azimuthal angle (angle from x-y plane) in radians
-     * @return the index of the vertex position created.
+     * @return the index of the vertex position created, or of the first identical position if one already exists.
      */
     public int addVertexPosition(float x, float y, float z) {
         ColumnVector vp = new ColumnVector(x, y, z);
         this.vertexPositions.add(vp);
-        return this.vertexPositions.indexOf(vp);
+        return this.vertexPositionIndices.computeIfAbsent(vp, key -> vertexPositions.size() - 1);
     }
 
     public ColumnVector getVertexPosition(int vertexPositionIndex) {
@@ -112,7 +122,7 @@ public class GeometricConstruct {
     public int addVertexNormal(float x, float y, float z) {
         ColumnVector vn = new ColumnVector(x, y, z);
         this.vertexNormals.add(vn);
-        return this.vertexNormals.indexOf(vn);
+        return this.vertexNormalIndices.computeIfAbsent(vn, key -> vertexNormals.size() - 1);
     }
 
     public ColumnVector getVertexNormal(int vertexNormalIndex) {
@@ -120,7 +130,8 @@ public class GeometricConstruct {
     }
 
     public int addVertex(Vertex vertex) {
-        if (!this.vertices.contains(vertex)) {
+        Integer index = vertexIndices.get(vertex);
+        if (index == null) {
             if (vertexNormals.size() <= vertex.getVertexNormalIndex())
                 throw new IllegalArgumentException("Vertex references vertex normal that is out of range. " +
                         "\nExpected index of " + vertex.getVertexNormalIndex() + " in range 0 to " + vertexNormals.size());
@@ -129,14 +140,16 @@ public class GeometricConstruct {
                 throw new IllegalArgumentException("Vertex references vertex position that is out of range. " +
                         "\nExpected index of " + vertex.getVertexPositionIndex() + " in range 0 to " + vertexPositions.size());
 
+            index = vertices.size();
             this.vertices.add(vertex);
+            this.vertexIndices.put(vertex, index);
         }
 
-        return this.vertices.indexOf(vertex);
+        return index;
     }
 
     public int getVertexIndex(Vertex vertex) {
-        return vertices.indexOf(vertex);
+        return vertexIndices.getOrDefault(vertex, -1);
     }
 
     public int getNumberOfVertices() {
@@ -154,8 +167,10 @@ public class GeometricConstruct {
             throw new IllegalArgumentException("Cannot create face with negative vertex index.");
 
         Face newFace = new Face(vertices.get(v1), vertices.get(v2), vertices.get(v3));
-        if (!this.faces.contains(newFace)) this.faces.add(newFace);
-        this.faces.indexOf(newFace);
+        if (!this.faceIndices.containsKey(newFace)) {
+            this.faceIndices.put(newFace, faces.size());
+            this.faces.add(newFace);
+        }
     }
 
     public int getNumberOfFaces() {
@@ -163,79 +178,116 @@ public class GeometricConstruct {
     }
 
     protected int addMidPoint(Edge edge) {
-        ColumnVector vp1 = vertexPositions.get(edge.getV1().getVertexPositionIndex());
-        ColumnVector vp2 = vertexPositions.get(edge.getV2().getVertexPositionIndex());
-        ColumnVector midPointPosition = vp1.add(vp2).scale(0.5f);
-        int position = addVertexPosition(
-                midPointPosition.getValue(0),
-                midPointPosition.getValue(1),
-                midPointPosition.getValue(2));
-
-        ColumnVector vn1 = vertexNormals.get(edge.getV1().getVertexNormalIndex());
-        ColumnVector vn2 = vertexNormals.get(edge.getV2().getVertexNormalIndex());
-        ColumnVector midPointNormal = vn1.add(vn2).scale(0.5f);
-        int normal = addVertexNormal(
-                midPointNormal.getValue(0),
-                midPointNormal.getValue(1),
-                midPointNormal.getValue(2));
-
-        return addVertex(new Vertex(position, normal));
+        try (ScratchStack stack = ScratchStack.push()) {
+            Vec3 vp1 = stack.vec3(vertexPositions.get(edge.getV1().getVertexPositionIndex()));
+            Vec3 vp2 = stack.vec3(vertexPositions.get(edge.getV2().getVertexPositionIndex()));
+            Vec3 midPointPosition = vp1.addInto(vp2, vp1).scaleInto(0.5f, vp1);
+            int position = addVertexPosition(
+                    midPointPosition.getX(),
+                    midPointPosition.getY(),
+                    midPointPosition.getZ());
+
+            Vec3 vn1 = stack.vec3(vertexNormals.get(edge.getV1().getVertexNormalIndex()));
+            Vec3 vn2 = stack.vec3(vertexNormals.get(edge.getV2().getVertexNormalIndex()));
+            Vec3 midPointNormal = vn1.addInto(vn2, vn1).scaleInto(0.5f, vn1);
+            int normal = addVertexNormal(
+                    midPointNormal.getX(),
+                    midPointNormal.getY(),
+                    midPointNormal.getZ());
+
+            return addVertex(new Vertex(position, normal));
+        }
     }
 
     private void convertToCartesianCoordinates() {
         if (coordinateType == CARTESIAN) return; //prevents unwanted double-conversion
 
-        List<ColumnVector> cartesianCoordinates = new ArrayList<>();
-        for (ColumnVector polar : vertexPositions) {
-            cartesianCoordinates.add(Volume.convertPolarCoordinateToCartesian(polar));
-        }
-        vertexPositions = cartesianCoordinates;
+        float[] positions = pack(vertexPositions);
+        Volume.convertPolarCoordinatesToCartesian(positions, positions);
+        vertexPositions = unpack(positions);
 
-        List<ColumnVector> cartesianNormals = new ArrayList<>();
-        for (ColumnVector polar : vertexNormals) {
-            cartesianNormals.add(Volume.convertPolarCoordinateToCartesian(polar));
-        }
-        vertexNormals = cartesianNormals;
+        float[] normals = pack(vertexNormals);
+        Volume.convertPolarCoordinatesToCartesian(normals, normals);
+        vertexNormals = unpack(normals);
 
+        reindexCoordinates();
         this.coordinateType = CARTESIAN;
     }
 
     private void convertToPolarCoordinates() {
         if (coordinateType == POLAR) return; //prevents unwanted double-conversion
 
-        List<ColumnVector> cartesianPositions = new ArrayList<>();
-        for (ColumnVector polar : vertexPositions) {
-            cartesianPositions.add(Volume.convertCartesianCoordinateToPolar(polar));
+        float[] positions = pack(vertexPositions);
+        Volume.convertCartesianCoordinatesToPolar(positions, positions);
+        vertexPositions = unpack(positions);
+
+        float[] normals = pack(vertexNormals);
+        Volume.convertCartesianCoordinatesToPolar(normals, normals);
+        vertexNormals = unpack(normals);
+
+        reindexCoordinates();
+        this.coordinateType = POLAR;
+    }
+
+    private void reindexCoordinates() {
+        reindex(vertexPositions, vertexPositionIndices);
+        reindex(vertexNormals, vertexNormalIndices);
+    }
+
+    private static <T> void reindex(List<T> elements, Map<T, Integer> indices) {
+        indices.clear();
+        for (int i = 0; i < elements.size(); i++) {
+            indices.putIfAbsent(elements.get(i), i);
         }
-        vertexPositions = cartesianPositions;
+    }
 
-        List<ColumnVector> cartesianNormals = new ArrayList<>();
-        for (ColumnVector polar : vertexNormals) {
-            cartesianNormals.add(Volume.convertCartesianCoordinateToPolar(polar));
+    private static float[] pack(List<ColumnVector> vectors) {
+        float[] packed = new float[vectors.size() * 3];
+        for (int i = 0; i < vectors.size(); i++) {
+            System.arraycopy(vectors.get(i).getValues(), 0, packed, i * 3, 3);
         }
-        vertexNormals = cartesianNormals;
+        return packed;
+    }
 
-        this.coordinateType = POLAR;
+    private static List<ColumnVector> unpack(float[] packed) {
+        List<ColumnVector> vectors = new ArrayList<>(packed.length / 3);
+        for (int i = 0; i < packed.length; i += 3) {
+            vectors.add(new ColumnVector(packed[i], packed[i + 1], packed[i + 2]));
+        }
+        return vectors;
     }
 
+    /**
+     * Split every face into four by adding a vertex at the midpoint of each edge. Midpoints are created through
+     * addMidPoint(Edge) in the order their edges are first met, so subclasses may extend each new vertex.
+     */
     public void subdivideMesh() {
-        Map<Edge, Integer> edgesToMidPointVertex = new HashMap<>();
+        int[] indices = new int[faces.size() * 3];
+        for (int i = 0; i < faces.size(); i++) {
+            Face face = faces.get(i);
+            indices[i * 3] = getVertexIndex(face.getV1());
+            indices[i * 3 + 1] = getVertexIndex(face.getV2());
+            indices[i * 3 + 2] = getVertexIndex(face.getV3());
+        }
+
+        Subdivision subdivision = Subdivision.subdivide(indices, vertices.size());
+        int originalVertices = subdivision.getOriginalVertexCount();
+        int[] midPointEdges = subdivision.getMidPointEdges();
+
+        //midpoints which coincide with an existing vertex are merged into it by addVertex, so map them through
+        int[] vertexMap = new int[subdivision.getVertexCount()];
+        for (int i = 0; i < originalVertices; i++) vertexMap[i] = i;
+        for (int m = 0; m < subdivision.getMidPointCount(); m++) {
+            vertexMap[originalVertices + m] = addMidPoint(new Edge(
+                    vertices.get(midPointEdges[m * 2]),
+                    vertices.get(midPointEdges[m * 2 + 1])));
+        }
 
-        List<Face> oldFaces = new ArrayList<>(faces);
+        int[] subdivided = subdivision.getIndices();
         faces.clear();
-        for (Face face : oldFaces) {
-            Vertex v0 = face.getV1();
-            Vertex v1 = face.getV2();
-            Vertex v2 = face.getV3();
-
-            int v3 = edgesToMidPointVertex.computeIfAbsent(new Edge(v0, v1), this::addMidPoint);
-            int v4 = edgesToMidPointVertex.computeIfAbsent(new Edge(v1, v2), this::addMidPoint);
-            int v5 = edgesToMidPointVertex.computeIfAbsent(new Edge(v2, v0), this::addMidPoint);
-
-            this.addFace(getVertexIndex(v0), v3, v5);
-            this.addFace(getVertexIndex(v1), v4, v3);
-            this.addFace(getVertexIndex(v2), v5, v4);
-            this.addFace(v3, v4, v5);
+        faceIndices.clear();
+        for (int i = 0; i < subdivided.length; i += 3) {
+            addFace(vertexMap[subdivided[i]], vertexMap[subdivided[i + 1]], vertexMap[subdivided[i + 2]]);
         }
     }
 
@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import com.edenrump.math.util.Volume;
+
+/**
+ * A compact, index-based half-edge representation of a triangle mesh, for adjacency queries over large meshes.
+ * <p>
+ * All connectivity is held in primitive int arrays and all attributes in packed float arrays laid out as in
+ * {@link com.edenrump.graphic.mesh.CPUMesh}, so the whole mesh costs a few dozen bytes per vertex with no per-element
+ * objects. Half-edges are stored three per face in winding order, so half-edge <code>h</code> belongs to face
+ * <code>h / 3</code> and the next and previous half-edges around a face are implicit. Each half-edge stores the
+ * vertex it leaves and its twin on the neighbouring face, or -1 on a boundary. Each vertex stores one outgoing
+ * half-edge; for vertices on a boundary this is the first half-edge of the fan, so one-ring walks cover every
+ * neighbour.
+ * <p>
+ * Faces sharing an edge must be wound consistently and the mesh must be manifold: an edge may be shared by at most
+ * two faces.
+ *
+ * @author Ed Eden-Rump
+ */
+public class HalfEdgeMesh {
+
+    private final float[] positions;
+    private final float[] normals;
+
+    private final int[] halfEdgeOrigins;
+    private final int[] halfEdgeTwins;
+    private final int[] vertexHalfEdges;
+
+    /**
+     * Create a half-edge mesh from packed vertex attributes and triangle indices.
+     *
+     * @param positions packed x, y, z vertex positions
+     * @param normals   packed x, y, z vertex normals, or null if the mesh has none
+     * @param indices   three vertex indices per face, in winding order
+     */
+    public HalfEdgeMesh(float[] positions, float[] normals, int[] indices) {
+        if (positions == null || indices == null)
+            throw new IllegalArgumentException("Cannot create half-edge mesh when positions or indices are null");
+        if (positions.length % 3 != 0 || indices.length % 3 != 0)
+            throw new IllegalArgumentException("Half-edge mesh requires packed 3D positions and triangle indices");
+        if (normals != null && normals.length != positions.length)
+            throw new IllegalArgumentException("Half-edge mesh requires one normal per vertex position");
+
+        this.positions = positions.clone();
+        this.normals = normals == null ? null : normals.clone();
+        this.halfEdgeOrigins = indices.clone();
+        this.halfEdgeTwins = new int[indices.length];
+        this.vertexHalfEdges = new int[positions.length / 3];
+
+        int vertexCount = vertexHalfEdges.length;
+        for (int f = 0; f < indices.length; f += 3) {
+            int a = indices[f], b = indices[f + 1], c = indices[f + 2];
+            if (Math.min(a, Math.min(b, c)) < 0 || Math.max(a, Math.max(b, c)) >= vertexCount)
+                throw new IllegalArgumentException("Cannot create face with vertex out of range." +
+                        "\nFace: " + f / 3 + " | Current number of vertices: " + vertexCount);
+            if (a == b || b == c || c == a)
+                throw new IllegalArgumentException("Faces cannot contain identical vertices");
+        }
+
+        linkHalfEdges();
+    }
+
+    /**
+     * Build the twin links and vertex anchors. Outgoing half-edges are bucketed by origin vertex so that each twin
+     * is found by scanning the short bucket of its target rather than through a hash of every edge.
+     */
+    private void linkHalfEdges() {
+        int vertexCount = vertexHalfEdges.length;
+        int halfEdgeCount = halfEdgeOrigins.length;
+
+        int[] offsets = new int[vertexCount + 1];
+        for (int origin : halfEdgeOrigins) offsets[origin + 1]++;
+        for (int v = 0; v < vertexCount; v++) offsets[v + 1] += offsets[v];
+
+        int[] outgoing = new int[halfEdgeCount];
+        int[] fill = offsets.clone();
+        for (int h = 0; h < halfEdgeCount; h++) outgoing[fill[halfEdgeOrigins[h]]++] = h;
+
+        for (int h = 0; h < halfEdgeCount; h++) {
+            int origin = halfEdgeOrigins[h];
+            int target = getTarget(h);
+
+            for (int i = offsets[origin]; i < offsets[origin + 1]; i++) {
+                int other = outgoing[i];
+                if (other != h && getTarget(other) == target)
+                    throw new IllegalArgumentException("Cannot create half-edge mesh: edge " + origin + " to " +
+                            target + " is shared by more than two faces or by faces with inconsistent winding");
+            }
+
+            halfEdgeTwins[h] = -1;
+            for (int i = offsets[target]; i < offsets[target + 1]; i++) {
+                if (getTarget(outgoing[i]) == origin) {
+                    halfEdgeTwins[h] = outgoing[i];
+                    break;
+                }
+            }
+        }
+
+        for (int v = 0; v < vertexCount; v++) {
+            vertexHalfEdges[v] = offsets[v] == offsets[v + 1] ? -1 : anchor(outgoing[offsets[v]]);
+        }
+    }
+
+    /**
+     * Create a half-edge mesh with one vertex for each vertex of the construct. Polar constructs are converted to
+     * cartesian coordinates; the construct itself is not modified.
+     * <p>
+     * Vertices which share a position but not a normal, as in a flat-shaded construct, remain separate vertices
+     * and so separate the faces that use them.
+     *
+     * @param construct the construct to convert
+     * @return a new half-edge mesh
+     */
+    public static HalfEdgeMesh fromConstruct(GeometricConstruct construct) {
+        int vertexCount = construct.getNumberOfVertices();
+        float[] positions = new float[vertexCount * 3];
+        float[] normals = new float[vertexCount * 3];
+        for (int i = 0; i < vertexCount; i++) {
+            Vertex vertex = construct.getVertex(i);
+            System.arraycopy(construct.getVertexPosition(vertex.getVertexPositionIndex()).getValues(), 0,
+                    positions, i * 3, 3);
+            System.arraycopy(construct.getVertexNormal(vertex.getVertexNormalIndex()).getValues(), 0,
+                    normals, i * 3, 3);
+        }
+
+        if (construct.getCoordinateType() == GeometricConstruct.POLAR) {
+            Volume.convertPolarCoordinatesToCartesian(positions, positions);
+            Volume.convertPolarCoordinatesToCartesian(normals, normals);
+        }
+
+        int[] indices = new int[construct.getNumberOfFaces() * 3];
+        for (int i = 0; i < construct.getNumberOfFaces(); i++) {
+            Face face = construct.getFace(i);
+            indices[i * 3] = construct.getVertexIndex(face.getV1());
+            indices[i * 3 + 1] = construct.getVertexIndex(face.getV2());
+            indices[i * 3 + 2] = construct.getVertexIndex(face.getV3());
+        }
+
+        return new HalfEdgeMesh(positions, normals, indices);
+    }
+
+    /**
+     * Create a cartesian construct holding the same vertices and faces as this mesh. Vertices without normals are
+     * given a zero normal.
+     *
+     * @return a new construct
+     */
+    public GeometricConstruct toConstruct() {
+        GeometricConstruct construct = new GeometricConstruct(GeometricConstruct.CARTESIAN);
+        int[] constructVertices = new int[getVertexCount()];
+        for (int v = 0; v < constructVertices.length; v++) {
+            int position = construct.addVertexPosition(positions[v * 3], positions[v * 3 + 1], positions[v * 3 + 2]);
+            int normal = normals == null ? construct.addVertexNormal(0, 0, 0) :
+                    construct.addVertexNormal(normals[v * 3], normals[v * 3 + 1], normals[v * 3 + 2]);
+            constructVertices[v] = construct.addVertex(new Vertex(position, normal));
+        }
+
+        for (int h = 0; h < halfEdgeOrigins.length; h += 3) {
+            construct.addFace(constructVertices[halfEdgeOrigins[h]],
+                    constructVertices[halfEdgeOrigins[h + 1]],
+                    constructVertices[halfEdgeOrigins[h + 2]]);
+        }
+        return construct;
+    }
+
+    public int getVertexCount() {
+        return vertexHalfEdges.length;
+    }
+
+    public int getFaceCount() {
+        return halfEdgeOrigins.length / 3;
+    }
+
+    public int getHalfEdgeCount() {
+        return halfEdgeOrigins.length;
+    }
+
+    /**
+     * @return the packed vertex positions backing this mesh
+     */
+    public float[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return the packed vertex normals backing this mesh, or null if it has none
+     */
+    public float[] getNormals() {
+        return normals;
+    }
+
+    /**
+     * @return three vertex indices per face in winding order, reflecting any edge flips
+     */
+    public int[] getIndices() {
+        return halfEdgeOrigins.clone();
+    }
+
+    public int getOrigin(int halfEdge) {
+        return halfEdgeOrigins[halfEdge];
+    }
+
+    public int getTarget(int halfEdge) {
+        return halfEdgeOrigins[getNext(halfEdge)];
+    }
+
+    public int getNext(int halfEdge) {
+        return halfEdge % 3 == 2 ? halfEdge - 2 : halfEdge + 1;
+    }
+
+    public int getPrevious(int halfEdge) {
+        return halfEdge % 3 == 0 ? halfEdge + 2 : halfEdge - 1;
+    }
+
+    /**
+     * @return the opposing half-edge on the neighbouring face, or -1 if the half-edge lies on a boundary
+     */
+    public int getTwin(int halfEdge) {
+        return halfEdgeTwins[halfEdge];
+    }
+
+    public int getFace(int halfEdge) {
+        return halfEdge / 3;
+    }
+
+    public int getFaceHalfEdge(int face) {
+        return face * 3;
+    }
+
+    /**
+     * @return an outgoing half-edge of the vertex, or -1 if the vertex is not used by any face
+     */
+    public int getVertexHalfEdge(int vertex) {
+        return vertexHalfEdges[vertex];
+    }
+
+    public boolean isBoundaryEdge(int halfEdge) {
+        return halfEdgeTwins[halfEdge] < 0;
+    }
+
+    /**
+     * @return true if the vertex lies on an edge used by only one face. Vertices not used by any face are not on a
+     * boundary.
+     */
+    public boolean isBoundaryVertex(int vertex) {
+        int halfEdge = vertexHalfEdges[vertex];
+        return halfEdge >= 0 && halfEdgeTwins[getPrevious(halfEdge)] < 0;
+    }
+
+    /**
+     * @return true if the mesh has no boundary edges
+     */
+    public boolean isClosed() {
+        for (int twin : halfEdgeTwins) {
+            if (twin < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of vertices adjacent to the vertex
+     */
+    public int getValence(int vertex) {
+        int start = vertexHalfEdges[vertex];
+        if (start < 0) return 0;
+
+        int valence = isBoundaryVertex(vertex) ? 1 : 0;
+        int halfEdge = start;
+        do {
+            valence++;
+            int twin = halfEdgeTwins[halfEdge];
+            if (twin < 0) break;
+            halfEdge = getNext(twin);
+        } while (halfEdge != start);
+        return valence;
+    }
+
+    /**
+     * Write the vertices adjacent to the vertex into the destination, in fan order. No allocation takes place.
+     *
+     * @param vertex      the vertex at the centre of the ring
+     * @param destination an array of at least {@link #getValence(int)} elements
+     * @return the number of vertices written
+     */
+    public int getOneRing(int vertex, int[] destination) {
+        if (destination == null)
+            throw new IllegalArgumentException("Buffer storage not possible when buffer is null. Aborting.");
+
+        int start = vertexHalfEdges[vertex];
+        if (start < 0) return 0;
+
+        int count = 0;
+        int halfEdge = start;
+        do {
+            if (count >= destination.length)
+                throw new IllegalArgumentException("Destination does not have sufficient space for this operation. Aborted.");
+            destination[count++] = getTarget(halfEdge);
+
+            int twin = halfEdgeTwins[halfEdge];
+            if (twin < 0) break;
+            halfEdge = getNext(twin);
+        } while (halfEdge != start);
+
+        if (isBoundaryVertex(vertex)) {
+            if (count >= destination.length)
+                throw new IllegalArgumentException("Destination does not have sufficient space for this operation. Aborted.");
+            destination[count++] = halfEdgeOrigins[getPrevious(start)];
+        }
+        return count;
+    }
+
+    /**
+     * @return true if an edge joins the two vertices
+     */
+    public boolean isAdjacent(int vertex, int other) {
+        int start = vertexHalfEdges[vertex];
+        if (start < 0) return false;
+        if (isBoundaryVertex(vertex) && halfEdgeOrigins[getPrevious(start)] == other) return true;
+
+        int halfEdge = start;
+        do {
+            if (getTarget(halfEdge) == other) return true;
+            int twin = halfEdgeTwins[halfEdge];
+            if (twin < 0) break;
+            halfEdge = getNext(twin);
+        } while (halfEdge != start);
+        return false;
+    }
+
+    /**
+     * Rotate an interior edge within the quadrilateral formed by its two faces, so that it joins the two vertices
+     * opposite it. Both faces keep their indices and winding.
+     *
+     * @param halfEdge either half-edge of the edge to flip
+     * @return true if the edge was flipped, or false if it lies on a boundary or the flip would duplicate an
+     * existing edge
+     */
+    public boolean flipEdge(int halfEdge) {
+        int twin = halfEdgeTwins[halfEdge];
+        if (twin < 0) return false;
+
+        int a = getOrigin(halfEdge);
+        int b = getTarget(halfEdge);
+        int c = halfEdgeOrigins[getPrevious(halfEdge)];
+        int d = halfEdgeOrigins[getPrevious(twin)];
+        if (c == d || isAdjacent(c, d)) return false;
+
+        int twinBC = halfEdgeTwins[getNext(halfEdge)];
+        int twinCA = halfEdgeTwins[getPrevious(halfEdge)];
+        int twinAD = halfEdgeTwins[getNext(twin)];
+        int twinDB = halfEdgeTwins[getPrevious(twin)];
+
+        //faces a-b-c and b-a-d become c-a-d and d-b-c
+        int first = getFaceHalfEdge(getFace(halfEdge));
+        int second = getFaceHalfEdge(getFace(twin));
+        halfEdgeOrigins[first] = c;
+        halfEdgeOrigins[first + 1] = a;
+        halfEdgeOrigins[first + 2] = d;
+        halfEdgeOrigins[second] = d;
+        halfEdgeOrigins[second + 1] = b;
+        halfEdgeOrigins[second + 2] = c;
+
+        link(first, twinCA);
+        link(first + 1, twinAD);
+        link(first + 2, second + 2);
+        link(second, twinDB);
+        link(second + 1, twinBC);
+
+        vertexHalfEdges[a] = anchor(first + 1);
+        vertexHalfEdges[b] = anchor(second + 1);
+        vertexHalfEdges[c] = anchor(first);
+        vertexHalfEdges[d] = anchor(second);
+        return true;
+    }
+
+    private void link(int halfEdge, int twin) {
+        halfEdgeTwins[halfEdge] = twin;
+        if (twin >= 0) halfEdgeTwins[twin] = halfEdge;
+    }
+
+    /**
+     * Rotate backwards from an outgoing half-edge to the first half-edge of its fan, so that walks from the
+     * returned half-edge visit every face around a boundary vertex.
+     */
+    private int anchor(int outgoing) {
+        int halfEdge = outgoing;
+        while (true) {
+            int previous = halfEdgeTwins[getPrevious(halfEdge)];
+            if (previous < 0 || previous == outgoing) return halfEdge;
+            halfEdge = previous;
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import static com.edenrump.math.util.ParallelRanges.forEachRange;
+
+/**
+ * One level of midpoint subdivision over packed triangle indices, splitting each face into four.
+ * <p>
+ * The topology is identical to that of {@link GeometricConstruct#subdivideMesh()}: midpoints are numbered after
+ * the existing vertices in the order their edges are first met, walking the faces in order and each face's edges
+ * v1-v2, v2-v3, v3-v1; and face f becomes faces 4f to 4f + 3. All output arrays are sized exactly up front, edges
+ * are keyed in a primitive {@link EdgeMap}, and meshes of more than {@link #PARALLEL_THRESHOLD} faces are split
+ * across the common fork-join pool.
+ *
+ * @author Ed Eden-Rump
+ */
+public class Subdivision {
+
+    public static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    //edge occurrences are numbered in blocks when counting midpoints, so each block can be numbered independently
+    private static final int BLOCK_SIZE = 1 << 12;
+
+    private final int originalVertexCount;
+    private final int[] indices;
+    private final int[] midPointEdges;
+
+    private Subdivision(int originalVertexCount, int[] indices, int[] midPointEdges) {
+        this.originalVertexCount = originalVertexCount;
+        this.indices = indices;
+        this.midPointEdges = midPointEdges;
+    }
+
+    /**
+     * Subdivide every face of a triangle mesh.
+     *
+     * @param indices     three vertex indices per face
+     * @param vertexCount the number of vertices the indices refer to
+     * @return the subdivided topology
+     */
+    public static Subdivision subdivide(int[] indices, int vertexCount) {
+        if (indices == null)
+            throw new IllegalArgumentException("Cannot subdivide when indices are null");
+        if (indices.length % 3 != 0)
+            throw new IllegalArgumentException("Subdivision requires three indices per face");
+        for (int index : indices) {
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("Cannot subdivide face with vertex out of range." +
+                        "\nVertex: number " + index + " | Current number of vertices: " + vertexCount);
+        }
+
+        int faceCount = indices.length / 3;
+        int occurrences = indices.length;
+        EdgeMap edges = new EdgeMap(occurrences);
+        int[] slots = new int[occurrences];
+
+        //claim a slot for every edge, recording in it the first occurrence of the edge
+        forEachRange(faceCount, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int o = from * 3; o < to * 3; o++) {
+                int slot = edges.insert(EdgeMap.key(indices[o], indices[next(o)]));
+                slots[o] = slot;
+                edges.putMinimum(slot, o);
+            }
+        });
+
+        //count first occurrences per block, then number them in occurrence order
+        int blocks = (occurrences + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int blockGrain = Math.max(1, PARALLEL_THRESHOLD * 3 / BLOCK_SIZE);
+        int[] blockOffsets = new int[blocks + 1];
+        forEachRange(blocks, blockGrain, (from, to) -> {
+            for (int block = from; block < to; block++) {
+                int count = 0;
+                for (int o = block * BLOCK_SIZE; o < Math.min(occurrences, (block + 1) * BLOCK_SIZE); o++) {
+                    if (edges.getValue(slots[o]) == o) count++;
+                }
+                blockOffsets[block + 1] = count;
+            }
+        });
+        for (int block = 0; block < blocks; block++) blockOffsets[block + 1] += blockOffsets[block];
+
+        int[] midPoints = new int[occurrences];
+        int[] midPointEdges = new int[blockOffsets[blocks] * 2];
+        forEachRange(blocks, blockGrain, (from, to) -> {
+            for (int block = from; block < to; block++) {
+                int midPoint = blockOffsets[block];
+                for (int o = block * BLOCK_SIZE; o < Math.min(occurrences, (block + 1) * BLOCK_SIZE); o++) {
+                    if (edges.getValue(slots[o]) != o) continue;
+                    midPoints[o] = vertexCount + midPoint;
+                    midPointEdges[midPoint * 2] = indices[o];
+                    midPointEdges[midPoint * 2 + 1] = indices[next(o)];
+                    midPoint++;
+                }
+            }
+        });
+
+        int[] subdivided = new int[faceCount * 12];
+        forEachRange(faceCount, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int f = from; f < to; f++) {
+                int v0 = indices[f * 3];
+                int v1 = indices[f * 3 + 1];
+                int v2 = indices[f * 3 + 2];
+                int v3 = midPoints[edges.getValue(slots[f * 3])];
+                int v4 = midPoints[edges.getValue(slots[f * 3 + 1])];
+                int v5 = midPoints[edges.getValue(slots[f * 3 + 2])];
+
+                int base = f * 12;
+                subdivided[base] = v0;
+                subdivided[base + 1] = v3;
+                subdivided[base + 2] = v5;
+                subdivided[base + 3] = v1;
+                subdivided[base + 4] = v4;
+                subdivided[base + 5] = v3;
+                subdivided[base + 6] = v2;
+                subdivided[base + 7] = v5;
+                subdivided[base + 8] = v4;
+                subdivided[base + 9] = v3;
+                subdivided[base + 10] = v4;
+                subdivided[base + 11] = v5;
+            }
+        });
+
+        return new Subdivision(vertexCount, subdivided, midPointEdges);
+    }
+
+    /**
+     * @return three vertex indices for each of the subdivided faces
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public int getOriginalVertexCount() {
+        return originalVertexCount;
+    }
+
+    public int getMidPointCount() {
+        return midPointEdges.length / 2;
+    }
+
+    /**
+     * @return the number of vertices after subdivision, existing vertices followed by midpoints
+     */
+    public int getVertexCount() {
+        return originalVertexCount + getMidPointCount();
+    }
+
+    /**
+     * @return the two vertices of the edge each midpoint splits, as pairs in midpoint order, oriented as in the face
+     * which first met the edge
+     */
+    public int[] getMidPointEdges() {
+        return midPointEdges;
+    }
+
+    /**
+     * Extend a packed per-vertex attribute with the average of each midpoint's two end vertices, as
+     * {@link GeometricConstruct#subdivideMesh()} does for positions and normals.
+     *
+     * @param values     the packed attribute of the original vertices
+     * @param components the number of values per vertex
+     * @return a new packed attribute for every vertex after subdivision
+     */
+    public float[] subdivideAttribute(float[] values, int components) {
+        if (values == null)
+            throw new IllegalArgumentException("Cannot subdivide attribute when values are null");
+        if (components < 1 || values.length != originalVertexCount * components)
+            throw new IllegalArgumentException("Attribute does not hold " + components +
+                    " values for each of " + originalVertexCount + " vertices");
+
+        float[] result = new float[getVertexCount() * components];
+        System.arraycopy(values, 0, result, 0, values.length);
+        forEachRange(getMidPointCount(), PARALLEL_THRESHOLD, (from, to) -> {
+            for (int m = from; m < to; m++) {
+                int a = midPointEdges[m * 2] * components;
+                int b = midPointEdges[m * 2 + 1] * components;
+                int dest = (originalVertexCount + m) * components;
+                for (int c = 0; c < components; c++) {
+                    result[dest + c] = (values[a + c] + values[b + c]) * 0.5f;
+                }
+            }
+        });
+        return result;
+    }
+
+    private static int next(int occurrence) {
+        return occurrence % 3 == 2 ? occurrence - 2 : occurrence + 1;
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import static com.edenrump.math.util.ParallelRanges.forEachRange;
+
+/**
+ * Vertex normals generated from the faces of a packed triangle mesh, optionally split along creases.
+ * <p>
+ * Each face contributes its unit normal to each of its corners, weighted either by the face's area or by the angle
+ * of the face at that corner. Rather than scattering contributions into shared accumulators, the faces around each
+ * vertex are first gathered into an adjacency list, so every vertex can then sum its own faces independently; face
+ * and vertex passes over more than {@link #PARALLEL_THRESHOLD} elements run across the common fork-join pool and
+ * give the same result as a serial run.
+ * <p>
+ * With a crease angle below pi, a corner only takes contributions from the faces around its vertex whose normals lie
+ * within the crease angle of its own face's normal. Corners of one vertex that end up with different normals are
+ * given separate output vertices, numbered in order of their original vertex; {@link #getVertexSources()} maps each
+ * output vertex back to its original so that other attributes can be copied with
+ * {@link #remapAttribute(float[], int)}.
+ *
+ * @author Ed Eden-Rump
+ */
+public class VertexNormals {
+
+    public static final int PARALLEL_THRESHOLD = 1 << 12;
+    public static final float NO_CREASES = (float) Math.PI;
+
+    public enum Weighting {
+        /**
+         * Weight each face by its area, favouring large faces
+         */
+        AREA,
+        /**
+         * Weight each face by its angle at the vertex, which is independent of how the surface is triangulated
+         */
+        ANGLE
+    }
+
+    private final int[] indices;
+    private final float[] normals;
+    private final int[] vertexSources;
+    private final int originalVertexCount;
+
+    private VertexNormals(int[] indices, float[] normals, int[] vertexSources, int originalVertexCount) {
+        this.originalVertexCount = originalVertexCount;
+        this.indices = indices;
+        this.normals = normals;
+        this.vertexSources = vertexSources;
+    }
+
+    /**
+     * Generate smooth normals, one per vertex.
+     *
+     * @param positions three floats per vertex
+     * @param indices   three vertex indices per face
+     * @param weighting how each face is weighted at its corners
+     * @return the normals, with the vertices and indices unchanged
+     */
+    public static VertexNormals generate(float[] positions, int[] indices, Weighting weighting) {
+        return generate(positions, indices, weighting, NO_CREASES);
+    }
+
+    /**
+     * Generate normals, splitting vertices where the faces around them meet at more than the crease angle.
+     *
+     * @param positions   three floats per vertex
+     * @param indices     three vertex indices per face
+     * @param weighting   how each face is weighted at its corners
+     * @param creaseAngle the largest angle in radians between face normals that are smoothed together, or
+     *                    {@link #NO_CREASES} to smooth every face around a vertex
+     * @return the normals, with the vertices and indices after splitting
+     */
+    public static VertexNormals generate(float[] positions, int[] indices, Weighting weighting, float creaseAngle) {
+        if (positions == null || indices == null)
+            throw new IllegalArgumentException("Cannot generate normals when positions or indices are null");
+        if (weighting == null) throw new IllegalArgumentException("Cannot generate normals with null weighting");
+        if (positions.length % 3 != 0) {
+            throw new IllegalArgumentException("Position count must be a multiple of 3: " + positions.length);
+        }
+        if (indices.length % 3 != 0) {
+            throw new IllegalArgumentException("Index count must be a multiple of 3: " + indices.length);
+        }
+        if (!(creaseAngle >= 0)) throw new IllegalArgumentException("Crease angle must not be negative: " + creaseAngle);
+        int vertexCount = positions.length / 3;
+        for (int index : indices) {
+            if (index < 0 || index >= vertexCount) {
+                throw new IllegalArgumentException("Index " + index + " out of range for " + vertexCount + " vertices");
+            }
+        }
+
+        float[] faceNormals = computeFaceNormals(positions, indices);
+        float[] cornerWeights = computeCornerWeights(positions, indices, weighting);
+
+        int[] offsets = new int[vertexCount + 1];
+        int[] corners = gatherCorners(indices, offsets);
+
+        if (creaseAngle >= NO_CREASES) {
+            float[] normals = new float[vertexCount * 3];
+            forEachRange(vertexCount, PARALLEL_THRESHOLD, (from, to) -> {
+                for (int v = from; v < to; v++) {
+                    float x = 0, y = 0, z = 0;
+                    for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                        int corner = corners[slot];
+                        int f = corner / 3;
+                        float weight = cornerWeights[corner];
+                        x += faceNormals[f * 3] * weight;
+                        y += faceNormals[f * 3 + 1] * weight;
+                        z += faceNormals[f * 3 + 2] * weight;
+                    }
+                    store(normals, v, x, y, z);
+                }
+            });
+            int[] sources = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                sources[v] = v;
+            }
+            return new VertexNormals(indices.clone(), normals, sources, vertexCount);
+        }
+
+        //first pass: the normal of every corner, and which distinct normal of its vertex it takes
+        float cosine = (float) Math.cos(creaseAngle);
+        float[] cornerNormals = new float[indices.length * 3];
+        int[] localVertex = new int[indices.length];
+        int[] splitCounts = new int[vertexCount];
+        forEachRange(vertexCount, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int v = from; v < to; v++) {
+                int start = offsets[v];
+                int end = offsets[v + 1];
+                int distinct = 0;
+                for (int slot = start; slot < end; slot++) {
+                    int face = corners[slot] / 3;
+                    float x = 0, y = 0, z = 0;
+                    for (int other = start; other < end; other++) {
+                        int otherFace = corners[other] / 3;
+                        float dot = faceNormals[face * 3] * faceNormals[otherFace * 3] +
+                                faceNormals[face * 3 + 1] * faceNormals[otherFace * 3 + 1] +
+                                faceNormals[face * 3 + 2] * faceNormals[otherFace * 3 + 2];
+                        if (otherFace != face && dot < cosine) continue;
+                        float weight = cornerWeights[corners[other]];
+                        x += faceNormals[otherFace * 3] * weight;
+                        y += faceNormals[otherFace * 3 + 1] * weight;
+                        z += faceNormals[otherFace * 3 + 2] * weight;
+                    }
+                    store(cornerNormals, slot, x, y, z);
+
+                    int local = -1;
+                    for (int earlier = start; earlier < slot && local < 0; earlier++) {
+                        if (cornerNormals[earlier * 3] == cornerNormals[slot * 3] &&
+                                cornerNormals[earlier * 3 + 1] == cornerNormals[slot * 3 + 1] &&
+                                cornerNormals[earlier * 3 + 2] == cornerNormals[slot * 3 + 2]) {
+                            local = localVertex[earlier];
+                        }
+                    }
+                    localVertex[slot] = local >= 0 ? local : distinct++;
+                }
+                //an unused vertex is kept, with a zero normal, so that every original vertex has an output
+                splitCounts[v] = Math.max(1, distinct);
+            }
+        });
+
+        int[] firstOutput = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            firstOutput[v + 1] = firstOutput[v] + splitCounts[v];
+        }
+
+        //second pass: every corner and every output vertex is written by exactly one vertex
+        int outputCount = firstOutput[vertexCount];
+        int[] outputIndices = new int[indices.length];
+        float[] normals = new float[outputCount * 3];
+        int[] sources = new int[outputCount];
+        forEachRange(vertexCount, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int v = from; v < to; v++) {
+                for (int output = firstOutput[v]; output < firstOutput[v + 1]; output++) {
+                    sources[output] = v;
+                }
+                for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                    int output = firstOutput[v] + localVertex[slot];
+                    outputIndices[corners[slot]] = output;
+                    System.arraycopy(cornerNormals, slot * 3, normals, output * 3, 3);
+                }
+            }
+        });
+        return new VertexNormals(outputIndices, normals, sources, vertexCount);
+    }
+
+    /**
+     * Gather the corners around each vertex into a compressed adjacency list, in order of corner.
+     *
+     * @param indices three vertex indices per face, each already checked to be in range
+     * @param offsets one more element than there are vertices, filled with where the corners of each vertex start
+     * @return the corners, grouped by vertex
+     */
+    static int[] gatherCorners(int[] indices, int[] offsets) {
+        int vertexCount = offsets.length - 1;
+        for (int index : indices) {
+            offsets[index + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] corners = new int[indices.length];
+        int[] fill = new int[vertexCount];
+        for (int corner = 0; corner < indices.length; corner++) {
+            int v = indices[corner];
+            corners[offsets[v] + fill[v]++] = corner;
+        }
+        return corners;
+    }
+
+    /**
+     * Calculate the unit normal of every face, following the right-hand rule around its corners. Degenerate faces
+     * have a zero normal.
+     *
+     * @param positions three floats per vertex
+     * @param indices   three vertex indices per face
+     * @return three floats per face
+     */
+    public static float[] computeFaceNormals(float[] positions, int[] indices) {
+        int faceCount = indices.length / 3;
+        float[] faceNormals = new float[faceCount * 3];
+        forEachRange(faceCount, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int f = from; f < to; f++) {
+                int a = indices[f * 3] * 3, b = indices[f * 3 + 1] * 3, c = indices[f * 3 + 2] * 3;
+                float e1x = positions[b] - positions[a], e1y = positions[b + 1] - positions[a + 1];
+                float e1z = positions[b + 2] - positions[a + 2];
+                float e2x = positions[c] - positions[a], e2y = positions[c + 1] - positions[a + 1];
+                float e2z = positions[c + 2] - positions[a + 2];
+                store(faceNormals, f, e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z, e1x * e2y - e1y * e2x);
+            }
+        });
+        return faceNormals;
+    }
+
+    private static float[] computeCornerWeights(float[] positions, int[] indices, Weighting weighting) {
+        int faceCount = indices.length / 3;
+        float[] weights = new float[indices.length];
+        forEachRange(faceCount, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int f = from; f < to; f++) {
+                if (weighting == Weighting.AREA) {
+                    int a = indices[f * 3] * 3, b = indices[f * 3 + 1] * 3, c = indices[f * 3 + 2] * 3;
+                    float e1x = positions[b] - positions[a], e1y = positions[b + 1] - positions[a + 1];
+                    float e1z = positions[b + 2] - positions[a + 2];
+                    float e2x = positions[c] - positions[a], e2y = positions[c + 1] - positions[a + 1];
+                    float e2z = positions[c + 2] - positions[a + 2];
+                    float x = e1y * e2z - e1z * e2y, y = e1z * e2x - e1x * e2z, z = e1x * e2y - e1y * e2x;
+                    float area = 0.5f * (float) Math.sqrt(x * x + y * y + z * z);
+                    weights[f * 3] = area;
+                    weights[f * 3 + 1] = area;
+                    weights[f * 3 + 2] = area;
+                } else {
+                    for (int k = 0; k < 3; k++) {
+                        int p = indices[f * 3 + k] * 3;
+                        int q = indices[f * 3 + (k + 1) % 3] * 3;
+                        int r = indices[f * 3 + (k + 2) % 3] * 3;
+                        weights[f * 3 + k] = angle(positions, p, q, r);
+                    }
+                }
+            }
+        });
+        return weights;
+    }
+
+    /**
+     * @return the angle at p between the edges to q and r, or 0 if either edge has no length
+     */
+    private static float angle(float[] positions, int p, int q, int r) {
+        float ux = positions[q] - positions[p], uy = positions[q + 1] - positions[p + 1], uz = positions[q + 2] - positions[p + 2];
+        float vx = positions[r] - positions[p], vy = positions[r + 1] - positions[p + 1], vz = positions[r + 2] - positions[p + 2];
+        float cx = uy * vz - uz * vy, cy = uz * vx - ux * vz, cz = ux * vy - uy * vx;
+        float sine = (float) Math.sqrt(cx * cx + cy * cy + cz * cz);
+        float cosine = ux * vx + uy * vy + uz * vz;
+        if (sine == 0 && cosine == 0) return 0;
+        return (float) Math.atan2(sine, cosine);
+    }
+
+    private static void store(float[] dest, int vector, float x, float y, float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length > 0) {
+            x /= length;
+            y /= length;
+            z /= length;
+        }
+        dest[vector * 3] = x;
+        dest[vector * 3 + 1] = y;
+        dest[vector * 3 + 2] = z;
+    }
+
+    /**
+     * Copy a per-vertex attribute of the original mesh to the output vertices.
+     *
+     * @param values     the packed values of the original vertices
+     * @param components the number of values per vertex
+     * @return the packed values of the output vertices, in a new array
+     */
+    public float[] remapAttribute(float[] values, int components) {
+        return remapAttribute(values, components, vertexSources, originalVertexCount);
+    }
+
+    /**
+     * Copy a per-vertex attribute to split vertices, for the generators in this package that split vertices.
+     *
+     * @param vertexSources       the original vertex of every output vertex
+     * @param originalVertexCount the number of vertices before splitting
+     */
+    static float[] remapAttribute(float[] values, int components, int[] vertexSources, int originalVertexCount) {
+        if (values == null)
+            throw new IllegalArgumentException("Cannot remap attribute when values are null");
+        if (components < 1 || values.length != originalVertexCount * components)
+            throw new IllegalArgumentException("Attribute does not hold " + components +
+                    " values for each of " + originalVertexCount + " vertices");
+        float[] result = new float[vertexSources.length * components];
+        forEachRange(vertexSources.length, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int v = from; v < to; v++) {
+                System.arraycopy(values, vertexSources[v] * components, result, v * components, components);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return three vertex indices per face into the output vertices, owned by this object
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * @return three floats per output vertex, each normal of unit length unless no face with an area touches it,
+     * owned by this object
+     */
+    public float[] getNormals() {
+        return normals;
+    }
+
+    /**
+     * @return the original vertex of every output vertex, owned by this object
+     */
+    public int[] getVertexSources() {
+        return vertexSources;
+    }
+
+    public int getVertexCount() {
+        return vertexSources.length;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import java.util.Arrays;
+
+import static com.edenrump.math.util.ParallelRanges.forEachRange;
+
+/**
+ * Vertex tangents generated from the positions, normals and texture coordinates of a packed triangle mesh, following
+ * the MikkTSpace conventions so that normal maps baked by common tools are reproduced.
+ * <p>
+ * Each face's tangent is the direction in which its first texture coordinate increases. At every corner that tangent
+ * is projected into the plane of the vertex normal and weighted by the angle of the face at the corner, again measured
+ * in that plane, and the weighted tangents around a vertex are summed and normalised. The fourth component of each
+ * tangent is the sign of the bitangent, which a shader reconstructs as {@code w * cross(normal, tangent.xyz)}: 1 where
+ * the texture is mapped with the winding of the face and -1 where it is mirrored.
+ * <p>
+ * Faces with mirrored texture coordinates are never averaged with the others, so a vertex touched by both is split
+ * into two output vertices; {@link #getVertexSources()} maps each output vertex back to its original so that other
+ * attributes can be copied with {@link #remapAttribute(float[], int)}. Faces whose texture coordinates have no area
+ * contribute no tangent, and a vertex with no tangent takes an arbitrary one perpendicular to its normal. Unlike
+ * MikkTSpace, vertices are not split where they are shared by faces at a crease of the normals, as a vertex here has
+ * a single normal; split them beforehand, for example with {@link VertexNormals}.
+ * <p>
+ * As with {@link VertexNormals}, faces are gathered per vertex rather than scattered, and face and vertex passes over
+ * more than {@link VertexNormals#PARALLEL_THRESHOLD} elements run across the common fork-join pool.
+ *
+ * @author Ed Eden-Rump
+ */
+public class VertexTangents {
+
+    private final int[] indices;
+    private final float[] tangents;
+    private final int[] vertexSources;
+    private final int originalVertexCount;
+
+    private VertexTangents(int[] indices, float[] tangents, int[] vertexSources, int originalVertexCount) {
+        this.indices = indices;
+        this.tangents = tangents;
+        this.vertexSources = vertexSources;
+        this.originalVertexCount = originalVertexCount;
+    }
+
+    /**
+     * Generate a tangent for every vertex, splitting vertices shared by mirrored and unmirrored faces.
+     *
+     * @param positions          three floats per vertex
+     * @param normals            three floats per vertex, each of unit length
+     * @param textureCoordinates two floats per vertex
+     * @param indices            three vertex indices per face
+     * @return the tangents, with the vertices and indices after splitting
+     */
+    public static VertexTangents generate(float[] positions, float[] normals, float[] textureCoordinates,
+                                          int[] indices) {
+        if (positions == null || normals == null || textureCoordinates == null || indices == null)
+            throw new IllegalArgumentException("Cannot generate tangents when positions, normals, texture coordinates" +
+                    " or indices are null");
+        if (positions.length % 3 != 0) {
+            throw new IllegalArgumentException("Position count must be a multiple of 3: " + positions.length);
+        }
+        int vertexCount = positions.length / 3;
+        if (normals.length != vertexCount * 3 || textureCoordinates.length != vertexCount * 2) {
+            throw new IllegalArgumentException("Expected a normal and texture coordinate for each of " + vertexCount +
+                    " vertices, but found " + normals.length + " normal and " + textureCoordinates.length +
+                    " texture coordinate values");
+        }
+        if (indices.length % 3 != 0) {
+            throw new IllegalArgumentException("Index count must be a multiple of 3: " + indices.length);
+        }
+        for (int index : indices) {
+            if (index < 0 || index >= vertexCount) {
+                throw new IllegalArgumentException("Index " + index + " out of range for " + vertexCount + " vertices");
+            }
+        }
+
+        int faceCount = indices.length / 3;
+        float[] faceTangents = new float[faceCount * 3];
+        boolean[] mirrored = new boolean[faceCount];
+        forEachRange(faceCount, VertexNormals.PARALLEL_THRESHOLD, (from, to) -> {
+            for (int f = from; f < to; f++) {
+                int a = indices[f * 3], b = indices[f * 3 + 1], c = indices[f * 3 + 2];
+                float s1 = textureCoordinates[b * 2] - textureCoordinates[a * 2];
+                float t1 = textureCoordinates[b * 2 + 1] - textureCoordinates[a * 2 + 1];
+                float s2 = textureCoordinates[c * 2] - textureCoordinates[a * 2];
+                float t2 = textureCoordinates[c * 2 + 1] - textureCoordinates[a * 2 + 1];
+                float signedArea = s1 * t2 - t1 * s2;
+                mirrored[f] = signedArea < 0;
+                if (signedArea == 0) continue;
+
+                //the derivative of position by the first texture coordinate, up to a positive scale
+                float sign = mirrored[f] ? -1 : 1;
+                for (int k = 0; k < 3; k++) {
+                    float e1 = positions[b * 3 + k] - positions[a * 3 + k];
+                    float e2 = positions[c * 3 + k] - positions[a * 3 + k];
+                    faceTangents[f * 3 + k] = sign * (t2 * e1 - t1 * e2);
+                }
+            }
+        });
+
+        int[] offsets = new int[vertexCount + 1];
+        int[] corners = VertexNormals.gatherCorners(indices, offsets);
+
+        //first pass: up to two tangents per vertex, the first for unmirrored faces and the second for mirrored
+        float[] vertexTangents = new float[vertexCount * 8];
+        int[] splitCounts = new int[vertexCount];
+        forEachRange(vertexCount, VertexNormals.PARALLEL_THRESHOLD, (from, to) -> {
+            float[] sums = new float[6];
+            float[] scratch = new float[9];
+            for (int v = from; v < to; v++) {
+                Arrays.fill(sums, 0);
+                boolean unmirroredFaces = false;
+                boolean mirroredFaces = false;
+                float nx = normals[v * 3], ny = normals[v * 3 + 1], nz = normals[v * 3 + 2];
+                for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                    int corner = corners[slot];
+                    int f = corner / 3;
+                    int side = mirrored[f] ? 1 : 0;
+                    if (mirrored[f]) mirroredFaces = true;
+                    else unmirroredFaces = true;
+
+                    if (!projectUnit(faceTangents, f * 3, nx, ny, nz, scratch, 0)) continue;
+                    int k = corner % 3;
+                    int next = indices[f * 3 + (k + 1) % 3];
+                    int previous = indices[f * 3 + (k + 2) % 3];
+                    float angle = projectedAngle(positions, v, next, previous, nx, ny, nz, scratch);
+                    sums[side * 3] += scratch[0] * angle;
+                    sums[side * 3 + 1] += scratch[1] * angle;
+                    sums[side * 3 + 2] += scratch[2] * angle;
+                }
+                storeTangent(vertexTangents, v * 2, sums, 0, 1, nx, ny, nz);
+                storeTangent(vertexTangents, v * 2 + 1, sums, 3, -1, nx, ny, nz);
+                //a vertex used only by mirrored faces keeps just its mirrored tangent
+                if (!unmirroredFaces && mirroredFaces) {
+                    System.arraycopy(vertexTangents, v * 8 + 4, vertexTangents, v * 8, 4);
+                }
+                splitCounts[v] = unmirroredFaces && mirroredFaces ? 2 : 1;
+            }
+        });
+
+        int[] firstOutput = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            firstOutput[v + 1] = firstOutput[v] + splitCounts[v];
+        }
+
+        //second pass: every corner and every output vertex is written by exactly one vertex
+        int outputCount = firstOutput[vertexCount];
+        int[] outputIndices = new int[indices.length];
+        float[] tangents = new float[outputCount * 4];
+        int[] sources = new int[outputCount];
+        forEachRange(vertexCount, VertexNormals.PARALLEL_THRESHOLD, (from, to) -> {
+            for (int v = from; v < to; v++) {
+                int first = firstOutput[v];
+                for (int output = first; output < firstOutput[v + 1]; output++) {
+                    sources[output] = v;
+                    System.arraycopy(vertexTangents, v * 8 + (output - first) * 4, tangents, output * 4, 4);
+                }
+                boolean split = splitCounts[v] == 2;
+                for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                    int corner = corners[slot];
+                    outputIndices[corner] = split && mirrored[corner / 3] ? first + 1 : first;
+                }
+            }
+        });
+        return new VertexTangents(outputIndices, tangents, sources, vertexCount);
+    }
+
+    /**
+     * Project a vector into the plane of a normal and normalise it.
+     *
+     * @return false, leaving the destination unset, if the vector has no length in the plane
+     */
+    private static boolean projectUnit(float[] source, int from, float nx, float ny, float nz, float[] dest, int to) {
+        float x = source[from], y = source[from + 1], z = source[from + 2];
+        float dot = x * nx + y * ny + z * nz;
+        x -= dot * nx;
+        y -= dot * ny;
+        z -= dot * nz;
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0) return false;
+        dest[to] = x / length;
+        dest[to + 1] = y / length;
+        dest[to + 2] = z / length;
+        return true;
+    }
+
+    /**
+     * @return the angle at vertex v between the edges to its neighbours in a face, measured in the plane of the normal
+     */
+    private static float projectedAngle(float[] positions, int v, int next, int previous,
+                                        float nx, float ny, float nz, float[] scratch) {
+        for (int k = 0; k < 3; k++) {
+            scratch[3 + k] = positions[next * 3 + k] - positions[v * 3 + k];
+            scratch[6 + k] = positions[previous * 3 + k] - positions[v * 3 + k];
+        }
+        if (!projectUnit(scratch, 3, nx, ny, nz, scratch, 3) || !projectUnit(scratch, 6, nx, ny, nz, scratch, 6)) {
+            return 0;
+        }
+        float cosine = scratch[3] * scratch[6] + scratch[4] * scratch[7] + scratch[5] * scratch[8];
+        return (float) Math.acos(Math.max(-1, Math.min(1, cosine)));
+    }
+
+    /**
+     * Normalise a sum of tangents into the four components of a tangent, falling back to an arbitrary direction
+     * perpendicular to the normal if the sum has no length.
+     */
+    private static void storeTangent(float[] dest, int tangent, float[] sums, int sum, float handedness,
+                                     float nx, float ny, float nz) {
+        float x = sums[sum], y = sums[sum + 1], z = sums[sum + 2];
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0) {
+            //cross the normal with whichever axis it is furthest from
+            if (Math.abs(nx) <= Math.abs(ny) && Math.abs(nx) <= Math.abs(nz)) {
+                x = 0;
+                y = nz;
+                z = -ny;
+            } else if (Math.abs(ny) <= Math.abs(nz)) {
+                x = -nz;
+                y = 0;
+                z = nx;
+            } else {
+                x = ny;
+                y = -nx;
+                z = 0;
+            }
+            length = (float) Math.sqrt(x * x + y * y + z * z);
+            if (length == 0) {
+                x = 1;
+                length = 1;
+            }
+        }
+        dest[tangent * 4] = x / length;
+        dest[tangent * 4 + 1] = y / length;
+        dest[tangent * 4 + 2] = z / length;
+        dest[tangent * 4 + 3] = handedness;
+    }
+
+    /**
+     * Copy a per-vertex attribute of the original mesh to the output vertices.
+     *
+     * @param values     the packed values of the original vertices
+     * @param components the number of values per vertex
+     * @return the packed values of the output vertices, in a new array
+     */
+    public float[] remapAttribute(float[] values, int components) {
+        return VertexNormals.remapAttribute(values, components, vertexSources, originalVertexCount);
+    }
+
+    /**
+     * @return three vertex indices per face into the output vertices, owned by this object
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * @return four floats per output vertex: a unit tangent and the sign of the bitangent, owned by this object
+     */
+    public float[] getTangents() {
+        return tangents;
+    }
+
+    /**
+     * @return the original vertex of every output vertex, owned by this object
+     */
+    public int[] getVertexSources() {
+        return vertexSources;
+    }
+
+    public int getVertexCount() {
+        return vertexSources.length;
+    }
+}
@@ -19,20 +19,48 @@
 
 package com.edenrump.math.shape.solids;
 
-import com.edenrump.math.arrays.ColumnVector;
+import com.edenrump.math.arrays.ScratchStack;
+import com.edenrump.math.arrays.Vec3;
+import com.edenrump.math.geom.Transform;
 import com.edenrump.math.shape.mesh.GeometricConstruct;
 import com.edenrump.math.shape.mesh.ShadingType;
-import com.edenrump.math.shape.mesh.Vertex;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import static com.edenrump.math.shape.mesh.GeometricConstruct.CARTESIAN;
-
+import com.edenrump.math.shape.mesh.Subdivision;
+
+/**
+ * A regular icosahedron, optionally with each face subdivided a number of times.
+ * <p>
+ * Geometry is generated at unit radius and shared through {@link SolidCache}, so any number of icosahedra with the
+ * same shading and subdivision level cost one generation and one upload, whatever their radii. Draw the shared
+ * {@link #getGeometry()}, converted with {@link com.edenrump.graphic.mesh.ConstructConverter#convertGeometryToMesh},
+ * and scale the entity's transform by the radius with {@link #applyScale(Transform)}. Normals are of unit length.
+ *
+ * @author Ed Eden-Rump
+ */
 public class Icosahedron {
 
+    private static final float T = (float) ((1.0 + Math.sqrt(5.0)) / 2.0);
+
+    private static final float[] UNIT_POSITIONS = {
+            -1, T, 0, 1, T, 0, -1, -T, 0, 1, -T, 0,
+            0, -1, T, 0, 1, T, 0, -1, -T, 0, 1, -T,
+            T, 0, -1, T, 0, 1, -T, 0, -1, -T, 0, 1
+    };
+
+    //faces as listed, wound v2, v1, v3 outwards
+    private static final int[] FACES = {
+            // 5 faces around point 0
+            11, 0, 5, 5, 0, 1, 1, 0, 7, 7, 0, 10, 10, 0, 11,
+            // 5 adjacent faces
+            5, 1, 9, 11, 5, 4, 10, 11, 2, 7, 10, 6, 1, 7, 8,
+            // 5 faces around point 3
+            9, 3, 4, 4, 3, 2, 2, 3, 6, 6, 3, 8, 8, 3, 9,
+            // 5 adjacent faces
+            9, 4, 5, 4, 2, 11, 2, 6, 10, 6, 8, 7, 8, 9, 1
+    };
+
     private ShadingType shadingType;
     private float radius;
+    private int subdivisions;
     private GeometricConstruct construct;
 
     public Icosahedron() {
@@ -44,11 +72,18 @@ public class Icosahedron {
     }
 
     public Icosahedron(float radius, ShadingType type) {
+        this(radius, type, 0);
+    }
+
+    public Icosahedron(float radius, ShadingType type, int subdivisions) {
         if (radius <= 0)
             throw new IllegalArgumentException("Cannot create a shape with negative or zero size");
+        if (subdivisions < 0)
+            throw new IllegalArgumentException("Cannot subdivide a shape a negative number of times");
 
         this.radius = radius;
         this.shadingType = type;
+        this.subdivisions = subdivisions;
     }
 
     public float getRadius() {
@@ -57,11 +92,17 @@ public class Icosahedron {
 
     public void setRadius(float radius) {
         if (this.radius == radius) return;
+        if (radius <= 0)
+            throw new IllegalArgumentException("Cannot create a shape with negative or zero size");
 
         construct = null;
         this.radius = radius;
     }
 
+    public ShadingType getShadingType() {
+        return shadingType;
+    }
+
     public void setShadingType(ShadingType shadingType) {
         if (this.shadingType == shadingType) return;
 
@@ -69,131 +110,117 @@ public class Icosahedron {
         this.shadingType = shadingType;
     }
 
-    public GeometricConstruct getMesh() {
-        if (construct != null) return construct;
-
-        if (shadingType == ShadingType.FLAT) {
-            construct = createFlatShadedMesh();
-        } else {
-            construct = createSmoothShadedMesh();
-        }
-
-        return construct;
+    public int getSubdivisions() {
+        return subdivisions;
     }
 
-    private GeometricConstruct createSmoothShadedMesh() {
-        GeometricConstruct geometricConstruct = new GeometricConstruct(CARTESIAN);
-        geometricConstruct.setVertexPositions(getVertexCoordinatesCartesian());
-        geometricConstruct.setVertexNormals(getVertexCoordinatesCartesian());
-
-        for (int i = 0; i < 12; i++) {
-            geometricConstruct.addVertex(new Vertex(i, i));
-        }
-
-        for (Triangle face : getFaces()) {
-            geometricConstruct.addFace(face.v2, face.v1, face.v3);
-        }
+    public void setSubdivisions(int subdivisions) {
+        if (this.subdivisions == subdivisions) return;
+        if (subdivisions < 0)
+            throw new IllegalArgumentException("Cannot subdivide a shape a negative number of times");
 
-        return geometricConstruct;
+        this.construct = null;
+        this.subdivisions = subdivisions;
     }
 
-    private GeometricConstruct createFlatShadedMesh() {
-        GeometricConstruct geometricConstruct = new GeometricConstruct(CARTESIAN);
-        geometricConstruct.setVertexPositions(getVertexCoordinatesCartesian());
-        geometricConstruct.setVertexNormals(getFaceNormals());
-        List<Triangle> faces = getFaces();
-        for (Triangle face : faces) {
-            int faceIndex = faces.indexOf(face);
-            int v0 = geometricConstruct.addVertex(new Vertex(face.v1, faceIndex));
-            int v1 = geometricConstruct.addVertex(new Vertex(face.v2, faceIndex));
-            int v2 = geometricConstruct.addVertex(new Vertex(face.v3, faceIndex));
-            geometricConstruct.addFace(v1, v0, v2);
-        }
-        return geometricConstruct;
+    /**
+     * @return the shared unit-radius geometry of this icosahedron, generated on first use by any instance
+     */
+    public SolidGeometry getGeometry() {
+        ShadingType shading = shadingType;
+        int level = subdivisions;
+        return SolidCache.get(Icosahedron.class, shading, level, () -> createUnitGeometry(shading, level));
     }
 
-    private List<ColumnVector> getVertexCoordinatesCartesian() {
-        List<ColumnVector> vertexPositions = new ArrayList<>();
-
-        float t = (float) ((1.0 + Math.sqrt(5.0)) / 2.0) * radius;
-
-        vertexPositions.add(new ColumnVector(-radius, t, 0));
-        vertexPositions.add(new ColumnVector(radius, t, 0));
-        vertexPositions.add(new ColumnVector(-radius, -t, 0));
-        vertexPositions.add(new ColumnVector(radius, -t, 0));
-
-        vertexPositions.add(new ColumnVector(0, -radius, t));
-        vertexPositions.add(new ColumnVector(0, radius, t));
-        vertexPositions.add(new ColumnVector(0, -radius, -t));
-        vertexPositions.add(new ColumnVector(0, radius, -t));
-
-        vertexPositions.add(new ColumnVector(t, 0, -radius));
-        vertexPositions.add(new ColumnVector(t, 0, radius));
-        vertexPositions.add(new ColumnVector(-t, 0, -radius));
-        vertexPositions.add(new ColumnVector(-t, 0, radius));
-
-        return vertexPositions;
+    /**
+     * Scale a transform by the radius of this icosahedron, for an entity drawing the unit geometry of
+     * {@link #getGeometry()}.
+     *
+     * @param transform the transform to scale, in addition to any scale it already has
+     */
+    public void applyScale(Transform transform) {
+        transform.scale(radius, radius, radius);
     }
 
-    private List<ColumnVector> getFaceNormals() {
-        ColumnVector[] vn = getVertexCoordinatesCartesian().toArray(new ColumnVector[0]);
-        List<ColumnVector> faceNormals = new ArrayList<>();
-
-        for (Triangle face : getFaces()) {
-            faceNormals.add(calculateNormal(vn[face.v1], vn[face.v2], vn[face.v3]));
-        }
-
-        return faceNormals;
+    /**
+     * Build a construct of this icosahedron at its radius. This is the per-instance, mutable path: each instance
+     * builds and owns a complete object graph of vertices and faces, which may be edited freely. To draw many
+     * icosahedra, share {@link #getGeometry()} instead.
+     *
+     * @return a construct of this icosahedron, owned by this instance
+     */
+    public GeometricConstruct getMesh() {
+        if (construct == null) construct = getGeometry().scale(radius).toConstruct();
+        return construct;
     }
 
-    private List<Triangle> getFaces() {
-        List<Triangle> faces = new ArrayList<>();
-
-        // 5 faces around point 0
-        faces.add(new Triangle(11, 0, 5));
-        faces.add(new Triangle(5, 0, 1));
-        faces.add(new Triangle(1, 0, 7));
-        faces.add(new Triangle(7, 0, 10));
-        faces.add(new Triangle(10, 0, 11));
-
-        // 5 adjacent faces
-        faces.add(new Triangle(5, 1, 9));
-        faces.add(new Triangle(11, 5, 4));
-        faces.add(new Triangle(10, 11, 2));
-        faces.add(new Triangle(7, 10, 6));
-        faces.add(new Triangle(1, 7, 8));
+    private static SolidGeometry createUnitGeometry(ShadingType shadingType, int subdivisions) {
+        float[] positions;
+        float[] normals;
+        int[] indices = new int[FACES.length];
 
-        // 5 faces around point 3
-        faces.add(new Triangle(9, 3, 4));
-        faces.add(new Triangle(4, 3, 2));
-        faces.add(new Triangle(2, 3, 6));
-        faces.add(new Triangle(6, 3, 8));
-        faces.add(new Triangle(8, 3, 9));
+        if (shadingType == ShadingType.FLAT) {
+            //three vertices per face, each carrying the face normal
+            positions = new float[FACES.length * 3];
+            normals = new float[FACES.length * 3];
+            for (int f = 0; f < FACES.length; f += 3) {
+                float[] normal = calculateNormal(FACES[f], FACES[f + 1], FACES[f + 2]);
+                for (int corner = 0; corner < 3; corner++) {
+                    System.arraycopy(UNIT_POSITIONS, FACES[f + corner] * 3, positions, (f + corner) * 3, 3);
+                    System.arraycopy(normal, 0, normals, (f + corner) * 3, 3);
+                }
+                indices[f] = f + 1;
+                indices[f + 1] = f;
+                indices[f + 2] = f + 2;
+            }
+        } else {
+            positions = UNIT_POSITIONS.clone();
+            normals = new float[UNIT_POSITIONS.length];
+            float length = (float) Math.sqrt(1 + T * T);
+            for (int i = 0; i < normals.length; i++) {
+                normals[i] = UNIT_POSITIONS[i] / length;
+            }
+            for (int f = 0; f < FACES.length; f += 3) {
+                indices[f] = FACES[f + 1];
+                indices[f + 1] = FACES[f];
+                indices[f + 2] = FACES[f + 2];
+            }
+        }
 
-        // 5 adjacent faces
-        faces.add(new Triangle(9, 4, 5));
-        faces.add(new Triangle(4, 2, 11));
-        faces.add(new Triangle(2, 6, 10));
-        faces.add(new Triangle(6, 8, 7));
-        faces.add(new Triangle(8, 9, 1));
+        for (int level = 0; level < subdivisions; level++) {
+            Subdivision subdivision = Subdivision.subdivide(indices, positions.length / 3);
+            positions = subdivision.subdivideAttribute(positions, 3);
+            normals = subdivision.subdivideAttribute(normals, 3);
+            indices = subdivision.getIndices();
+        }
+        if (subdivisions > 0) normalize(normals);
 
-        return faces;
+        return new SolidGeometry(positions, normals, indices);
     }
 
-    private ColumnVector calculateNormal(ColumnVector v1, ColumnVector v2, ColumnVector v3) {
-        return (v1.subtract(v2)).cross(v3.subtract(v2));
+    private static float[] calculateNormal(int v1, int v2, int v3) {
+        try (ScratchStack stack = ScratchStack.push()) {
+            Vec3 origin = vertex(stack, v2);
+            Vec3 edgeA = vertex(stack, v1).subtractInto(origin, stack.vec3());
+            Vec3 edgeB = vertex(stack, v3).subtractInto(origin, stack.vec3());
+            Vec3 normal = edgeA.crossInto(edgeB, edgeA).normalizeInto(edgeA);
+            return new float[]{normal.getX(), normal.getY(), normal.getZ()};
+        }
     }
 
-    private static class Triangle {
-        final int v1;
-        final int v2;
-        final int v3;
-
-        Triangle(int v1, int v2, int v3) {
-            this.v1 = v1;
-            this.v2 = v2;
-            this.v3 = v3;
+    //midpoint normals are averages, which fall short of unit length wherever the averaged normals differ
+    private static void normalize(float[] normals) {
+        for (int i = 0; i < normals.length; i += 3) {
+            float x = normals[i], y = normals[i + 1], z = normals[i + 2];
+            float inverseLength = (float) (1.0 / Math.sqrt(x * x + y * y + z * z));
+            normals[i] = x * inverseLength;
+            normals[i + 1] = y * inverseLength;
+            normals[i + 2] = z * inverseLength;
         }
     }
 
+    private static Vec3 vertex(ScratchStack stack, int index) {
+        return stack.vec3(UNIT_POSITIONS[index * 3], UNIT_POSITIONS[index * 3 + 1], UNIT_POSITIONS[index * 3 + 2]);
+    }
+
 }
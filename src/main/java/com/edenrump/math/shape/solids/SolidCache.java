@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.solids;
+
+import com.edenrump.math.shape.mesh.ShadingType;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * A process-wide cache of generated solid geometry, so that identical solids are generated once and share one
+ * {@link SolidGeometry}, which can in turn be uploaded once.
+ * <p>
+ * Geometry is generated and held only at unit radius, keyed by solid type, shading and subdivision level; solids of
+ * any radius share it and apply their radius as a scale when drawn. The cache holds at most
+ * {@link #getMaximumSize()} entries and evicts the least recently used beyond that. All methods are thread-safe.
+ * Generation takes place outside the cache lock, so solids of different keys are generated concurrently, while
+ * concurrent requests for the same solid wait for a single generation.
+ *
+ * @author Ed Eden-Rump
+ */
+public class SolidCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+    private static int maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private static long hits;
+    private static long misses;
+
+    private static final Map<Key, FutureTask<SolidGeometry>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, FutureTask<SolidGeometry>> eldest) {
+            return size() > maximumSize;
+        }
+    };
+
+    private SolidCache() {
+    }
+
+    /**
+     * Get the unit-radius geometry of a solid, generating it if it is not cached.
+     *
+     * @param solidType     the class of the solid, distinguishing solids with otherwise equal parameters
+     * @param shading       the shading of the solid
+     * @param subdivisions  the number of times each face has been subdivided
+     * @param unitGenerator creates the geometry of the solid at unit radius
+     * @return the shared geometry
+     */
+    public static SolidGeometry get(Class<?> solidType, ShadingType shading, int subdivisions,
+                                    Supplier<SolidGeometry> unitGenerator) {
+        Key key = new Key(solidType, shading, subdivisions);
+        FutureTask<SolidGeometry> task;
+        boolean generate = false;
+        synchronized (SolidCache.class) {
+            task = cache.get(key);
+            if (task != null) {
+                hits++;
+            } else {
+                misses++;
+                task = new FutureTask<>(() -> unitGenerator.get());
+                cache.put(key, task);
+                generate = true;
+            }
+        }
+
+        if (generate) task.run();
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            //a failed generation is not cached, so the next request tries again
+            synchronized (SolidCache.class) {
+                cache.remove(key, task);
+            }
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException("Could not generate solid geometry", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for solid geometry", e);
+        }
+    }
+
+    public static synchronized int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @param maximumSize the number of entries to hold, evicting the least recently used immediately if the cache
+     *                    is now over size
+     */
+    public static synchronized void setMaximumSize(int maximumSize) {
+        if (maximumSize < 1)
+            throw new IllegalArgumentException("Solid cache must hold at least one entry");
+
+        SolidCache.maximumSize = maximumSize;
+        Iterator<Map.Entry<Key, FutureTask<SolidGeometry>>> iterator = cache.entrySet().iterator();
+        while (cache.size() > maximumSize) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public static synchronized int size() {
+        return cache.size();
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Remove every entry and reset the hit and miss counts.
+     */
+    public static synchronized void clear() {
+        cache.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    private static class Key {
+        private final Class<?> solidType;
+        private final ShadingType shading;
+        private final int subdivisions;
+
+        Key(Class<?> solidType, ShadingType shading, int subdivisions) {
+            this.solidType = solidType;
+            this.shading = shading;
+            this.subdivisions = subdivisions;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                return solidType == other.solidType && shading == other.shading &&
+                        subdivisions == other.subdivisions;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(solidType, shading, subdivisions);
+        }
+    }
+}
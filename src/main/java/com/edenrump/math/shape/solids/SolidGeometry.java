@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.solids;
+
+import com.edenrump.math.shape.mesh.GeometricConstruct;
+import com.edenrump.math.shape.mesh.Vertex;
+
+/**
+ * The immutable, packed geometry of a generated solid: one position and normal per vertex and three vertex indices
+ * per face, laid out as in {@link com.edenrump.graphic.mesh.CPUMesh}.
+ * <p>
+ * Instances are shared through {@link SolidCache}, so the arrays are never exposed directly: each getter returns a
+ * copy which the caller is free to modify or hand to a mesh.
+ *
+ * @author Ed Eden-Rump
+ */
+public class SolidGeometry {
+
+    private final float[] positions;
+    private final float[] normals;
+    private final int[] indices;
+
+    //takes ownership of the arrays without copying them
+    SolidGeometry(float[] positions, float[] normals, int[] indices) {
+        if (positions.length != normals.length || positions.length % 3 != 0 || indices.length % 3 != 0)
+            throw new IllegalArgumentException("Solid geometry requires one 3D normal per 3D position and " +
+                    "three indices per face");
+
+        this.positions = positions;
+        this.normals = normals;
+        this.indices = indices;
+    }
+
+    public float[] getPositions() {
+        return positions.clone();
+    }
+
+    public float[] getNormals() {
+        return normals.clone();
+    }
+
+    public int[] getIndices() {
+        return indices.clone();
+    }
+
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    public int getFaceCount() {
+        return indices.length / 3;
+    }
+
+    /**
+     * @param scale the factor by which to multiply every position
+     * @return new geometry with scaled positions, sharing the normals and indices of this geometry
+     */
+    public SolidGeometry scale(float scale) {
+        float[] scaled = new float[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            scaled[i] = positions[i] * scale;
+        }
+        return new SolidGeometry(scaled, normals, indices);
+    }
+
+    /**
+     * @return a new cartesian construct holding this geometry, which the caller may modify freely
+     */
+    public GeometricConstruct toConstruct() {
+        GeometricConstruct construct = new GeometricConstruct(GeometricConstruct.CARTESIAN);
+        int[] vertices = new int[getVertexCount()];
+        for (int v = 0; v < vertices.length; v++) {
+            int position = construct.addVertexPosition(positions[v * 3], positions[v * 3 + 1], positions[v * 3 + 2]);
+            int normal = construct.addVertexNormal(normals[v * 3], normals[v * 3 + 1], normals[v * 3 + 2]);
+            vertices[v] = construct.addVertex(new Vertex(position, normal));
+        }
+
+        for (int i = 0; i < indices.length; i += 3) {
+            construct.addFace(vertices[indices[i]], vertices[indices[i + 1]], vertices[indices[i + 2]]);
+        }
+        return construct;
+    }
+}
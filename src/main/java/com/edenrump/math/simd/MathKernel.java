@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.simd;
+
+/**
+ * This interface represents the inner loops used by the math package that benefit from data-parallel execution.
+ * <p>
+ * Matrices are passed as column-major arrays and vectors as packed x, y, z triples. Implementations must not
+ * allocate per element and must produce the same results as {@link ScalarMathKernel}, except where noted.
+ *
+ * @see MathKernels#get()
+ */
+public interface MathKernel {
+
+    /**
+     * Multiply two 4x4 matrices with the ordering used by
+     * {@link com.edenrump.math.arrays.SquareMatrix#multiply(com.edenrump.math.arrays.SquareMatrix)}.
+     *
+     * @param a    the values of the left matrix
+     * @param b    the values of the right matrix
+     * @param dest the array to receive the 16 values of the product. Must not be a or b.
+     */
+    void multiply4x4(float[] a, float[] b, float[] dest);
+
+    /**
+     * Transform packed positions (implicit w of 1) by the affine part of a 4x4 matrix.
+     *
+     * @param matrix the 16 column-major values of the matrix
+     * @param source the packed positions to transform
+     * @param dest   the array to receive the transformed positions. May be the same as source.
+     * @param from   the index of the first position to transform
+     * @param to     the index after the last position to transform
+     */
+    void transformPositions(float[] matrix, float[] source, float[] dest, int from, int to);
+
+    /**
+     * Calculate the dot product of each pair of packed three dimensional vectors.
+     *
+     * @param a    the first packed vectors
+     * @param b    the second packed vectors
+     * @param dest the array to receive one dot product per vector
+     * @param from the index of the first vector
+     * @param to   the index after the last vector
+     */
+    void dot(float[] a, float[] b, float[] dest, int from, int to);
+
+    /**
+     * Calculate the dot product of two flat arrays.
+     * <p>
+     * Data-parallel implementations may sum in a different order from the scalar kernel, so results can differ in
+     * the last bits.
+     *
+     * @param a      the first array
+     * @param b      the second array
+     * @param length the number of values to include
+     * @return the sum of a[i] * b[i]
+     */
+    float dot(float[] a, float[] b, int length);
+
+    /**
+     * @return a short description of this kernel, for logging
+     */
+    String getName();
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.simd;
+
+/**
+ * This class selects the {@link MathKernel} used by the math package.
+ * <p>
+ * When the application runs on a JDK with the <code>jdk.incubator.vector</code> module resolved (for example with
+ * <code>--add-modules jdk.incubator.vector</code>) and the engine was built with the <code>vector-api</code> profile,
+ * a Vector API kernel is used. Otherwise, or if the system property {@value #SIMD_PROPERTY} is set to false, the
+ * scalar kernel is used.
+ */
+public class MathKernels {
+
+    /**
+     * System property which, when set to false, forces the scalar kernel
+     */
+    public static final String SIMD_PROPERTY = "nested.math.simd";
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL_CLASS = "com.edenrump.math.simd.VectorApiMathKernel";
+
+    private static final MathKernel SCALAR = new ScalarMathKernel();
+    private static final MathKernel SELECTED = select();
+
+    /**
+     * @return the fastest kernel available in this runtime
+     */
+    public static MathKernel get() {
+        return SELECTED;
+    }
+
+    /**
+     * @return the plain Java kernel, regardless of what is available
+     */
+    public static MathKernel getScalar() {
+        return SCALAR;
+    }
+
+    private static MathKernel select() {
+        if (!Boolean.parseBoolean(System.getProperty(SIMD_PROPERTY, "true"))) return SCALAR;
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) return SCALAR;
+
+        try {
+            return (MathKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR; //built without the vector-api profile, or the incubator API has changed
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.simd;
+
+/**
+ * Plain Java implementation of {@link MathKernel}, used when no data-parallel implementation is available.
+ */
+public class ScalarMathKernel implements MathKernel {
+
+    @Override
+    public void multiply4x4(float[] a, float[] b, float[] dest) {
+        for (int row = 0; row < 4; row++) {
+            float a0 = a[row * 4], a1 = a[row * 4 + 1], a2 = a[row * 4 + 2], a3 = a[row * 4 + 3];
+            dest[row * 4] = a0 * b[0] + a1 * b[4] + a2 * b[8] + a3 * b[12];
+            dest[row * 4 + 1] = a0 * b[1] + a1 * b[5] + a2 * b[9] + a3 * b[13];
+            dest[row * 4 + 2] = a0 * b[2] + a1 * b[6] + a2 * b[10] + a3 * b[14];
+            dest[row * 4 + 3] = a0 * b[3] + a1 * b[7] + a2 * b[11] + a3 * b[15];
+        }
+    }
+
+    @Override
+    public void transformPositions(float[] matrix, float[] source, float[] dest, int from, int to) {
+        float m00 = matrix[0], m01 = matrix[1], m02 = matrix[2];
+        float m10 = matrix[4], m11 = matrix[5], m12 = matrix[6];
+        float m20 = matrix[8], m21 = matrix[9], m22 = matrix[10];
+        float m30 = matrix[12], m31 = matrix[13], m32 = matrix[14];
+
+        for (int i = from * 3, end = to * 3; i < end; i += 3) {
+            float x = source[i];
+            float y = source[i + 1];
+            float z = source[i + 2];
+            dest[i] = m00 * x + m10 * y + m20 * z + m30;
+            dest[i + 1] = m01 * x + m11 * y + m21 * z + m31;
+            dest[i + 2] = m02 * x + m12 * y + m22 * z + m32;
+        }
+    }
+
+    @Override
+    public void dot(float[] a, float[] b, float[] dest, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int j = i * 3;
+            dest[i] = a[j] * b[j] + a[j + 1] * b[j + 1] + a[j + 2] * b[j + 2];
+        }
+    }
+
+    @Override
+    public float dot(float[] a, float[] b, int length) {
+        float dotProduct = 0;
+        for (int i = 0; i < length; i++) {
+            dotProduct += a[i] * b[i];
+        }
+        return dotProduct;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
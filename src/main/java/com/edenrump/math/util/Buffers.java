@@ -21,8 +21,12 @@ package com.edenrump.math.util;
 
 import org.lwjgl.BufferUtils;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
 
 /**
  * This class provides access to common data transfer and storage methods
@@ -54,4 +58,88 @@ public class Buffers {
         buffer.flip();
         return buffer;
     }
+
+    /**
+     * Return a ShortBuffer of the same length and contents as data
+     * @param data the data to be stored
+     * @return a ShortBuffer
+     */
+    public static ShortBuffer storeDataInBuffer(short[] data) {
+        ShortBuffer buffer = BufferUtils.createShortBuffer(data.length);
+        buffer.put(data);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Return the narrowest OpenGL index type able to address every vertex of a mesh
+     * @param vertexCount the number of vertices the indices refer to
+     * @return GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     */
+    public static int getIndexType(int vertexCount) {
+        if (vertexCount <= 0xFF + 1) return GL_UNSIGNED_BYTE;
+        if (vertexCount <= 0xFFFF + 1) return GL_UNSIGNED_SHORT;
+        return GL_UNSIGNED_INT;
+    }
+
+    /**
+     * Return the narrowest OpenGL index type able to hold every index
+     * @param indices the indices
+     * @return GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     */
+    public static int getIndexType(int[] indices) {
+        int max = 0;
+        for (int index : indices) {
+            if (index < 0) throw new IllegalArgumentException("Indices must not be negative: " + index);
+            max = Math.max(max, index);
+        }
+        return getIndexType(max + 1);
+    }
+
+    /**
+     * Return the number of bytes taken by one index of a type
+     * @param indexType GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     * @return the size of one index in bytes
+     */
+    public static int getIndexSize(int indexType) {
+        switch (indexType) {
+            case GL_UNSIGNED_BYTE:
+                return Byte.BYTES;
+            case GL_UNSIGNED_SHORT:
+                return Short.BYTES;
+            case GL_UNSIGNED_INT:
+                return Integer.BYTES;
+            default:
+                throw new IllegalArgumentException("Not an index type: " + indexType);
+        }
+    }
+
+    /**
+     * Return a ByteBuffer holding indices narrowed to an index type, ready to upload as an element array
+     * @param indices   the indices to be stored
+     * @param indexType GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     * @return a ByteBuffer in native order
+     */
+    public static ByteBuffer storeIndicesInBuffer(int[] indices, int indexType) {
+        int size = getIndexSize(indexType);
+        long limit = 1L << (size * Byte.SIZE);
+        ByteBuffer buffer = BufferUtils.createByteBuffer(indices.length * size);
+        for (int index : indices) {
+            if (index < 0 || index >= limit) {
+                throw new IllegalArgumentException("Index " + index + " does not fit in " + size + " bytes");
+            }
+            switch (size) {
+                case Byte.BYTES:
+                    buffer.put((byte) index);
+                    break;
+                case Short.BYTES:
+                    buffer.putShort((short) index);
+                    break;
+                default:
+                    buffer.putInt(index);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
 }
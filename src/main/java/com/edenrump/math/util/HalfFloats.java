@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+/**
+ * This class converts between 32-bit floats and IEEE 754 half-precision (float16) values stored in shorts.
+ * <p>
+ * Conversion to half precision rounds to the nearest representable value, with ties to even, in the same way as a
+ * GPU does. Values too large for half precision become infinity, values too small become zero, and subnormal half
+ * values are preserved in both directions. A half has an 11-bit significand, so its relative precision is 1 part in
+ * 2048 and its largest finite value is 65504.
+ *
+ * @author Ed Eden-Rump
+ */
+public class HalfFloats {
+
+    /**
+     * The largest finite half-precision value
+     */
+    public static final float MAX_VALUE = 65504f;
+
+    /**
+     * Convert a float to the nearest half-precision value.
+     *
+     * @param value the value to convert
+     * @return the bits of the half-precision value
+     */
+    public static short toHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int magnitude = bits & 0x7fffffff;
+
+        if (magnitude >= 0x7f800000) { //infinity or NaN, keeping NaNs quiet and their upper payload bits
+            if (magnitude == 0x7f800000) return (short) (sign | 0x7c00);
+            return (short) (sign | 0x7e00 | ((magnitude >>> 13) & 0x3ff));
+        }
+        if (magnitude >= 0x477ff000) return (short) (sign | 0x7c00); //rounds above MAX_VALUE
+
+        if (magnitude >= 0x38800000) { //normal half: rebias the exponent from 127 to 15 and round off 13 bits
+            int rebiased = magnitude - 0x38000000;
+            rebiased += 0x0fff + ((rebiased >>> 13) & 1);
+            return (short) (sign | (rebiased >>> 13));
+        }
+        if (magnitude < 0x33000000) return (short) sign; //below half the smallest subnormal
+
+        //subnormal half: shift the full significand down to a multiple of 2^-24
+        int exponent = magnitude >>> 23;
+        int significand = (magnitude & 0x7fffff) | 0x800000;
+        int shift = 126 - exponent;
+        int half = significand >>> shift;
+        int remainder = significand & ((1 << shift) - 1);
+        int halfway = 1 << (shift - 1);
+        if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) half++;
+        return (short) (sign | half);
+    }
+
+    /**
+     * Convert a half-precision value to a float. Every half-precision value is exactly representable.
+     *
+     * @param half the bits of the half-precision value
+     * @return the value as a float
+     */
+    public static float toFloat(short half) {
+        int bits = half & 0xffff;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1f;
+        int significand = bits & 0x3ff;
+
+        if (exponent == 0x1f) return Float.intBitsToFloat(sign | 0x7f800000 | (significand << 13));
+        if (exponent == 0) {
+            float subnormal = significand * 0x1p-24f;
+            return sign == 0 ? subnormal : -subnormal;
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (significand << 13));
+    }
+
+    /**
+     * Convert every value in source to half precision.
+     *
+     * @param source the values to convert
+     * @param dest   the array to receive the half-precision values
+     */
+    public static void pack(float[] source, short[] dest) {
+        if (source == null || dest == null)
+            throw new IllegalArgumentException("Cannot convert values to or from a null array");
+        if (dest.length < source.length)
+            throw new IllegalArgumentException("Destination does not have sufficient space for this operation. Aborted.");
+
+        for (int i = 0; i < source.length; i++) {
+            dest[i] = toHalf(source[i]);
+        }
+    }
+
+    /**
+     * Convert every half-precision value in source to a float.
+     *
+     * @param source the half-precision values to convert
+     * @param dest   the array to receive the floats
+     */
+    public static void unpack(short[] source, float[] dest) {
+        if (source == null || dest == null)
+            throw new IllegalArgumentException("Cannot convert values to or from a null array");
+        if (dest.length < source.length)
+            throw new IllegalArgumentException("Destination does not have sufficient space for this operation. Aborted.");
+
+        for (int i = 0; i < source.length; i++) {
+            dest[i] = toFloat(source[i]);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+import java.util.Arrays;
+
+/**
+ * A stream of packed vectors stored at half precision, taking half the memory of the equivalent float array.
+ * <p>
+ * Values are laid out exactly as in a float array of packed vectors, for example consecutive x, y, z triples. For
+ * upload as a <code>GL_HALF_FLOAT</code> vertex attribute, {@link #getAlignedValues()} pads each vector to a 4-byte
+ * boundary, matching the layout of interleaved vertex formats. Suitable for attributes which tolerate an 11-bit
+ * significand, such as normals and texture coordinates; see {@link HalfFloats} for the precision.
+ *
+ * @author Ed Eden-Rump
+ */
+public class HalfVectorBuffer {
+
+    private final int components;
+    private final short[] values;
+
+    /**
+     * Create a buffer of zero vectors.
+     *
+     * @param components the number of values in each vector
+     * @param count      the number of vectors
+     */
+    public HalfVectorBuffer(int components, int count) {
+        if (components < 1 || count < 0)
+            throw new IllegalArgumentException("Cannot create a buffer of " + count + " vectors with " +
+                    components + " components");
+
+        this.components = components;
+        this.values = new short[components * count];
+    }
+
+    /**
+     * Create a buffer from packed float vectors, rounding each value to half precision.
+     *
+     * @param components the number of values in each vector
+     * @param values     the packed vectors
+     */
+    public HalfVectorBuffer(int components, float[] values) {
+        this(components, checkedCount(components, values));
+        HalfFloats.pack(values, this.values);
+    }
+
+    private static int checkedCount(int components, float[] values) {
+        if (values == null)
+            throw new IllegalArgumentException("Cannot create a buffer from a null array");
+        if (components < 1 || values.length % components != 0)
+            throw new IllegalArgumentException("Packed vector data must have a multiple of " + components +
+                    " values, but found " + values.length);
+        return values.length / components;
+    }
+
+    /**
+     * @return the number of values in each vector
+     */
+    public int getComponents() {
+        return components;
+    }
+
+    /**
+     * @return the number of vectors in the buffer
+     */
+    public int getCount() {
+        return values.length / components;
+    }
+
+    /**
+     * @param vector    the index of the vector
+     * @param component the index of the value within the vector
+     * @return the value as a float
+     */
+    public float get(int vector, int component) {
+        return HalfFloats.toFloat(values[vector * components + component]);
+    }
+
+    /**
+     * Round a value to half precision and store it.
+     *
+     * @param vector    the index of the vector
+     * @param component the index of the value within the vector
+     * @param value     the value to store
+     */
+    public void set(int vector, int component, float value) {
+        values[vector * components + component] = HalfFloats.toHalf(value);
+    }
+
+    /**
+     * @return the half-precision bits of every value, owned by this buffer
+     */
+    public short[] getValues() {
+        return values;
+    }
+
+    /**
+     * @return the number of values each vector occupies once padded to a 4-byte boundary
+     */
+    public int getAlignedComponents() {
+        return (components + 1) & ~1;
+    }
+
+    /**
+     * Return the values with each vector padded to a 4-byte boundary, so that every vector read from a vertex buffer
+     * starts aligned. Vectors with an odd number of components, such as x, y, z triples, gain one zero value.
+     *
+     * @return the padded half-precision bits, or the values owned by this buffer if no padding is needed
+     */
+    public short[] getAlignedValues() {
+        int aligned = getAlignedComponents();
+        if (aligned == components) return values;
+
+        int count = getCount();
+        short[] padded = new short[aligned * count];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(values, i * components, padded, i * aligned, components);
+        }
+        return padded;
+    }
+
+    /**
+     * @return the number of bytes from the start of one aligned vector to the start of the next
+     */
+    public int getAlignedStride() {
+        return getAlignedComponents() * Short.BYTES;
+    }
+
+    /**
+     * @return every value expanded to a float, in a new array
+     */
+    public float[] toFloatArray() {
+        float[] floats = new float[values.length];
+        HalfFloats.unpack(values, floats);
+        return floats;
+    }
+
+    /**
+     * @return the size of the values in bytes
+     */
+    public int getSizeInBytes() {
+        return values.length * Short.BYTES;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof HalfVectorBuffer) {
+            HalfVectorBuffer o = (HalfVectorBuffer) obj;
+            return components == o.components && Arrays.equals(values, o.values);
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * components + Arrays.hashCode(values);
+    }
+}
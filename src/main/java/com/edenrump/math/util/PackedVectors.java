@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+import com.edenrump.math.arrays.Mat3;
+import com.edenrump.math.arrays.Mat4;
+import com.edenrump.math.arrays.SquareMatrix;
+import com.edenrump.math.simd.MathKernels;
+
+import java.nio.FloatBuffer;
+
+import static com.edenrump.math.util.ParallelRanges.forEachRange;
+
+/**
+ * This class provides bulk operations over streams of packed three dimensional vectors.
+ * <p>
+ * Vectors are stored as consecutive x, y, z triples, the same layout used by
+ * {@link com.edenrump.graphic.mesh.CPUMesh#getVertexPositions()}. Every method runs in a single allocation-free loop
+ * and the source and destination may be the same array. The <code>*Parallel</code> variants split the stream across
+ * the common fork-join pool once it is longer than {@link #PARALLEL_THRESHOLD} vectors.
+ *
+ * @author Ed Eden-Rump
+ */
+public class PackedVectors {
+
+    /**
+     * Number of vectors below which the parallel variants run on the calling thread
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static final int COMPONENTS = 3;
+
+    /**
+     * Transform every packed position (implicit w of 1) by an affine 4x4 matrix.
+     *
+     * @param matrix the transformation matrix
+     * @param source the packed positions to transform
+     * @param dest   the array to receive the transformed positions. May be the same as source.
+     */
+    public static void transformPositions(Mat4 matrix, float[] source, float[] dest) {
+        float[] m = matrix.getValues();
+        int count = checkedCount(source, dest);
+        transformPositions(m, source, dest, 0, count);
+    }
+
+    /**
+     * Transform every packed position (implicit w of 1) by an affine 4x4 matrix.
+     *
+     * @param matrix the transformation matrix
+     * @param source the packed positions to transform
+     * @param dest   the array to receive the transformed positions. May be the same as source.
+     */
+    public static void transformPositions(SquareMatrix matrix, float[] source, float[] dest) {
+        transformPositions(checkedValues(matrix), source, dest, 0, checkedCount(source, dest));
+    }
+
+    /**
+     * Transform every packed position by an affine 4x4 matrix, splitting large inputs across the common fork-join
+     * pool.
+     *
+     * @param matrix the transformation matrix
+     * @param source the packed positions to transform
+     * @param dest   the array to receive the transformed positions. May be the same as source.
+     */
+    public static void transformPositionsParallel(Mat4 matrix, float[] source, float[] dest) {
+        float[] m = matrix.getValues();
+        forEachRange(checkedCount(source, dest), PARALLEL_THRESHOLD,
+                (from, to) -> transformPositions(m, source, dest, from, to));
+    }
+
+    /**
+     * Transform every packed position held in a buffer, between its position and limit, by an affine 4x4 matrix.
+     * <p>
+     * Buffer positions are left untouched.
+     *
+     * @param matrix the transformation matrix
+     * @param source the packed positions to transform
+     * @param dest   the buffer to receive the transformed positions. May be the same as source.
+     */
+    public static void transformPositions(Mat4 matrix, FloatBuffer source, FloatBuffer dest) {
+        float[] m = matrix.getValues();
+        float m00 = m[0], m01 = m[1], m02 = m[2];
+        float m10 = m[4], m11 = m[5], m12 = m[6];
+        float m20 = m[8], m21 = m[9], m22 = m[10];
+        float m30 = m[12], m31 = m[13], m32 = m[14];
+
+        int count = checkedCount(source, dest);
+        int in = source.position();
+        int out = dest.position();
+        for (int i = 0; i < count; i++, in += COMPONENTS, out += COMPONENTS) {
+            float x = source.get(in);
+            float y = source.get(in + 1);
+            float z = source.get(in + 2);
+            dest.put(out, m00 * x + m10 * y + m20 * z + m30);
+            dest.put(out + 1, m01 * x + m11 * y + m21 * z + m31);
+            dest.put(out + 2, m02 * x + m12 * y + m22 * z + m32);
+        }
+    }
+
+    /**
+     * Transform positions held as separate x, y and z streams by an affine 4x4 matrix.
+     *
+     * @param matrix the transformation matrix
+     * @param xs     x components, replaced by the transformed x components
+     * @param ys     y components, replaced by the transformed y components
+     * @param zs     z components, replaced by the transformed z components
+     */
+    public static void transformPositions(Mat4 matrix, float[] xs, float[] ys, float[] zs) {
+        if (xs.length != ys.length || ys.length != zs.length)
+            throw new IllegalArgumentException("Component streams must all be the same length");
+
+        float[] m = matrix.getValues();
+        float m00 = m[0], m01 = m[1], m02 = m[2];
+        float m10 = m[4], m11 = m[5], m12 = m[6];
+        float m20 = m[8], m21 = m[9], m22 = m[10];
+        float m30 = m[12], m31 = m[13], m32 = m[14];
+
+        for (int i = 0; i < xs.length; i++) {
+            float x = xs[i];
+            float y = ys[i];
+            float z = zs[i];
+            xs[i] = m00 * x + m10 * y + m20 * z + m30;
+            ys[i] = m01 * x + m11 * y + m21 * z + m31;
+            zs[i] = m02 * x + m12 * y + m22 * z + m32;
+        }
+    }
+
+    /**
+     * Transform every packed normal by a 3x3 normal matrix, optionally renormalising the result.
+     *
+     * @param normalMatrix the normal matrix, usually the inverse transpose of the model matrix
+     * @param source       the packed normals to transform
+     * @param dest         the array to receive the transformed normals. May be the same as source.
+     * @param normalize    whether to rescale each result to unit length
+     */
+    public static void transformNormals(Mat3 normalMatrix, float[] source, float[] dest, boolean normalize) {
+        float[] m = normalMatrix.getValues();
+        transformNormals(m, source, dest, normalize, 0, checkedCount(source, dest));
+    }
+
+    /**
+     * Transform every packed normal by a 3x3 normal matrix, splitting large inputs across the common fork-join pool.
+     *
+     * @param normalMatrix the normal matrix, usually the inverse transpose of the model matrix
+     * @param source       the packed normals to transform
+     * @param dest         the array to receive the transformed normals. May be the same as source.
+     * @param normalize    whether to rescale each result to unit length
+     */
+    public static void transformNormalsParallel(Mat3 normalMatrix, float[] source, float[] dest, boolean normalize) {
+        float[] m = normalMatrix.getValues();
+        forEachRange(checkedCount(source, dest), PARALLEL_THRESHOLD,
+                (from, to) -> transformNormals(m, source, dest, normalize, from, to));
+    }
+
+    /**
+     * Scale and then translate every packed position.
+     *
+     * @param scale       the xyz scale
+     * @param translation the xyz translation
+     * @param source      the packed positions to transform
+     * @param dest        the array to receive the transformed positions. May be the same as source.
+     */
+    public static void scaleAndTranslate(float[] scale, float[] translation, float[] source, float[] dest) {
+        checkTriple(scale);
+        checkTriple(translation);
+        scaleAndTranslate(scale, translation, source, dest, 0, checkedCount(source, dest));
+    }
+
+    /**
+     * Scale and then translate every packed position, splitting large inputs across the common fork-join pool.
+     *
+     * @param scale       the xyz scale
+     * @param translation the xyz translation
+     * @param source      the packed positions to transform
+     * @param dest        the array to receive the transformed positions. May be the same as source.
+     */
+    public static void scaleAndTranslateParallel(float[] scale, float[] translation, float[] source, float[] dest) {
+        checkTriple(scale);
+        checkTriple(translation);
+        forEachRange(checkedCount(source, dest), PARALLEL_THRESHOLD,
+                (from, to) -> scaleAndTranslate(scale, translation, source, dest, from, to));
+    }
+
+    /**
+     * Calculate the dot product of each pair of packed vectors.
+     *
+     * @param a    the first packed vectors
+     * @param b    the second packed vectors
+     * @param dest the array to receive one dot product per vector
+     */
+    public static void dot(float[] a, float[] b, float[] dest) {
+        int count = checkedDotCount(a, b, dest);
+        MathKernels.get().dot(a, b, dest, 0, count);
+    }
+
+    /**
+     * Calculate the dot product of each pair of packed vectors, splitting large inputs across the common fork-join
+     * pool.
+     *
+     * @param a    the first packed vectors
+     * @param b    the second packed vectors
+     * @param dest the array to receive one dot product per vector
+     */
+    public static void dotParallel(float[] a, float[] b, float[] dest) {
+        int count = checkedDotCount(a, b, dest);
+        forEachRange(count, PARALLEL_THRESHOLD, (from, to) -> MathKernels.get().dot(a, b, dest, from, to));
+    }
+
+    private static void transformPositions(float[] m, float[] source, float[] dest, int from, int to) {
+        MathKernels.get().transformPositions(m, source, dest, from, to);
+    }
+
+    private static void transformNormals(float[] m, float[] source, float[] dest, boolean normalize, int from, int to) {
+        float m00 = m[0], m01 = m[1], m02 = m[2];
+        float m10 = m[3], m11 = m[4], m12 = m[5];
+        float m20 = m[6], m21 = m[7], m22 = m[8];
+
+        for (int i = from * COMPONENTS, end = to * COMPONENTS; i < end; i += COMPONENTS) {
+            float x = source[i];
+            float y = source[i + 1];
+            float z = source[i + 2];
+            float nx = m00 * x + m10 * y + m20 * z;
+            float ny = m01 * x + m11 * y + m21 * z;
+            float nz = m02 * x + m12 * y + m22 * z;
+            if (normalize) {
+                float lengthSquared = nx * nx + ny * ny + nz * nz;
+                if (lengthSquared > 0) {
+                    float inverseLength = (float) (1.0 / Math.sqrt(lengthSquared));
+                    nx *= inverseLength;
+                    ny *= inverseLength;
+                    nz *= inverseLength;
+                }
+            }
+            dest[i] = nx;
+            dest[i + 1] = ny;
+            dest[i + 2] = nz;
+        }
+    }
+
+    private static void scaleAndTranslate(float[] scale, float[] translation, float[] source, float[] dest,
+                                          int from, int to) {
+        float sx = scale[0], sy = scale[1], sz = scale[2];
+        float tx = translation[0], ty = translation[1], tz = translation[2];
+
+        for (int i = from * COMPONENTS, end = to * COMPONENTS; i < end; i += COMPONENTS) {
+            dest[i] = source[i] * sx + tx;
+            dest[i + 1] = source[i + 1] * sy + ty;
+            dest[i + 2] = source[i + 2] * sz + tz;
+        }
+    }
+
+    static int checkedCount(float[] source, float[] dest) {
+        if (source == null || dest == null)
+            throw new IllegalArgumentException("Cannot transform vectors to or from a null array");
+        if (source.length % COMPONENTS != 0)
+            throw new IllegalArgumentException("Packed vector data must have a multiple of " + COMPONENTS +
+                    " values, but found " + source.length);
+        if (dest.length < source.length)
+            throw new IllegalArgumentException("Destination does not have sufficient space for this operation. Aborted.");
+        return source.length / COMPONENTS;
+    }
+
+    private static int checkedDotCount(float[] a, float[] b, float[] dest) {
+        if (a != null && b != null && a.length != b.length)
+            throw new IllegalArgumentException("Cannot calculate dot products for streams of different length");
+        int count = checkedCount(a, b);
+        if (dest.length < count)
+            throw new IllegalArgumentException("Destination does not have sufficient space for this operation. Aborted.");
+        return count;
+    }
+
+    private static int checkedCount(FloatBuffer source, FloatBuffer dest) {
+        if (source == null || dest == null)
+            throw new IllegalArgumentException("Buffer storage not possible when buffer is null. Aborting.");
+        if (source.remaining() % COMPONENTS != 0)
+            throw new IllegalArgumentException("Packed vector data must have a multiple of " + COMPONENTS +
+                    " values, but found " + source.remaining());
+        if (dest.remaining() < source.remaining())
+            throw new IllegalArgumentException("Buffer does not have sufficient space for this operation. Aborted.");
+        return source.remaining() / COMPONENTS;
+    }
+
+    private static float[] checkedValues(SquareMatrix matrix) {
+        if (matrix.getDimensions() != 4)
+            throw new IllegalArgumentException("Cannot transform positions with a matrix of " +
+                    matrix.getDimensions() + " dimensions");
+        return matrix.getValues();
+    }
+
+    private static void checkTriple(float[] values) {
+        if (values.length < COMPONENTS)
+            throw new IllegalArgumentException("Expected xyz values but got " + values.length + " values");
+    }
+}
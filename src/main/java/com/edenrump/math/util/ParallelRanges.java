@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits loops over packed data into ranges run in parallel.
+ * <p>
+ * A range is halved until it is no longer than the grain, and the halves are run as fork-join tasks: in the pool of
+ * the calling thread if it is a fork-join worker, so that work started inside a dedicated pool stays there, and
+ * otherwise in the common pool.
+ *
+ * @author Ed Eden-Rump
+ */
+public class ParallelRanges {
+
+    private ParallelRanges() {
+    }
+
+    /**
+     * Apply a kernel to every index below count, in one call if count is at most grain and otherwise in ranges of at
+     * most grain indices run in parallel.
+     *
+     * @param count  the number of indices
+     * @param grain  the largest range run as a single task, at least 1
+     * @param kernel the loop body to apply to each range
+     */
+    public static void forEachRange(int count, int grain, RangeKernel kernel) {
+        if (grain < 1) throw new IllegalArgumentException("Range grain must be positive: " + grain);
+        if (count <= grain) {
+            kernel.apply(0, count);
+            return;
+        }
+        RangeTask task = new RangeTask(kernel, grain, 0, count);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    /**
+     * A loop body applied to a half-open range of indices
+     */
+    public interface RangeKernel {
+        void apply(int from, int to);
+    }
+
+    private static class RangeTask extends RecursiveAction {
+
+        private final RangeKernel kernel;
+        private final int grain;
+        private final int from;
+        private final int to;
+
+        RangeTask(RangeKernel kernel, int grain, int from, int to) {
+            this.kernel = kernel;
+            this.grain = grain;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                kernel.apply(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(kernel, grain, from, middle), new RangeTask(kernel, grain, middle, to));
+            }
+        }
+    }
+}
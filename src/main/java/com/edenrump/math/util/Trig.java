@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+/**
+ * Sine, cosine and tangent for generating rotations, either from a lookup table or exactly from {@link Math}.
+ * <p>
+ * The table holds {@value #TABLE_SIZE} samples of one period of sine, and values between samples are linearly
+ * interpolated. The absolute error of {@link #sin} and {@link #cos} is at most {@value #MAX_ERROR}, which is a few
+ * float ulps for values near one. {@link #tan} is calculated as sin / cos, so its relative error grows as the angle
+ * approaches a right angle. Arguments larger than {@value #TABLE_LIMIT} radians, infinities and NaN always use the
+ * exact path.
+ * <p>
+ * The table is used unless the system property {@value #TRIG_PROPERTY} is set to <code>exact</code>, or exact mode is
+ * switched on with {@link #setExact(boolean)}.
+ */
+public class Trig {
+
+    /**
+     * System property which, when set to exact, makes every function call through to {@link Math}
+     */
+    public static final String TRIG_PROPERTY = "nested.math.trig";
+
+    /**
+     * The number of samples of sine over one period
+     */
+    public static final int TABLE_SIZE = 4096;
+
+    /**
+     * The largest absolute error of the table sine and cosine
+     */
+    public static final float MAX_ERROR = 4e-7f;
+
+    /**
+     * The largest argument, in radians, for which the table is used
+     */
+    public static final double TABLE_LIMIT = 65536;
+
+    private static final int MASK = TABLE_SIZE - 1;
+    private static final int QUARTER = TABLE_SIZE / 4;
+    private static final double SCALE = TABLE_SIZE / (2 * Math.PI);
+    private static final float[] SIN = createTable();
+
+    private static volatile boolean exact = "exact".equalsIgnoreCase(System.getProperty(TRIG_PROPERTY));
+
+    private static float[] createTable() {
+        //one extra sample so that the last interval can interpolate without wrapping
+        float[] table = new float[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            table[i] = (float) Math.sin(i * 2 * Math.PI / TABLE_SIZE);
+        }
+        return table;
+    }
+
+    /**
+     * @return true if every function calls through to {@link Math}
+     */
+    public static boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Switch between the lookup table and exact calculation for the whole process.
+     *
+     * @param exact true to call through to {@link Math}, false to use the table
+     */
+    public static void setExact(boolean exact) {
+        Trig.exact = exact;
+    }
+
+    /**
+     * @param radians the angle in radians
+     * @return the sine of the angle
+     */
+    public static float sin(double radians) {
+        if (exact || !(Math.abs(radians) <= TABLE_LIMIT)) return (float) Math.sin(radians);
+        return lookup(radians * SCALE, 0);
+    }
+
+    /**
+     * @param radians the angle in radians
+     * @return the cosine of the angle
+     */
+    public static float cos(double radians) {
+        if (exact || !(Math.abs(radians) <= TABLE_LIMIT)) return (float) Math.cos(radians);
+        return lookup(radians * SCALE, QUARTER);
+    }
+
+    /**
+     * @param radians the angle in radians
+     * @return the tangent of the angle
+     */
+    public static float tan(double radians) {
+        if (exact || !(Math.abs(radians) <= TABLE_LIMIT)) return (float) Math.tan(radians);
+        double position = radians * SCALE;
+        return lookup(position, 0) / lookup(position, QUARTER);
+    }
+
+    private static float lookup(double position, int offset) {
+        double floor = Math.floor(position);
+        int index = ((int) floor + offset) & MASK;
+        float fraction = (float) (position - floor);
+        float lower = SIN[index];
+        return lower + (SIN[index + 1] - lower) * fraction;
+    }
+}
@@ -52,15 +52,17 @@ public class Volume {
         v = axis.getValues()[1];
         w = axis.getValues()[2];
         final double uxvywz = u * x + v * y + w * z;
-        float xPrime = (float) (u * uxvywz * (1d - Math.cos(theta))
-                + x * Math.cos(theta)
-                + (-w * y + v * z) * Math.sin(theta));
-        float yPrime = (float) (v * uxvywz * (1d - Math.cos(theta))
-                + y * Math.cos(theta)
-                + (w * x - u * z) * Math.sin(theta));
-        float zPrime = (float) (w * uxvywz * (1d - Math.cos(theta))
-                + z * Math.cos(theta)
-                + (-v * x + u * y) * Math.sin(theta));
+        final double cos = Trig.cos(theta);
+        final double sin = Trig.sin(theta);
+        float xPrime = (float) (u * uxvywz * (1d - cos)
+                + x * cos
+                + (-w * y + v * z) * sin);
+        float yPrime = (float) (v * uxvywz * (1d - cos)
+                + y * cos
+                + (w * x - u * z) * sin);
+        float zPrime = (float) (w * uxvywz * (1d - cos)
+                + z * cos
+                + (-v * x + u * y) * sin);
         return new ColumnVector(xPrime, yPrime, zPrime);
     }
 
@@ -79,9 +81,7 @@ public class Volume {
 
         ColumnVector tangentA = vertex1.subtract(vertex0);
         ColumnVector tangentB = vertex2.subtract(vertex0);
-        ColumnVector normal = tangentA.cross(tangentB);
-        normal.normalize();
-        return normal;
+        return tangentA.cross(tangentB).normalize();
     }
 
     /**
@@ -135,16 +135,67 @@ public class Volume {
         return new ColumnVector(r, inclination, azimuth);
     }
 
+    /**
+     * Convert packed cartesian x, y, z triples to polar radius, inclination, azimuth triples, splitting large inputs
+     * across the common fork-join pool. Each triple is converted exactly as by
+     * {@link #convertCartesianCoordinateToPolar(ColumnVector)}.
+     *
+     * @param source the packed cartesian coordinates
+     * @param dest   the array to receive the polar coordinates. May be the same as source.
+     */
+    public static void convertCartesianCoordinatesToPolar(float[] source, float[] dest) {
+        ParallelRanges.forEachRange(PackedVectors.checkedCount(source, dest), PackedVectors.PARALLEL_THRESHOLD,
+                (from, to) -> convertCartesianCoordinatesToPolar(source, dest, from, to));
+    }
+
+    private static void convertCartesianCoordinatesToPolar(float[] source, float[] dest, int from, int to) {
+        for (int i = from * 3, end = to * 3; i < end; i += 3) {
+            float x = source[i];
+            float y = source[i + 1];
+            float z = source[i + 2];
+            float r = (float) Math.sqrt(x * x + y * y + z * z);
+            dest[i] = r;
+            dest[i + 1] = (float) Math.acos(z / r);
+            dest[i + 2] = (float) Math.atan(y / x);
+        }
+    }
+
     public static ColumnVector convertPolarCoordinateToCartesian(ColumnVector polarCoordinates) {
         float r = polarCoordinates.getValue(0);
         float inclinationAngle = polarCoordinates.getValue(1);
         float azimuthAngle = polarCoordinates.getValue(2);
-        float x = (float) (r * Math.cos(azimuthAngle) * Math.sin(inclinationAngle));
-        float y = (float) (r * Math.sin(azimuthAngle) * Math.sin(inclinationAngle));
-        float z = (float) (r * Math.cos(inclinationAngle));
+        float sinInclination = Trig.sin(inclinationAngle);
+        float x = r * Trig.cos(azimuthAngle) * sinInclination;
+        float y = r * Trig.sin(azimuthAngle) * sinInclination;
+        float z = r * Trig.cos(inclinationAngle);
         return new ColumnVector(x, y, z);
     }
 
+    /**
+     * Convert packed polar radius, inclination, azimuth triples to cartesian x, y, z triples, splitting large inputs
+     * across the common fork-join pool. Each triple is converted exactly as by
+     * {@link #convertPolarCoordinateToCartesian(ColumnVector)}.
+     *
+     * @param source the packed polar coordinates
+     * @param dest   the array to receive the cartesian coordinates. May be the same as source.
+     */
+    public static void convertPolarCoordinatesToCartesian(float[] source, float[] dest) {
+        ParallelRanges.forEachRange(PackedVectors.checkedCount(source, dest), PackedVectors.PARALLEL_THRESHOLD,
+                (from, to) -> convertPolarCoordinatesToCartesian(source, dest, from, to));
+    }
+
+    private static void convertPolarCoordinatesToCartesian(float[] source, float[] dest, int from, int to) {
+        for (int i = from * 3, end = to * 3; i < end; i += 3) {
+            float r = source[i];
+            float inclinationAngle = source[i + 1];
+            float azimuthAngle = source[i + 2];
+            float sinInclination = Trig.sin(inclinationAngle);
+            dest[i] = r * Trig.cos(azimuthAngle) * sinInclination;
+            dest[i + 1] = r * Trig.sin(azimuthAngle) * sinInclination;
+            dest[i + 2] = r * Trig.cos(inclinationAngle);
+        }
+    }
+
     /**
      * Creates a translation matrix. Similar to
      * <code>glTranslate(x, y, z)</code>.
@@ -173,8 +224,9 @@ public class Volume {
      * @return Rotation matrix
      */
     public static SquareMatrix createRotationMatrix(float angle, float x, float y, float z) {
-        float c = (float) Math.cos(Math.toRadians(angle));
-        float s = (float) Math.sin(Math.toRadians(angle));
+        double radians = Math.toRadians(angle);
+        float c = Trig.cos(radians);
+        float s = Trig.sin(radians);
         ColumnVector vec = new ColumnVector(x, y, z);
         if (vec.length() != 1f) {
             vec = vec.normalize();
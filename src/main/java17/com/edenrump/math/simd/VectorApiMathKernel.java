@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.simd;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of {@link MathKernel} using the incubating JDK Vector API.
+ * <p>
+ * Packed xyz data is processed in groups of three vectors, which always start on a position boundary. Each lane
+ * picks its own x, y and z out of shifted loads with per-phase masks, so lanes never mix data from neighbouring
+ * positions and every result is computed with the same operations, in the same order, as {@link ScalarMathKernel}.
+ * Only the flat {@link #dot(float[], float[], int)} reduces in a different order.
+ * <p>
+ * Loaded reflectively by {@link MathKernels}, and only compiled by the <code>vector-api</code> build profile.
+ */
+class VectorApiMathKernel implements MathKernel {
+
+    private static final VectorSpecies<Float> QUAD = FloatVector.SPECIES_128;
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    /**
+     * For each of the three vectors in a group, masks for lanes holding a y (1) or z (2) component
+     */
+    private final VectorMask<Float>[] isY;
+    private final VectorMask<Float>[] isZ;
+
+    /**
+     * Gather maps selecting the x, y and z components of consecutive packed vectors
+     */
+    private final int[] xIndex = new int[LANES];
+    private final int[] yIndex = new int[LANES];
+    private final int[] zIndex = new int[LANES];
+
+    @SuppressWarnings("unchecked")
+    VectorApiMathKernel() {
+        isY = new VectorMask[3];
+        isZ = new VectorMask[3];
+        for (int vector = 0; vector < 3; vector++) {
+            boolean[] y = new boolean[LANES];
+            boolean[] z = new boolean[LANES];
+            for (int lane = 0; lane < LANES; lane++) {
+                int component = (vector * LANES + lane) % 3;
+                y[lane] = component == 1;
+                z[lane] = component == 2;
+            }
+            isY[vector] = VectorMask.fromArray(SPECIES, y, 0);
+            isZ[vector] = VectorMask.fromArray(SPECIES, z, 0);
+        }
+
+        for (int lane = 0; lane < LANES; lane++) {
+            xIndex[lane] = lane * 3;
+            yIndex[lane] = lane * 3 + 1;
+            zIndex[lane] = lane * 3 + 2;
+        }
+    }
+
+    @Override
+    public void multiply4x4(float[] a, float[] b, float[] dest) {
+        FloatVector b0 = FloatVector.fromArray(QUAD, b, 0);
+        FloatVector b1 = FloatVector.fromArray(QUAD, b, 4);
+        FloatVector b2 = FloatVector.fromArray(QUAD, b, 8);
+        FloatVector b3 = FloatVector.fromArray(QUAD, b, 12);
+
+        for (int row = 0; row < 4; row++) {
+            int i = row * 4;
+            b0.mul(a[i])
+                    .add(b1.mul(a[i + 1]))
+                    .add(b2.mul(a[i + 2]))
+                    .add(b3.mul(a[i + 3]))
+                    .intoArray(dest, i);
+        }
+    }
+
+    @Override
+    public void transformPositions(float[] matrix, float[] source, float[] dest, int from, int to) {
+        //the shifted loads reach two floats either side of each group, so the first position and any positions
+        //too close to the end of the array are left to the scalar loop
+        int groupFloats = 3 * LANES;
+        int first = Math.max(from, 1);
+        int last = first;
+        while (last + LANES <= to && (last + LANES) * 3 + 2 <= source.length) {
+            last += LANES;
+        }
+
+        if (last == first) {
+            MathKernels.getScalar().transformPositions(matrix, source, dest, from, to);
+            return;
+        }
+        MathKernels.getScalar().transformPositions(matrix, source, dest, from, first);
+
+        FloatVector[] cx = new FloatVector[3];
+        FloatVector[] cy = new FloatVector[3];
+        FloatVector[] cz = new FloatVector[3];
+        FloatVector[] ct = new FloatVector[3];
+        for (int vector = 0; vector < 3; vector++) {
+            //coefficient for each lane's x, y and z, and its translation, chosen by the lane's component
+            FloatVector column0 = FloatVector.broadcast(SPECIES, matrix[0]);
+            FloatVector column1 = FloatVector.broadcast(SPECIES, matrix[4]);
+            FloatVector column2 = FloatVector.broadcast(SPECIES, matrix[8]);
+            FloatVector column3 = FloatVector.broadcast(SPECIES, matrix[12]);
+            cx[vector] = column0.blend(matrix[1], isY[vector]).blend(matrix[2], isZ[vector]);
+            cy[vector] = column1.blend(matrix[5], isY[vector]).blend(matrix[6], isZ[vector]);
+            cz[vector] = column2.blend(matrix[9], isY[vector]).blend(matrix[10], isZ[vector]);
+            ct[vector] = column3.blend(matrix[13], isY[vector]).blend(matrix[14], isZ[vector]);
+        }
+
+        for (int base = first * 3, end = last * 3; base < end; base += groupFloats) {
+            //load all three vectors of the group before storing, so source and dest may alias
+            FloatVector r0 = transformGroupVector(source, base, 0, cx, cy, cz, ct);
+            FloatVector r1 = transformGroupVector(source, base + LANES, 1, cx, cy, cz, ct);
+            FloatVector r2 = transformGroupVector(source, base + 2 * LANES, 2, cx, cy, cz, ct);
+            r0.intoArray(dest, base);
+            r1.intoArray(dest, base + LANES);
+            r2.intoArray(dest, base + 2 * LANES);
+        }
+
+        MathKernels.getScalar().transformPositions(matrix, source, dest, last, to);
+    }
+
+    private FloatVector transformGroupVector(float[] source, int offset, int vector,
+                                             FloatVector[] cx, FloatVector[] cy, FloatVector[] cz, FloatVector[] ct) {
+        FloatVector back2 = FloatVector.fromArray(SPECIES, source, offset - 2);
+        FloatVector back1 = FloatVector.fromArray(SPECIES, source, offset - 1);
+        FloatVector here = FloatVector.fromArray(SPECIES, source, offset);
+        FloatVector ahead1 = FloatVector.fromArray(SPECIES, source, offset + 1);
+        FloatVector ahead2 = FloatVector.fromArray(SPECIES, source, offset + 2);
+
+        VectorMask<Float> y = isY[vector];
+        VectorMask<Float> z = isZ[vector];
+        FloatVector xs = here.blend(back1, y).blend(back2, z);
+        FloatVector ys = ahead1.blend(here, y).blend(back1, z);
+        FloatVector zs = ahead2.blend(ahead1, y).blend(here, z);
+
+        return cx[vector].mul(xs)
+                .add(cy[vector].mul(ys))
+                .add(cz[vector].mul(zs))
+                .add(ct[vector]);
+    }
+
+    @Override
+    public void dot(float[] a, float[] b, float[] dest, int from, int to) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            int base = i * 3;
+            FloatVector ax = FloatVector.fromArray(SPECIES, a, base, xIndex, 0);
+            FloatVector ay = FloatVector.fromArray(SPECIES, a, base, yIndex, 0);
+            FloatVector az = FloatVector.fromArray(SPECIES, a, base, zIndex, 0);
+            FloatVector bx = FloatVector.fromArray(SPECIES, b, base, xIndex, 0);
+            FloatVector by = FloatVector.fromArray(SPECIES, b, base, yIndex, 0);
+            FloatVector bz = FloatVector.fromArray(SPECIES, b, base, zIndex, 0);
+            ax.mul(bx).add(ay.mul(by)).add(az.mul(bz)).intoArray(dest, i);
+        }
+        MathKernels.getScalar().dot(a, b, dest, i, to);
+    }
+
+    @Override
+    public float dot(float[] a, float[] b, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += LANES) {
+            sum = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, b, i), sum);
+        }
+
+        float dotProduct = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            dotProduct += a[i] * b[i];
+        }
+        return dotProduct;
+    }
+
+    @Override
+    public String getName() {
+        return "Vector API (" + SPECIES + ")";
+    }
+}
@@ -20,6 +20,9 @@
 package com.edenrump.graphic.mesh;
 
 import com.edenrump.math.shape.mesh.GeometricConstructTest;
+import com.edenrump.math.shape.mesh.HalfEdgeMesh;
+import com.edenrump.math.shape.mesh.ShadingType;
+import com.edenrump.math.shape.solids.Icosahedron;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -37,4 +40,29 @@ public class ConstructConverterTest {
         Assert.assertEquals(mesh.getVertexNormals().length, 4 * 3);
     }
 
+    @Test
+    public void halfEdgeMeshConversionTest() {
+        CPUMesh mesh = ConstructConverter.convertConstructToMesh(
+                GeometricConstructTest.getTestSquare()
+        );
+
+        HalfEdgeMesh halfEdgeMesh = ConstructConverter.convertMeshToHalfEdgeMesh(mesh);
+        Assert.assertEquals(halfEdgeMesh.getVertexCount(), 4);
+        Assert.assertEquals(halfEdgeMesh.getFaceCount(), 2);
+
+        CPUMesh converted = ConstructConverter.convertHalfEdgeMeshToMesh(halfEdgeMesh);
+        Assert.assertEquals(converted.getIndices(), mesh.getIndices());
+        Assert.assertEquals(converted.getVertexPositions(), mesh.getVertexPositions());
+        Assert.assertEquals(converted.getVertexNormals(), mesh.getVertexNormals());
+    }
+
+    @Test
+    public void convertGeometryToMeshTest() {
+        CPUMesh mesh = ConstructConverter.convertGeometryToMesh(new Icosahedron(1f, ShadingType.FLAT).getGeometry());
+
+        Assert.assertEquals(mesh.getIndices().length, 20 * 3);
+        Assert.assertEquals(mesh.getVertexPositions().length, 60 * 3);
+        Assert.assertEquals(mesh.getVertexNormals().length, 60 * 3);
+    }
+
 }
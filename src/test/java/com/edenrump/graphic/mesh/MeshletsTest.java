@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.mesh;
+
+import com.edenrump.math.shape.mesh.GeometricConstruct;
+import com.edenrump.math.shape.solids.Icosahedron;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MeshletsTest {
+
+    static float[] getGridPositions(int size) {
+        float[] positions = new float[(size + 1) * (size + 1) * 3];
+        for (int y = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                int p = (y * (size + 1) + x) * 3;
+                positions[p] = x;
+                positions[p + 1] = y;
+            }
+        }
+        return positions;
+    }
+
+    @Test
+    public void limitsTest() {
+        GeometricConstruct construct = new Icosahedron().getMesh();
+        construct.subdivideMesh();
+        construct.subdivideMesh();
+        construct.subdivideMesh();
+        CPUMesh mesh = ConstructConverter.convertConstructToMesh(construct, true);
+        int[] indices = mesh.getIndices();
+        float[] positions = mesh.getVertexPositions();
+
+        Meshlets meshlets = Meshlets.build(mesh);
+        int next = 0;
+        int cullable = 0;
+        for (int m = 0; m < meshlets.getMeshletCount(); m++) {
+            Assert.assertEquals(meshlets.getFirstIndex(m), next);
+            int count = meshlets.getIndexCount(m);
+            next += count;
+            Assert.assertTrue(count / 3 <= Meshlets.DEFAULT_MAX_TRIANGLES);
+            Assert.assertTrue(meshlets.getVertexCount(m) <= Meshlets.DEFAULT_MAX_VERTICES);
+
+            float[] sphere = meshlets.getBoundingSphere(m);
+            for (int i = meshlets.getFirstIndex(m); i < next; i++) {
+                int p = indices[i] * 3;
+                float dx = positions[p] - sphere[0], dy = positions[p + 1] - sphere[1], dz = positions[p + 2] - sphere[2];
+                Assert.assertTrue(Math.sqrt(dx * dx + dy * dy + dz * dz) <= sphere[3] + 1e-5f);
+            }
+            //the faces of a small patch of a sphere all point roughly the same way
+            //the faces of a patch of a sphere point roughly the same way, so most patches can be back-face culled
+            if (meshlets.getNormalCone(m)[3] < 1) cullable++;
+        }
+        Assert.assertEquals(next, indices.length);
+        Assert.assertTrue(cullable * 2 > meshlets.getMeshletCount());
+        //vertex reuse within a cache-optimised mesh fills meshlets with well over one triangle per vertex
+        Assert.assertTrue(meshlets.getMeshletCount() <= indices.length / 3 / Meshlets.DEFAULT_MAX_VERTICES + 1);
+    }
+
+    @Test
+    public void vertexLimitTest() {
+        int[] indices = VertexCacheOptimiserTest.getGrid(4);
+        Meshlets meshlets = Meshlets.build(indices, getGridPositions(4), 3, 6, 100);
+        for (int m = 0; m < meshlets.getMeshletCount(); m++) {
+            Assert.assertTrue(meshlets.getVertexCount(m) <= 6);
+        }
+        //a quad row of 4 quads needs 10 vertices, so each row splits in two
+        Assert.assertEquals(meshlets.getMeshletCount(), 8);
+        Assert.assertThrows(IllegalArgumentException.class, () -> Meshlets.build(indices, getGridPositions(4), 3, 2, 100));
+    }
+
+    @Test
+    public void backFacingTest() {
+        Meshlets meshlets = Meshlets.build(VertexCacheOptimiserTest.getGrid(8), getGridPositions(8), 3, 64, 124);
+        for (int m = 0; m < meshlets.getMeshletCount(); m++) {
+            float[] cone = meshlets.getNormalCone(m);
+            Assert.assertEquals(cone[2], 1f, 1e-6f);
+            Assert.assertEquals(cone[3], 0f, 1e-3f);
+            Assert.assertTrue(meshlets.isBackFacing(m, 4, 4, -10));
+            Assert.assertFalse(meshlets.isBackFacing(m, 4, 4, 10));
+        }
+
+        int[] first = new int[meshlets.getMeshletCount()];
+        int[] counts = new int[meshlets.getMeshletCount()];
+        Assert.assertEquals(meshlets.collectVisibleRanges(new float[]{4, 4, -10}, null, first, counts), 0);
+        Assert.assertEquals(meshlets.collectVisibleRanges(new float[]{4, 4, 10}, null, first, counts), 1);
+        Assert.assertEquals(first[0], 0);
+        Assert.assertEquals(counts[0], 8 * 8 * 6);
+    }
+
+    @Test
+    public void frustumTest() {
+        Meshlets meshlets = Meshlets.build(VertexCacheOptimiserTest.getGrid(8), getGridPositions(8), 3, 64, 32);
+        int[] first = new int[meshlets.getMeshletCount()];
+        int[] counts = new int[meshlets.getMeshletCount()];
+
+        //keep y <= 2: each meshlet holds two rows of the grid and is bounded by a sphere of radius sqrt(17), so only
+        //the last, centred on y = 7, lies wholly outside
+        float[] planes = {0, -2, 0, 4};
+        int ranges = meshlets.collectVisibleRanges(null, planes, first, counts);
+        Assert.assertEquals(ranges, 1);
+        Assert.assertEquals(first[0], 0);
+        Assert.assertEquals(counts[0], 3 * 2 * 8 * 6);
+        Assert.assertTrue(meshlets.isOutside(meshlets.getMeshletCount() - 1, planes));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.mesh;
+
+import com.edenrump.math.shape.mesh.ShadingType;
+import com.edenrump.math.shape.solids.Icosahedron;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.lwjgl.opengl.GL11.*;
+
+public class QuantisedMeshTest {
+
+    /**
+     * A sphere of radius 2.5 centred on (10, 0, 0), with texture coordinates projected along z across [0, scale].
+     */
+    private static CPUMesh getMesh(float textureScale) {
+        CPUMesh mesh = ConstructConverter.convertConstructToMesh(new Icosahedron(1f, ShadingType.SMOOTH, 4).getMesh());
+        float[] positions = mesh.getVertexPositions();
+        float[] textureCoordinates = new float[mesh.getVertexCount() * 2];
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            float x = positions[v * 3], y = positions[v * 3 + 1], z = positions[v * 3 + 2];
+            float scale = 2.5f / (float) Math.sqrt(x * x + y * y + z * z);
+            positions[v * 3] = x * scale + 10;
+            positions[v * 3 + 1] = y * scale;
+            positions[v * 3 + 2] = z * scale;
+            textureCoordinates[v * 2] = Math.max(0, Math.min(1, (x * scale + 2.5f) / 5)) * textureScale;
+            textureCoordinates[v * 2 + 1] = Math.max(0, Math.min(1, (y * scale + 2.5f) / 5)) * textureScale;
+        }
+        mesh.setTextureCoordinates(textureCoordinates);
+        return mesh;
+    }
+
+    private static double angleBetween(float[] a, double x, double y, double z) {
+        double cx = a[1] * z - a[2] * y, cy = a[2] * x - a[0] * z, cz = a[0] * y - a[1] * x;
+        return Math.atan2(Math.sqrt(cx * cx + cy * cy + cz * cz), a[0] * x + a[1] * y + a[2] * z);
+    }
+
+    @Test
+    public void sixteenBitTest() {
+        CPUMesh mesh = getMesh(1);
+        QuantisedMesh quantised = QuantisedMesh.encode(mesh);
+
+        Assert.assertEquals(quantised.getVertexFormat().getStride(), 16);
+        Assert.assertEquals(mesh.getVertexFormat().getStride(), 32);
+
+        //half a step of a 16-bit value across a 5 unit box along each axis
+        float positionBound = (float) (0.5 * 5 / 65535 * Math.sqrt(3)) * 1.01f;
+        Assert.assertTrue(quantised.getMaximumPositionError() > 0);
+        Assert.assertTrue(quantised.getMaximumPositionError() <= positionBound,
+                "position error " + quantised.getMaximumPositionError());
+        Assert.assertTrue(quantised.getMaximumNormalError() < 1e-4f,
+                "normal error " + quantised.getMaximumNormalError());
+        Assert.assertTrue(quantised.getMaximumTextureCoordinateError() <= 1.01f * Math.sqrt(2) * 0.5f / 65535,
+                "texture coordinate error " + quantised.getMaximumTextureCoordinateError());
+        Assert.assertEquals(quantised.getTextureCoordinateTransform(), new float[]{1, 1, 0, 0});
+
+        float[] position = quantised.getPosition(0, new float[3]);
+        float[] original = mesh.getVertexPositions();
+        for (int d = 0; d < 3; d++) {
+            Assert.assertEquals(position[d], original[d], positionBound);
+        }
+        Assert.assertEquals(quantised.getDequantisationMatrix().get(3, 0), 7.5f, 1e-4f);
+        Assert.assertEquals(quantised.getDequantisationMatrix().get(0, 0), 5f, 1e-4f);
+    }
+
+    @Test
+    public void eightBitNormalsTest() {
+        QuantisedMesh quantised = QuantisedMesh.encode(getMesh(1), 8);
+        Assert.assertEquals(quantised.getVertexFormat().getStride(), 8 + 4 + 4);
+        Assert.assertEquals(quantised.getVertexFormat().getElement(1).getType(), GL_BYTE);
+        //two 8-bit octahedral coordinates keep every normal within about a degree
+        Assert.assertTrue(quantised.getMaximumNormalError() < Math.toRadians(1.2),
+                "normal error " + Math.toDegrees(quantised.getMaximumNormalError()));
+        Assert.assertTrue(quantised.getMaximumNormalError() > 1e-4f);
+        Assert.assertThrows(IllegalArgumentException.class, () -> QuantisedMesh.encode(getMesh(1), 10));
+    }
+
+    @Test
+    public void tiledTextureCoordinatesTest() {
+        QuantisedMesh quantised = QuantisedMesh.encode(getMesh(3));
+        float[] transform = quantised.getTextureCoordinateTransform();
+        Assert.assertEquals(transform[0], 3f, 1e-5f);
+        Assert.assertEquals(transform[2], 0f, 1e-5f);
+        Assert.assertTrue(quantised.getMaximumTextureCoordinateError() <= 1.01f * 3 * Math.sqrt(2) * 0.5f / 65535);
+    }
+
+    @Test
+    public void octahedralTest() {
+        Random random = new Random(3);
+        float[] encoded = new float[2];
+        float[] decoded = new float[3];
+        double worst = 0;
+        for (int i = 0; i < 10000; i++) {
+            float x = (float) random.nextGaussian(), y = (float) random.nextGaussian(), z = (float) random.nextGaussian();
+            QuantisedMesh.encodeOctahedral(x, y, z, GL_SHORT, encoded);
+            QuantisedMesh.decodeOctahedral(encoded[0], encoded[1], decoded);
+            worst = Math.max(worst, angleBetween(decoded, x, y, z));
+        }
+        //two 16-bit coordinates resolve directions to a few hundredths of a milliradian
+        Assert.assertTrue(worst < 5e-5, "worst " + worst);
+
+        QuantisedMesh.decodeOctahedral(0, 0, decoded);
+        Assert.assertEquals(decoded, new float[]{0, 0, 1});
+        QuantisedMesh.encodeOctahedral(0, 0, -1, GL_SHORT, encoded);
+        QuantisedMesh.decodeOctahedral(encoded[0], encoded[1], decoded);
+        Assert.assertEquals(decoded[2], -1f, 1e-6f);
+    }
+
+    @Test
+    public void quantiseTest() {
+        Assert.assertEquals(VertexFormat.quantise(1f, GL_UNSIGNED_SHORT, true), 65535);
+        Assert.assertEquals(VertexFormat.quantise(-1f, GL_SHORT, true), -32767);
+        Assert.assertEquals(VertexFormat.quantise(2f, GL_BYTE, true), 127);
+        Assert.assertEquals(VertexFormat.quantise(300.4f, GL_UNSIGNED_BYTE, false), 255);
+        Assert.assertEquals(VertexFormat.dequantise(-128, GL_BYTE, true), -1f);
+        Assert.assertEquals(VertexFormat.dequantise(0xFF, GL_UNSIGNED_BYTE, true), 1f);
+        Assert.assertThrows(IllegalArgumentException.class, () -> VertexFormat.quantise(1f, GL_FLOAT, true));
+    }
+}
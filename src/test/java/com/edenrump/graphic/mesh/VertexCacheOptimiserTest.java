@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.mesh;
+
+import com.edenrump.math.shape.mesh.ShadingType;
+import com.edenrump.math.shape.solids.Icosahedron;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class VertexCacheOptimiserTest {
+
+    @Test
+    public void acmrTest() {
+        Assert.assertEquals(VertexCacheOptimiser.calculateACMR(new int[]{0, 1, 2}), 3f);
+        Assert.assertEquals(VertexCacheOptimiser.calculateACMR(new int[]{0, 1, 2, 2, 1, 3}), 2f);
+        //a cache of one vertex only reuses consecutive indices
+        Assert.assertEquals(VertexCacheOptimiser.calculateACMR(new int[]{0, 1, 2, 2, 1, 3}, 1), 2.5f);
+        Assert.assertEquals(VertexCacheOptimiser.calculateACMR(new int[0]), 0f);
+        Assert.assertThrows(IllegalArgumentException.class, () -> VertexCacheOptimiser.calculateACMR(new int[3], 0));
+    }
+
+    @Test
+    public void triangleOrderTest() {
+        int size = 64;
+        int[] indices = shuffleTriangles(getGrid(size), new Random(17));
+        float before = VertexCacheOptimiser.calculateACMR(indices);
+
+        int[] optimised = VertexCacheOptimiser.optimiseTriangleOrder(indices, (size + 1) * (size + 1));
+        float after = VertexCacheOptimiser.calculateACMR(optimised);
+
+        Assert.assertTrue(before > 2.5f, "shuffled ACMR " + before);
+        Assert.assertTrue(after < 0.8f, "optimised ACMR " + after);
+        Assert.assertEquals(canonicalTriangles(optimised), canonicalTriangles(indices));
+    }
+
+    @Test
+    public void vertexOrderTest() {
+        int[] indices = {3, 1, 4, 4, 1, 0};
+        int[] remap = VertexCacheOptimiser.optimiseVertexOrder(indices, 6);
+        Assert.assertEquals(remap, new int[]{3, 1, 4, 0, 2, 5});
+        Assert.assertEquals(VertexCacheOptimiser.remapIndices(indices, remap), new int[]{0, 1, 2, 2, 1, 3});
+
+        float[] attribute = VertexCacheOptimiser.remapAttribute(new float[]{0, 10, 1, 11, 2, 12, 3, 13, 4, 14, 5, 15},
+                2, remap);
+        Assert.assertEquals(attribute, new float[]{3, 13, 1, 11, 4, 14, 0, 10, 2, 12, 5, 15});
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> VertexCacheOptimiser.optimiseVertexOrder(new int[]{0, 1, 6}, 6));
+    }
+
+    @Test
+    public void optimiseMeshTest() {
+        Icosahedron sphere = new Icosahedron(1f, ShadingType.SMOOTH, 4);
+        CPUMesh mesh = ConstructConverter.convertConstructToMesh(sphere.getMesh());
+        CPUMesh optimised = ConstructConverter.convertConstructToMesh(sphere.getMesh(), true);
+
+        Assert.assertTrue(VertexCacheOptimiser.calculateACMR(optimised.getIndices()) <
+                VertexCacheOptimiser.calculateACMR(mesh.getIndices()));
+        Assert.assertEquals(optimised.getVertexPositions().length, mesh.getVertexPositions().length);
+
+        //every triangle is still present, with the same corner positions and normals in the same winding
+        Assert.assertEquals(cornerAttributes(optimised.getVertexPositions(), optimised.getIndices()),
+                cornerAttributes(mesh.getVertexPositions(), mesh.getIndices()));
+        Assert.assertEquals(cornerAttributes(optimised.getVertexNormals(), optimised.getIndices()),
+                cornerAttributes(mesh.getVertexNormals(), mesh.getIndices()));
+    }
+
+    static int[] getGrid(int size) {
+        int[] indices = new int[size * size * 6];
+        int i = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int v = y * (size + 1) + x;
+                int[] quad = {v, v + 1, v + size + 1, v + size + 1, v + 1, v + size + 2};
+                System.arraycopy(quad, 0, indices, i, 6);
+                i += 6;
+            }
+        }
+        return indices;
+    }
+
+    private static int[] shuffleTriangles(int[] indices, Random random) {
+        int[] shuffled = indices.clone();
+        for (int t = shuffled.length / 3 - 1; t > 0; t--) {
+            int other = random.nextInt(t + 1);
+            for (int corner = 0; corner < 3; corner++) {
+                int swap = shuffled[t * 3 + corner];
+                shuffled[t * 3 + corner] = shuffled[other * 3 + corner];
+                shuffled[other * 3 + corner] = swap;
+            }
+        }
+        return shuffled;
+    }
+
+    //triangles rotated to start at their smallest index, then sorted, so that order does not matter
+    private static String canonicalTriangles(int[] indices) {
+        String[] triangles = new String[indices.length / 3];
+        for (int t = 0; t < triangles.length; t++) {
+            int a = indices[t * 3], b = indices[t * 3 + 1], c = indices[t * 3 + 2];
+            if (b < a && b < c) triangles[t] = b + "," + c + "," + a;
+            else if (c < a && c < b) triangles[t] = c + "," + a + "," + b;
+            else triangles[t] = a + "," + b + "," + c;
+        }
+        Arrays.sort(triangles);
+        return String.join(" ", triangles);
+    }
+
+    private static String cornerAttributes(float[] values, int[] indices) {
+        String[] triangles = new String[indices.length / 3];
+        for (int t = 0; t < triangles.length; t++) {
+            String[] corners = new String[3];
+            for (int corner = 0; corner < 3; corner++) {
+                int v = indices[t * 3 + corner];
+                corners[corner] = values[v * 3] + "/" + values[v * 3 + 1] + "/" + values[v * 3 + 2];
+            }
+            //rotate so the smallest corner leads, keeping the winding
+            int first = 0;
+            for (int corner = 1; corner < 3; corner++) {
+                if (corners[corner].compareTo(corners[first]) < 0) first = corner;
+            }
+            triangles[t] = corners[first] + " " + corners[(first + 1) % 3] + " " + corners[(first + 2) % 3];
+        }
+        Arrays.sort(triangles);
+        return String.join("|", triangles);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.mesh;
+
+import com.edenrump.math.util.HalfFloats;
+import com.edenrump.math.util.HalfVectorBuffer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.edenrump.gpu.objects.Attribute.*;
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL30.GL_HALF_FLOAT;
+
+public class VertexFormatTest {
+
+    @Test
+    public void layoutTest() {
+        VertexFormat format = new VertexFormat(
+                VertexFormat.Element.position(3),
+                VertexFormat.Element.normal(3).toHalf(),
+                VertexFormat.Element.textureCoordinates(),
+                VertexFormat.Element.colour(TANGENTS_ATTRIB + 1, 4));
+
+        Assert.assertEquals(format.getOffset(0), 0);
+        //three half floats take six bytes, padded to eight
+        Assert.assertEquals(format.getOffset(1), 12);
+        Assert.assertEquals(format.getOffset(2), 20);
+        Assert.assertEquals(format.getOffset(3), 28);
+        Assert.assertEquals(format.getStride(), 44);
+        Assert.assertEquals(format.indexOf(TEXTURE_COORDS_ATTRIB_NAME), 2);
+        Assert.assertEquals(format.indexOf("missing"), -1);
+        Assert.assertEquals(format.getElement(1).getType(), GL_HALF_FLOAT);
+
+        ByteBuffer buffer = format.interleave(1, new float[]{1, 2, 3}, new float[]{0, 0, 1}, new float[]{0.5f, 0.25f},
+                new float[]{1, 0, 0, 1});
+        Assert.assertEquals(buffer.capacity(), 44);
+        Assert.assertEquals(buffer.getFloat(8), 3f);
+        Assert.assertEquals(HalfFloats.toFloat(buffer.getShort(16)), 1f);
+        Assert.assertEquals(buffer.getFloat(24), 0.25f);
+        Assert.assertEquals(buffer.getFloat(28), 1f);
+        Assert.assertEquals(buffer.getFloat(40), 1f);
+    }
+
+    @Test
+    public void invalidFormatTest() {
+        //two elements cannot share a location
+        Assert.assertThrows(IllegalArgumentException.class, () -> new VertexFormat(
+                VertexFormat.Element.normal(3), VertexFormat.Element.colour(NORMALS_ATTRIB, 4)));
+        Assert.assertThrows(IllegalArgumentException.class, () -> VertexFormat.Element.position(5));
+        Assert.assertThrows(IllegalArgumentException.class, VertexFormat::new);
+    }
+
+    @Test
+    public void interleaveTest() {
+        VertexFormat format = new VertexFormat(VertexFormat.Element.position(3),
+                VertexFormat.Element.textureCoordinates().toHalf());
+        float[] positions = {1, 2, 3, 4, 5, 6};
+        float[] textureCoordinates = {0.25f, 0.5f, 0.75f, 1f};
+        ByteBuffer buffer = format.interleave(2, positions, textureCoordinates);
+
+        Assert.assertEquals(format.getStride(), 16);
+        Assert.assertEquals(buffer.capacity(), 32);
+        Assert.assertEquals(buffer.getFloat(0), 1f);
+        Assert.assertEquals(buffer.getFloat(8), 3f);
+        Assert.assertEquals(HalfFloats.toFloat(buffer.getShort(14)), 0.5f);
+        Assert.assertEquals(buffer.getFloat(16), 4f);
+        Assert.assertEquals(HalfFloats.toFloat(buffer.getShort(28)), 0.75f);
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> format.interleave(3, positions, textureCoordinates));
+        Assert.assertThrows(IllegalArgumentException.class, () -> format.interleave(2, positions));
+    }
+
+    @Test
+    public void cpuMeshInterleaveTest() {
+        CPUMesh mesh = new CPUMesh(3);
+        mesh.setVertexPositions(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0});
+        mesh.setVertexNormals(new HalfVectorBuffer(3, new float[]{0, 0, 1, 0, 0, 1, 0, 0, 1}));
+        mesh.setIndices(new int[]{0, 1, 2});
+
+        VertexFormat format = mesh.getVertexFormat();
+        Assert.assertEquals(format.getElementCount(), 2);
+        Assert.assertEquals(format.getElement(0).getLocation(), POSITION_ATTRIB);
+        Assert.assertEquals(format.getElement(1).getType(), GL_HALF_FLOAT);
+        Assert.assertEquals(format.getStride(), 20);
+
+        ByteBuffer buffer = mesh.interleave();
+        Assert.assertEquals(buffer.capacity(), 60);
+        Assert.assertEquals(buffer.getFloat(20), 1f);
+        Assert.assertEquals(HalfFloats.toFloat(buffer.getShort(20 + 12 + 4)), 1f);
+    }
+
+    @Test
+    public void cpuMeshTangentTest() {
+        CPUMesh mesh = new CPUMesh(3);
+        mesh.setVertexPositions(new float[]{0, 0, 0, 1, 0, 0, 2, 0, 0, 0, 1, 0, 1, 1, 0, 2, 1, 0});
+        mesh.setVertexNormals(new HalfVectorBuffer(3, new float[]{0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1}));
+        Assert.assertThrows(IllegalStateException.class, mesh::generateTangents);
+
+        //the right quad is textured as a mirror image of the left, so the two middle vertices are split
+        mesh.setTextureCoordinates(new float[]{0, 0, 1, 0, 0, 0, 0, 1, 1, 1, 0, 1});
+        mesh.setIndices(new int[]{0, 1, 4, 0, 4, 3, 1, 2, 5, 1, 5, 4});
+        mesh.generateTangents();
+        Assert.assertEquals(mesh.getVertexCount(), 8);
+        Assert.assertNotNull(mesh.getHalfVertexNormals());
+        Assert.assertEquals(mesh.getTangents().length, 32);
+        Assert.assertEquals(mesh.getTextureCoordinates().length, 16);
+
+        VertexFormat format = mesh.getVertexFormat();
+        Assert.assertEquals(format.getElementCount(), 4);
+        Assert.assertEquals(format.getElement(3).getLocation(), TANGENTS_ATTRIB);
+        Assert.assertEquals(format.getStride(), 12 + 8 + 8 + 16);
+
+        ByteBuffer buffer = mesh.interleave();
+        Assert.assertEquals(buffer.getFloat(28), 1f);
+        Assert.assertEquals(buffer.getFloat(40), 1f);
+
+        CPUMesh optimised = VertexCacheOptimiser.optimise(mesh);
+        Assert.assertEquals(optimised.getTangents().length, 32);
+    }
+}
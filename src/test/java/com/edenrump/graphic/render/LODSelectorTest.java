@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.render;
+
+import com.edenrump.graphic.entities.LODSet;
+import com.edenrump.graphic.entities.StaticEntity;
+import com.edenrump.math.geom.PerspectiveProjection;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LODSelectorTest {
+
+    private static LODSet getSet() {
+        LODSet set = new LODSet(0, 0, 0, 1);
+        set.addLevel(null, 0f, 1000);
+        set.addLevel(null, 0.01f, 500);
+        set.addLevel(null, 0.04f, 250);
+        set.addLevel(null, 0.16f, 125);
+        return set;
+    }
+
+    @Test
+    public void selectLevelTest() {
+        LODSet set = getSet();
+        Assert.assertEquals(LODSelector.selectLevel(set, 0, 1000f, 1f, 0f), 0);
+        Assert.assertEquals(LODSelector.selectLevel(set, 0, 100f, 1f, 0f), 1);
+        Assert.assertEquals(LODSelector.selectLevel(set, 0, 25f, 1f, 0f), 2);
+        Assert.assertEquals(LODSelector.selectLevel(set, 0, 1f, 1f, 0f), 3);
+
+        //finer levels are adopted as soon as the current level exceeds the budget
+        Assert.assertEquals(LODSelector.selectLevel(set, 3, 100f, 1f, 0.5f), 1);
+        Assert.assertEquals(LODSelector.selectLevel(set, 7, 1000f, 1f, 0.5f), 0);
+    }
+
+    @Test
+    public void hysteresisTest() {
+        LODSet set = getSet();
+        //level 1 projects to 0.9 pixels: within budget but not within the reduced budget
+        Assert.assertEquals(LODSelector.selectLevel(set, 0, 90f, 1f, 0.25f), 0);
+        Assert.assertEquals(LODSelector.selectLevel(set, 1, 90f, 1f, 0.25f), 1);
+        Assert.assertEquals(LODSelector.selectLevel(set, 0, 70f, 1f, 0.25f), 1);
+        //level 2 projects to 0.8 pixels, so level 1 stays drawn while level 2 is only within the plain budget
+        Assert.assertEquals(LODSelector.selectLevel(set, 1, 20f, 1f, 0.25f), 1);
+        Assert.assertEquals(LODSelector.selectLevel(set, 2, 20f, 1f, 0.25f), 2);
+    }
+
+    @Test
+    public void pixelsPerUnitTest() {
+        PerspectiveProjection projection = PerspectiveProjection.defineByFieldOfView(90f, 1f, 0.1f, 100f);
+        LODSelector selector = new LODSelector(projection, 1000f);
+        Assert.assertEquals(selector.getPixelsPerUnit(1f), 500f, 0.5f);
+        Assert.assertEquals(selector.getPixelsPerUnit(10f), 50f, 0.05f);
+        Assert.assertEquals(selector.getPixelsPerUnit(0f), Float.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void selectEntityTest() {
+        PerspectiveProjection projection = PerspectiveProjection.defineByFieldOfView(90f, 1f, 0.1f, 100f);
+        LODSelector selector = new LODSelector(projection, 1000f);
+        selector.setHysteresis(0f);
+        StaticEntity near = new StaticEntity(getSet());
+        near.translate(0, 0, -2);
+        StaticEntity far = new StaticEntity(getSet());
+        far.translate(0, 0, -51);
+
+        selector.beginFrame();
+        Assert.assertEquals(selector.select(near), 0);
+        Assert.assertEquals(selector.select(far), 2);
+        Assert.assertEquals(far.getLODLevel(), 2);
+        Assert.assertEquals(selector.getTrianglesRendered(), 1250);
+        Assert.assertEquals(selector.getTrianglesSaved(), 750);
+
+        //scaling the entity scales both its error and its bounding sphere
+        far.scale(4, 4, 4);
+        selector.beginFrame();
+        Assert.assertEquals(selector.select(far), 1);
+        Assert.assertEquals(selector.getTrianglesRendered(), 500);
+        Assert.assertEquals(selector.getTrianglesSaved(), 500);
+    }
+
+    @Test
+    public void boundingSphereTest() {
+        float[] sphere = LODSet.computeBoundingSphere(new float[]{-1, 0, 0, 3, 0, 0, 1, 2, 0}, 3);
+        Assert.assertEquals(sphere[0], 1f, 1e-6f);
+        Assert.assertEquals(sphere[1], 1f, 1e-6f);
+        Assert.assertEquals(sphere[2], 0f, 1e-6f);
+        Assert.assertEquals(sphere[3], (float) Math.sqrt(5), 1e-6f);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void decreasingErrorTest() {
+        LODSet set = new LODSet(0, 0, 0, 1);
+        set.addLevel(null, 0.5f, 10);
+        set.addLevel(null, 0.25f, 5);
+    }
+}
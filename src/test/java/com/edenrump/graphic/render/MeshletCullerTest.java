@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.graphic.render;
+
+import com.edenrump.graphic.entities.StaticEntity;
+import com.edenrump.graphic.mesh.GPUMesh;
+import com.edenrump.graphic.mesh.Meshlets;
+import com.edenrump.math.arrays.Mat4;
+import com.edenrump.math.geom.PerspectiveProjection;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MeshletCullerTest {
+
+    private static StaticEntity getQuadEntity() {
+        //two quads side by side in the xy plane, facing +z, each its own meshlet
+        int[] indices = {0, 1, 3, 3, 1, 4, 1, 2, 4, 4, 2, 5};
+        float[] positions = {0, 0, 0, 1, 0, 0, 2, 0, 0, 0, 1, 0, 1, 1, 0, 2, 1, 0};
+        StaticEntity entity = new StaticEntity((GPUMesh) null);
+        entity.setMeshlets(Meshlets.build(indices, positions, 3, 64, 2));
+        return entity;
+    }
+
+    @Test
+    public void frustumPlanesTest() {
+        PerspectiveProjection projection = PerspectiveProjection.defineByFieldOfView(90f, 1f, 1f, 100f);
+        float[] planes = MeshletCuller.extractFrustumPlanes(new Mat4(projection.getProjectionMatrix()), new float[24]);
+        //the camera looks down -z: a point straight ahead is inside every plane, one behind is outside the near plane
+        for (int plane = 0; plane < 6; plane++) {
+            Assert.assertTrue(planes[plane * 4 + 2] * -10 + planes[plane * 4 + 3] > 0, "plane " + plane);
+        }
+        Assert.assertTrue(planes[4 * 4 + 2] * 10 + planes[4 * 4 + 3] < 0);
+        //the right plane of a 90 degree frustum passes through x = -z
+        Assert.assertEquals(planes[4] * 5 + planes[6] * -5 + planes[7], 0f, 1e-5f);
+    }
+
+    @Test
+    public void cullTest() {
+        StaticEntity entity = getQuadEntity();
+        entity.translate(0, 0, -10);
+        MeshletCuller culler = new MeshletCuller();
+        culler.beginFrame();
+
+        culler.setCameraPosition(1, 0.5f, 0);
+        Assert.assertEquals(culler.cull(entity), 1);
+        Assert.assertEquals(culler.getIndexCounts()[0], 12);
+
+        culler.setCameraPosition(1, 0.5f, -20);
+        Assert.assertEquals(culler.cull(entity), 0);
+        Assert.assertEquals(culler.getTrianglesCulled(), 4);
+        Assert.assertEquals(culler.getMeshletsTested(), 4);
+
+        //a camera at the origin looking down -z with a narrow frustum sees only the quad at x < 1
+        PerspectiveProjection projection = PerspectiveProjection.defineByOrthogonalPlanes(-0.05f, 0.05f, -0.1f, 0.1f,
+                1f, 100f);
+        culler.setCameraPosition(0, 0, 0);
+        culler.setFrustum(new Mat4(projection.getProjectionMatrix()));
+        Assert.assertEquals(culler.cull(entity), 1);
+        Assert.assertEquals(culler.getFirstIndices()[0], 0);
+        Assert.assertEquals(culler.getIndexCounts()[0], 6);
+
+        //stretching the entity turns off back-face culling but keeps frustum culling exact
+        entity.scale(1, 2, 1);
+        culler.setFrustum(null);
+        culler.setCameraPosition(1, 0.5f, -20);
+        Assert.assertEquals(culler.cull(entity), 1);
+    }
+
+    @Test
+    public void zeroScaleTest() {
+        //an entity hidden by scaling it to nothing cannot be inverted, so it is drawn without back-face culling
+        StaticEntity entity = getQuadEntity();
+        entity.translate(0, 0, -10);
+        entity.scale(0, 0, 0);
+        MeshletCuller culler = new MeshletCuller();
+        culler.beginFrame();
+        culler.setCameraPosition(1, 0.5f, -20);
+        Assert.assertEquals(culler.cull(entity), 1);
+        Assert.assertEquals(culler.getIndexCounts()[0], 12);
+        Assert.assertEquals(culler.getTrianglesCulled(), 0);
+    }
+}
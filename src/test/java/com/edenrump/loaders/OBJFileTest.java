@@ -42,6 +42,11 @@ public class OBJFileTest {
         OBJFile cubeFile = new OBJFile("src/test/resources/models/Cube.obj");
         Assert.assertEquals(cubeFile.getMesh().getNumberOfFaces(), 12);
         Assert.assertEquals(cubeFile.getMesh().getNumberOfVertices(), 24);
+
+        //normals generated for a file without them are split at the cube's edges
+        OBJFile unlitCubeFile = new OBJFile("src/test/resources/models/Cube_NoNormals.obj");
+        Assert.assertEquals(unlitCubeFile.getMesh().getNumberOfFaces(), 12);
+        Assert.assertEquals(unlitCubeFile.getMesh().getNumberOfVertices(), 24);
     }
 
     @Test(priority = 3)
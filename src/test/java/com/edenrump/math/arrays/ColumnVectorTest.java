@@ -58,6 +58,24 @@ public class ColumnVectorTest {
         Assert.assertEquals(neg_neg.lengthSquared(), 1000517.835536f);
     }
 
+    @Test
+    public void longVectorTest() {
+        //long vectors go through the math kernel, which agrees with the plain loop to rounding
+        float[] a = new float[ColumnVector.KERNEL_THRESHOLD * 4 + 3];
+        float[] b = new float[a.length];
+        double dot = 0;
+        double lengthSquared = 0;
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (i % 7) * 0.25f - 0.5f;
+            b[i] = (i % 5) * 0.5f + 1;
+            dot += a[i] * b[i];
+            lengthSquared += a[i] * a[i];
+        }
+        Assert.assertEquals(new ColumnVector(a).dot(new ColumnVector(b)), dot, 1e-4);
+        Assert.assertEquals(new ColumnVector(a).lengthSquared(), lengthSquared, 1e-4);
+        Assert.assertEquals(new ColumnVector(a).length(), Math.sqrt(lengthSquared), 1e-4);
+    }
+
     @Test
     public void additionTest() {
         ColumnVector other = new ColumnVector(45, 77.89f);
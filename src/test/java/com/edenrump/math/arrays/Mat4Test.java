@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import com.edenrump.math.util.Volume;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class Mat4Test {
+
+    final SquareMatrix sequence = new SquareMatrix(new float[]{
+            1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+    final SquareMatrix rotation = Volume.createRotationMatrix(30, 0, 1, 0);
+
+    @Test
+    public void conversionTest() {
+        Assert.assertEquals(new Mat4(sequence).toSquareMatrix(), sequence);
+        Assert.assertEquals(new Mat4(), new Mat4(SquareMatrix.getIdentityMatrix(4)));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new Mat4(new SquareMatrix(3)));
+        Assert.assertEquals(new Mat4(sequence).get(3, 0), 13f);
+    }
+
+    @Test
+    public void multiplyMatchesSquareMatrixTest() {
+        Mat4 a = new Mat4(sequence);
+        Mat4 b = new Mat4(rotation);
+
+        Assert.assertEquals(a.multiply(b).toSquareMatrix(), sequence.multiply(rotation));
+        Assert.assertEquals(b.multiply(a).toSquareMatrix(), rotation.multiply(sequence));
+        Assert.assertEquals(a.multiply(3f).toSquareMatrix(), sequence.multiply(3f));
+        Assert.assertEquals(a.transpose().toSquareMatrix(), sequence.transpose());
+
+        ColumnVector v = new ColumnVector(1, -2, 3, 1);
+        Assert.assertEquals(a.multiply(new Vec4(v)).toColumnVector(), sequence.multiply(v));
+    }
+
+    @Test
+    public void multiplyIntoAliasTest() {
+        Mat4 a = new Mat4(sequence);
+        Mat4 expected = a.multiply(a);
+        a.multiplyInto(a, a);
+        Assert.assertEquals(a, expected);
+
+        Mat4 t = new Mat4(sequence);
+        t.transposeInto(t);
+        Assert.assertEquals(t.toSquareMatrix(), sequence.transpose());
+    }
+
+    @Test
+    public void transformPositionTest() {
+        Mat4 translation = new Mat4(Volume.createTranslationMatrix(1, 2, 3));
+        Vec3 position = translation.transformPositionInto(new Vec3(1, 1, 1), new Vec3());
+        Assert.assertEquals(position, new Vec3(2, 3, 4));
+
+        Vec3 direction = translation.transformDirectionInto(new Vec3(1, 1, 1), new Vec3());
+        Assert.assertEquals(direction, new Vec3(1, 1, 1));
+    }
+
+    @Test
+    public void inverseTest() {
+        SquareMatrix perspective = new SquareMatrix(new float[]{
+                2, 0, 0, 0, 0, 3, 0, 0, 0, 0, -1.2f, -1, 0, 0, -2.2f, 0});
+        Mat4 general = new Mat4(perspective);
+        Assert.assertFalse(general.isAffine());
+        assertIdentity(general.multiply(general.inverse()));
+        Assert.assertEquals(general.determinant(), -13.2f, 1e-4);
+
+        Mat4 affine = new Mat4(Volume.createTranslationMatrix(1, 2, 3)
+                .multiply(rotation).multiply(Volume.createScaleMatrix(2, 3, 4)));
+        Assert.assertTrue(affine.isAffine());
+        assertIdentity(affine.multiply(affine.inverse()));
+        assertIdentity(affine.inverse().multiply(affine));
+        Assert.assertEquals(affine.determinant(), 24f, 1e-4);
+
+        Mat4 alias = new Mat4(affine);
+        alias.inverseInto(alias);
+        Assert.assertEquals(alias, affine.inverse());
+
+        Assert.assertThrows(ArithmeticException.class, () -> new Mat4(sequence).inverse());
+        Assert.assertEquals(new Mat4(sequence).determinant(), 0f);
+    }
+
+    @Test
+    public void normalMatrixTest() {
+        Mat4 affine = new Mat4(Volume.createTranslationMatrix(1, 2, 3)
+                .multiply(rotation).multiply(Volume.createScaleMatrix(2, 3, 4)));
+        Mat3 expected = new Mat3().set(affine).inverse().transpose();
+        Mat3 normal = affine.normalMatrixInto(new Mat3());
+        for (int i = 0; i < 9; i++) {
+            Assert.assertEquals(normal.getValues()[i], expected.getValues()[i], 1e-5);
+        }
+        Assert.assertEquals(new Mat3().set(affine).inverseTransposeInto(new Mat3()), expected);
+    }
+
+    private static void assertIdentity(Mat4 matrix) {
+        for (int column = 0; column < 4; column++) {
+            for (int row = 0; row < 4; row++) {
+                Assert.assertEquals(matrix.get(column, row), column == row ? 1f : 0f, 1e-5);
+            }
+        }
+    }
+}
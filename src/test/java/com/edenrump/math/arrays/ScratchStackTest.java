@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ScratchStackTest {
+
+    @Test
+    public void reuseTest() {
+        Vec3 first;
+        Mat4 matrix;
+        try (ScratchStack stack = ScratchStack.push()) {
+            first = stack.vec3(1, 2, 3);
+            matrix = stack.mat4();
+            matrix.multiplyInto(2f, matrix);
+
+            try (ScratchStack inner = ScratchStack.push()) {
+                Assert.assertNotSame(inner.vec3(), first);
+                Assert.assertEquals(ScratchStack.getDepth(), 2);
+            }
+            Assert.assertEquals(first, new Vec3(1, 2, 3));
+        }
+
+        //a new frame hands back the same objects, reset to zero or identity
+        try (ScratchStack stack = ScratchStack.push()) {
+            Assert.assertSame(stack.vec3(), first);
+            Assert.assertEquals(first, new Vec3());
+            Assert.assertSame(stack.mat4(), matrix);
+            Assert.assertEquals(matrix, new Mat4());
+        }
+        ScratchStack.checkEmpty();
+    }
+
+    @Test
+    public void growthTest() {
+        try (ScratchStack stack = ScratchStack.push()) {
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals(stack.vec4(i, i, i, i).getW(), (float) i);
+                Assert.assertEquals(stack.mat3(), new Mat3());
+            }
+        }
+        Assert.assertEquals(ScratchStack.getDepth(), 0);
+    }
+
+    @Test
+    public void misuseTest() {
+        ScratchStack stack = ScratchStack.push();
+        stack.close();
+        Assert.assertThrows(IllegalStateException.class, stack::close);
+        Assert.assertThrows(IllegalStateException.class, stack::vec3);
+
+        ScratchStack leaked = ScratchStack.push();
+        Assert.assertThrows(IllegalStateException.class, ScratchStack::checkEmpty);
+        leaked.close();
+        ScratchStack.checkEmpty();
+    }
+}
@@ -24,6 +24,7 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.nio.FloatBuffer;
+import java.util.Random;
 
 public class SquareMatrixTest {
     final SquareMatrix squareMatrix_n2_1 = new SquareMatrix(new float[]{1, 2, 3, 4});
@@ -124,5 +125,56 @@ public class SquareMatrixTest {
         Assert.assertThrows(IllegalArgumentException.class, () -> squareMatrix_n2_2.storeMatrixInBuffer(tooFewDimensions));
     }
 
+    @Test
+    public void determinantTest() {
+        Assert.assertEquals(squareMatrix_n2_1.determinant(), -2f, 1e-6);
+        Assert.assertEquals(squareMatrix_n3_1.determinant(), 0f, 1e-6);
+        Assert.assertEquals(new SquareMatrix(new float[]{0, 1, 0, 1, 0, 0, 0, 0, 5}).determinant(), -5f, 1e-6);
+        Assert.assertEquals(SquareMatrix.getIdentityMatrix(5).multiply(2).determinant(), 32f, 1e-4);
+    }
+
+    @Test
+    public void inverseTest() {
+        Assert.assertEquals(squareMatrix_n2_1.inverse(), new SquareMatrix(new float[]{-2, 1, 1.5f, -0.5f}));
+        Assert.assertThrows(ArithmeticException.class, squareMatrix_n3_1::inverse);
+
+        SquareMatrix permuted = new SquareMatrix(new float[]{
+                0, 2, 0, 0, 1,
+                1, 0, 0, 0, 0,
+                0, 0, 4, 1, 0,
+                0, 0, 0, 1, 0,
+                3, 0, 0, 0, 5});
+        SquareMatrix product = permuted.multiply(permuted.inverse());
+        for (int i = 0; i < 25; i++) {
+            Assert.assertEquals(product.getValues()[i], i % 6 == 0 ? 1f : 0f, 1e-5);
+        }
+        Assert.assertEquals(permuted.inverseTranspose(), permuted.inverse().transpose());
+    }
 
+    @Test
+    public void blockedMultiplyTest() {
+        //sizes below, between and above the blocked and parallel thresholds, including partial tiles
+        for (int dimensions : new int[]{5, SquareMatrix.BLOCKED_THRESHOLD, 70, SquareMatrix.PARALLEL_THRESHOLD + 3}) {
+            SquareMatrix a = randomMatrix(dimensions, 1);
+            SquareMatrix b = randomMatrix(dimensions, 2);
+
+            float[] expected = new float[dimensions * dimensions];
+            for (int row = 0; row < dimensions; row++) {
+                for (int column = 0; column < dimensions; column++) {
+                    for (int k = 0; k < dimensions; k++) {
+                        expected[row * dimensions + column] +=
+                                a.getValues()[row * dimensions + k] * b.getValues()[k * dimensions + column];
+                    }
+                }
+            }
+            Assert.assertEquals(a.multiply(b).getValues(), expected);
+        }
+    }
+
+    private static SquareMatrix randomMatrix(int dimensions, long seed) {
+        Random random = new Random(seed);
+        float[] values = new float[dimensions * dimensions];
+        for (int i = 0; i < values.length; i++) values[i] = random.nextFloat() * 2 - 1;
+        return new SquareMatrix(values);
+    }
 }
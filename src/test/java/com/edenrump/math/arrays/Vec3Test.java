@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.arrays;
+
+import org.lwjgl.BufferUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.FloatBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+public class Vec3Test {
+
+    final Vec3 one = new Vec3(1, 1, 1);
+    final Vec3 mixed = new Vec3(3, -4, 12);
+
+    @Test
+    public void hashCodeTest() {
+        //unit vectors, whose components all truncate to zero, and swapped components must not share one hash
+        Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            double angle = i * 0.0628;
+            hashes.add(new Vec3((float) Math.cos(angle), (float) Math.sin(angle), 0).hashCode());
+        }
+        Assert.assertEquals(hashes.size(), 100);
+        Assert.assertNotEquals(new Vec3(1, 2, 3).hashCode(), new Vec3(3, 2, 1).hashCode());
+        Assert.assertEquals(new Vec3(0, -0f, 1).hashCode(), new Vec3(-0f, 0, 1).hashCode());
+        Assert.assertEquals(new Vec3(0, -0f, 1), new Vec3(-0f, 0, 1));
+
+        Set<Integer> vec4Hashes = new HashSet<>();
+        Set<Integer> mat3Hashes = new HashSet<>();
+        Set<Integer> mat4Hashes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            float c = (float) Math.cos(i * 0.0628), s = (float) Math.sin(i * 0.0628);
+            vec4Hashes.add(new Vec4(c, s, 0, 0).hashCode());
+            mat3Hashes.add(new Mat3(c, s, 0, -s, c, 0, 0, 0, 1).hashCode());
+            mat4Hashes.add(new Mat4(c, s, 0, 0, -s, c, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1).hashCode());
+        }
+        Assert.assertEquals(vec4Hashes.size(), 100);
+        Assert.assertEquals(mat3Hashes.size(), 100);
+        Assert.assertEquals(mat4Hashes.size(), 100);
+    }
+
+    @Test
+    public void arithmeticMatchesColumnVectorTest() {
+        ColumnVector a = one.toColumnVector();
+        ColumnVector b = mixed.toColumnVector();
+
+        Assert.assertEquals(one.add(mixed).toColumnVector(), a.add(b));
+        Assert.assertEquals(one.subtract(mixed).toColumnVector(), a.subtract(b));
+        Assert.assertEquals(mixed.scale(2.5f).toColumnVector(), b.scale(2.5f));
+        Assert.assertEquals(mixed.negate().toColumnVector(), b.negate());
+        Assert.assertEquals(one.cross(mixed).toColumnVector(), a.cross(b));
+        Assert.assertEquals(one.dot(mixed), a.dot(b));
+        Assert.assertEquals(mixed.length(), b.length());
+        Assert.assertEquals(mixed.lengthSquared(), b.lengthSquared());
+    }
+
+    @Test
+    public void intoVariantsDoNotAllocateTest() {
+        Vec3 dest = new Vec3();
+        Assert.assertSame(one.addInto(mixed, dest), dest);
+        Assert.assertEquals(dest, new Vec3(4, -3, 13));
+
+        Vec3 inPlace = new Vec3(mixed);
+        inPlace.scaleInto(2, inPlace);
+        Assert.assertEquals(inPlace, new Vec3(6, -8, 24));
+
+        Vec3 crossed = new Vec3(1, 0, 0);
+        crossed.crossInto(new Vec3(0, 1, 0), crossed);
+        Assert.assertEquals(crossed, new Vec3(0, 0, 1));
+    }
+
+    @Test
+    public void normalizeTest() {
+        Vec3 normal = mixed.normalize();
+        Assert.assertEquals(normal.length(), 1f, 1e-6f);
+        Assert.assertEquals(normal.getX(), 3f / 13f, 1e-6f);
+
+        Assert.assertThrows(ArithmeticException.class, () -> new Vec3().normalize());
+    }
+
+    @Test
+    public void conversionTest() {
+        Assert.assertEquals(new Vec3(new ColumnVector(3, -4, 12)), mixed);
+        Assert.assertThrows(IllegalArgumentException.class, () -> new Vec3(new ColumnVector(1, 2)));
+    }
+
+    @Test
+    public void storeInBufferTest() {
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(3);
+        mixed.storeCoordinatesInBuffer(buffer);
+        buffer.flip();
+        Assert.assertEquals(buffer.get(0), 3f);
+        Assert.assertEquals(buffer.get(2), 12f);
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> one.storeCoordinatesInBuffer(null));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> one.storeCoordinatesInBuffer(BufferUtils.createFloatBuffer(2)));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.geom;
+
+import com.edenrump.math.arrays.SquareMatrix;
+import com.edenrump.math.arrays.Vec3;
+import com.edenrump.math.util.Volume;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class QuaternionTest {
+
+    static final float THRESHOLD = 1e-5f;
+
+    static void assertMatrixEquals(SquareMatrix actual, SquareMatrix expected) {
+        Assert.assertEquals(actual.getDimensions(), expected.getDimensions());
+        for (int i = 0; i < actual.getValues().length; i++) {
+            Assert.assertEquals(actual.getValues()[i], expected.getValues()[i], THRESHOLD, "value " + i);
+        }
+    }
+
+    @Test
+    public void axisAngleMatchesVolumeTest() {
+        assertMatrixEquals(Quaternion.fromAxisAngle(35, 0, 0, 1).toRotationMatrix(),
+                Volume.createRotationMatrix(35, 0, 0, 1));
+        assertMatrixEquals(Quaternion.fromAxisAngle(-120, 1, 2, 3).toRotationMatrix(),
+                Volume.createRotationMatrix(-120, 1, 2, 3));
+
+        Assert.assertThrows(ArithmeticException.class, () -> Quaternion.fromAxisAngle(10, 0, 0, 0));
+    }
+
+    @Test
+    public void eulerAnglesMatchMatrixChainTest() {
+        SquareMatrix expected = new SquareMatrix(4)
+                .multiply(Volume.createRotationMatrix(30, 1, 0, 0))
+                .multiply(Volume.createRotationMatrix(-45, 0, 1, 0))
+                .multiply(Volume.createRotationMatrix(80, 0, 0, 1));
+        assertMatrixEquals(Quaternion.fromEulerAngles(30, -45, 80).toRotationMatrix(), expected);
+    }
+
+    @Test
+    public void multiplyTest() {
+        Quaternion first = Quaternion.fromAxisAngle(90, 1, 0, 0);
+        Quaternion second = Quaternion.fromAxisAngle(90, 0, 1, 0);
+        assertMatrixEquals(second.multiply(first).toRotationMatrix(),
+                first.toRotationMatrix().multiply(second.toRotationMatrix()));
+
+        Quaternion inverse = first.multiply(first.conjugate());
+        Assert.assertEquals(inverse.getW(), 1f, THRESHOLD);
+        Assert.assertEquals(inverse.getX(), 0f, THRESHOLD);
+    }
+
+    @Test
+    public void rotateVectorTest() {
+        Vec3 rotated = Quaternion.fromAxisAngle(90, 0, 0, 1).rotateInto(new Vec3(1, 0, 0), new Vec3());
+        Assert.assertEquals(rotated.getX(), 0f, THRESHOLD);
+        Assert.assertEquals(rotated.getY(), 1f, THRESHOLD);
+        Assert.assertEquals(rotated.getZ(), 0f, THRESHOLD);
+    }
+
+    @Test
+    public void slerpTest() {
+        Quaternion start = new Quaternion();
+        Quaternion end = Quaternion.fromAxisAngle(90, 0, 1, 0);
+        Quaternion halfway = start.slerp(end, 0.5f);
+        assertMatrixEquals(halfway.toRotationMatrix(), Volume.createRotationMatrix(45, 0, 1, 0));
+        Assert.assertEquals(start.slerp(end, 1f).dot(end), 1f, THRESHOLD);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.geom;
+
+import com.edenrump.math.arrays.Mat3;
+import com.edenrump.math.arrays.Mat4;
+import com.edenrump.math.arrays.SquareMatrix;
+import com.edenrump.math.util.Volume;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.FloatBuffer;
+
+public class TransformTest {
+
+    /**
+     * The transformation built from separate matrices, as scale, then x, y and z rotation, then translation
+     */
+    static SquareMatrix composeFromMatrices(Transform transform) {
+        float[] t = transform.getTranslation();
+        float[] r = transform.getRotation();
+        float[] s = transform.getScale();
+        return new SquareMatrix(4)
+                .multiply(Volume.createScaleMatrix(s[0], s[1], s[2]))
+                .multiply(Volume.createRotationMatrix(r[0], 1, 0, 0))
+                .multiply(Volume.createRotationMatrix(r[1], 0, 1, 0))
+                .multiply(Volume.createRotationMatrix(r[2], 0, 0, 1))
+                .multiply(Volume.createTranslationMatrix(t[0], t[1], t[2]));
+    }
+
+    @Test
+    public void closedFormMatchesMatrixChainTest() {
+        Transform transform = new Transform();
+        transform.translate(1, -2, 3);
+        transform.rotate(20, 0, 0);
+        transform.rotate(5, -60, 110);
+        transform.scale(2, 0.5f, 3);
+
+        QuaternionTest.assertMatrixEquals(transform.getTransformationMatrix(new Mat4()).toSquareMatrix(),
+                composeFromMatrices(transform));
+    }
+
+    @Test
+    public void settersTest() {
+        Transform transform = new Transform();
+        Mat4 before = transform.getTransformationMatrix(new Mat4());
+        int version = transform.getVersion();
+
+        //the getters return copies, so writing to them does not change the transform
+        transform.getTranslation()[0] = 5;
+        transform.getScale()[1] = 3;
+        transform.getOrientation().set(Quaternion.fromAxisAngle(90, 0, 0, 1));
+        Assert.assertEquals(transform.getVersion(), version);
+        Assert.assertEquals(transform.getTranslation(), new float[]{0, 0, 0});
+        Assert.assertEquals(transform.getMatrix(), before);
+
+        transform.setTranslation(1, -2, 3);
+        transform.setRotation(20, 0, 0);
+        transform.setScale(2, 0.5f, 3);
+        transform.setRotation(5, -60, 110);
+        Assert.assertEquals(transform.getVersion(), version + 4);
+        Assert.assertEquals(transform.getRotation(), new float[]{5, -60, 110});
+        QuaternionTest.assertMatrixEquals(transform.getTransformationMatrix(new Mat4()).toSquareMatrix(),
+                composeFromMatrices(transform));
+
+        Mat4 unoriented = transform.getTransformationMatrix(new Mat4());
+        transform.setOrientation(new Quaternion(0, 0, 2, 0));
+        Assert.assertEquals(transform.getVersion(), version + 5);
+        Assert.assertEquals(transform.getOrientation().getZ(), 1f, 1e-6f);
+        Assert.assertNotEquals(transform.getMatrix(), unoriented);
+    }
+
+    @Test
+    public void identityTest() {
+        FloatBuffer buffer = new Transform().getTransformationMatrix();
+        Assert.assertEquals(buffer.remaining(), 16);
+        for (int i = 0; i < 16; i++) {
+            Assert.assertEquals(buffer.get(i), i % 5 == 0 ? 1f : 0f);
+        }
+    }
+
+    @Test
+    public void orientationTest() {
+        Transform transform = new Transform();
+        transform.rotate(0, 0, 90);
+        transform.rotate(Quaternion.fromAxisAngle(90, 1, 0, 0));
+
+        SquareMatrix expected = Volume.createRotationMatrix(90, 0, 0, 1)
+                .multiply(Volume.createRotationMatrix(90, 1, 0, 0));
+        QuaternionTest.assertMatrixEquals(transform.getTransformationMatrix(new Mat4()).toSquareMatrix(), expected);
+    }
+
+    @Test
+    public void cachedMatrixTest() {
+        Transform transform = new Transform();
+        int version = transform.getVersion();
+        FloatBuffer first = transform.getTransformationMatrix();
+        Assert.assertSame(transform.getTransformationMatrix(), first);
+        Assert.assertEquals(transform.getVersion(), version);
+
+        transform.translate(4, 5, 6);
+        Assert.assertNotEquals(transform.getVersion(), version);
+        FloatBuffer moved = transform.getTransformationMatrix();
+        Assert.assertSame(moved, first);
+        Assert.assertEquals(moved.remaining(), 16);
+        Assert.assertEquals(moved.get(12), 4f);
+        Assert.assertEquals(transform.getMatrix().get(3, 2), 6f);
+
+        moved.get(); //a consumed buffer is rewound on the next request
+        Assert.assertEquals(transform.getTransformationMatrix().position(), 0);
+    }
+
+    @Test
+    public void normalMatrixTest() {
+        Transform transform = new Transform();
+        transform.translate(1, 2, 3);
+        transform.rotate(10, 20, 30);
+        transform.scale(2, 0.5f, 3);
+
+        Mat3 expected = transform.getMatrix().normalMatrixInto(new Mat3());
+        Mat3 normal = transform.getNormalMatrix();
+        for (int i = 0; i < 9; i++) {
+            Assert.assertEquals(normal.getValues()[i], expected.getValues()[i], 1e-5);
+        }
+        Assert.assertSame(transform.getNormalMatrix(), normal);
+        Assert.assertEquals(transform.getNormalMatrixBuffer().remaining(), 9);
+
+        transform.scale(2, 2, 2);
+        Assert.assertEquals(transform.getNormalMatrix().get(0, 0), expected.get(0, 0) / 2, 1e-5);
+
+        transform.scale(0, 1, 1);
+        Assert.assertThrows(ArithmeticException.class, transform::getNormalMatrix);
+    }
+}
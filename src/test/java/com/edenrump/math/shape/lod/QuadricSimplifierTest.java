@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.lod;
+
+import com.edenrump.math.arrays.ColumnVector;
+import com.edenrump.math.shape.mesh.Face;
+import com.edenrump.math.shape.mesh.GeometricConstruct;
+import com.edenrump.math.shape.mesh.HalfEdgeMesh;
+import com.edenrump.math.shape.mesh.ShadingType;
+import com.edenrump.math.shape.mesh.Vertex;
+import com.edenrump.math.shape.solids.Icosahedron;
+import com.edenrump.math.shape.solids.SolidGeometry;
+import com.edenrump.math.shape.textured.WrappedConstruct;
+import com.edenrump.math.shape.textured.WrappedVertex;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static com.edenrump.math.shape.mesh.GeometricConstruct.CARTESIAN;
+
+public class QuadricSimplifierTest {
+
+    @Test
+    public void closedMeshTest() {
+        GeometricConstruct sphere = getSphere();
+        QuadricSimplifier simplifier = new QuadricSimplifier(sphere);
+        Assert.assertEquals(simplifier.getFaceCount(), 1280);
+
+        int faces = simplifier.simplify(320);
+        Assert.assertTrue(faces <= 320 && faces > 200, "faces " + faces);
+        Assert.assertTrue(simplifier.getError() > 0);
+
+        GeometricConstruct simplified = simplifier.toConstruct();
+        Assert.assertEquals(simplified.getNumberOfFaces(), faces);
+        HalfEdgeMesh mesh = HalfEdgeMesh.fromConstruct(simplified);
+        Assert.assertTrue(mesh.isClosed());
+        Assert.assertEquals(mesh.getVertexCount() - faces * 3 / 2 + faces, 2);
+
+        //surviving vertices keep their places on the sphere, and the surface stays close to it
+        float[] positions = mesh.getPositions();
+        for (int i = 0; i < positions.length; i += 3) {
+            float radius = (float) Math.sqrt(positions[i] * positions[i] + positions[i + 1] * positions[i + 1] +
+                    positions[i + 2] * positions[i + 2]);
+            Assert.assertEquals(radius, 1f, 1e-5f);
+        }
+        Assert.assertTrue(simplifier.getError() < 0.1f, "error " + simplifier.getError());
+    }
+
+    @Test
+    public void planeTest() {
+        int size = 16;
+        GeometricConstruct plane = getGrid(size, false);
+        QuadricSimplifier simplifier = new QuadricSimplifier(plane);
+        simplifier.simplify(1, 1e-4f);
+
+        //a flat square needs only two triangles, and none of them move the surface; going further moves a corner
+        Assert.assertEquals(simplifier.getFaceCount(), 2);
+        Assert.assertEquals(simplifier.getError(), 0f, 1e-6f);
+        Assert.assertEquals(area(simplifier.toConstruct()), area(plane), 1e-4f);
+    }
+
+    @Test
+    public void seamTest() {
+        int size = 16;
+        WrappedConstruct grid = (WrappedConstruct) getGrid(size, true);
+        QuadricSimplifier simplifier = new QuadricSimplifier(grid);
+        simplifier.simplify(4);
+
+        GeometricConstruct simplified = simplifier.toConstruct();
+        Assert.assertTrue(simplified instanceof WrappedConstruct);
+        Assert.assertTrue(simplified.getNumberOfFaces() < grid.getNumberOfFaces() / 4);
+        Assert.assertEquals(area(simplified), area(grid), 1e-4f);
+
+        //faces never straddle the seam, and every vertex keeps the coordinate of its side
+        WrappedConstruct wrapped = (WrappedConstruct) simplified;
+        for (Face face : simplified.getFaces()) {
+            boolean right = false, left = false;
+            for (Vertex vertex : new Vertex[]{face.getV1(), face.getV2(), face.getV3()}) {
+                int index = simplified.getVertexIndex(vertex);
+                float u = wrapped.getTextureCoordinate(index).getValue(0);
+                float x = simplified.getVertexPosition(vertex.getVertexPositionIndex()).getValue(0);
+                if (u >= 10) {
+                    right = true;
+                    Assert.assertEquals(u, x + 10, 1e-6f);
+                } else {
+                    left = true;
+                    Assert.assertEquals(u, x, 1e-6f);
+                }
+            }
+            Assert.assertFalse(left && right);
+        }
+    }
+
+    @Test
+    public void lodChainTest() {
+        GeometricConstruct sphere = getSphere();
+        LODChain chain = LODChain.create(sphere, 1f, 0.5f, 0.25f, 0.1f);
+
+        Assert.assertEquals(chain.getLevelCount(), 4);
+        Assert.assertEquals(chain.getFaceCount(0), 1280);
+        Assert.assertEquals(chain.getError(0), 0f);
+        for (int level = 1; level < chain.getLevelCount(); level++) {
+            Assert.assertTrue(chain.getFaceCount(level) < chain.getFaceCount(level - 1));
+            Assert.assertTrue(chain.getError(level) >= chain.getError(level - 1));
+        }
+        Assert.assertTrue(chain.getFaceCount(3) <= 128);
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> LODChain.create(sphere, 0.5f, 0.75f));
+        Assert.assertThrows(IllegalArgumentException.class, () -> LODChain.create(sphere, 0f));
+        Assert.assertThrows(IllegalArgumentException.class, () -> LODChain.create(sphere));
+    }
+
+    //an icosahedron subdivided three times, with every position pushed out onto the unit sphere
+    private static GeometricConstruct getSphere() {
+        SolidGeometry geometry = new Icosahedron(1f, ShadingType.SMOOTH, 3).getGeometry();
+        float[] positions = geometry.getPositions();
+        for (int i = 0; i < positions.length; i += 3) {
+            float length = (float) Math.sqrt(positions[i] * positions[i] + positions[i + 1] * positions[i + 1] +
+                    positions[i + 2] * positions[i + 2]);
+            for (int j = 0; j < 3; j++) positions[i + j] /= length;
+        }
+        return new HalfEdgeMesh(positions, positions, geometry.getIndices()).toConstruct();
+    }
+
+    /**
+     * A unit square in the x-y plane divided into a grid of triangles. If textured, the texture coordinates have
+     * a seam at x = 0.5, with u = x to the left and u = x + 10 to the right.
+     */
+    private static GeometricConstruct getGrid(int size, boolean textured) {
+        GeometricConstruct grid = textured ? new WrappedConstruct(CARTESIAN) : new GeometricConstruct(CARTESIAN);
+        int normal = grid.addVertexNormal(0, 0, 1);
+        int[][][] vertices = new int[size + 1][size + 1][2];
+        for (int y = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                int position = grid.addVertexPosition(x / (float) size, y / (float) size, 0);
+                for (int side = 0; side < 2; side++) {
+                    if (!textured) {
+                        vertices[y][x][side] = grid.addVertex(new Vertex(position, normal));
+                        continue;
+                    }
+                    boolean seam = x == size / 2;
+                    int vertex = grid.addVertex(new WrappedVertex(position, normal, seam ? side : 0));
+                    float u = x / (float) size + ((seam ? side == 1 : x > size / 2) ? 10 : 0);
+                    ((WrappedConstruct) grid).addVertexTextureCoordinate(vertex, u, y / (float) size);
+                    vertices[y][x][side] = vertex;
+                }
+            }
+        }
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int side = x < size / 2 ? 0 : 1;
+                int a = vertices[y][x][side], b = vertices[y][x + 1][side];
+                int c = vertices[y + 1][x][side], d = vertices[y + 1][x + 1][side];
+                grid.addFace(a, b, d);
+                grid.addFace(a, d, c);
+            }
+        }
+        return grid;
+    }
+
+    private static float area(GeometricConstruct construct) {
+        float area = 0;
+        for (Face face : construct.getFaces()) {
+            ColumnVector a = construct.getVertexPosition(face.getV1().getVertexPositionIndex());
+            ColumnVector b = construct.getVertexPosition(face.getV2().getVertexPositionIndex());
+            ColumnVector c = construct.getVertexPosition(face.getV3().getVertexPositionIndex());
+            area += 0.5f * b.subtract(a).cross(c.subtract(a)).length();
+        }
+        return area;
+    }
+}
@@ -19,9 +19,15 @@
 
 package com.edenrump.math.shape.mesh;
 
+import com.edenrump.math.arrays.ColumnVector;
+import com.edenrump.math.shape.solids.Icosahedron;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import static com.edenrump.math.shape.mesh.GeometricConstruct.CARTESIAN;
 import static com.edenrump.math.shape.mesh.GeometricConstruct.POLAR;
 
@@ -186,6 +192,45 @@ public class GeometricConstructTest {
         Assert.assertEquals(square.getNumberOfFaces(), 32);
     }
 
+    @Test
+    public void subdivideMeshMatchesReferenceTest() {
+        GeometricConstruct construct = new Icosahedron(1f, ShadingType.FLAT).getMesh();
+        GeometricConstruct reference = new Icosahedron(1f, ShadingType.FLAT).getMesh();
+        for (int level = 0; level < 3; level++) {
+            construct.subdivideMesh();
+            subdivideByEdgeHashMap(reference);
+        }
+
+        Assert.assertEquals(construct.vertexPositions, reference.vertexPositions);
+        Assert.assertEquals(construct.vertexNormals, reference.vertexNormals);
+        Assert.assertEquals(construct.vertices, reference.vertices);
+        Assert.assertEquals(construct.getNumberOfFaces(), reference.getNumberOfFaces());
+        for (int i = 0; i < construct.getNumberOfFaces(); i++) {
+            Face face = construct.getFace(i);
+            Face expected = reference.getFace(i);
+            Assert.assertEquals(construct.getVertexIndex(face.getV1()), reference.getVertexIndex(expected.getV1()));
+            Assert.assertEquals(construct.getVertexIndex(face.getV2()), reference.getVertexIndex(expected.getV2()));
+            Assert.assertEquals(construct.getVertexIndex(face.getV3()), reference.getVertexIndex(expected.getV3()));
+        }
+    }
+
+    //the original object-keyed subdivision, kept as the reference topology
+    private static void subdivideByEdgeHashMap(GeometricConstruct construct) {
+        Map<Edge, Integer> edgesToMidPointVertex = new HashMap<>();
+        List<Face> oldFaces = construct.getFaces();
+        construct.faces.clear();
+        for (Face face : oldFaces) {
+            int v3 = edgesToMidPointVertex.computeIfAbsent(new Edge(face.getV1(), face.getV2()), construct::addMidPoint);
+            int v4 = edgesToMidPointVertex.computeIfAbsent(new Edge(face.getV2(), face.getV3()), construct::addMidPoint);
+            int v5 = edgesToMidPointVertex.computeIfAbsent(new Edge(face.getV3(), face.getV1()), construct::addMidPoint);
+
+            construct.faces.add(new Face(face.getV1(), construct.getVertex(v3), construct.getVertex(v5)));
+            construct.faces.add(new Face(face.getV2(), construct.getVertex(v4), construct.getVertex(v3)));
+            construct.faces.add(new Face(face.getV3(), construct.getVertex(v5), construct.getVertex(v4)));
+            construct.faces.add(new Face(construct.getVertex(v3), construct.getVertex(v4), construct.getVertex(v5)));
+        }
+    }
+
     public static GeometricConstruct getTestSquare() {
         float[][] points = squarePoints();
 
@@ -211,6 +256,77 @@ public class GeometricConstructTest {
         return square;
     }
 
+    @Test
+    public void indexTest() {
+        GeometricConstruct construct = new GeometricConstruct(CARTESIAN);
+        Assert.assertEquals(construct.addVertexPosition(0.1f, 0.2f, 0.3f), 0);
+        Assert.assertEquals(construct.addVertexPosition(0.4f, 0.5f, 0.6f), 1);
+        Assert.assertEquals(construct.addVertexPosition(0.1f, 0.2f, 0.3f), 0); //duplicates return the first index
+        Assert.assertEquals(construct.addVertexPosition(-0f, 0, 0), construct.addVertexPosition(0, 0, 0));
+        Assert.assertEquals(construct.vertexPositions.size(), 5);
+
+        construct.addVertexNormal(0, 0, 1);
+        Assert.assertEquals(construct.addVertex(new Vertex(0, 0)), 0);
+        Assert.assertEquals(construct.addVertex(new Vertex(1, 0)), 1);
+        Assert.assertEquals(construct.addVertex(new Vertex(3, 0)), 2);
+        Assert.assertEquals(construct.addVertex(new Vertex(1, 0)), 1);
+        Assert.assertEquals(construct.getVertexIndex(new Vertex(3, 0)), 2);
+        Assert.assertEquals(construct.getVertexIndex(new Vertex(4, 0)), -1);
+
+        construct.addFace(0, 1, 2);
+        construct.addFace(0, 1, 2);
+        Assert.assertEquals(construct.getNumberOfFaces(), 1);
+
+        //converting coordinates rebuilds the position index
+        construct.setCoordinateType(POLAR);
+        ColumnVector polar = construct.getVertexPosition(1);
+        Assert.assertEquals(construct.addVertexPosition(polar.getValue(0), polar.getValue(1), polar.getValue(2)), 1);
+    }
+
+    @Test(timeOut = 60000)
+    public void linearBuildTest() {
+        buildGrid(1 << 14); //warm up
+
+        long smaller = timeGridBuild(250_000);
+        long larger = timeGridBuild(1_000_000);
+
+        //a quadratic build would take 16 times as long for 4 times the faces
+        Assert.assertTrue(larger < smaller * 10, "1M faces took " + larger / 1_000_000 + "ms, 250k took " +
+                smaller / 1_000_000 + "ms");
+    }
+
+    private static long timeGridBuild(int faces) {
+        long start = System.nanoTime();
+        GeometricConstruct grid = buildGrid(faces);
+        long time = System.nanoTime() - start;
+        Assert.assertTrue(grid.getNumberOfFaces() >= faces);
+        return time;
+    }
+
+    /**
+     * Build a square grid of at least the given number of triangles
+     */
+    private static GeometricConstruct buildGrid(int faces) {
+        int quads = (int) Math.ceil(Math.sqrt(faces / 2.0));
+        int side = quads + 1;
+        GeometricConstruct grid = new GeometricConstruct(CARTESIAN);
+        int normal = grid.addVertexNormal(0, 0, 1);
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                grid.addVertex(new Vertex(grid.addVertexPosition(x / (float) quads, y / (float) quads, 0), normal));
+            }
+        }
+
+        for (int y = 0; y < quads; y++) {
+            for (int x = 0; x < quads; x++) {
+                int bottomLeft = y * side + x;
+                grid.addFace(bottomLeft, bottomLeft + 1, bottomLeft + side + 1);
+                grid.addFace(bottomLeft, bottomLeft + side + 1, bottomLeft + side);
+            }
+        }
+        return grid;
+    }
+
     private static float[][] squarePoints() {
         //  0-----2
         //  |  o  |    o origin, n = point; all points in the XY plane so inclination angle is 90° (π/2)
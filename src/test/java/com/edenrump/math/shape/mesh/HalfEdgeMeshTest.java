@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import com.edenrump.math.shape.solids.Icosahedron;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+public class HalfEdgeMeshTest {
+
+    @Test
+    public void closedMeshTest() {
+        GeometricConstruct construct = new Icosahedron().getMesh();
+        construct.subdivideMesh();
+        HalfEdgeMesh mesh = HalfEdgeMesh.fromConstruct(construct);
+
+        Assert.assertEquals(mesh.getVertexCount(), 42);
+        Assert.assertEquals(mesh.getFaceCount(), 80);
+        Assert.assertEquals(mesh.getHalfEdgeCount(), 240);
+        Assert.assertTrue(mesh.isClosed());
+
+        int[] ring = new int[8];
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            Assert.assertFalse(mesh.isBoundaryVertex(v));
+            int valence = mesh.getOneRing(v, ring);
+            Assert.assertEquals(valence, mesh.getValence(v));
+            Assert.assertTrue(valence == 5 || valence == 6);
+            for (int i = 0; i < valence; i++) {
+                Assert.assertTrue(mesh.isAdjacent(ring[i], v));
+            }
+        }
+
+        for (int h = 0; h < mesh.getHalfEdgeCount(); h++) {
+            int twin = mesh.getTwin(h);
+            Assert.assertEquals(mesh.getTwin(twin), h);
+            Assert.assertEquals(mesh.getOrigin(twin), mesh.getTarget(h));
+            Assert.assertEquals(mesh.getTarget(twin), mesh.getOrigin(h));
+        }
+    }
+
+    @Test
+    public void boundaryTest() {
+        HalfEdgeMesh mesh = getTestStrip();
+        Assert.assertFalse(mesh.isClosed());
+
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            Assert.assertTrue(mesh.isBoundaryVertex(v));
+        }
+
+        int[] ring = new int[4];
+        Assert.assertEquals(mesh.getOneRing(1, ring), 3);
+        int[] sorted = Arrays.copyOf(ring, 3);
+        Arrays.sort(sorted);
+        Assert.assertEquals(sorted, new int[]{0, 2, 3});
+        Assert.assertEquals(mesh.getValence(0), 2);
+
+        int boundaryEdges = 0;
+        for (int h = 0; h < mesh.getHalfEdgeCount(); h++) {
+            if (mesh.isBoundaryEdge(h)) boundaryEdges++;
+        }
+        Assert.assertEquals(boundaryEdges, 4);
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> mesh.getOneRing(1, new int[2]));
+        Assert.assertThrows(IllegalArgumentException.class, () -> mesh.getOneRing(1, null));
+    }
+
+    @Test
+    public void flipEdgeTest() {
+        HalfEdgeMesh mesh = getTestStrip();
+        int diagonal = -1;
+        for (int h = 0; h < mesh.getHalfEdgeCount(); h++) {
+            if (!mesh.isBoundaryEdge(h)) diagonal = h;
+        }
+        Assert.assertTrue(mesh.isAdjacent(1, 2));
+        Assert.assertFalse(mesh.isAdjacent(0, 3));
+
+        Assert.assertTrue(mesh.flipEdge(diagonal));
+        Assert.assertFalse(mesh.isAdjacent(1, 2));
+        Assert.assertTrue(mesh.isAdjacent(0, 3));
+        Assert.assertEquals(mesh.getValence(1), 2);
+        Assert.assertEquals(mesh.getValence(0), 3);
+
+        for (int h = 0; h < mesh.getHalfEdgeCount(); h++) {
+            int twin = mesh.getTwin(h);
+            if (twin >= 0) {
+                Assert.assertEquals(mesh.getTwin(twin), h);
+                Assert.assertEquals(mesh.getOrigin(twin), mesh.getTarget(h));
+            }
+        }
+
+        for (int h = 0; h < mesh.getHalfEdgeCount(); h++) {
+            if (mesh.isBoundaryEdge(h)) Assert.assertFalse(mesh.flipEdge(h));
+        }
+    }
+
+    @Test
+    public void flipEdgeClosedTest() {
+        HalfEdgeMesh mesh = HalfEdgeMesh.fromConstruct(new Icosahedron().getMesh());
+        int a = mesh.getOrigin(0);
+        int b = mesh.getTarget(0);
+        Assert.assertTrue(mesh.flipEdge(0));
+        Assert.assertFalse(mesh.isAdjacent(a, b));
+        Assert.assertEquals(mesh.getValence(a), 4);
+        Assert.assertEquals(mesh.getValence(b), 4);
+        Assert.assertTrue(mesh.isClosed());
+
+        int total = 0;
+        for (int v = 0; v < mesh.getVertexCount(); v++) total += mesh.getValence(v);
+        Assert.assertEquals(total, mesh.getHalfEdgeCount());
+    }
+
+    @Test
+    public void constructConversionTest() {
+        GeometricConstruct construct = GeometricConstructTest.getTestSquare();
+        construct.setCoordinateType(GeometricConstruct.CARTESIAN);
+        HalfEdgeMesh mesh = HalfEdgeMesh.fromConstruct(construct);
+
+        GeometricConstruct converted = mesh.toConstruct();
+        Assert.assertEquals(converted.getNumberOfVertices(), construct.getNumberOfVertices());
+        Assert.assertEquals(converted.getNumberOfFaces(), construct.getNumberOfFaces());
+        for (int i = 0; i < construct.getNumberOfVertices(); i++) {
+            Vertex original = construct.getVertex(i);
+            Vertex copy = converted.getVertex(i);
+            Assert.assertEquals(converted.getVertexPosition(copy.getVertexPositionIndex()),
+                    construct.getVertexPosition(original.getVertexPositionIndex()));
+            Assert.assertEquals(converted.getVertexNormal(copy.getVertexNormalIndex()),
+                    construct.getVertexNormal(original.getVertexNormalIndex()));
+        }
+        Assert.assertEquals(HalfEdgeMesh.fromConstruct(converted).getIndices(), mesh.getIndices());
+    }
+
+    @Test
+    public void invalidMeshTest() {
+        float[] positions = new float[5 * 3];
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new HalfEdgeMesh(positions, null, new int[]{0, 1, 5}));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new HalfEdgeMesh(positions, null, new int[]{0, 1, 1}));
+        //three faces on one edge
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new HalfEdgeMesh(positions, null, new int[]{0, 1, 2, 1, 0, 3, 0, 1, 4}));
+        //inconsistent winding
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new HalfEdgeMesh(positions, null, new int[]{0, 1, 2, 0, 1, 3}));
+    }
+
+    private static HalfEdgeMesh getTestStrip() {
+        float[] positions = {0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 1, 0};
+        return new HalfEdgeMesh(positions, null, new int[]{0, 1, 2, 2, 1, 3});
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class SubdivisionTest {
+
+    @Test
+    public void topologyTest() {
+        int[] indices = {0, 1, 2, 2, 1, 3};
+        Subdivision subdivision = Subdivision.subdivide(indices, 4);
+
+        Assert.assertEquals(subdivision.getMidPointCount(), 5);
+        Assert.assertEquals(subdivision.getVertexCount(), 9);
+        Assert.assertEquals(subdivision.getMidPointEdges(), new int[]{0, 1, 1, 2, 2, 0, 1, 3, 3, 2});
+        Assert.assertEquals(subdivision.getIndices(), new int[]{
+                0, 4, 6, 1, 5, 4, 2, 6, 5, 4, 5, 6,
+                2, 5, 8, 1, 7, 5, 3, 8, 7, 5, 7, 8});
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> Subdivision.subdivide(new int[]{0, 1}, 4));
+        Assert.assertThrows(IllegalArgumentException.class, () -> Subdivision.subdivide(new int[]{0, 1, 4}, 4));
+    }
+
+    @Test
+    public void parallelTopologyTest() {
+        int[] indices = {0, 1, 2, 0, 2, 3, 0, 3, 1, 1, 3, 2};
+        int vertexCount = 4;
+        while (indices.length / 3 <= Subdivision.PARALLEL_THRESHOLD * 4) {
+            Subdivision subdivision = Subdivision.subdivide(indices, vertexCount);
+            int[] expected = subdivideSequentially(indices, vertexCount);
+            Assert.assertEquals(subdivision.getIndices(), expected);
+
+            indices = subdivision.getIndices();
+            vertexCount = subdivision.getVertexCount();
+        }
+        //a closed mesh keeps V - E + F = 2
+        Assert.assertEquals(vertexCount - indices.length / 2 + indices.length / 3, 2);
+    }
+
+    @Test
+    public void subdivideAttributeTest() {
+        Subdivision subdivision = Subdivision.subdivide(new int[]{0, 1, 2}, 3);
+        float[] positions = subdivision.subdivideAttribute(new float[]{0, 0, 0, 2, 0, 0, 0, 4, 0}, 3);
+        Assert.assertEquals(positions, new float[]{0, 0, 0, 2, 0, 0, 0, 4, 0, 1, 0, 0, 1, 2, 0, 0, 2, 0});
+
+        float[] coordinates = subdivision.subdivideAttribute(new float[]{0, 0, 1, 0, 0, 1}, 2);
+        Assert.assertEquals(coordinates.length, 12);
+        Assert.assertThrows(IllegalArgumentException.class, () -> subdivision.subdivideAttribute(new float[4], 2));
+    }
+
+    @Test
+    public void edgeMapTest() {
+        EdgeMap map = new EdgeMap(3);
+        Assert.assertEquals(map.getCapacity(), 8);
+        Assert.assertEquals(EdgeMap.key(3, 7), EdgeMap.key(7, 3));
+
+        map.put(1, 2, 10);
+        map.put(7, 3, 11);
+        Assert.assertEquals(map.get(2, 1), 10);
+        Assert.assertEquals(map.get(3, 7), 11);
+        Assert.assertEquals(map.get(1, 3), EdgeMap.NO_VALUE);
+
+        int slot = map.insert(EdgeMap.key(4, 5));
+        Assert.assertEquals(map.insert(EdgeMap.key(5, 4)), slot);
+        Assert.assertTrue(map.putMinimum(slot, 5));
+        Assert.assertFalse(map.putMinimum(slot, 6));
+        Assert.assertTrue(map.putMinimum(slot, 2));
+        Assert.assertEquals(map.get(4, 5), 2);
+
+        map.insert(EdgeMap.key(0, 1));
+        Assert.assertThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 8; i++) map.insert(EdgeMap.key(10, 11 + i));
+        });
+    }
+
+    private static int[] subdivideSequentially(int[] indices, int vertexCount) {
+        Map<Long, Integer> midPoints = new HashMap<>();
+        int[] result = new int[indices.length * 4];
+        for (int f = 0; f < indices.length / 3; f++) {
+            int v0 = indices[f * 3], v1 = indices[f * 3 + 1], v2 = indices[f * 3 + 2];
+            int v3 = midPoints.computeIfAbsent(EdgeMap.key(v0, v1), key -> vertexCount + midPoints.size());
+            int v4 = midPoints.computeIfAbsent(EdgeMap.key(v1, v2), key -> vertexCount + midPoints.size());
+            int v5 = midPoints.computeIfAbsent(EdgeMap.key(v2, v0), key -> vertexCount + midPoints.size());
+            System.arraycopy(new int[]{v0, v3, v5, v1, v4, v3, v2, v5, v4, v3, v4, v5}, 0, result, f * 12, 12);
+        }
+        return result;
+    }
+
+}
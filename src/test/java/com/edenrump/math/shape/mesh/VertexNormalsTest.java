@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class VertexNormalsTest {
+
+    private static final float[] CUBE_POSITIONS = {
+            -0.5f, -0.5f, 0.5f, -0.5f, 0.5f, 0.5f, -0.5f, -0.5f, -0.5f, -0.5f, 0.5f, -0.5f,
+            0.5f, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, -0.5f, 0.5f, 0.5f, -0.5f};
+    private static final int[] CUBE_INDICES = {
+            1, 2, 0, 3, 6, 2, 7, 4, 6, 5, 0, 4, 6, 0, 2, 3, 5, 7,
+            1, 3, 2, 3, 7, 6, 7, 5, 4, 5, 1, 0, 6, 4, 0, 3, 1, 5};
+
+    @Test
+    public void faceNormalTest() {
+        float[] normals = VertexNormals.computeFaceNormals(new float[]{0, 0, 0, 2, 0, 0, 0, 3, 0, 1, 1, 1}, new int[]{0, 1, 2, 0, 2, 1, 3, 3, 3});
+        Assert.assertEquals(normals, new float[]{0, 0, 1, 0, 0, -1, 0, 0, 0});
+    }
+
+    @Test
+    public void smoothCubeTest() {
+        VertexNormals angle = VertexNormals.generate(CUBE_POSITIONS, CUBE_INDICES, VertexNormals.Weighting.ANGLE);
+        Assert.assertEquals(angle.getVertexCount(), 8);
+        Assert.assertEquals(angle.getIndices(), CUBE_INDICES);
+
+        //each face of the cube meets each corner at a right angle however it is triangulated
+        float[] normals = angle.getNormals();
+        float diagonal = (float) (1 / Math.sqrt(3));
+        for (int i = 0; i < normals.length; i++) {
+            Assert.assertEquals(normals[i], Math.signum(CUBE_POSITIONS[i]) * diagonal, 1e-6f);
+        }
+
+        //but corners split across more triangles of a face take more of their area
+        VertexNormals area = VertexNormals.generate(CUBE_POSITIONS, CUBE_INDICES, VertexNormals.Weighting.AREA);
+        boolean differs = false;
+        for (int i = 0; i < normals.length; i++) {
+            Assert.assertEquals(Math.signum(area.getNormals()[i]), Math.signum(CUBE_POSITIONS[i]));
+            differs |= Math.abs(area.getNormals()[i] - normals[i]) > 1e-3f;
+        }
+        Assert.assertTrue(differs);
+    }
+
+    @Test
+    public void creasedCubeTest() {
+        VertexNormals creased = VertexNormals.generate(CUBE_POSITIONS, CUBE_INDICES,
+                VertexNormals.Weighting.AREA, (float) Math.toRadians(60));
+        Assert.assertEquals(creased.getVertexCount(), 24);
+
+        int[] indices = creased.getIndices();
+        float[] normals = creased.getNormals();
+        float[] faceNormals = VertexNormals.computeFaceNormals(CUBE_POSITIONS, CUBE_INDICES);
+        for (int corner = 0; corner < indices.length; corner++) {
+            Assert.assertEquals(creased.getVertexSources()[indices[corner]], CUBE_INDICES[corner]);
+            for (int k = 0; k < 3; k++) {
+                Assert.assertEquals(normals[indices[corner] * 3 + k], faceNormals[corner / 3 * 3 + k], 1e-6f);
+            }
+        }
+
+        float[] positions = creased.remapAttribute(CUBE_POSITIONS, 3);
+        Assert.assertEquals(positions.length, 72);
+        Assert.assertEquals(positions[indices[5] * 3], CUBE_POSITIONS[CUBE_INDICES[5] * 3]);
+        Assert.assertThrows(IllegalArgumentException.class, () -> creased.remapAttribute(new float[3], 3));
+    }
+
+    @Test
+    public void sphereTest() {
+        int stacks = 64;
+        int slices = 128;
+        float[] positions = sphere(stacks, slices);
+        int[] indices = sphereIndices(stacks, slices);
+        Assert.assertTrue(indices.length / 3 > VertexNormals.PARALLEL_THRESHOLD);
+
+        for (VertexNormals.Weighting weighting : VertexNormals.Weighting.values()) {
+            VertexNormals smooth = VertexNormals.generate(positions, indices, weighting);
+            float[] normals = smooth.getNormals();
+            for (int v = 0; v < smooth.getVertexCount(); v++) {
+                float dot = normals[v * 3] * positions[v * 3] + normals[v * 3 + 1] * positions[v * 3 + 1] +
+                        normals[v * 3 + 2] * positions[v * 3 + 2];
+                Assert.assertTrue(dot > 0.999f, "vertex " + v + " normal is not radial: " + dot);
+            }
+        }
+
+        //every face of the sphere is within ten degrees of its neighbours, so nothing is split
+        VertexNormals creased = VertexNormals.generate(positions, indices, VertexNormals.Weighting.ANGLE,
+                (float) Math.toRadians(10));
+        Assert.assertEquals(creased.getVertexCount(), positions.length / 3);
+
+        //and with no tolerance every face is split from every other
+        VertexNormals faceted = VertexNormals.generate(positions, indices, VertexNormals.Weighting.ANGLE, 0);
+        Assert.assertTrue(faceted.getVertexCount() > indices.length / 2);
+        float[] facetedPositions = faceted.remapAttribute(positions, 3);
+        for (int corner = 0; corner < indices.length; corner++) {
+            int v = faceted.getIndices()[corner];
+            Assert.assertEquals(facetedPositions[v * 3 + 1], positions[indices[corner] * 3 + 1]);
+        }
+    }
+
+    @Test
+    public void argumentTest() {
+        Assert.assertThrows(IllegalArgumentException.class, () ->
+                VertexNormals.generate(new float[4], new int[]{0, 0, 0}, VertexNormals.Weighting.AREA));
+        Assert.assertThrows(IllegalArgumentException.class, () ->
+                VertexNormals.generate(new float[9], new int[]{0, 1}, VertexNormals.Weighting.AREA));
+        Assert.assertThrows(IllegalArgumentException.class, () ->
+                VertexNormals.generate(new float[9], new int[]{0, 1, 3}, VertexNormals.Weighting.AREA));
+        Assert.assertThrows(IllegalArgumentException.class, () ->
+                VertexNormals.generate(new float[9], new int[]{0, 1, 2}, VertexNormals.Weighting.AREA, -1));
+
+        //a vertex that no face uses is kept, with a zero normal
+        VertexNormals normals = VertexNormals.generate(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 5, 5, 5},
+                new int[]{0, 1, 2}, VertexNormals.Weighting.AREA, 0.5f);
+        Assert.assertEquals(normals.getVertexCount(), 4);
+        Assert.assertEquals(normals.getNormals(), new float[]{0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 0});
+    }
+
+    private static float[] sphere(int stacks, int slices) {
+        float[] positions = new float[(2 + (stacks - 1) * slices) * 3];
+        positions[1] = 1;
+        for (int stack = 1; stack < stacks; stack++) {
+            double polar = Math.PI * stack / stacks;
+            for (int slice = 0; slice < slices; slice++) {
+                double azimuth = 2 * Math.PI * slice / slices;
+                int v = 1 + (stack - 1) * slices + slice;
+                positions[v * 3] = (float) (Math.sin(polar) * Math.cos(azimuth));
+                positions[v * 3 + 1] = (float) Math.cos(polar);
+                positions[v * 3 + 2] = (float) (Math.sin(polar) * Math.sin(azimuth));
+            }
+        }
+        positions[positions.length - 2] = -1;
+        return positions;
+    }
+
+    private static int[] sphereIndices(int stacks, int slices) {
+        int bottom = 1 + (stacks - 1) * slices;
+        int[] indices = new int[2 * slices * (stacks - 1) * 3];
+        int i = 0;
+        for (int slice = 0; slice < slices; slice++) {
+            int next = (slice + 1) % slices;
+            indices[i++] = 0;
+            indices[i++] = 1 + next;
+            indices[i++] = 1 + slice;
+
+            for (int stack = 1; stack < stacks - 1; stack++) {
+                int a = 1 + (stack - 1) * slices + slice;
+                int b = 1 + (stack - 1) * slices + next;
+                int c = a + slices;
+                int d = b + slices;
+                indices[i++] = a;
+                indices[i++] = b;
+                indices[i++] = c;
+                indices[i++] = c;
+                indices[i++] = b;
+                indices[i++] = d;
+            }
+
+            indices[i++] = bottom;
+            indices[i++] = bottom - slices + slice;
+            indices[i++] = bottom - slices + next;
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.mesh;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class VertexTangentsTest {
+
+    //two quads side by side, the right one textured as a mirror image of the left
+    private static final float[] STRIP_POSITIONS = {0, 0, 0, 1, 0, 0, 2, 0, 0, 0, 1, 0, 1, 1, 0, 2, 1, 0};
+    private static final float[] STRIP_NORMALS = {0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1};
+    private static final float[] STRIP_COORDINATES = {0, 0, 1, 0, 0, 0, 0, 1, 1, 1, 0, 1};
+    private static final int[] STRIP_INDICES = {0, 1, 4, 0, 4, 3, 1, 2, 5, 1, 5, 4};
+
+    @Test
+    public void planeTest() {
+        int[] indices = {0, 1, 4, 0, 4, 3};
+        VertexTangents tangents = VertexTangents.generate(STRIP_POSITIONS, STRIP_NORMALS, STRIP_COORDINATES, indices);
+        Assert.assertEquals(tangents.getVertexCount(), 6);
+        Assert.assertEquals(tangents.getIndices(), indices);
+        for (int v : indices) {
+            assertTangent(tangents.getTangents(), v, 1, 0, 0, 1);
+        }
+
+        //texture coordinates running against the winding give a negative bitangent sign
+        VertexTangents mirrored = VertexTangents.generate(STRIP_POSITIONS, STRIP_NORMALS, STRIP_COORDINATES,
+                new int[]{1, 2, 5, 1, 5, 4});
+        for (int v : new int[]{1, 2, 5, 4}) {
+            assertTangent(mirrored.getTangents(), v, -1, 0, 0, -1);
+        }
+    }
+
+    @Test
+    public void mirrorSplitTest() {
+        VertexTangents tangents = VertexTangents.generate(STRIP_POSITIONS, STRIP_NORMALS, STRIP_COORDINATES,
+                STRIP_INDICES);
+        Assert.assertEquals(tangents.getVertexCount(), 8);
+        Assert.assertEquals(tangents.getVertexSources(), new int[]{0, 1, 1, 2, 3, 4, 4, 5});
+
+        int[] indices = tangents.getIndices();
+        for (int corner = 0; corner < indices.length; corner++) {
+            Assert.assertEquals(tangents.getVertexSources()[indices[corner]], STRIP_INDICES[corner]);
+            if (corner < 6) {
+                assertTangent(tangents.getTangents(), indices[corner], 1, 0, 0, 1);
+            } else {
+                assertTangent(tangents.getTangents(), indices[corner], -1, 0, 0, -1);
+            }
+        }
+
+        float[] coordinates = tangents.remapAttribute(STRIP_COORDINATES, 2);
+        Assert.assertEquals(coordinates, new float[]{0, 0, 1, 0, 1, 0, 0, 0, 0, 1, 1, 1, 1, 1, 0, 1});
+        Assert.assertThrows(IllegalArgumentException.class, () -> tangents.remapAttribute(new float[4], 2));
+    }
+
+    @Test
+    public void surfaceTest() {
+        int size = 64;
+        float[] positions = new float[(size + 1) * (size + 1) * 3];
+        float[] coordinates = new float[(size + 1) * (size + 1) * 2];
+        for (int y = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                int v = y * (size + 1) + x;
+                positions[v * 3] = x;
+                positions[v * 3 + 1] = y;
+                positions[v * 3 + 2] = (float) (2 * Math.sin(x * 0.2) * Math.cos(y * 0.3));
+                coordinates[v * 2] = x / (float) size;
+                coordinates[v * 2 + 1] = y / (float) size;
+            }
+        }
+        int[] indices = new int[size * size * 6];
+        int i = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int v = y * (size + 1) + x;
+                indices[i++] = v;
+                indices[i++] = v + 1;
+                indices[i++] = v + size + 2;
+                indices[i++] = v;
+                indices[i++] = v + size + 2;
+                indices[i++] = v + size + 1;
+            }
+        }
+        Assert.assertTrue(indices.length / 3 > VertexNormals.PARALLEL_THRESHOLD);
+
+        float[] normals = VertexNormals.generate(positions, indices, VertexNormals.Weighting.ANGLE).getNormals();
+        VertexTangents generated = VertexTangents.generate(positions, normals, coordinates, indices);
+        Assert.assertEquals(generated.getVertexCount(), positions.length / 3);
+
+        float[] tangents = generated.getTangents();
+        for (int v = 0; v < generated.getVertexCount(); v++) {
+            float x = tangents[v * 4], y = tangents[v * 4 + 1], z = tangents[v * 4 + 2];
+            Assert.assertEquals(x * x + y * y + z * z, 1, 1e-5f);
+            Assert.assertEquals(x * normals[v * 3] + y * normals[v * 3 + 1] + z * normals[v * 3 + 2], 0, 1e-5f);
+            //the surface slopes in x, but the tangent still follows it, not the y direction
+            Assert.assertTrue(x > 0.4f && Math.abs(y) < 0.05f, "vertex " + v + " tangent does not follow u");
+            Assert.assertEquals(tangents[v * 4 + 3], 1f);
+        }
+    }
+
+    @Test
+    public void degenerateTest() {
+        //with no texture coordinate area, any direction in the plane of the normal is taken
+        VertexTangents tangents = VertexTangents.generate(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0},
+                new float[]{0, 0, 1, 0, 0, 1, 0, 0, 1}, new float[6], new int[]{0, 1, 2});
+        float[] values = tangents.getTangents();
+        for (int v = 0; v < 3; v++) {
+            Assert.assertEquals(values[v * 4 + 2], 0f);
+            Assert.assertEquals(values[v * 4] * values[v * 4] + values[v * 4 + 1] * values[v * 4 + 1], 1, 1e-6f);
+            Assert.assertEquals(values[v * 4 + 3], 1f);
+        }
+
+        Assert.assertThrows(IllegalArgumentException.class, () ->
+                VertexTangents.generate(new float[9], new float[6], new float[6], new int[]{0, 1, 2}));
+        Assert.assertThrows(IllegalArgumentException.class, () ->
+                VertexTangents.generate(new float[9], new float[9], new float[6], new int[]{0, 1, 3}));
+        Assert.assertThrows(IllegalArgumentException.class, () ->
+                VertexTangents.generate(new float[9], null, new float[6], new int[]{0, 1, 2}));
+    }
+
+    private static void assertTangent(float[] tangents, int vertex, float x, float y, float z, float w) {
+        Assert.assertEquals(tangents[vertex * 4], x, 1e-6f);
+        Assert.assertEquals(tangents[vertex * 4 + 1], y, 1e-6f);
+        Assert.assertEquals(tangents[vertex * 4 + 2], z, 1e-6f);
+        Assert.assertEquals(tangents[vertex * 4 + 3], w);
+    }
+}
@@ -20,8 +20,10 @@
 package com.edenrump.math.shape.solids;
 
 import com.edenrump.math.arrays.ColumnVector;
+import com.edenrump.math.geom.Transform;
 import com.edenrump.math.shape.mesh.Face;
 import com.edenrump.math.shape.mesh.GeometricConstruct;
+import com.edenrump.math.shape.mesh.ShadingType;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -65,6 +67,62 @@ public class IcosahedronTest {
         }
     }
 
+    @Test
+    public void sharedGeometryTest() {
+        Icosahedron first = new Icosahedron(2f, ShadingType.SMOOTH, 2);
+        Icosahedron second = new Icosahedron(2f, ShadingType.SMOOTH, 2);
+        SolidGeometry geometry = first.getGeometry();
+        Assert.assertSame(second.getGeometry(), geometry);
+        Assert.assertNotSame(second.getMesh(), first.getMesh());
+
+        Assert.assertEquals(geometry.getFaceCount(), 20 * 16);
+        Assert.assertEquals(geometry.getVertexCount(), 162);
+
+        //every radius shares the unit geometry, and applies its radius as a scale
+        Icosahedron unitIcosahedron = new Icosahedron(1f, ShadingType.SMOOTH, 2);
+        Assert.assertSame(unitIcosahedron.getGeometry(), geometry);
+        Transform transform = new Transform();
+        first.applyScale(transform);
+        Assert.assertEquals(transform.getScale(), new float[]{2, 2, 2});
+
+        //while a construct is built at the radius of its instance
+        float[] unit = geometry.getPositions();
+        ColumnVector position = first.getMesh().getVertexPosition(0);
+        Assert.assertEquals(position.getValue(0), unit[0] * 2f);
+        Assert.assertEquals(position.getValue(1), unit[1] * 2f);
+
+        first.setSubdivisions(1);
+        Assert.assertEquals(first.getMesh().getNumberOfFaces(), 80);
+        Assert.assertThrows(IllegalArgumentException.class, () -> second.setSubdivisions(-1));
+        Assert.assertThrows(IllegalArgumentException.class, () -> second.setRadius(0));
+    }
+
+    @Test
+    public void flatShadingTest() {
+        Icosahedron ico = new Icosahedron(3f, ShadingType.FLAT);
+        GeometricConstruct mesh = ico.getMesh();
+        Assert.assertEquals(mesh.getNumberOfVertices(), 60);
+        Assert.assertEquals(mesh.getNumberOfFaces(), 20);
+
+        for (Face face : mesh.getFaces()) {
+            ColumnVector normal = mesh.getVertexNormal(face.getV1().getVertexNormalIndex());
+            Assert.assertEquals(normal.length(), 1f, 1e-6f);
+
+            //outward: the normal points the same way as the face centre
+            ColumnVector centre = mesh.getVertexPosition(face.getV1().getVertexPositionIndex())
+                    .add(mesh.getVertexPosition(face.getV2().getVertexPositionIndex()))
+                    .add(mesh.getVertexPosition(face.getV3().getVertexPositionIndex()));
+            Assert.assertTrue(centre.dot(normal) > 0);
+        }
+
+        float[] normals = new Icosahedron(3f, ShadingType.SMOOTH, 3).getGeometry().getNormals();
+        for (int i = 0; i < normals.length; i += 3) {
+            float length = (float) Math.sqrt(normals[i] * normals[i] + normals[i + 1] * normals[i + 1] +
+                    normals[i + 2] * normals[i + 2]);
+            Assert.assertEquals(length, 1f, 1e-6f);
+        }
+    }
+
     private float calculateArea(Face face, GeometricConstruct mesh) {
         ColumnVector P = mesh.getVertexPosition(face.getV1().getVertexPositionIndex());
         ColumnVector Q = mesh.getVertexPosition(face.getV2().getVertexPositionIndex());
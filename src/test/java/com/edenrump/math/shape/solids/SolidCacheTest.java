@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.shape.solids;
+
+import com.edenrump.math.shape.mesh.ShadingType;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class SolidCacheTest {
+
+    @BeforeMethod
+    public void clear() {
+        SolidCache.clear();
+    }
+
+    @AfterMethod
+    public void restore() {
+        SolidCache.setMaximumSize(SolidCache.DEFAULT_MAXIMUM_SIZE);
+        SolidCache.clear();
+    }
+
+    @Test
+    public void unitSharingTest() {
+        int[] generated = new int[1];
+        SolidGeometry unit = SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 0, () -> {
+            generated[0]++;
+            return getTestTriangle();
+        });
+
+        Assert.assertEquals(generated[0], 1);
+        Assert.assertSame(SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 0, null), unit);
+        Assert.assertEquals(SolidCache.getHits(), 1);
+        Assert.assertEquals(SolidCache.getMisses(), 1);
+
+        //keys differing in any part are distinct entries
+        SolidCache.get(SolidCacheTest.class, ShadingType.FLAT, 0, SolidCacheTest::getTestTriangle);
+        SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 1, SolidCacheTest::getTestTriangle);
+        SolidCache.get(Icosahedron.class, ShadingType.SMOOTH, 0, SolidCacheTest::getTestTriangle);
+        Assert.assertEquals(SolidCache.size(), 4);
+
+        //icosahedra of any radius share one entry
+        SolidCache.clear();
+        SolidGeometry small = new Icosahedron(0.5f, ShadingType.SMOOTH, 1).getGeometry();
+        Assert.assertSame(new Icosahedron(7f, ShadingType.SMOOTH, 1).getGeometry(), small);
+        Assert.assertEquals(SolidCache.size(), 1);
+    }
+
+    @Test
+    public void concurrentGenerationTest() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            //generating one solid does not hold a lock that stops another being generated meanwhile
+            SolidGeometry outer = SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 0, () -> {
+                try {
+                    executor.submit(() -> SolidCache.get(SolidCacheTest.class, ShadingType.FLAT, 0,
+                            SolidCacheTest::getTestTriangle)).get(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return getTestTriangle();
+            });
+            Assert.assertNotNull(outer);
+            Assert.assertEquals(SolidCache.size(), 2);
+        } finally {
+            executor.shutdown();
+        }
+
+        //a failed generation is not cached
+        Assert.assertThrows(IllegalStateException.class, () -> SolidCache.get(SolidCacheTest.class,
+                ShadingType.SMOOTH, 3, () -> {
+                    throw new IllegalStateException("failed");
+                }));
+        Assert.assertEquals(SolidCache.size(), 2);
+    }
+
+    @Test
+    public void evictionTest() {
+        SolidCache.setMaximumSize(2);
+        SolidGeometry first = SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 0,
+                SolidCacheTest::getTestTriangle);
+        SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 1, SolidCacheTest::getTestTriangle);
+        SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 0, null);
+        SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 2, SolidCacheTest::getTestTriangle);
+
+        Assert.assertEquals(SolidCache.size(), 2);
+        //most recently used entry survives
+        Assert.assertSame(SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 0, null), first);
+        int[] generated = new int[1];
+        SolidCache.get(SolidCacheTest.class, ShadingType.SMOOTH, 1, () -> {
+            generated[0]++;
+            return getTestTriangle();
+        });
+        Assert.assertEquals(generated[0], 1);
+
+        SolidCache.setMaximumSize(1);
+        Assert.assertEquals(SolidCache.size(), 1);
+        Assert.assertThrows(IllegalArgumentException.class, () -> SolidCache.setMaximumSize(0));
+    }
+
+    private static SolidGeometry getTestTriangle() {
+        return new SolidGeometry(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new float[]{0, 0, 1, 0, 0, 1, 0, 0, 1},
+                new int[]{0, 1, 2});
+    }
+}
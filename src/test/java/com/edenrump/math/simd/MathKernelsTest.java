@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.simd;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class MathKernelsTest {
+
+    final MathKernel selected = MathKernels.get();
+    final MathKernel scalar = MathKernels.getScalar();
+    final Random random = new Random(7);
+
+    float[] randomValues(int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextFloat() * 10f - 5f;
+        }
+        return values;
+    }
+
+    @Test
+    public void multiply4x4MatchesScalarTest() {
+        float[] a = randomValues(16);
+        float[] b = randomValues(16);
+        float[] expected = new float[16];
+        float[] actual = new float[16];
+        scalar.multiply4x4(a, b, expected);
+        selected.multiply4x4(a, b, actual);
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void transformPositionsMatchesScalarTest() {
+        float[] matrix = randomValues(16);
+        for (int count : new int[]{0, 1, 2, 7, 8, 9, 33, 100, 1001}) {
+            float[] source = randomValues(count * 3);
+            float[] expected = new float[source.length];
+            float[] actual = new float[source.length];
+            scalar.transformPositions(matrix, source, expected, 0, count);
+            selected.transformPositions(matrix, source, actual, 0, count);
+            Assert.assertEquals(actual, expected, "count " + count);
+
+            //in place, over a sub-range
+            if (count > 4) {
+                float[] inPlace = source.clone();
+                System.arraycopy(source, 0, expected, 0, source.length);
+                scalar.transformPositions(matrix, source, expected, 2, count - 1);
+                selected.transformPositions(matrix, inPlace, inPlace, 2, count - 1);
+                Assert.assertEquals(inPlace, expected, "in place, count " + count);
+            }
+        }
+    }
+
+    @Test
+    public void dotMatchesScalarTest() {
+        float[] a = randomValues(3 * 101);
+        float[] b = randomValues(3 * 101);
+        float[] expected = new float[101];
+        float[] actual = new float[101];
+        scalar.dot(a, b, expected, 0, 101);
+        selected.dot(a, b, actual, 0, 101);
+        Assert.assertEquals(actual, expected);
+
+        Assert.assertEquals(selected.dot(a, b, a.length), scalar.dot(a, b, a.length), 1e-3f);
+        Assert.assertEquals(selected.dot(a, b, 5), scalar.dot(a, b, 5), 1e-5f);
+    }
+}
@@ -23,6 +23,9 @@ import org.lwjgl.BufferUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import static org.lwjgl.opengl.GL11.*;
+
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
@@ -60,4 +63,35 @@ public class BuffersTest {
         IntBuffer testBuffer = Buffers.storeDataInBuffer(ints);
         Assert.assertEquals(manualBuffer, testBuffer);
     }
+
+    @Test
+    public static void indexTypeTest() {
+        Assert.assertEquals(Buffers.getIndexType(4), GL_UNSIGNED_BYTE);
+        Assert.assertEquals(Buffers.getIndexType(256), GL_UNSIGNED_BYTE);
+        Assert.assertEquals(Buffers.getIndexType(257), GL_UNSIGNED_SHORT);
+        Assert.assertEquals(Buffers.getIndexType(65536), GL_UNSIGNED_SHORT);
+        Assert.assertEquals(Buffers.getIndexType(65537), GL_UNSIGNED_INT);
+        Assert.assertEquals(Buffers.getIndexType(new int[]{0, 1, 3, 3, 1, 2}), GL_UNSIGNED_BYTE);
+        Assert.assertEquals(Buffers.getIndexType(new int[]{0, 300, 2}), GL_UNSIGNED_SHORT);
+        Assert.assertEquals(Buffers.getIndexSize(GL_UNSIGNED_SHORT), 2);
+    }
+
+    @Test
+    public static void storeIndicesInBufferTest() {
+        int[] indices = {0, 255, 7};
+        ByteBuffer bytes = Buffers.storeIndicesInBuffer(indices, GL_UNSIGNED_BYTE);
+        Assert.assertEquals(bytes.remaining(), 3);
+        Assert.assertEquals(bytes.get(1) & 0xFF, 255);
+
+        ByteBuffer shorts = Buffers.storeIndicesInBuffer(new int[]{1, 65535}, GL_UNSIGNED_SHORT);
+        Assert.assertEquals(shorts.remaining(), 4);
+        Assert.assertEquals(shorts.getShort(2) & 0xFFFF, 65535);
+
+        ByteBuffer integers = Buffers.storeIndicesInBuffer(indices, GL_UNSIGNED_INT);
+        Assert.assertEquals(integers.remaining(), 12);
+        Assert.assertEquals(integers.getInt(8), 7);
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> Buffers.storeIndicesInBuffer(new int[]{256}, GL_UNSIGNED_BYTE));
+    }
 }
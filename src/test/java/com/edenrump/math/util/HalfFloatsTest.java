@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class HalfFloatsTest {
+
+    @Test
+    public void roundTripTest() {
+        //every half-precision value survives conversion to float and back
+        for (int bits = 0; bits <= 0xffff; bits++) {
+            short half = (short) bits;
+            float value = HalfFloats.toFloat(half);
+            if (Float.isNaN(value)) {
+                Assert.assertTrue(Float.isNaN(HalfFloats.toFloat(HalfFloats.toHalf(value))));
+            } else {
+                Assert.assertEquals(HalfFloats.toHalf(value), half);
+            }
+        }
+    }
+
+    @Test
+    public void knownValuesTest() {
+        Assert.assertEquals(HalfFloats.toHalf(1f), (short) 0x3c00);
+        Assert.assertEquals(HalfFloats.toHalf(-2f), (short) 0xc000);
+        Assert.assertEquals(HalfFloats.toHalf(HalfFloats.MAX_VALUE), (short) 0x7bff);
+        Assert.assertEquals(HalfFloats.toHalf(0x1p-24f), (short) 0x0001);
+        Assert.assertEquals(HalfFloats.toHalf(-0f), (short) 0x8000);
+        Assert.assertEquals(HalfFloats.toHalf(Float.NEGATIVE_INFINITY), (short) 0xfc00);
+        Assert.assertTrue(Float.isNaN(HalfFloats.toFloat(HalfFloats.toHalf(Float.NaN))));
+
+        //overflow, underflow and ties to even
+        Assert.assertEquals(HalfFloats.toHalf(65520f), (short) 0x7c00);
+        Assert.assertEquals(HalfFloats.toHalf(65519f), (short) 0x7bff);
+        Assert.assertEquals(HalfFloats.toHalf(0x1p-25f), (short) 0x0000);
+        Assert.assertEquals(HalfFloats.toHalf(0x1.8p-24f), (short) 0x0002);
+        Assert.assertEquals(HalfFloats.toHalf(1f + 0x1p-11f), (short) 0x3c00);
+        Assert.assertEquals(HalfFloats.toHalf(1f + 0x3p-11f), (short) 0x3c02);
+        Assert.assertEquals(HalfFloats.toHalf(0x1.ffcp-15f), (short) 0x0400); //rounds up into the normal range
+    }
+
+    @Test
+    public void nearestValueTest() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            float value = (random.nextFloat() * 2 - 1) * 1000;
+            short half = HalfFloats.toHalf(value);
+            float rounded = HalfFloats.toFloat(half);
+            float below = HalfFloats.toFloat((short) (half - 1));
+            float above = HalfFloats.toFloat((short) (half + 1));
+            Assert.assertTrue(Math.abs(rounded - value) <= Math.abs(below - value), value + " rounded to " + rounded);
+            Assert.assertTrue(Math.abs(rounded - value) <= Math.abs(above - value), value + " rounded to " + rounded);
+        }
+    }
+
+    @Test
+    public void vectorBufferTest() {
+        float[] normals = {0, 0, 1, 0.5f, -0.25f, 0.125f};
+        HalfVectorBuffer buffer = new HalfVectorBuffer(3, normals);
+        Assert.assertEquals(buffer.getCount(), 2);
+        Assert.assertEquals(buffer.getSizeInBytes(), normals.length * 2);
+        Assert.assertEquals(buffer.toFloatArray(), normals);
+        Assert.assertEquals(buffer.get(1, 1), -0.25f);
+
+        buffer.set(0, 0, 0.1f);
+        Assert.assertEquals(buffer.get(0, 0), 0.1f, 1e-4);
+        Assert.assertThrows(IllegalArgumentException.class, () -> new HalfVectorBuffer(3, new float[4]));
+        Assert.assertThrows(IllegalArgumentException.class, () -> HalfFloats.pack(new float[4], new short[3]));
+    }
+
+    @Test
+    public void alignedValuesTest() {
+        float[] normals = {0, 0, 1, 0.5f, -0.25f, 0.125f};
+        HalfVectorBuffer buffer = new HalfVectorBuffer(3, normals);
+        Assert.assertEquals(buffer.getAlignedComponents(), 4);
+        Assert.assertEquals(buffer.getAlignedStride(), 8);
+
+        short[] aligned = buffer.getAlignedValues();
+        Assert.assertEquals(aligned.length, 8);
+        for (int i = 0; i < 2; i++) {
+            for (int c = 0; c < 3; c++) {
+                Assert.assertEquals(HalfFloats.toFloat(aligned[i * 4 + c]), normals[i * 3 + c]);
+            }
+            Assert.assertEquals(aligned[i * 4 + 3], (short) 0);
+        }
+
+        HalfVectorBuffer uvs = new HalfVectorBuffer(2, new float[]{0.25f, 0.75f});
+        Assert.assertSame(uvs.getAlignedValues(), uvs.getValues());
+        Assert.assertEquals(uvs.getAlignedStride(), 4);
+    }
+}
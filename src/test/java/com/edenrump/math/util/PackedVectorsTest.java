@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+import com.edenrump.math.arrays.ColumnVector;
+import com.edenrump.math.arrays.Mat3;
+import com.edenrump.math.arrays.Mat4;
+import com.edenrump.math.arrays.SquareMatrix;
+import org.lwjgl.BufferUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+public class PackedVectorsTest {
+
+    final SquareMatrix transform = Volume.createTranslationMatrix(1, -2, 3)
+            .multiply(Volume.createRotationMatrix(40, 1, 1, 0));
+
+    static float[] randomPositions(int count) {
+        Random random = new Random(42);
+        float[] positions = new float[count * 3];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = random.nextFloat() * 20f - 10f;
+        }
+        return positions;
+    }
+
+    @Test
+    public void transformPositionsMatchesSquareMatrixTest() {
+        float[] positions = randomPositions(100);
+        float[] transformed = new float[positions.length];
+        PackedVectors.transformPositions(new Mat4(transform), positions, transformed);
+
+        for (int i = 0; i < positions.length; i += 3) {
+            ColumnVector expected = transform.multiply(
+                    new ColumnVector(positions[i], positions[i + 1], positions[i + 2], 1));
+            Assert.assertEquals(transformed[i], expected.getValue(0), 1e-5f);
+            Assert.assertEquals(transformed[i + 1], expected.getValue(1), 1e-5f);
+            Assert.assertEquals(transformed[i + 2], expected.getValue(2), 1e-5f);
+        }
+    }
+
+    @Test
+    public void parallelMatchesSequentialTest() {
+        float[] positions = randomPositions(PackedVectors.PARALLEL_THRESHOLD * 5 + 7);
+        float[] sequential = new float[positions.length];
+        float[] parallel = positions.clone();
+
+        PackedVectors.transformPositions(transform, positions, sequential);
+        PackedVectors.transformPositionsParallel(new Mat4(transform), parallel, parallel);
+        Assert.assertEquals(parallel, sequential);
+
+        Mat3 rotation = new Mat3().set(new Mat4(transform));
+        float[] normals = positions.clone();
+        float[] sequentialNormals = new float[normals.length];
+        PackedVectors.transformNormals(rotation, normals, sequentialNormals, true);
+        PackedVectors.transformNormalsParallel(rotation, normals, normals, true);
+        Assert.assertEquals(normals, sequentialNormals);
+    }
+
+    @Test
+    public void bufferAndComponentStreamsTest() {
+        float[] positions = randomPositions(10);
+        float[] expected = new float[positions.length];
+        Mat4 matrix = new Mat4(transform);
+        PackedVectors.transformPositions(matrix, positions, expected);
+
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(positions.length);
+        buffer.put(positions).flip();
+        PackedVectors.transformPositions(matrix, buffer, buffer);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(buffer.get(i), expected[i]);
+        }
+
+        float[] xs = new float[10], ys = new float[10], zs = new float[10];
+        for (int i = 0; i < 10; i++) {
+            xs[i] = positions[i * 3];
+            ys[i] = positions[i * 3 + 1];
+            zs[i] = positions[i * 3 + 2];
+        }
+        PackedVectors.transformPositions(matrix, xs, ys, zs);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(xs[i], expected[i * 3]);
+            Assert.assertEquals(zs[i], expected[i * 3 + 2]);
+        }
+    }
+
+    @Test
+    public void scaleAndTranslateTest() {
+        float[] positions = new float[]{1, 2, 3, -1, -2, -3};
+        PackedVectors.scaleAndTranslate(new float[]{2, 2, 2}, new float[]{1, 0, 0}, positions, positions);
+        Assert.assertEquals(positions, new float[]{3, 4, 6, -1, -4, -6});
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> PackedVectors.transformPositions(new Mat4(), new float[4], new float[4]));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> PackedVectors.transformPositions(new Mat4(), new float[6], new float[3]));
+    }
+}
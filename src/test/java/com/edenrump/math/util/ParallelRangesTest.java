@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelRangesTest {
+
+    @Test
+    public void coverageTest() {
+        int[] visits = new int[10007];
+        AtomicInteger ranges = new AtomicInteger();
+        ParallelRanges.forEachRange(visits.length, 100, (from, to) -> {
+            Assert.assertTrue(to - from <= 100);
+            ranges.incrementAndGet();
+            for (int i = from; i < to; i++) visits[i]++;
+        });
+        for (int visit : visits) Assert.assertEquals(visit, 1);
+        Assert.assertTrue(ranges.get() >= 101);
+
+        //a short loop is run in one call on the calling thread
+        Thread caller = Thread.currentThread();
+        ParallelRanges.forEachRange(100, 100, (from, to) -> {
+            Assert.assertEquals(Thread.currentThread(), caller);
+            Assert.assertEquals(to - from, 100);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> ParallelRanges.forEachRange(10, 0, (from, to) -> {
+        }));
+    }
+
+    @Test
+    public void dedicatedPoolTest() throws ExecutionException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            boolean inPool = pool.submit(() -> {
+                AtomicInteger outside = new AtomicInteger();
+                ParallelRanges.forEachRange(1000, 10, (from, to) -> {
+                    if (ForkJoinTask.getPool() != pool) outside.incrementAndGet();
+                });
+                return outside.get() == 0;
+            }).get();
+            Assert.assertTrue(inPool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
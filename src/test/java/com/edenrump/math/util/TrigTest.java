@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class TrigTest {
+
+    @Test
+    public void maxErrorTest() {
+        Random random = new Random(7);
+        for (int i = 0; i < 1_000_000; i++) {
+            double radians = (random.nextDouble() * 2 - 1) * 100;
+            Assert.assertEquals(Trig.sin(radians), Math.sin(radians), Trig.MAX_ERROR);
+            Assert.assertEquals(Trig.cos(radians), Math.cos(radians), Trig.MAX_ERROR);
+        }
+        Assert.assertEquals(Trig.sin(Math.PI / 2), 1f);
+        Assert.assertEquals(Trig.cos(-Math.PI), -1f);
+        Assert.assertEquals(Trig.tan(Math.PI / 4), 1f, 1e-6);
+    }
+
+    @Test
+    public void exactModeTest() {
+        boolean previous = Trig.isExact();
+        try {
+            Trig.setExact(true);
+            Assert.assertEquals(Trig.sin(0.3), (float) Math.sin(0.3));
+            Assert.assertEquals(Trig.cos(0.3), (float) Math.cos(0.3));
+            Assert.assertEquals(Trig.tan(0.3), (float) Math.tan(0.3));
+        } finally {
+            Trig.setExact(previous);
+        }
+    }
+
+    @Test
+    public void outsideTableTest() {
+        double large = Trig.TABLE_LIMIT * 4;
+        Assert.assertEquals(Trig.sin(large), (float) Math.sin(large));
+        Assert.assertTrue(Float.isNaN(Trig.cos(Double.NaN)));
+        Assert.assertTrue(Float.isNaN(Trig.sin(Double.POSITIVE_INFINITY)));
+    }
+}
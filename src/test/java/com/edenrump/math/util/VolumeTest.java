@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020 Ed Eden-Rump
+ *
+ * This file is part of Nested Engine.
+ *
+ * Nested Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Nested Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Nested Engine.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.edenrump.math.util;
+
+import com.edenrump.math.arrays.ColumnVector;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class VolumeTest {
+
+    @Test
+    public void batchPolarConversionTest() {
+        //large enough to be split across the fork-join pool
+        int count = PackedVectors.PARALLEL_THRESHOLD * 2 + 5;
+        Random random = new Random(3);
+        float[] cartesian = new float[count * 3];
+        for (int i = 0; i < cartesian.length; i++) cartesian[i] = random.nextFloat() * 10 - 5;
+
+        float[] polar = new float[cartesian.length];
+        Volume.convertCartesianCoordinatesToPolar(cartesian, polar);
+        float[] roundTrip = polar.clone();
+        Volume.convertPolarCoordinatesToCartesian(roundTrip, roundTrip);
+
+        for (int i = 0; i < count; i++) {
+            ColumnVector source = new ColumnVector(cartesian[i * 3], cartesian[i * 3 + 1], cartesian[i * 3 + 2]);
+            ColumnVector expectedPolar = Volume.convertCartesianCoordinateToPolar(source);
+            ColumnVector expectedCartesian = Volume.convertPolarCoordinateToCartesian(expectedPolar);
+            for (int component = 0; component < 3; component++) {
+                Assert.assertEquals(polar[i * 3 + component], expectedPolar.getValue(component));
+                Assert.assertEquals(roundTrip[i * 3 + component], expectedCartesian.getValue(component));
+            }
+        }
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> Volume.convertPolarCoordinatesToCartesian(new float[4], new float[4]));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> Volume.convertCartesianCoordinatesToPolar(new float[6], new float[3]));
+    }
+}